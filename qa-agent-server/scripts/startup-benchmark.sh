@@ -0,0 +1,77 @@
+#!/usr/bin/env bash
+# 기동 시간 벤치마크
+#   jar      : java -jar (MCP 백그라운드 연결, 모델 클라이언트 지연 생성)
+#   eager    : jar + spring.ai.mcp.client.initialized=true (MCP 서버를 기동 중에 순서대로 연결하던 이전 방식)
+#   aot-cds  : 압축 해제한 jar + Spring AOT + AppCDS 아카이브 (./gradlew :qa-agent-server:cdsArchive 필요)
+# 각 모드를 RUNS번 실행하여 "Started AgentApplication" 로그 시점과 /actuator/health/readiness UP 시점의 중앙값을 출력합니다.
+#
+# 사용법: qa-agent-server/scripts/startup-benchmark.sh [모드...]   (기본: jar eager aot-cds)
+#   RUNS=5 PORT=18090 READY_TIMEOUT=180 로 조정
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${RUNS:-5}
+PORT=${PORT:-18090}
+READY_TIMEOUT=${READY_TIMEOUT:-180}
+MODES=("$@")
+[ ${#MODES[@]} -eq 0 ] && MODES=(jar eager aot-cds)
+
+JAR=$(ls build/libs/*.jar 2>/dev/null | grep -v -- '-plain' | head -1 || true)
+CDS_DIR=build/cds
+
+now_ms() { date +%s%3N; }
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { if (NR == 0) print "-"; else if (NR % 2) print v[(NR + 1) / 2]; else print int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+run_once() {
+    local mode=$1 log
+    log=$(mktemp)
+    local start
+    start=$(now_ms)
+    case $mode in
+        jar)     java -jar "$JAR" --server.port="$PORT" >"$log" 2>&1 & ;;
+        eager)   java -jar "$JAR" --server.port="$PORT" --spring.ai.mcp.client.initialized=true >"$log" 2>&1 & ;;
+        aot-cds) (cd "$CDS_DIR" && exec java -XX:SharedArchiveFile=application.jsa -Xlog:cds=off -Dspring.aot.enabled=true \
+                     -jar "$(ls ./*.jar | head -1)" --server.port="$PORT") >"$log" 2>&1 & ;;
+    esac
+    local pid=$! started="" ready=""
+    while kill -0 "$pid" 2>/dev/null; do
+        local elapsed=$(( $(now_ms) - start ))
+        if [ -z "$started" ] && grep -q "Started AgentApplication" "$log"; then
+            started=$elapsed
+        fi
+        if [ -n "$started" ] && curl -fs "http://localhost:$PORT/actuator/health/readiness" >/dev/null 2>&1; then
+            ready=$elapsed
+            break
+        fi
+        if [ "$elapsed" -gt $(( READY_TIMEOUT * 1000 )) ]; then
+            break
+        fi
+        sleep 0.1
+    done
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+    rm -f "$log"
+    echo "${started:--} ${ready:--}"
+}
+
+printf '%-8s %12s %12s\n' mode started_ms ready_ms
+for mode in "${MODES[@]}"; do
+    if [ "$mode" = aot-cds ] && [ ! -f "$CDS_DIR/application.jsa" ]; then
+        echo "$mode: $CDS_DIR/application.jsa가 없습니다 (./gradlew :qa-agent-server:cdsArchive)" >&2
+        continue
+    fi
+    if [ "$mode" != aot-cds ] && [ -z "$JAR" ]; then
+        echo "$mode: build/libs에 실행 jar가 없습니다 (./gradlew :qa-agent-server:bootJar)" >&2
+        continue
+    fi
+    results=()
+    for _ in $(seq "$RUNS"); do
+        results+=("$(run_once "$mode")")
+    done
+    started=$(printf '%s\n' "${results[@]}" | awk '$1 != "-" { print $1 }' | median)
+    ready=$(printf '%s\n' "${results[@]}" | awk '$2 != "-" { print $2 }' | median)
+    printf '%-8s %12s %12s\n' "$mode" "$started" "$ready"
+done
@@ -3,44 +3,26 @@ package com.auto.qa;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.List;
 
 @SpringBootApplication
+@EnableScheduling
 public class AgentApplication {
-    public static void main(String[] args) {
-        Dotenv dotenv = Dotenv.load();
-        String geminiApiKey = dotenv.get("GEMINI_API_KEY");
-        if (geminiApiKey != null) {
-            System.setProperty("GEMINI_API_KEY", geminiApiKey);
-        }
-
-        String geminiProjectId = dotenv.get("GEMINI_PROJECT_ID");
-        if (geminiProjectId != null) {
-            System.setProperty("GEMINI_PROJECT_ID", geminiProjectId);
-        }
-
-        String geminiModel = dotenv.get("GEMINI_MODEL");
-        if (geminiModel != null) {
-            System.setProperty("GEMINI_MODEL", geminiModel);
-        }
+    /** .env에서 시스템 속성으로 옮기는 키 (application.yml의 플레이스홀더) */
+    private static final List<String> DOTENV_KEYS = List.of(
+        "GEMINI_API_KEY", "GEMINI_PROJECT_ID", "GEMINI_MODEL", "GEMINI_TEMPERATURE",
+        "OLLAMA_BASE_URL", "OLLAMA_MODEL", "OLLAMA_TEMPERATURE");
 
-        String geminiTemperature = dotenv.get("GEMINI_TEMPERATURE");
-        if (geminiTemperature != null) {
-            System.setProperty("GEMINI_TEMPERATURE", geminiTemperature);
-        }
-
-        String ollamaBaseUrl = dotenv.get("OLLAMA_BASE_URL");
-        if (ollamaBaseUrl != null) {
-            System.setProperty("OLLAMA_BASE_URL", ollamaBaseUrl);
-        }
-
-        String ollamaModel = dotenv.get("OLLAMA_MODEL");
-        if (ollamaModel != null) {
-            System.setProperty("OLLAMA_MODEL", ollamaModel);
-        }
-
-        String ollamaTemperature = dotenv.get("OLLAMA_TEMPERATURE");
-        if (ollamaTemperature != null) {
-            System.setProperty("OLLAMA_TEMPERATURE", ollamaTemperature);
+    public static void main(String[] args) {
+        // Containers pass these as environment variables, and the AOT/CDS training runs have no .env at all
+        Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+        for (String key : DOTENV_KEYS) {
+            String value = dotenv.get(key);
+            if (value != null) {
+                System.setProperty(key, value);
+            }
         }
 
         SpringApplication.run(AgentApplication.class, args);
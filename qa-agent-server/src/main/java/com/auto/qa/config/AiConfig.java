@@ -3,34 +3,39 @@ package com.auto.qa.config;
 import lombok.Getter;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.tool.ToolCallbackProvider;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
 
 
+import com.google.auth.oauth2.GoogleCredentials;
 import com.google.genai.Client;
-import org.springframework.ai.google.genai.GoogleGenAiChatModel;
+import com.google.genai.types.HttpOptions;
+import com.google.genai.types.HttpRetryOptions;
 import org.springframework.ai.google.genai.GoogleGenAiChatOptions;
+import org.springframework.ai.model.google.genai.autoconfigure.chat.GoogleGenAiConnectionProperties;
 import org.springframework.ai.model.tool.ToolCallingManager;
 import org.springframework.retry.support.RetryTemplate;
 import io.micrometer.observation.ObservationRegistry;
 
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.springframework.http.client.ClientHttpResponse;
 
 import java.io.IOException;
-
-import org.springframework.ai.tool.ToolCallback;
-import org.springframework.ai.tool.definition.ToolDefinition;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.InputStream;
+
+import com.auto.qa.service.ActiveRunRegistry;
+import com.auto.qa.service.GeminiContextCacheAdvisor;
+import com.auto.qa.service.GeminiRateLimiter;
+import com.auto.qa.service.McpStartupService;
+import com.auto.qa.service.RunCheckpointStore;
+import com.auto.qa.service.RunUsageAdvisor;
+import com.auto.qa.tool.QaToolCallbackFactory;
 import org.springframework.ai.ollama.api.OllamaApi;
 import org.springframework.ai.ollama.OllamaChatModel;
 import org.springframework.ai.ollama.api.OllamaChatOptions;
@@ -40,6 +45,7 @@ import org.springframework.ai.ollama.management.ModelManagementOptions;
 @Configuration
 public class AiConfig {
 
+    @Getter
     private final String ollamaBaseUrl;
 
     @Getter
@@ -53,7 +59,11 @@ public class AiConfig {
     private final AiModelProperties aiModelProperties;
     private final RestClient.Builder restClientBuilder;
     private final WebClient.Builder webClientBuilder;
-    private final ToolCallbackProvider toolCallbackProvider; // New field
+    private final ToolCallbackProvider qaToolCallbackProvider;
+    private final OllamaApi ollamaApi;
+    private final GeminiContextCacheAdvisor geminiContextCacheAdvisor;
+    private final ToolCallingManager geminiToolCallingManager;
+    private final GeminiRateLimiter geminiRateLimiter;
 
 
     private static final String QA_AGENT_SYSTEM_PROMPT = """
@@ -108,11 +118,12 @@ public class AiConfig {
         - 각 단계마다 사용자에게 진행 상황을 알리고 이모지를 사용하여 가독성을 향상시킵니다.
         - 테스트 결과를 명확하게 요약하여 제공합니다.
         - `browser_snapshot` 사용 시 `AccessibilityTree`를 분석하여 페이지 요소를 식별합니다.
+        - 같은 페이지에서 반복 호출한 `browser_snapshot` 결과는 직전 스냅샷 대비 변경분(added/changed/removed)만 전달될 수 있습니다. 생략된 노드의 `ref`는 그대로 유효하며, 전체 트리가 필요하면 `fullSnapshot: true` 인자로 호출합니다.
         - `browser_click`, `browser_type` 등의 도구를 사용할 때는 `AccessibilityTree`에서 식별된 요소를 `ref` 속성을 활용하여 정확히 지정하도록 노력합니다.
         - 리포트 파일명은 "report_YYYYMMDD_HHMMSS.md" 형식을 사용합니다.
         """;
 
-    public AiConfig(Client genAiClient,
+    public AiConfig(GoogleGenAiConnectionProperties genAiConnectionProperties,
                     @Value("${spring.ai.google.genai.chat.options.temperature:0.3}") Double defaultTemperature,
                     ToolCallingManager toolCallingManager,
                     RetryTemplate retryTemplate,
@@ -122,107 +133,106 @@ public class AiConfig {
                     WebClient.Builder webClientBuilder,
                     @Value("${spring.ai.ollama.chat.base-url:http://localhost:11434}") String ollamaBaseUrl,
                     @Value("${spring.ai.ollama.models:llama3.2,qwen2.5:3b}") List<String> ollamaModels,
-                    ToolCallbackProvider toolCallbackProvider) { // New parameter
+                    ToolCallbackProvider toolCallbackProvider, // New parameter
+                    QaToolCallbackFactory qaToolCallbackFactory,
+                    McpStartupService mcpStartupService,
+                    GeminiContextCacheAdvisor geminiContextCacheAdvisor,
+                    GeminiRateLimiter geminiRateLimiter,
+                    RunCheckpointStore runCheckpointStore,
+                    ActiveRunRegistry activeRunRegistry,
+                    RunUsageAdvisor runUsageAdvisor) {
 
         this.ollamaBaseUrl = ollamaBaseUrl;
         this.ollamaModels = ollamaModels;
-        this.genAiClient = genAiClient;
+        this.genAiClient = withoutSdkRetries(genAiConnectionProperties);
         this.defaultTemperature = defaultTemperature;
-        this.toolCallingManager = toolCallingManager;
+        // Every tool-call round of a run is checkpointed, so an interrupted run can resume after a restart,
+        // a cancelled run stops before its next model call, and a run over its token budget stops before its next tools
+        this.toolCallingManager = runUsageAdvisor.toolCallingManager(
+            activeRunRegistry.toolCallingManager(runCheckpointStore.toolCallingManager(toolCallingManager)));
         this.retryTemplate = retryTemplate;
         this.observationRegistry = observationRegistry;
         this.aiModelProperties = aiModelProperties;
         this.restClientBuilder = restClientBuilder;
         this.webClientBuilder = webClientBuilder;
-        this.toolCallbackProvider = toolCallbackProvider;
+        // MCP servers connect in the background; the first request waits for them instead of startup
+        this.qaToolCallbackProvider = qaToolCallbackFactory.wrap(() -> {
+            mcpStartupService.awaitReady();
+            return toolCallbackProvider.getToolCallbacks();
+        });
+        this.ollamaApi = buildOllamaApi(ollamaBaseUrl, restClientBuilder, webClientBuilder);
+        this.geminiContextCacheAdvisor = geminiContextCacheAdvisor;
+        this.geminiToolCallingManager = geminiContextCacheAdvisor.toolCallingManager(this.toolCallingManager);
+        this.geminiRateLimiter = geminiRateLimiter;
     }
 
-    @Bean
-    public Map<String, ChatClient> chatClients() {
-        ObjectMapper objectMapper = new ObjectMapper();
-        ToolCallbackProvider wrappedProvider = () -> Arrays.stream(this.toolCallbackProvider.getToolCallbacks()) // Use the injected field
-                .map(tc -> new ToolCallback() {
-                    @Override
-                    public ToolDefinition getToolDefinition() {
-                        ToolDefinition original = tc.getToolDefinition();
-                        String schemaJson = original.inputSchema();
-                        try {
-                            Map<String, Object> schemaMap = objectMapper.readValue(schemaJson, new TypeReference<Map<String, Object>>() {});
-                            if (schemaMap.containsKey("properties") && schemaMap.get("properties") instanceof Map) {
-                                Map<String, Object> props = (Map<String, Object>) schemaMap.get("properties");
-                                for (Map.Entry<String, Object> entry : props.entrySet()) {
-                                    if (entry.getValue() instanceof Map) {
-                                        Map<String, Object> propDetails = (Map<String, Object>) entry.getValue();
-                                        if (propDetails.get("type") instanceof List) {
-                                            List<?> types = (List<?>) propDetails.get("type");
-                                            if (!types.isEmpty()) {
-                                                propDetails.put("type", types.get(0));
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                            String newSchemaJson = objectMapper.writeValueAsString(schemaMap);
-                            return new ToolDefinition() {
-                                @Override
-                                public String name() { return original.name(); }
-                                @Override
-                                public String description() { return original.description(); }
-                                @Override
-                                public String inputSchema() { return newSchemaJson; }
-                            };
-                        } catch (Exception e) {
-                            return original;
-                        }
-                    }
+    /**
+     * Gemini 모델의 ChatClient를 생성합니다. 기동 시간을 줄이기 위해 ModelRegistry가 모델을 처음 사용할 때 생성합니다.
+     * 시스템 프롬프트와 도구 선언은 가능하면 Gemini 컨텍스트 캐시로 보냅니다 ({@link GeminiContextCacheAdvisor}).
+     * 요청은 모델별 한도({@link GeminiRateLimiter})를 지키며, 공유 RetryTemplate 대신 모델별 재시도 규칙을 사용합니다.
+     */
+    public ChatClient createGeminiChatClient(String modelName) {
+        GoogleGenAiChatOptions chatOptions = GoogleGenAiChatOptions.builder()
+                .model(modelName)
+                .temperature(defaultTemperature)
+                .build();
+        RateLimitedGeminiChatModel model = new RateLimitedGeminiChatModel(genAiClient, chatOptions, geminiToolCallingManager, geminiRateLimiter, observationRegistry);
+        return ChatClient.builder(model)
+                .defaultSystem(QA_AGENT_SYSTEM_PROMPT)
+                .defaultToolCallbacks(qaToolCallbackProvider)
+                .defaultAdvisors(geminiContextCacheAdvisor)
+                .build();
+    }
 
-                    @Override
-                    public String call(String input) {
-                        try {
-                            String result = tc.call(input);
-                            if (result == null) return "{\"error\": \"null result\"}";
-
-                            String trimmed = result.trim();
-                            if ((trimmed.startsWith("{") && trimmed.endsWith("}")) ||
-                                    (trimmed.startsWith("[") && trimmed.endsWith("]"))) {
-                                return result;
-                            }
-
-                            Map<String, String> wrapMap = new HashMap<>();
-                            wrapMap.put("result", result);
-                            return objectMapper.writeValueAsString(wrapMap);
-                        } catch (Exception e) {
-                            try {
-                                Map<String, String> errorMap = new HashMap<>();
-                                errorMap.put("error", e.getMessage());
-                                return objectMapper.writeValueAsString(errorMap);
-                            } catch (Exception ex) {
-                                return "{\"error\": \"Tool call failed and could not be serialized\"}";
-                            }
-                        }
-                    }
-                })
-                .toArray(ToolCallback[]::new);
-        Map<String, ChatClient> clients = new HashMap<>();
-
-        // Configure Gemini ChatClients
-        for (String modelName : aiModelProperties.getModels()) {
-            GoogleGenAiChatOptions chatOptions = GoogleGenAiChatOptions.builder()
-                    .model(modelName)
-                    .temperature(defaultTemperature)
-                    .build();
-            GoogleGenAiChatModel model = new GoogleGenAiChatModel(genAiClient, chatOptions, toolCallingManager, retryTemplate, observationRegistry);
-            clients.put(modelName, ChatClient.builder(model)
-                    .defaultSystem(QA_AGENT_SYSTEM_PROMPT)
-                    .defaultToolCallbacks(wrappedProvider)
-                    .build());
+    /**
+     * Ollama 모델의 ChatClient를 생성합니다. Ollama 모델은 설치 여부가 바뀔 수 있으므로
+     * 시작 시 미리 만들지 않고 ModelRegistry가 처음 사용할 때 생성합니다.
+     */
+    public ChatClient createOllamaChatClient(String modelName) {
+        OllamaChatOptions chatOptions = OllamaChatOptions.builder()
+                .model(modelName)
+                .temperature(defaultTemperature) // Ollama uses Double for temperature
+                .build();
+        // Using the full constructor for OllamaChatModel based on error messages
+        OllamaChatModel model = new OllamaChatModel(ollamaApi, chatOptions, toolCallingManager, observationRegistry, ModelManagementOptions.defaults(), (t, m) -> true, retryTemplate);
+        return ChatClient.builder(model)
+                .defaultSystem(QA_AGENT_SYSTEM_PROMPT)
+                .defaultToolCallbacks(qaToolCallbackProvider)
+                .build();
+    }
+
+    /**
+     * 재시도를 끈 Gemini 클라이언트. SDK 자체 재시도(429/5xx 최대 5회)는 GeminiRateLimiter의 한도와 재시도 간격을 우회하므로
+     * 모델 호출에는 이 클라이언트를 사용하고 재시도는 GeminiRateLimiter가 맡습니다.
+     * Client는 자신의 HttpOptions와 인증 정보를 노출하지 않으므로, 자동 구성 Client를 만든 연결 설정(spring.ai.google.genai)을 그대로 쓰고 재시도 옵션만 바꿉니다.
+     */
+    static Client withoutSdkRetries(GoogleGenAiConnectionProperties connection) {
+        Client.Builder builder = Client.builder()
+                .httpOptions(HttpOptions.builder()
+                        .retryOptions(HttpRetryOptions.builder().attempts(1).build())
+                        .build());
+        // Same precedence as the auto-configured client: an API key selects the Gemini API, otherwise Vertex AI
+        if (StringUtils.hasText(connection.getApiKey())) {
+            return builder.apiKey(connection.getApiKey()).build();
+        }
+        Assert.hasText(connection.getProjectId(), "Google GenAI project-id must be set!");
+        Assert.hasText(connection.getLocation(), "Google GenAI location must be set!");
+        builder.vertexAI(true).project(connection.getProjectId()).location(connection.getLocation());
+        if (connection.getCredentialsUri() != null) {
+            try (InputStream credentials = connection.getCredentialsUri().getInputStream()) {
+                builder.credentials(GoogleCredentials.fromStream(credentials));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read Google GenAI credentials from " + connection.getCredentialsUri(), e);
+            }
         }
+        return builder.build();
+    }
 
-        // Configure Ollama ChatClients
-        OllamaApi ollamaApi = OllamaApi.builder()
-                .baseUrl(ollamaBaseUrl)
-                .restClientBuilder(this.restClientBuilder)
-                .webClientBuilder(this.webClientBuilder)
+    private static OllamaApi buildOllamaApi(String baseUrl, RestClient.Builder restClientBuilder, WebClient.Builder webClientBuilder) {
+        return OllamaApi.builder()
+                .baseUrl(baseUrl)
+                .restClientBuilder(restClientBuilder)
+                .webClientBuilder(webClientBuilder)
                 .responseErrorHandler(new ResponseErrorHandler() {
                     @Override
                     public boolean hasError(ClientHttpResponse response) throws IOException {
@@ -235,21 +245,6 @@ public class AiConfig {
                     }
                 })
                 .build();
-
-        for (String modelName : ollamaModels) {
-            OllamaChatOptions chatOptions = OllamaChatOptions.builder()
-                    .model(modelName) // Corrected from withModel
-                    .temperature(defaultTemperature) // Ollama uses Double for temperature
-                    .build();
-            // Using the full constructor for OllamaChatModel based on error messages
-            OllamaChatModel model = new OllamaChatModel(ollamaApi, chatOptions, toolCallingManager, observationRegistry, ModelManagementOptions.defaults(), (t, m) -> true, retryTemplate);
-            clients.put(modelName, ChatClient.builder(model)
-                    .defaultSystem(QA_AGENT_SYSTEM_PROMPT)
-                    .defaultToolCallbacks(wrappedProvider)
-                    .build());
-        }
-
-        return clients;
     }
 }
 
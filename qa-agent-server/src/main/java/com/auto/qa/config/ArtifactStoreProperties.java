@@ -0,0 +1,30 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 스크린샷/스냅샷 아티팩트 저장소 설정 (app.artifacts)
+ */
+@Data
+@Component
+@ConfigurationProperties("app.artifacts")
+public class ArtifactStoreProperties {
+
+    private boolean enabled = true;
+
+    /** blob을 저장할 디렉터리 (blobs/ 아래에 해시 앞 두 글자로 나눠 저장) */
+    private String directory = "qa-prompts/artifacts";
+
+    /** 텍스트 아티팩트를 gzip으로 압축해 저장 (이미지는 이미 압축되어 있으므로 그대로 저장) */
+    private boolean compress = true;
+
+    /** 이보다 짧은 텍스트 결과는 저장하지 않음 */
+    private int minTextChars = 2_000;
+
+    /** 새로 쓰거나 재사용한 blob을 삭제 대상에서 제외하는 기간 (진행 중인 실행 보호) */
+    private Duration gcGrace = Duration.ofHours(1);
+}
@@ -0,0 +1,33 @@
+package com.auto.qa.config;
+
+import org.springframework.ai.mcp.client.common.autoconfigure.properties.McpStdioClientProperties;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class BrowserPoolConfig {
+
+    /**
+     * 브라우저 풀이 켜져 있으면 공용 MCP 설정에서 playwright 연결을 빼서, 아무도 쓰지 않는 공용 브라우저 프로세스를 띄우지 않습니다.
+     * 브라우저 도구는 실행마다 임대한 세션을 통해서만 제공됩니다.
+     */
+    @Bean
+    public static BeanPostProcessor pooledBrowserConnectionRemover(Environment environment) {
+        // Bound directly: a post-processor is created before the properties beans
+        BrowserPoolProperties browserPool = Binder.get(environment)
+            .bind("app.browser-pool", BrowserPoolProperties.class)
+            .orElseGet(BrowserPoolProperties::new);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (browserPool.isEnabled() && bean instanceof McpStdioClientProperties stdio) {
+                    stdio.getConnections().remove(browserPool.getConnectionName());
+                }
+                return bean;
+            }
+        };
+    }
+}
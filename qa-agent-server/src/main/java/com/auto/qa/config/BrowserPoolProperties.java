@@ -0,0 +1,42 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Playwright MCP 브라우저 세션 풀 설정 (app.browser-pool)
+ */
+@Data
+@Component
+@ConfigurationProperties("app.browser-pool")
+public class BrowserPoolProperties {
+
+    /** false이면 공용 playwright MCP 연결을 모든 실행이 공유 */
+    private boolean enabled = false;
+
+    /** 공용 MCP 설정에서 풀로 대체되는 연결 이름 */
+    private String connectionName = "playwright";
+
+    /** 미리 띄워 둘 세션 수 */
+    private int size = 2;
+
+    /** 세션당 최대 실행 횟수 (초과 시 프로세스 재시작) */
+    private int maxRunsPerSession = 20;
+
+    /** 빈 세션을 기다리는 최대 시간 */
+    private Duration leaseTimeout = Duration.ofSeconds(60);
+
+    private Duration requestTimeout = Duration.ofSeconds(150);
+
+    private Duration initializationTimeout = Duration.ofSeconds(60);
+
+    /** MCP 서버 실행 명령 (테스트에서는 로컬 가짜 MCP 서버로 교체 가능) */
+    private String command = "npx";
+
+    private List<String> args = new ArrayList<>();
+}
@@ -0,0 +1,40 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 멀티턴 채팅 대화 메모리 설정 (app.conversation-memory)
+ * 이전 대화 맥락은 maxContextTokens 안에서 최근 턴 원문 + 오래된 턴 요약으로 구성됩니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.conversation-memory")
+public class ConversationMemoryProperties {
+
+    private boolean enabled = true;
+
+    /** 프롬프트에 덧붙이는 이전 대화 맥락의 최대 토큰 (추정치) */
+    private int maxContextTokens = 4_000;
+
+    /** 그중 오래된 턴 요약에 쓸 수 있는 최대 토큰 */
+    private int maxSummaryTokens = 1_000;
+
+    /** 예산을 넘더라도 원문으로 유지할 최근 턴 수 */
+    private int keepRecentTurns = 1;
+
+    /** 턴 하나의 응답을 보관할 최대 문자 수 (긴 코드/스냅샷 블록은 먼저 생략) */
+    private int maxResponseChars = 6_000;
+
+    /** 턴 하나에 보관할 도구 호출 메모 수 (최근 것부터) */
+    private int maxToolNotes = 12;
+
+    /** 마지막 활동 후 대화를 보관하는 시간 */
+    private Duration idleTtl = Duration.ofHours(2);
+
+    /** 동시에 보관할 최대 대화 수 (초과 시 가장 오래 쉰 대화부터 제거) */
+    private int maxConversations = 500;
+}
@@ -0,0 +1,31 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Gemini 컨텍스트 캐시 설정 (app.gemini-cache)
+ * 시스템 프롬프트와 도구 선언을 Gemini 서버 측 캐시(cachedContents)에 올려 두고 요청마다 다시 보내지 않습니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.gemini-cache")
+public class GeminiCacheProperties {
+
+    private boolean enabled = true;
+
+    /** 캐시 생성/연장 시 지정하는 TTL */
+    private Duration ttl = Duration.ofMinutes(30);
+
+    /** 만료까지 이 시간보다 적게 남은 캐시는 사용 중이면 TTL을 연장 */
+    private Duration refreshBefore = Duration.ofMinutes(5);
+
+    /** 이 시간 동안 사용되지 않은 캐시는 연장하지 않고 삭제 (캐시 보관 비용 절감) */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /** 캐시 생성에 실패한 경우(최소 토큰 수 미달, 미지원 모델 등) 다시 시도하기까지 캐시 없이 요청하는 시간 */
+    private Duration retryAfter = Duration.ofHours(1);
+}
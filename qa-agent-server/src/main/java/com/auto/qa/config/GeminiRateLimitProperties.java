@@ -0,0 +1,64 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gemini 모델별 요청 빈도 제한 (app.gemini-rate-limit)
+ * 분당 요청 수/토큰 수를 토큰 버킷으로 지키고, 429 응답을 받으면 한도를 줄였다가 서서히 회복합니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.gemini-rate-limit")
+public class GeminiRateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** 모델당 분당 요청 수 (0 이하이면 제한 없음) */
+    private int requestsPerMinute = 10;
+
+    /** 모델당 분당 토큰 수 (입력 + 출력, 0 이하이면 제한 없음) */
+    private long tokensPerMinute = 250_000;
+
+    /** 모델별 개별 설정 (키: 모델 이름) */
+    private Map<String, ModelLimit> models = new HashMap<>();
+
+    /** 429/5xx 응답에 대한 최대 시도 횟수 (첫 요청 포함) */
+    private int maxAttempts = 4;
+
+    /** 재시도 대기의 최솟값 (decorrelated jitter의 기준값) */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    /** 재시도 대기의 최댓값 */
+    private Duration maxBackoff = Duration.ofSeconds(60);
+
+    /** 429 응답을 받을 때마다 현재 한도에 곱하는 비율 */
+    private double decreaseFactor = 0.5;
+
+    /** 429 없이 1분이 지날 때마다 회복하는 한도 비율 (설정값 대비) */
+    private double recoveryPerMinute = 0.1;
+
+    /** 줄어든 한도의 하한 (설정값 대비) */
+    private double minFraction = 0.1;
+
+    @Data
+    public static class ModelLimit {
+        private Integer requestsPerMinute;
+        private Long tokensPerMinute;
+    }
+
+    public int requestsPerMinute(String model) {
+        ModelLimit limit = models.get(model);
+        return limit != null && limit.getRequestsPerMinute() != null ? limit.getRequestsPerMinute() : requestsPerMinute;
+    }
+
+    public long tokensPerMinute(String model) {
+        ModelLimit limit = models.get(model);
+        return limit != null && limit.getTokensPerMinute() != null ? limit.getTokensPerMinute() : tokensPerMinute;
+    }
+}
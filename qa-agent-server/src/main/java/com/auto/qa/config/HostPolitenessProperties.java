@@ -0,0 +1,48 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 대상 호스트별 동시 실행/실행 빈도 제한 (app.host-politeness)
+ */
+@Data
+@Component
+@ConfigurationProperties("app.host-politeness")
+public class HostPolitenessProperties {
+
+    private boolean enabled = true;
+
+    /** 호스트당 동시에 실행할 수 있는 QA 실행 수 (0 이하이면 제한 없음) */
+    private int maxConcurrency = 2;
+
+    /** 호스트당 분당 시작할 수 있는 QA 실행 수 (0 이하이면 제한 없음) */
+    private int runsPerMinute = 20;
+
+    /** 대기/실행 중인 작업 없이 이 시간이 지난 호스트는 대기열과 호스트별 메트릭을 정리 */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    /** 호스트별 개별 설정 (키: 호스트명) */
+    private Map<String, HostLimit> hosts = new HashMap<>();
+
+    @Data
+    public static class HostLimit {
+        private Integer maxConcurrency;
+        private Integer runsPerMinute;
+    }
+
+    public int maxConcurrency(String host) {
+        HostLimit limit = hosts.get(host);
+        return limit != null && limit.getMaxConcurrency() != null ? limit.getMaxConcurrency() : maxConcurrency;
+    }
+
+    public int runsPerMinute(String host) {
+        HostLimit limit = hosts.get(host);
+        return limit != null && limit.getRunsPerMinute() != null ? limit.getRunsPerMinute() : runsPerMinute;
+    }
+}
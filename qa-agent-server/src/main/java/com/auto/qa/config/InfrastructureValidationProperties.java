@@ -0,0 +1,52 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * QA 실행 전 인프라 사전 점검 설정 (infrastructure.validation)
+ */
+@Data
+@Component
+@ConfigurationProperties("infrastructure.validation")
+public class InfrastructureValidationProperties {
+
+    private boolean enabled = false;
+
+    private String companyDomain;
+
+    private List<FileCheck> files = new ArrayList<>();
+
+    private List<ApiCheck> apis = new ArrayList<>();
+
+    /** 점검에서 제외할 호스트 패턴 (* 와일드카드 지원) */
+    private List<String> excludePatterns = new ArrayList<>();
+
+    /** 점검 하나에 허용하는 최대 시간 */
+    private Duration checkTimeout = Duration.ofSeconds(5);
+
+    /** 점검 결과 캐시 유지 시간 */
+    private Duration cacheTtl = Duration.ofSeconds(60);
+
+    /** true이면 critical 점검 실패 시 QA 실행을 시작하지 않음 */
+    private boolean failFast = true;
+
+    @Data
+    public static class FileCheck {
+        private String path;
+        private boolean critical;
+        private String description;
+    }
+
+    @Data
+    public static class ApiCheck {
+        private String url;
+        private boolean critical;
+        private String description;
+    }
+}
@@ -0,0 +1,18 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 브라우저 매크로 설정 (app.macros)
+ * 성공한 실행의 브라우저 조작을 테스트 케이스별 매크로로 컴파일해 저장합니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.macros")
+public class MacroProperties {
+
+    /** 매크로 파일을 저장할 디렉터리 (테스트 케이스마다 하위 디렉터리 하나) */
+    private String directory = "qa-prompts/macros";
+}
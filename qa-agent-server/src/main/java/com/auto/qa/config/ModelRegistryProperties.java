@@ -0,0 +1,25 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 모델 목록/가용성 설정 (app.models)
+ */
+@Data
+@Component
+@ConfigurationProperties("app.models")
+public class ModelRegistryProperties {
+
+    /** Ollama /api/tags 조회 제한 시간 */
+    private Duration probeTimeout = Duration.ofSeconds(3);
+
+    /** 모델 상태 판단에 사용하는 최근 호출 수 */
+    private int healthWindow = 20;
+
+    /** 연속으로 이 횟수만큼 실패하면 사용 불가로 표시 */
+    private int failureThreshold = 3;
+}
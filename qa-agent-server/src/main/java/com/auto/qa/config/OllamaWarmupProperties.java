@@ -0,0 +1,36 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Ollama 모델 예열/유지 설정 (app.ollama-warmup)
+ * 최근 demandWindow 동안 호출된 모델은 keepAlive + keepAlivePerCall × 호출 수 (최대 maxKeepAlive) 동안 메모리에 유지됩니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.ollama-warmup")
+public class OllamaWarmupProperties {
+
+    private boolean enabled = true;
+
+    /** 시작 시 설정된(spring.ai.ollama.models) 모델 중 설치된 모델을 미리 올림 */
+    private boolean preloadOnStartup = true;
+
+    /** 예열/유지 요청의 기본 keep_alive */
+    private Duration keepAlive = Duration.ofMinutes(10);
+
+    /** 최근 호출 한 건당 늘어나는 keep_alive */
+    private Duration keepAlivePerCall = Duration.ofMinutes(2);
+
+    private Duration maxKeepAlive = Duration.ofHours(1);
+
+    /** 수요(호출 수)를 셀 기간 */
+    private Duration demandWindow = Duration.ofHours(1);
+
+    /** 모델 로드를 기다리는 최대 시간 */
+    private Duration warmupTimeout = Duration.ofMinutes(2);
+}
@@ -0,0 +1,80 @@
+package com.auto.qa.config;
+
+import com.auto.qa.service.GeminiRateLimiter;
+import com.auto.qa.tool.QaToolCallback;
+import com.google.genai.Client;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.google.genai.GoogleGenAiChatModel;
+import org.springframework.ai.google.genai.GoogleGenAiChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 모델 요청마다 {@link GeminiRateLimiter}의 모델별 한도를 지키는 Gemini ChatModel.
+ * 동기 호출은 모델별 RetryTemplate이, 스트리밍은 도구 호출 왕복마다 이 클래스가 한도 대기와 재시도를 처리합니다.
+ */
+class RateLimitedGeminiChatModel extends GoogleGenAiChatModel {
+
+    // Run of the blocking call on this thread, for wait notices from the RetryTemplate
+    private static final ThreadLocal<String> CURRENT_RUN = new ThreadLocal<>();
+
+    private final String modelName;
+    private final GeminiRateLimiter rateLimiter;
+
+    RateLimitedGeminiChatModel(Client genAiClient, GoogleGenAiChatOptions options, ToolCallingManager toolCallingManager,
+                               GeminiRateLimiter rateLimiter, ObservationRegistry observationRegistry) {
+        super(genAiClient, options, toolCallingManager, rateLimiter.retryTemplate(options.getModel(), CURRENT_RUN::get), observationRegistry);
+        this.modelName = options.getModel();
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String previous = CURRENT_RUN.get();
+        CURRENT_RUN.set(QaToolCallback.runId(prompt));
+        try {
+            return super.call(prompt);
+        } finally {
+            CURRENT_RUN.set(previous);
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> internalStream(Prompt prompt, ChatResponse previousChatResponse) {
+        // Called again for every tool-call round, nested inside the stream of the previous round
+        String runId = QaToolCallback.runId(prompt);
+        AtomicBoolean emitted = new AtomicBoolean();
+        Flux<ChatResponse> round = Mono.defer(() -> {
+                Duration wait = rateLimiter.reserve(modelName, runId);
+                return wait.isZero() ? Mono.just(0L) : Mono.delay(wait);
+            })
+            .thenMany(Flux.defer(() -> super.internalStream(prompt, previousChatResponse)))
+            .doOnNext(response -> emitted.set(true))
+            .retryWhen(rateLimiter.streamRetry(modelName, runId, emitted::get));
+        if (previousChatResponse != null) {
+            return round;
+        }
+        // Usage is cumulative over the nested rounds; charge what each response adds
+        AtomicLong charged = new AtomicLong();
+        return round.doOnNext(response -> {
+            long total = totalTokens(response);
+            long added = total - charged.getAndAccumulate(total, Math::max);
+            if (added > 0) {
+                rateLimiter.recordTokens(modelName, added);
+            }
+        });
+    }
+
+    private static long totalTokens(ChatResponse response) {
+        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        return usage != null && usage.getTotalTokens() != null ? usage.getTotalTokens() : 0;
+    }
+}
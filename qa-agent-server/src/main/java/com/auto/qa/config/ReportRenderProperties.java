@@ -0,0 +1,18 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 리포트 HTML 렌더링 설정 (app.report-render)
+ */
+@Data
+@Component
+@ConfigurationProperties("app.report-render")
+public class ReportRenderProperties {
+
+    /** 렌더링된 HTML 캐시의 최대 크기 (초과 시 가장 오래 사용되지 않은 리포트부터 제거) */
+    private DataSize cacheMaxSize = DataSize.ofMegabytes(32);
+}
@@ -0,0 +1,26 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 리포트 저장소 설정 (app.reports)
+ * 모델이 저장한 리포트는 YYYY/MM/DD 파티션으로 옮겨지고, 오래된 파티션은 일 단위 zip 묶음으로 압축됩니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.reports")
+public class ReportStoreProperties {
+
+    /** 모델이 리포트를 저장하는 디렉터리 (파티션도 이 아래에 생성) */
+    private String directory = "qa-prompts/report";
+
+    /** 마지막 수정 후 이 시간이 지난 리포트만 파티션으로 옮김 (작성 중인 파일 보호) */
+    private Duration ingestQuietPeriod = Duration.ofSeconds(10);
+
+    /** 이 기간보다 오래된 일 파티션을 zip 묶음으로 압축 */
+    private Duration hotRetention = Duration.ofDays(30);
+}
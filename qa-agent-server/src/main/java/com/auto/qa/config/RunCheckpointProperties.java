@@ -0,0 +1,37 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 실행 체크포인트 설정 (app.run-checkpoints)
+ * 진행 중인 실행의 도구 호출 내역과 현재 페이지를 주기적으로 저장해, 서버가 재시작되어도 이어서 실행할 수 있게 합니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.run-checkpoints")
+public class RunCheckpointProperties {
+
+    private boolean enabled = true;
+
+    /** 체크포인트 파일을 저장할 디렉터리 */
+    private String directory = "qa-prompts/checkpoints";
+
+    /** 서버 시작 시 중단된 실행을 자동으로 이어서 실행 (false면 POST /api/runs/{runId}/resume으로 재개) */
+    private boolean autoResume = true;
+
+    /** 실행 하나를 자동으로 이어서 실행하는 최대 횟수 (재시작을 반복시키는 실행 방지) */
+    private int maxResumes = 2;
+
+    /** 체크포인트에 남기는 도구 호출 수 (초과 시 오래된 호출부터 생략) */
+    private int maxToolCalls = 100;
+
+    /** 도구 결과를 체크포인트에 남기는 최대 길이 */
+    private int maxResultChars = 2000;
+
+    /** 재개되지 않은 체크포인트의 보관 기간 */
+    private Duration retention = Duration.ofDays(1);
+}
@@ -0,0 +1,26 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 실행 이벤트 로그 설정 (app.run-events)
+ */
+@Data
+@Component
+@ConfigurationProperties("app.run-events")
+public class RunEventLogProperties {
+
+    private boolean enabled = true;
+
+    /** 세그먼트 파일을 저장할 디렉터리 */
+    private String directory = "qa-prompts/events";
+
+    /** 세그먼트 하나의 크기 (가득 차면 다음 세그먼트로 넘어감) */
+    private DataSize segmentSize = DataSize.ofMegabytes(8);
+
+    /** 보관할 최대 세그먼트 수 (초과 시 가장 오래된 세그먼트 삭제) */
+    private int maxSegments = 64;
+}
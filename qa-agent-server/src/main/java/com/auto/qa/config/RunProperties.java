@@ -0,0 +1,28 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * QA 실행(run) 관련 설정 (app.runs)
+ */
+@Data
+@Component
+@ConfigurationProperties("app.runs")
+public class RunProperties {
+
+    /** 요청에 데드라인 헤더가 없을 때 적용할 기본 데드라인 */
+    private Duration defaultDeadline = Duration.ofSeconds(300);
+
+    /** 클라이언트가 요청할 수 있는 최대 데드라인 */
+    private Duration maxDeadline = Duration.ofMinutes(15);
+
+    /** 완료된 실행 결과를 폴링용으로 보관하는 기간 */
+    private Duration retention = Duration.ofHours(1);
+
+    /** 도구 호출이나 응답 청크 없이 이 시간이 지난 실행은 고아로 간주하여 정리 */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+}
@@ -0,0 +1,22 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * browser_snapshot 델타 전송 설정 (app.snapshot-diff)
+ */
+@Data
+@Component
+@ConfigurationProperties("app.snapshot-diff")
+public class SnapshotDiffProperties {
+
+    private boolean enabled = true;
+
+    /** 이보다 작은 스냅샷은 델타로 바꾸지 않고 그대로 전달 */
+    private int minSnapshotChars = 2_000;
+
+    /** 델타가 전체 스냅샷 대비 이 비율보다 작을 때만 델타를 전달 */
+    private double maxDeltaRatio = 0.6;
+}
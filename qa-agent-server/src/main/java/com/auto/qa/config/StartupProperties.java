@@ -0,0 +1,21 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 기동 설정 (app.startup)
+ * MCP 서버는 기동을 막지 않고 백그라운드에서 연결되며(spring.ai.mcp.client.initialized=false),
+ * 연결 전까지 readiness는 DOWN입니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.startup")
+public class StartupProperties {
+
+    /** 도구가 필요한 요청이 MCP 연결 완료를 기다리는 최대 시간 */
+    private Duration mcpReadyTimeout = Duration.ofMinutes(3);
+}
@@ -0,0 +1,42 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 토큰 사용량 예산 설정 (app.token-budget). 0은 제한 없음을 뜻합니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.token-budget")
+public class TokenBudgetProperties {
+
+    private boolean enabled = true;
+
+    /** 실행 하나가 쓸 수 있는 최대 토큰 (초과 시 다음 도구 호출 전에 실행을 중단) */
+    private long perRun = 0;
+
+    /** 사용자별 월간 토큰 예산 (초과 시 새 실행 거부) */
+    private long perUserMonthly = 0;
+
+    /** 특정 사용자의 월간 예산 (perUserMonthly 대신 적용) */
+    private Map<String, Long> users = new HashMap<>();
+
+    /** 모델별 월간 토큰 예산 (초과 시 downgradeTo 모델로 실행, 없으면 거부) */
+    private Map<String, Long> models = new HashMap<>();
+
+    /** 모델 예산이 소진되었을 때 대신 사용할 모델 */
+    private String downgradeTo;
+
+    public long userMonthly(String user) {
+        return users.getOrDefault(user, perUserMonthly);
+    }
+
+    public long modelMonthly(String model) {
+        return models.getOrDefault(model, 0L);
+    }
+}
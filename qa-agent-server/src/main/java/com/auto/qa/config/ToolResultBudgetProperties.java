@@ -0,0 +1,32 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 도구 결과 크기 예산 설정 (app.tool-result-budget)
+ */
+@Data
+@Component
+@ConfigurationProperties("app.tool-result-budget")
+public class ToolResultBudgetProperties {
+
+    private boolean enabled = true;
+
+    /** 도구별 설정이 없을 때 적용할 최대 문자 수 */
+    private int defaultMaxChars = 20_000;
+
+    /** 잘라낼 때 앞부분에 배정할 비율 (나머지는 뒷부분) */
+    private double headRatio = 0.7;
+
+    /** 도구 이름별 최대 문자 수 (0 이하이면 제한 없음, fullSnapshot: true로 요청한 browser_snapshot에는 적용하지 않음) */
+    private Map<String, Integer> tools = new HashMap<>();
+
+    public int maxCharsFor(String toolName) {
+        return tools.getOrDefault(toolName, defaultMaxChars);
+    }
+}
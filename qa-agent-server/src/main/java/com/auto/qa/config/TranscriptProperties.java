@@ -0,0 +1,18 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 도구 호출 트랜스크립트 설정 (app.transcripts)
+ * 성공한 테스트 케이스 실행의 도구 호출 순서를 저장해, 다음 실행을 모델 없이 재생합니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.transcripts")
+public class TranscriptProperties {
+
+    /** 트랜스크립트 파일을 저장할 디렉터리 (테스트 케이스마다 파일 하나) */
+    private String directory = "qa-prompts/transcripts";
+}
@@ -1,15 +1,23 @@
 package com.auto.qa.config;
 
+import com.auto.qa.service.WebSocketOutboundService;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final WebSocketOutboundService webSocketOutboundService;
+    private final WebSocketOutboundProperties webSocketOutboundProperties;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue");
@@ -23,4 +31,19 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    /**
+     * 세션별 송신 버퍼가 소켓에 실제로 쓰인 프레임 수를 알 수 있도록 핸들러를 감싸고, 세션당 송신 한도를 설정합니다.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(webSocketOutboundService::decorate)
+                .setSendTimeLimit((int) webSocketOutboundProperties.getSendTimeLimit().toMillis())
+                .setSendBufferSizeLimit((int) webSocketOutboundProperties.getSendBufferSizeLimit().toBytes());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(webSocketOutboundService.outboundChannelInterceptor());
+    }
 }
@@ -0,0 +1,47 @@
+package com.auto.qa.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * WebSocket(STOMP) 세션별 송신 버퍼 설정 (app.websocket-outbound)
+ * 느린 클라이언트 때문에 브로커의 송신 큐가 끝없이 늘어나지 않도록 세션마다 보낼 청크 수를 제한합니다.
+ */
+@Data
+@Component
+@ConfigurationProperties("app.websocket-outbound")
+public class WebSocketOutboundProperties {
+
+    private boolean enabled = true;
+
+    /** 세션별로 아직 브로커에 넘기지 않은 청크 수 상한 (가득 차면 정책을 적용하고, 그래도 차 있으면 모델 스트림을 멈춤) */
+    private int bufferSize = 64;
+
+    /** 브로커에 넘겼지만 아직 소켓에 쓰이지 않은 세션별 메시지 수 상한 */
+    private int maxInFlight = 8;
+
+    /** 버퍼가 가득 찼을 때의 처리 방식 */
+    private SlowConsumerPolicy policy = SlowConsumerPolicy.MERGE;
+
+    /** DISCONNECT 정책에서 버퍼가 이 시간 동안 계속 가득 차 있으면 연결을 끊음 */
+    private Duration disconnectAfter = Duration.ofSeconds(30);
+
+    /** 세션 하나에 대한 소켓 쓰기 시간 상한 (초과하면 세션을 닫음) */
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+
+    /** 세션 하나에 쓰지 못하고 쌓인 프레임 크기 상한 (초과하면 세션을 닫음) */
+    private DataSize sendBufferSizeLimit = DataSize.ofKilobytes(512);
+
+    public enum SlowConsumerPolicy {
+        /** 대기 중인 텍스트 청크를 하나로 합쳐 보냄 (내용은 유지) */
+        MERGE,
+        /** 대기 중인 진행 안내(요청 한도 대기 알림 등)를 버림 */
+        DROP_PROGRESS,
+        /** 가득 찬 상태가 disconnectAfter 동안 이어지면 연결을 끊고 실행을 취소 */
+        DISCONNECT
+    }
+}
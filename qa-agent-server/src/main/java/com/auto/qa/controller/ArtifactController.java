@@ -0,0 +1,43 @@
+package com.auto.qa.controller;
+
+import com.auto.qa.dto.ArtifactRef;
+import com.auto.qa.service.ArtifactStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 아티팩트 저장소 조회 API. blob은 내용 해시로 주소가 매겨지므로 변경되지 않으며 오래 캐시할 수 있습니다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ArtifactController {
+
+    private final ArtifactStore artifactStore;
+
+    @GetMapping("/api/artifacts/{hash}")
+    public ResponseEntity<byte[]> artifact(@PathVariable String hash) {
+        return artifactStore.get(hash)
+            .map(blob -> ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(blob.mediaType()))
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .eTag(blob.hash())
+                .body(blob.content()))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 실행이 남긴 아티팩트 참조 (도구 호출 순)
+     */
+    @GetMapping("/api/runs/{runId}/artifacts")
+    public List<ArtifactRef> runArtifacts(@PathVariable String runId) {
+        return artifactStore.artifactsOf(runId);
+    }
+}
@@ -3,32 +3,35 @@ package com.auto.qa.controller;
 import com.auto.qa.dto.ChatRequest;
 import com.auto.qa.dto.ChatResponse;
 import com.auto.qa.dto.ErrorResponse;
+import com.auto.qa.dto.ModelInfo;
 import com.auto.qa.service.AgentService;
-import com.auto.qa.config.AiModelProperties;
-import com.auto.qa.config.AiConfig; // Import AiConfig
+import com.auto.qa.service.ConversationMemoryService;
+import com.auto.qa.service.ModelComparisonService;
+import com.auto.qa.service.ModelRegistry;
+import com.auto.qa.service.OllamaWarmupService;
+import com.auto.qa.service.QaRun;
+import com.auto.qa.service.QaRunService;
+import com.auto.qa.service.TokenUsageService;
+import com.auto.qa.service.WebSocketOutboundService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.time.Duration;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.UUID;
 
 @RestController
 @RequiredArgsConstructor
@@ -36,30 +39,77 @@ import java.util.stream.Stream;
 public class ChatController {
 
     private final AgentService agentService;
+    private final QaRunService qaRunService;
+    private final ModelComparisonService modelComparisonService;
     private final SimpMessagingTemplate messagingTemplate;
-    private final AiModelProperties aiModelProperties;
-    private final AiConfig aiConfig; // Inject AiConfig
-
-    @Value("${spring.ai.mcp.client.stdio.filesystem.args[2]:./qa-prompts}")
-    private String qaPromptsBasePath;
+    private final ModelRegistry modelRegistry;
+    private final OllamaWarmupService ollamaWarmupService;
+    private final TokenUsageService tokenUsageService;
+    private final ConversationMemoryService conversationMemoryService;
+    private final WebSocketOutboundService webSocketOutboundService;
 
     /**
      * REST API - 동기 응답
+     * 실행은 가상 스레드에서 처리되며, 컨테이너 스레드는 결과를 기다리지 않고 반환됩니다.
+     * X-QA-Deadline 헤더(초)로 요청별 데드라인을, X-QA-User 헤더로 토큰 사용량을 집계할 요청자를 지정할 수 있습니다.
      */
     @PostMapping("/api/chat")
-    public ResponseEntity<String> chat(@RequestBody ChatRequest request) {
+    public DeferredResult<ResponseEntity<String>> chat(
+            @RequestBody ChatRequest request,
+            @RequestHeader(value = RunController.DEADLINE_HEADER, required = false) Long deadlineSeconds,
+            @RequestHeader(value = RunController.USER_HEADER, required = false) String user) {
         log.info("REST chat request: URL={}, Message={}, Model={}", request.url(), request.message(), request.model());
-        String response = agentService.runQaTestSync(request.url(), request.message(), request.model());
-        return ResponseEntity.ok(response);
+        Duration deadline = qaRunService.resolveDeadline(deadlineSeconds);
+        QaRun run = qaRunService.submit(request, deadline, user);
+
+        // The run enforces the deadline itself; the extra second only guards against a lost completion signal
+        DeferredResult<ResponseEntity<String>> deferred = new DeferredResult<>(deadline.plusSeconds(1).toMillis());
+        deferred.onTimeout(() -> {
+            qaRunService.cancel(run.getId());
+            deferred.setResult(runFailureResponse(run));
+        });
+        run.getCompletion().whenComplete((result, error) -> {
+            if (error == null) {
+                deferred.setResult(ResponseEntity.ok()
+                    .header(RunController.RUN_ID_HEADER, run.getId())
+                    .body(result));
+            } else {
+                deferred.setResult(runFailureResponse(run));
+            }
+        });
+        return deferred;
+    }
+
+    private ResponseEntity<String> runFailureResponse(QaRun run) {
+        HttpStatus status = switch (run.getStatus()) {
+            case TIMED_OUT, RUNNING, QUEUED -> HttpStatus.GATEWAY_TIMEOUT;
+            case CANCELLED -> HttpStatus.CONFLICT;
+            default -> HttpStatus.INTERNAL_SERVER_ERROR;
+        };
+        return ResponseEntity.status(status)
+            .header(RunController.RUN_ID_HEADER, run.getId())
+            .body("❌ 오류: " + run.getError());
     }
 
     /**
      * REST API - 스트리밍 응답 (SSE)
+     * compareModels가 지정되면 모델별 청크를 모델 이름을 event로 태그하여 전송하고, 마지막에 summary 이벤트를 보냅니다.
      */
     @PostMapping(value = "/api/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<String> chatStream(@RequestBody ChatRequest request) {
+    public Flux<ServerSentEvent<String>> chatStream(
+            @RequestBody ChatRequest request,
+            @RequestHeader(value = RunController.USER_HEADER, required = false) String user) {
+        if (request.isComparison()) {
+            log.info("Stream comparison request: URL={}, Message={}, Models={}", request.url(), request.message(), request.compareModels());
+            return modelComparisonService.compare(request.url(), request.message(), request.compareModels())
+                .map(chunk -> ServerSentEvent.builder(chunk.content()).event(chunk.model()).build());
+        }
         log.info("Stream chat request: URL={}, Message={}, Model={}", request.url(), request.message(), request.model());
-        return agentService.runQaTest(request.url(), request.message(), request.model());
+        String runId = UUID.randomUUID().toString();
+        tokenUsageService.attribute(runId, user, null);
+        conversationMemoryService.bind(runId, request.conversationId());
+        return agentService.runQaTest(runId, request.url(), request.message(), request.model())
+            .map(chunk -> ServerSentEvent.builder(chunk).build());
     }
 
     /**
@@ -71,41 +121,36 @@ public class ChatController {
         String user = (headerAccessor.getUser() != null) ? headerAccessor.getUser().getName() : "null";
         log.info("WebSocket chat request from session {}: user={}, URL={}, Message={}, Model={}", sessionId, user, request.url(), request.message(), request.model());
         
-        Disposable disposable = agentService.runQaTest(request.url(), request.message(), request.model())
+        String runId = UUID.randomUUID().toString();
+        if (headerAccessor.getUser() != null) {
+            tokenUsageService.attribute(runId, headerAccessor.getUser().getName(), null);
+        }
+        if (!request.isComparison()) {
+            // Follow-ups on the same chat page continue the conversation unless the client names another one
+            conversationMemoryService.bind(runId, request.conversationId() != null ? request.conversationId() : sessionId);
+        }
+        Flux<ChatResponse> chunks = request.isComparison()
+            ? modelComparisonService.compare(request.url(), request.message(), request.compareModels())
+                .map(chunk -> new ChatResponse(chunk.content(), false, chunk.model()))
+            : agentService.runQaTest(runId, request.url(), request.message(), request.model())
+                .map(chunk -> new ChatResponse(chunk, false));
+        Flux<Object> payloads = chunks
+            .cast(Object.class)
+            .concatWith(Mono.fromSupplier(() -> {
+                log.info("QA test completed for session {}", sessionId);
+                return new ChatResponse("", true);
+            }))
+            .onErrorResume(error -> {
+                log.error("Error during QA test for session " + sessionId, error);
+                return Mono.just(new ErrorResponse(error.getMessage()));
+            })
             .doFinally(signalType -> {
-                agentService.removeDisposable(sessionId); // Clean up on complete, error, or cancel
+                agentService.removeDisposable(sessionId, runId); // Clean up on complete, error, or cancel
                 log.debug("Flux for session {} finished with signal: {}", sessionId, signalType);
-            })
-            .subscribe(
-                chunk -> {
-                    log.debug("Sending chunk to session {}: {}", sessionId, chunk);
-                    messagingTemplate.convertAndSendToUser(
-                        sessionId, "/queue/response", 
-                        new ChatResponse(chunk, false),
-                        createHeaders(sessionId)
-                    );
-                    messagingTemplate.convertAndSend("/topic/response-" + sessionId, new ChatResponse(chunk, false));
-                },
-                error -> {
-                    log.error("Error during QA test for session " + sessionId, error);
-                    messagingTemplate.convertAndSendToUser(
-                        sessionId, "/queue/error",
-                        new ErrorResponse(error.getMessage()),
-                        createHeaders(sessionId)
-                    );
-                    messagingTemplate.convertAndSend("/topic/response-" + sessionId, new ErrorResponse(error.getMessage()));
-                },
-                () -> {
-                    log.info("QA test completed for session {}", sessionId);
-                    messagingTemplate.convertAndSendToUser(
-                        sessionId, "/queue/response",
-                        new ChatResponse("", true),
-                        createHeaders(sessionId)
-                    );
-                    messagingTemplate.convertAndSend("/topic/response-" + sessionId, new ChatResponse("", true));
-                }
-            );
-        agentService.addDisposable(sessionId, disposable);
+            });
+        // Chunks pass through the session's bounded outbound buffer, so a slow client slows the run instead of filling the broker
+        Disposable disposable = webSocketOutboundService.stream(sessionId, payloads, payload -> sendToSession(sessionId, payload));
+        agentService.addDisposable(sessionId, runId, disposable);
     }
 
     /**
@@ -133,54 +178,51 @@ public class ChatController {
         }
     }
 
-    @GetMapping("/api/models")
-    public ResponseEntity<List<String>> getAvailableModels() {
-        Set<String> allModels = new HashSet<>();
-        allModels.addAll(aiModelProperties.getModels()); // Add Gemini models
-        allModels.addAll(aiConfig.getOllamaModels());   // Add Ollama models
-        return ResponseEntity.ok(new ArrayList<>(allModels));
-    }
-
-    private java.util.Map<String, Object> createHeaders(String sessionId) {
-        return java.util.Map.of(
-            "simpSessionId", sessionId
-        );
+    /**
+     * REST API - 대화 메모리 초기화 (이후 요청은 이전 맥락 없이 시작)
+     */
+    @DeleteMapping("/api/chat/conversations/{conversationId}")
+    public ResponseEntity<Void> clearConversation(@PathVariable String conversationId) {
+        return conversationMemoryService.clear(conversationId)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
     }
 
     /**
-     * REST API - QA 프롬프트 히스토리 파일 목록 조회
+     * REST API - 모델 목록과 가용성/최근 지연 (캐시된 스냅샷)
      */
-    @GetMapping("/api/prompts/history/files")
-    public ResponseEntity<List<String>> getPromptHistoryFiles() {
-        Path historyDir = Paths.get(qaPromptsBasePath, "history");
-        try (Stream<Path> paths = Files.list(historyDir)) {
-            List<String> fileNames = paths
-                .filter(Files::isRegularFile)
-                .map(Path::getFileName)
-                .map(Path::toString)
-                .collect(Collectors.toList());
-            return ResponseEntity.ok(fileNames);
-        } catch (IOException e) {
-            log.error("Failed to list prompt history files: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    @GetMapping("/api/models")
+    public ResponseEntity<List<ModelInfo>> getAvailableModels() {
+        return ResponseEntity.ok(modelRegistry.models());
     }
 
     /**
-     * REST API - QA 프롬프트 히스토리 파일 내용 조회
+     * REST API - Ollama 모델 예열 요청 (UI에서 모델을 선택했을 때 호출)
+     * 로드는 백그라운드에서 진행되며, 완료 여부는 /api/models의 warm 값으로 확인합니다.
      */
-    @GetMapping("/api/prompts/history/content/{filename}")
-    public ResponseEntity<String> getPromptHistoryFileContent(@PathVariable String filename) {
-        Path filePath = Paths.get(qaPromptsBasePath, "history", filename);
-        try {
-            if (!Files.exists(filePath) || !Files.isRegularFile(filePath)) {
-                return ResponseEntity.notFound().build();
-            }
-            String content = Files.readString(filePath);
-            return ResponseEntity.ok(content);
-        } catch (IOException e) {
-            log.error("Failed to read prompt history file {}: {}", filename, e.getMessage());
-            return ResponseEntity.internalServerError().build();
+    @PostMapping("/api/models/warm")
+    public ResponseEntity<java.util.Map<String, Object>> warmModel(@RequestParam String model) {
+        if (!modelRegistry.isOllamaModel(model)) {
+            return ResponseEntity.ok(java.util.Map.of("model", model, "warm", false, "supported", false));
+        }
+        boolean warm = modelRegistry.isWarm(model);
+        if (!warm) {
+            ollamaWarmupService.warm(model);
         }
+        return ResponseEntity.status(warm ? HttpStatus.OK : HttpStatus.ACCEPTED)
+            .body(java.util.Map.of("model", model, "warm", warm, "supported", true));
+    }
+
+    private void sendToSession(String sessionId, Object payload) {
+        String destination = payload instanceof ErrorResponse ? "/queue/error" : "/queue/response";
+        log.debug("Sending to session {}: {}", sessionId, payload);
+        messagingTemplate.convertAndSendToUser(sessionId, destination, payload, createHeaders(sessionId));
+        messagingTemplate.convertAndSend("/topic/response-" + sessionId, payload);
+    }
+
+    private java.util.Map<String, Object> createHeaders(String sessionId) {
+        return java.util.Map.of(
+            "simpSessionId", sessionId
+        );
     }
-}
\ No newline at end of file
+}
@@ -3,7 +3,9 @@ package com.auto.qa.controller;
 import com.auto.qa.dto.ChartData;
 import com.auto.qa.dto.DashboardStats;
 import com.auto.qa.dto.TestReport;
+import com.auto.qa.dto.TokenUsageReport;
 import com.auto.qa.service.DashboardService;
+import com.auto.qa.service.TokenUsageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -21,6 +23,7 @@ import java.util.List;
 public class DashboardController {
     
     private final DashboardService dashboardService;
+    private final TokenUsageService tokenUsageService;
     
     @GetMapping("/dashboard")
     public String dashboard(Model model) {
@@ -58,4 +61,11 @@ public class DashboardController {
         ChartData chartData = dashboardService.getIssuesChart();
         return ResponseEntity.ok(chartData);
     }
+    
+    @GetMapping("/api/dashboard/tokens")
+    @ResponseBody
+    public ResponseEntity<TokenUsageReport> getTokenUsage(
+            @RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.ok(tokenUsageService.report(days));
+    }
 }
@@ -0,0 +1,24 @@
+package com.auto.qa.controller;
+
+import com.auto.qa.service.McpStartupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 공유 MCP 서버 연결 상태 (/actuator/health/readiness의 mcp)
+ * 모든 서버가 연결되고 도구 목록을 받기 전까지 DOWN입니다.
+ */
+@Component
+@RequiredArgsConstructor
+public class McpHealthIndicator implements HealthIndicator {
+
+    private final McpStartupService mcpStartupService;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = mcpStartupService.isReady() ? Health.up() : Health.down();
+        return builder.withDetails(mcpStartupService.details()).build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.auto.qa.controller;
+
+import com.auto.qa.dto.PreflightReport;
+import com.auto.qa.service.PreflightService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * 인프라 사전 점검 상태 (/actuator/preflight)
+ * GET은 캐시된 결과를, POST는 즉시 재점검한 결과를 반환합니다.
+ */
+@Component
+@Endpoint(id = "preflight")
+@RequiredArgsConstructor
+public class PreflightEndpoint {
+
+    private final PreflightService preflightService;
+
+    @ReadOperation
+    public PreflightReport status() {
+        return preflightService.check();
+    }
+
+    @WriteOperation
+    public PreflightReport refresh() {
+        return preflightService.refresh();
+    }
+}
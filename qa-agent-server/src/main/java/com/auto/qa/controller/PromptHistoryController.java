@@ -0,0 +1,68 @@
+package com.auto.qa.controller;
+
+import com.auto.qa.dto.PromptHistoryPage;
+import com.auto.qa.service.PromptHistoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * QA 프롬프트 히스토리 조회 API (인덱스 기반)
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/prompts/history")
+@RequiredArgsConstructor
+public class PromptHistoryController {
+
+    private final PromptHistoryService promptHistoryService;
+
+    /**
+     * 최신순 히스토리 페이지 (커서 기반). prefix는 시작 문자열, q는 포함 문자열로 검색합니다 (대소문자 무시).
+     */
+    @GetMapping
+    public ResponseEntity<PromptHistoryPage> getHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) String q) {
+        try {
+            return ResponseEntity.ok(promptHistoryService.page(cursor, limit, prefix, q));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 히스토리 파일 목록 (최신순)
+     */
+    @GetMapping("/files")
+    public ResponseEntity<List<String>> getPromptHistoryFiles() {
+        return ResponseEntity.ok(promptHistoryService.filenames());
+    }
+
+    /**
+     * 히스토리 파일 내용 조회
+     */
+    @GetMapping("/content/{filename}")
+    public ResponseEntity<String> getPromptHistoryFileContent(@PathVariable String filename) {
+        return promptHistoryService.content(filename)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 여러 파일 내용을 한 번에 조회합니다 (최대 100개). 없는 파일은 결과에서 빠집니다.
+     */
+    @PostMapping("/contents")
+    public ResponseEntity<Map<String, String>> getPromptHistoryContents(@RequestBody List<String> filenames) {
+        if (filenames.size() > PromptHistoryService.MAX_BATCH) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(promptHistoryService.contents(filenames));
+    }
+}
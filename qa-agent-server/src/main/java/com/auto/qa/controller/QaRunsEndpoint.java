@@ -0,0 +1,72 @@
+package com.auto.qa.controller;
+
+import com.auto.qa.dto.ActiveRunInfo;
+import com.auto.qa.dto.QaRunsReport;
+import com.auto.qa.service.ActiveRunRegistry;
+import com.auto.qa.service.AgentService;
+import com.auto.qa.service.BrowserSessionPool;
+import com.auto.qa.service.HostScheduler;
+import com.auto.qa.service.QaRun;
+import com.auto.qa.service.QaRunService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 실행 현황 (/actuator/qa-runs)
+ * GET은 진행/대기 중인 실행과 모델별·호스트별 집계를, DELETE /{runId}는 해당 실행을 취소합니다.
+ * 메모리의 상태만 읽으므로 초 단위 폴링에 사용할 수 있습니다.
+ */
+@Component
+@Endpoint(id = "qaruns")
+@RequiredArgsConstructor
+public class QaRunsEndpoint {
+
+    private static final String ADMIN_REASON = "admin";
+
+    private final ActiveRunRegistry activeRunRegistry;
+    private final AgentService agentService;
+    private final QaRunService qaRunService;
+    private final HostScheduler hostScheduler;
+    private final BrowserSessionPool browserSessionPool;
+
+    @ReadOperation
+    public QaRunsReport runs() {
+        Instant now = Instant.now();
+        Map<String, String> sessions = agentService.streamingSessions();
+        List<ActiveRunInfo> runs = new ArrayList<>();
+        for (QaRun run : qaRunService.queuedRuns()) {
+            runs.add(new ActiveRunInfo(run.getId(), run.getModel(), run.getUrl(), null, null, run.getCreatedAt(), "queued",
+                0, 0, Duration.between(run.getCreatedAt(), now).toMillis(), false, null));
+        }
+        int queued = runs.size();
+        for (ActiveRunInfo run : activeRunRegistry.snapshot()) {
+            runs.add(run.withSession(sessions.get(run.runId())));
+        }
+        Map<String, Long> runsPerModel = runs.stream()
+            .collect(Collectors.groupingBy(run -> run.model() != null ? run.model() : "default", TreeMap::new, Collectors.counting()));
+
+        return new QaRunsReport(now, runs.size() - queued, queued, runsPerModel, hostScheduler.queueDepths(),
+            browserSessionPool.idleCount(), browserSessionPool.leasedCount(), runs);
+    }
+
+    @DeleteOperation
+    public Map<String, Object> cancel(@Selector String runId) {
+        // Polled runs abort their worker; WebSocket runs dispose their stream; anything else only stops at its next tool call
+        boolean cancelled = qaRunService.cancel(runId, ADMIN_REASON)
+            || agentService.cancelRun(runId, ADMIN_REASON)
+            || activeRunRegistry.cancel(runId, ADMIN_REASON);
+        return Map.of("runId", runId, "cancelled", cancelled);
+    }
+}
@@ -0,0 +1,47 @@
+package com.auto.qa.controller;
+
+import com.auto.qa.service.ReportRenderService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+
+/**
+ * 마크다운 리포트를 HTML로 보여줍니다. 변경되지 않은 리포트는 ETag 조건부 요청으로 304를 반환합니다.
+ */
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+public class ReportController {
+
+    private final ReportRenderService reportRenderService;
+
+    @GetMapping("/reports/{id}")
+    public String report(@PathVariable String id, WebRequest request, HttpServletResponse response, Model model) {
+        ReportRenderService.ReportFile file = reportRenderService.stat(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "리포트를 찾을 수 없습니다: " + id));
+        // Always revalidate; an unchanged report costs the client a 304 and the server one stat call
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (request.checkNotModified(file.etag())) {
+            return null;
+        }
+        try {
+            ReportRenderService.RenderedReport report = reportRenderService.render(file);
+            model.addAttribute("pageTitle", report.title());
+            model.addAttribute("report", report);
+            return "report";
+        } catch (IOException e) {
+            log.error("Failed to render report {}: {}", id, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "리포트를 읽을 수 없습니다: " + id, e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.auto.qa.controller;
+
+import com.auto.qa.dto.ChatRequest;
+import com.auto.qa.dto.RunStatusResponse;
+import com.auto.qa.service.ActiveRunRegistry;
+import com.auto.qa.service.QaRun;
+import com.auto.qa.service.QaRunService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * CI 파이프라인용 비동기 실행 API (202 + 폴링)
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class RunController {
+
+    public static final String DEADLINE_HEADER = "X-QA-Deadline";
+    public static final String RUN_ID_HEADER = "X-QA-Run-Id";
+    /** 토큰 사용량/예산을 집계할 요청자 */
+    public static final String USER_HEADER = "X-QA-User";
+
+    private final QaRunService qaRunService;
+    private final ActiveRunRegistry activeRunRegistry;
+
+    @PostMapping("/api/runs")
+    public ResponseEntity<RunStatusResponse> submitRun(
+            @RequestBody ChatRequest request,
+            @RequestHeader(value = DEADLINE_HEADER, required = false) Long deadlineSeconds,
+            @RequestHeader(value = USER_HEADER, required = false) String user) {
+        Duration deadline = qaRunService.resolveDeadline(deadlineSeconds);
+        QaRun run = qaRunService.submit(request, deadline, user);
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/runs/" + run.getId()))
+            .header(RUN_ID_HEADER, run.getId())
+            .body(toResponse(run));
+    }
+
+    @GetMapping("/api/runs/{runId}")
+    public ResponseEntity<RunStatusResponse> getRun(@PathVariable String runId) {
+        return qaRunService.getRun(runId)
+            .map(run -> ResponseEntity.ok(toResponse(run)))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 서버 재시작으로 중단된 실행(INTERRUPTED)을 마지막 체크포인트에서 이어서 실행합니다.
+     */
+    @PostMapping("/api/runs/{runId}/resume")
+    public ResponseEntity<RunStatusResponse> resumeRun(@PathVariable String runId) {
+        return qaRunService.getRun(runId)
+            .map(run -> qaRunService.resume(runId)
+                .map(resumed -> ResponseEntity.accepted()
+                    .location(URI.create("/api/runs/" + runId))
+                    .header(RUN_ID_HEADER, runId)
+                    .body(toResponse(resumed)))
+                .orElse(ResponseEntity.status(HttpStatus.CONFLICT).body(toResponse(run))))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/api/runs/{runId}")
+    public ResponseEntity<RunStatusResponse> cancelRun(@PathVariable String runId) {
+        return qaRunService.getRun(runId)
+            .map(run -> {
+                qaRunService.cancel(runId);
+                return ResponseEntity.ok(toResponse(run));
+            })
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    private RunStatusResponse toResponse(QaRun run) {
+        return RunStatusResponse.builder()
+            .runId(run.getId())
+            .status(run.getStatus().name())
+            .url(run.getUrl())
+            .model(run.getModel())
+            .createdAt(run.getCreatedAt())
+            .startedAt(run.getStartedAt())
+            .finishedAt(run.getFinishedAt())
+            .deadline(run.getDeadline())
+            .rateLimitedUntil(activeRunRegistry.rateLimitedUntil(run.getId()).orElse(null))
+            .resumeCount(run.getResumeCount())
+            .result(run.getResult())
+            .error(run.getError())
+            .build();
+    }
+}
@@ -1,6 +1,9 @@
 package com.auto.qa.controller;
 
 import com.auto.qa.dto.TestCase;
+import com.auto.qa.service.QaRun;
+import com.auto.qa.service.QaRunService;
+import com.auto.qa.service.TestCaseRunService;
 import com.auto.qa.service.TestCaseService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +21,7 @@ import java.util.Map;
 public class TestCaseController {
     
     private final TestCaseService testCaseService;
+    private final QaRunService qaRunService;
     
     @GetMapping("/test-cases")
     public String testCasesPage(Model model) {
@@ -69,20 +73,27 @@ public class TestCaseController {
     
     @PostMapping("/api/test-cases/{id}/run")
     @ResponseBody
-    public ResponseEntity<Map<String, String>> runTestCase(@PathVariable String id) {
+    public ResponseEntity<Map<String, String>> runTestCase(
+            @PathVariable String id,
+            @RequestParam(required = false) String model,
+            @RequestParam(defaultValue = "AUTO") TestCaseRunService.Mode mode,
+            @RequestHeader(value = RunController.DEADLINE_HEADER, required = false) Long deadlineSeconds,
+            @RequestHeader(value = RunController.USER_HEADER, required = false) String user) {
         return testCaseService.getTestCase(id)
             .map(testCase -> {
                 testCaseService.incrementExecutionCount(id);
                 
-                // Note: Test case execution should be done via WebSocket in chat interface
-                // This endpoint just marks the test case as executed
+                // Replays the recorded tool sequence when one exists, otherwise runs through the model
+                QaRun run = qaRunService.submitTestCase(testCase, model, mode, qaRunService.resolveDeadline(deadlineSeconds), user);
                 
                 return ResponseEntity.ok(Map.of(
                     "status", "queued",
-                    "message", "Test case queued. Please use the chat interface to see results.",
+                    "message", "Test case queued. Poll statusUrl for the result.",
                     "testCaseId", id,
                     "url", testCase.getUrl(),
-                    "prompt", testCase.getPrompt()
+                    "prompt", testCase.getPrompt(),
+                    "runId", run.getId(),
+                    "statusUrl", "/api/runs/" + run.getId()
                 ));
             })
             .orElse(ResponseEntity.notFound().build());
@@ -0,0 +1,30 @@
+package com.auto.qa.dto;
+
+import java.time.Instant;
+
+/**
+ * 진행 중(또는 대기 중)인 QA 실행 한 건의 현재 상태
+ * @param phase queued, llm, rate-limit, macro, replay 또는 tool:{도구 이름}
+ * @param session 실행을 요청한 WebSocket 세션 ID (동기/폴링 실행은 null)
+ * @param browserSession 실행이 임대한 브라우저 세션 ID (공유 브라우저 사용 시 null)
+ * @param rateLimitedUntil 모델 요청 한도로 기다리는 중이면 대기가 끝나는 예상 시각
+ */
+public record ActiveRunInfo(
+    String runId,
+    String model,
+    String url,
+    String session,
+    String browserSession,
+    Instant startedAt,
+    String phase,
+    long chunks,
+    int toolCalls,
+    long elapsedMs,
+    boolean cancelled,
+    Instant rateLimitedUntil
+) {
+
+    public ActiveRunInfo withSession(String session) {
+        return new ActiveRunInfo(runId, model, url, session, browserSession, startedAt, phase, chunks, toolCalls, elapsedMs, cancelled, rateLimitedUntil);
+    }
+}
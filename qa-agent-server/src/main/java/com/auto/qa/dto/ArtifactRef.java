@@ -0,0 +1,10 @@
+package com.auto.qa.dto;
+
+/**
+ * 아티팩트 저장소의 blob 참조
+ * @param hash 원본 내용의 SHA-256 (blob 주소)
+ * @param mediaType 원본 내용의 미디어 타입 (image/png, text/yaml 등)
+ * @param size 원본 크기 (바이트)
+ * @param tool 아티팩트를 만든 도구
+ */
+public record ArtifactRef(String hash, String mediaType, long size, String tool) {}
@@ -1,3 +1,18 @@
 package com.auto.qa.dto;
 
-public record ChatRequest(String url, String message, String model) {}
+import java.util.List;
+
+/**
+ * @param compareModels 2개 이상이면 같은 요청을 여러 모델로 동시에 실행하여 비교 (model은 무시)
+ * @param conversationId 지정하면 같은 ID의 이전 요청/응답을 맥락으로 이어감 (WebSocket은 기본값이 세션 ID)
+ */
+public record ChatRequest(String url, String message, String model, List<String> compareModels, String conversationId) {
+
+    public ChatRequest(String url, String message, String model) {
+        this(url, message, model, null, null);
+    }
+
+    public boolean isComparison() {
+        return compareModels != null && compareModels.size() > 1;
+    }
+}
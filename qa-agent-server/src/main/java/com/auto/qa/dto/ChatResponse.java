@@ -1,3 +1,11 @@
 package com.auto.qa.dto;
 
-public record ChatResponse(String content, boolean done) {}
+/**
+ * @param model 비교 실행에서 청크를 생성한 모델 (단일 실행이면 null)
+ */
+public record ChatResponse(String content, boolean done, String model) {
+
+    public ChatResponse(String content, boolean done) {
+        this(content, done, null);
+    }
+}
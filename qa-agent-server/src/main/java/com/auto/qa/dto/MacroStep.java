@@ -0,0 +1,10 @@
+package com.auto.qa.dto;
+
+/**
+ * 매크로의 한 단계.
+ * @param arguments ref가 제거되고 URL이 ${url}로 치환된 도구 인자 JSON
+ * @param target 대상 요소의 역할과 이름 (요소를 대상으로 하지 않으면 null)
+ * @param occurrence 같은 역할/이름을 가진 요소 중 대상의 순서 (문서 순서, 0부터)
+ * @param matches 기록 당시 같은 역할/이름을 가진 요소 수 (0이면 알 수 없음)
+ */
+public record MacroStep(String tool, String arguments, String target, int occurrence, int matches) {}
@@ -0,0 +1,19 @@
+package com.auto.qa.dto;
+
+/**
+ * /api/models 응답 항목
+ * @param status AVAILABLE, DEGRADED(최근 호출 일부 실패), UNAVAILABLE(설치되지 않음/연결 불가/연속 실패), UNKNOWN(호출 기록 없음)
+ * @param latencyMs 최근 호출의 첫 응답까지 걸린 시간 (지수 이동 평균, 기록이 없으면 null)
+ * @param warm Ollama 모델이 메모리에 올라와 있는지 여부 (Gemini는 null)
+ */
+public record ModelInfo(
+    String name,
+    String provider,
+    boolean available,
+    String status,
+    String detail,
+    Long latencyMs,
+    int recentCalls,
+    int recentFailures,
+    Boolean warm
+) {}
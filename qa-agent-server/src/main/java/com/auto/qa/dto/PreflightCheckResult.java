@@ -0,0 +1,14 @@
+package com.auto.qa.dto;
+
+/**
+ * 인프라 사전 점검 항목 하나의 결과
+ * @param type FILE 또는 API
+ * @param status OK, FAILED, TIMED_OUT, SKIPPED
+ */
+public record PreflightCheckResult(String type, String target, String description, boolean critical,
+                                   String status, String detail, long durationMs) {
+
+    public boolean failed() {
+        return "FAILED".equals(status) || "TIMED_OUT".equals(status);
+    }
+}
@@ -0,0 +1,25 @@
+package com.auto.qa.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 인프라 사전 점검 결과
+ */
+public record PreflightReport(Instant checkedAt, long durationMs, List<PreflightCheckResult> checks) {
+
+    public List<PreflightCheckResult> criticalFailures() {
+        return checks.stream().filter(check -> check.critical() && check.failed()).toList();
+    }
+
+    public boolean healthy() {
+        return criticalFailures().isEmpty();
+    }
+
+    public String status() {
+        if (!healthy()) {
+            return "DOWN";
+        }
+        return checks.stream().anyMatch(PreflightCheckResult::failed) ? "DEGRADED" : "UP";
+    }
+}
@@ -0,0 +1,11 @@
+package com.auto.qa.dto;
+
+import java.time.Instant;
+
+/**
+ * 프롬프트 히스토리 인덱스 항목
+ * @param hash 내용의 SHA-256 (중복 저장 방지용)
+ * @param size 내용의 UTF-8 바이트 수
+ * @param preview 내용 앞부분 (공백 정리)
+ */
+public record PromptHistoryEntry(String filename, Instant savedAt, String hash, long size, String preview) {}
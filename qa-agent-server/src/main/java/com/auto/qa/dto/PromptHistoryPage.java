@@ -0,0 +1,10 @@
+package com.auto.qa.dto;
+
+import java.util.List;
+
+/**
+ * 최신순 프롬프트 히스토리 페이지
+ * @param nextCursor 다음 페이지를 요청할 커서 (마지막 페이지면 null)
+ * @param total 검색 조건에 맞는 전체 항목 수
+ */
+public record PromptHistoryPage(List<PromptHistoryEntry> items, String nextCursor, int total) {}
@@ -0,0 +1,21 @@
+package com.auto.qa.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 실행 현황 (/actuator/qa-runs)
+ * @param runsPerModel 모델별 진행 중인 실행 수 (대기 중 포함)
+ * @param hostQueueDepths 대상 호스트별 대기 중인 실행 수
+ */
+public record QaRunsReport(
+    Instant timestamp,
+    int active,
+    int queued,
+    Map<String, Long> runsPerModel,
+    Map<String, Integer> hostQueueDepths,
+    int browserSessionsIdle,
+    int browserSessionsLeased,
+    List<ActiveRunInfo> runs
+) {}
@@ -0,0 +1,46 @@
+package com.auto.qa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 진행 중인 QA 실행의 체크포인트 (서버 재시작 후 이어서 실행하는 데 사용)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunCheckpoint {
+    private String runId;
+    private String url;
+    private String message;
+    private String model;
+    private String user;
+    private String testCaseId;
+    /** 실행이 이어가는 대화 (재개한 실행도 같은 대화에 턴을 남김) */
+    private String conversationId;
+    private Instant createdAt;
+    private Instant deadline;
+    private Instant updatedAt;
+    /** 체크포인트에서 이어서 실행한 횟수 */
+    private int resumeCount;
+    /** 마지막으로 확인된 브라우저 페이지 */
+    private String currentUrl;
+    /** maxToolCalls를 넘어 생략된 앞부분 도구 호출 수 */
+    private int droppedSteps;
+    @Builder.Default
+    private List<Step> steps = new ArrayList<>();
+
+    /**
+     * 모델의 도구 호출 하나
+     * @param text 호출 직전에 모델이 출력한 텍스트 (왕복의 첫 호출에만, 없으면 null)
+     * @param result 도구 결과 (maxResultChars로 자름)
+     */
+    public record Step(Instant at, String text, String tool, String arguments, String result) {}
+}
@@ -0,0 +1,63 @@
+package com.auto.qa.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 실행 이벤트 로그의 레코드 한 건
+ * @param status RUN_FINISHED: COMPLETED, FAILED, CANCELLED, TIMED_OUT / TOOL_CALL_END: OK, ERROR
+ * @param promptTokens RUN_FINISHED: 도구 호출 왕복을 포함한 실행 전체의 입력 토큰
+ * @param artifacts TOOL_CALL_END: 도구 결과에서 아티팩트 저장소로 옮긴 스크린샷/스냅샷
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RunEvent(
+    Instant timestamp,
+    Type type,
+    String runId,
+    String model,
+    String url,
+    String tool,
+    Long durationMs,
+    Long chunks,
+    Integer toolCalls,
+    String status,
+    String detail,
+    String user,
+    String testCaseId,
+    Long promptTokens,
+    Long completionTokens,
+    List<ArtifactRef> artifacts
+) {
+
+    public enum Type {
+        RUN_STARTED, TOOL_CALL_BEGIN, TOOL_CALL_END, RUN_FINISHED
+    }
+
+    public static RunEvent runStarted(String runId, String model, String url) {
+        return new RunEvent(Instant.now(), Type.RUN_STARTED, runId, model, url, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    public static RunEvent toolCallBegin(String runId, String tool) {
+        return new RunEvent(Instant.now(), Type.TOOL_CALL_BEGIN, runId, null, null, tool, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    public static RunEvent toolCallEnd(String runId, String tool, long durationMs, String error, List<ArtifactRef> artifacts) {
+        return new RunEvent(Instant.now(), Type.TOOL_CALL_END, runId, null, null, tool, durationMs, null, null,
+            error == null ? "OK" : "ERROR", error, null, null, null, null, artifacts == null || artifacts.isEmpty() ? null : artifacts);
+    }
+
+    public static RunEvent runFinished(String runId, String model, String url, long durationMs, long chunks, int toolCalls,
+                                       String status, String detail, TokenUsage usage) {
+        return new RunEvent(Instant.now(), Type.RUN_FINISHED, runId, model, url, null, durationMs, chunks, toolCalls, status, detail,
+            usage.user(), usage.testCaseId(), usage.promptTokens(), usage.completionTokens(), null);
+    }
+
+    /**
+     * 종료 이벤트에 담는 실행의 사용자/테스트 케이스와 토큰 사용량
+     */
+    public record TokenUsage(String user, String testCaseId, long promptTokens, long completionTokens) {
+        public static final TokenUsage NONE = new TokenUsage(null, null, 0, 0);
+    }
+}
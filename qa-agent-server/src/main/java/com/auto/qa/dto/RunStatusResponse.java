@@ -0,0 +1,27 @@
+package com.auto.qa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunStatusResponse {
+    private String runId;
+    private String status;      // QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED, TIMED_OUT, INTERRUPTED
+    private String url;
+    private String model;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private Instant deadline;
+    private Instant rateLimitedUntil;   // Expected end of a wait for the model's rate limit
+    private int resumeCount;            // Times the run was resumed from a checkpoint after a restart
+    private String result;
+    private String error;
+}
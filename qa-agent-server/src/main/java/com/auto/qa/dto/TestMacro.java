@@ -0,0 +1,23 @@
+package com.auto.qa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestMacro {
+    private String testCaseId;
+    private String fingerprint;
+    private String sourceModel;
+    private LocalDateTime compiledAt;
+    @Builder.Default
+    private List<MacroStep> steps = new ArrayList<>();
+}
@@ -0,0 +1,22 @@
+package com.auto.qa.dto;
+
+/**
+ * 토큰 사용량 합계
+ */
+public record TokenTotals(long runs, long promptTokens, long completionTokens) {
+
+    public static final TokenTotals EMPTY = new TokenTotals(0, 0, 0);
+
+    public long totalTokens() {
+        return promptTokens + completionTokens;
+    }
+
+    /** 실행 한 건의 사용량 */
+    public static TokenTotals ofRun(long promptTokens, long completionTokens) {
+        return new TokenTotals(1, promptTokens, completionTokens);
+    }
+
+    public TokenTotals plus(TokenTotals other) {
+        return new TokenTotals(runs + other.runs, promptTokens + other.promptTokens, completionTokens + other.completionTokens);
+    }
+}
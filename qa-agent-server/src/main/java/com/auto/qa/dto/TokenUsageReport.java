@@ -0,0 +1,19 @@
+package com.auto.qa.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 기간별 토큰 사용량 집계 (/api/dashboard/tokens)
+ * @param monthToDate 이번 달 모델별 사용량 (월간 예산 비교용)
+ * @param modelBudgets 모델별 월간 예산 (설정된 모델만)
+ */
+public record TokenUsageReport(
+    LocalDate since,
+    TokenTotals total,
+    Map<String, TokenTotals> byModel,
+    Map<String, TokenTotals> byUser,
+    Map<String, TokenTotals> byTestCase,
+    Map<String, TokenTotals> monthToDate,
+    Map<String, Long> modelBudgets
+) {}
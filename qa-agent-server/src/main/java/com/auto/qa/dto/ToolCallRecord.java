@@ -0,0 +1,3 @@
+package com.auto.qa.dto;
+
+public record ToolCallRecord(String tool, String arguments, String result, long durationMs) {}
@@ -0,0 +1,23 @@
+package com.auto.qa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolTranscript {
+    private String testCaseId;
+    private String url;
+    private String model;
+    private LocalDateTime recordedAt;
+    @Builder.Default
+    private List<ToolCallRecord> calls = new ArrayList<>();
+}
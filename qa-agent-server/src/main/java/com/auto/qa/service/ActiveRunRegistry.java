@@ -0,0 +1,410 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.RunProperties;
+import com.auto.qa.dto.ActiveRunInfo;
+import com.auto.qa.dto.RunEvent;
+import com.auto.qa.tool.QaToolCallback;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 진행 중인 QA 실행과 그 실행이 점유한 자원(도구 호출 스레드, 브라우저)을 추적합니다.
+ * 실행이 취소되면 대기 중인 도구 호출을 중단하고, 실행 종료 시 해당 실행의 브라우저를 닫습니다.
+ * 실행 시작/종료는 {@link RunEventLog}에 기록됩니다.
+ */
+@Slf4j
+@Service
+public class ActiveRunRegistry {
+
+    /** 안내 메시지({@link #notices})의 시작 문자열 (모델 출력과 구분용) */
+    public static final String NOTICE_PREFIX = "\n⏳ ";
+
+    private static final String CLOSE_TOOL = "browser_close";
+
+    private final RunProperties runProperties;
+    private final ToolCallbackProvider sharedToolCallbackProvider;
+    private final MeterRegistry meterRegistry;
+    private final RunEventLog runEventLog;
+    private final TokenUsageService tokenUsageService;
+
+    private final Map<String, ActiveRun> runs = new ConcurrentHashMap<>();
+
+    /** 도구 호출 루프에서 도구를 실행한 라운드 수와 누적 시간 */
+    public record ToolTime(int rounds, long nanos) {}
+
+    private static final class ActiveRun {
+        private final String runId;
+        private final Instant startedAt = Instant.now();
+        private final Set<Thread> toolThreads = new HashSet<>();
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicInteger toolCalls = new AtomicInteger();
+        private final AtomicInteger toolRounds = new AtomicInteger();
+        private final AtomicLong toolNanos = new AtomicLong();
+        private volatile String model;
+        private volatile String url;
+        private volatile String browserSessionId;
+        private volatile ToolCallback[] sessionTools;
+        private volatile String stage = "llm";
+        private volatile String currentTool;
+        private volatile Instant lastActivity = Instant.now();
+        private volatile String cancelReason;
+        private volatile String error;
+        private volatile Instant rateLimitedUntil;
+        // Status lines for the client that are not model output (e.g. rate-limit waits)
+        private final Sinks.Many<String> notices = Sinks.many().multicast().directBestEffort();
+
+        private ActiveRun(String runId) {
+            this.runId = runId;
+        }
+    }
+
+    public ActiveRunRegistry(RunProperties runProperties,
+                             ToolCallbackProvider sharedToolCallbackProvider,
+                             MeterRegistry meterRegistry,
+                             RunEventLog runEventLog,
+                             TokenUsageService tokenUsageService) {
+        this.runProperties = runProperties;
+        this.sharedToolCallbackProvider = sharedToolCallbackProvider;
+        this.meterRegistry = meterRegistry;
+        this.runEventLog = runEventLog;
+        this.tokenUsageService = tokenUsageService;
+
+        Gauge.builder("qa.runs.active", runs, Map::size).register(meterRegistry);
+        Gauge.builder("qa.runs.tool.calls.inflight", runs, r -> r.values().stream().mapToInt(run -> run.toolThreads.size()).sum())
+            .register(meterRegistry);
+    }
+
+    /**
+     * 실행을 등록합니다. 이미 등록된 실행이면 비어 있는 모델/URL만 채웁니다.
+     */
+    public void register(String runId, String model, String url) {
+        ActiveRun created = new ActiveRun(runId);
+        ActiveRun run = runs.putIfAbsent(runId, created);
+        if (run == null) {
+            created.model = model;
+            created.url = url;
+            runEventLog.append(RunEvent.runStarted(runId, model, url));
+            return;
+        }
+        if (run.model == null) {
+            run.model = model;
+        }
+        if (run.url == null) {
+            run.url = url;
+        }
+    }
+
+    /**
+     * 실행이 오류로 끝났음을 기록합니다. 종료 이벤트의 상태가 FAILED가 됩니다.
+     */
+    public void fail(String runId, Throwable error) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        if (run != null && run.cancelReason == null) {
+            run.error = String.valueOf(error.getMessage());
+        }
+    }
+
+    /**
+     * 실행이 임대한 브라우저 세션의 도구를 연결합니다. 취소 시 이 도구로 browser_close를 호출합니다.
+     */
+    public void attachSession(String runId, BrowserSession session) {
+        ActiveRun run = runs.get(runId);
+        if (run != null && session != null) {
+            run.sessionTools = session.getToolCallbacks();
+            run.browserSessionId = session.getId();
+        }
+    }
+
+    /**
+     * 도구 호출이 없는 동안의 실행 단계를 표시합니다 (llm, macro, replay).
+     */
+    public void stage(String runId, String stage) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        if (run != null) {
+            run.stage = stage;
+        }
+    }
+
+    /**
+     * 모델 요청 한도 때문에 실행이 기다리고 있음을 기록하고, 스트리밍 클라이언트에 예상 대기 시간을 알립니다.
+     */
+    public void rateLimited(String runId, String model, Duration delay) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        if (run == null) {
+            return;
+        }
+        Instant until = Instant.now().plus(delay);
+        run.rateLimitedUntil = until;
+        // Waiting for the quota is not idleness
+        run.lastActivity = until;
+        run.notices.tryEmitNext(NOTICE_PREFIX + String.format("%s 요청 한도에 도달하여 약 %d초 후 계속합니다.\n", model, Math.max(1, delay.toSeconds())));
+    }
+
+    /**
+     * 모델 요청 한도로 기다리는 중이면 대기가 끝나는 예상 시각
+     */
+    public Optional<Instant> rateLimitedUntil(String runId) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        Instant until = run != null ? run.rateLimitedUntil : null;
+        return until != null && until.isAfter(Instant.now()) ? Optional.of(until) : Optional.empty();
+    }
+
+    /**
+     * 실행 중 클라이언트에 보낼 안내 메시지 (모델 출력이 아닌 대기 알림 등). 실행이 끝나면 완료됩니다.
+     */
+    public Flux<String> notices(String runId) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        return run != null ? run.notices.asFlux() : Flux.empty();
+    }
+
+    /**
+     * 스트리밍 청크 전송을 기록합니다.
+     */
+    public void recordChunk(String runId) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        if (run != null) {
+            run.chunks.incrementAndGet();
+            run.lastActivity = Instant.now();
+        }
+    }
+
+    /**
+     * 도구 호출 시작을 알립니다. 이미 취소된 실행이면 호출하지 않도록 예외를 던집니다.
+     */
+    public void beforeToolCall(String runId, String toolName) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        if (run == null) {
+            return;
+        }
+        synchronized (run) {
+            if (run.cancelReason != null) {
+                throw new CancellationException("Run " + runId + " was cancelled: " + run.cancelReason);
+            }
+            run.toolThreads.add(Thread.currentThread());
+            run.currentTool = toolName;
+        }
+        run.toolCalls.incrementAndGet();
+        run.lastActivity = Instant.now();
+    }
+
+    public void afterToolCall(String runId) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        if (run == null) {
+            return;
+        }
+        synchronized (run) {
+            if (!run.toolThreads.remove(Thread.currentThread())) {
+                return;
+            }
+            if (run.toolThreads.isEmpty()) {
+                run.currentTool = null;
+            }
+            // Reactor workers are pooled; an interrupt that arrived after the call returned must not leak into the next task
+            if (run.cancelReason != null && !Thread.currentThread().isVirtual()) {
+                Thread.interrupted();
+            }
+        }
+        run.lastActivity = Instant.now();
+    }
+
+    /**
+     * 취소된 실행의 도구 호출 왕복을 멈추도록 ToolCallingManager를 감쌉니다.
+     * 동기 실행은 모델의 도구 호출 루프 안에서만 취소를 알 수 있으므로, 도구 실행 전후에 확인하여 다음 모델 호출을 막습니다.
+     */
+    public ToolCallingManager toolCallingManager(ToolCallingManager delegate) {
+        return new ToolCallingManager() {
+            @Override
+            public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions options) {
+                return delegate.resolveToolDefinitions(options);
+            }
+
+            @Override
+            public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+                String runId = QaToolCallback.runId(prompt);
+                ensureNotCancelled(runId);
+                long start = System.nanoTime();
+                ToolExecutionResult result;
+                try {
+                    result = delegate.executeToolCalls(prompt, chatResponse);
+                } finally {
+                    ActiveRun run = runId == null ? null : runs.get(runId);
+                    if (run != null) {
+                        run.toolRounds.incrementAndGet();
+                        run.toolNanos.addAndGet(System.nanoTime() - start);
+                    }
+                }
+                // A cancellation that arrived while the tools ran must not send their results back to the model
+                ensureNotCancelled(runId);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * 실행이 지금까지 모델의 도구 호출 루프에서 도구를 실행한 라운드 수와 시간 (모델 호출 시간만 재기 위해 사용)
+     */
+    public ToolTime toolTime(String runId) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        return run == null ? new ToolTime(0, 0) : new ToolTime(run.toolRounds.get(), run.toolNanos.get());
+    }
+
+    private void ensureNotCancelled(String runId) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        if (run != null && run.cancelReason != null) {
+            throw new CancellationException("Run " + runId + " was cancelled: " + run.cancelReason);
+        }
+    }
+
+    public boolean isActive(String runId) {
+        return runId != null && runs.containsKey(runId);
+    }
+
+    public boolean isCancelled(String runId) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        return run != null && run.cancelReason != null;
+    }
+
+    /**
+     * 실행을 취소 상태로 표시하고 진행 중인 도구 호출을 중단합니다.
+     * 브라우저 정리는 실행이 종료되며 {@link #finish(String)}에서 수행됩니다.
+     */
+    public boolean cancel(String runId, String reason) {
+        ActiveRun run = runId == null ? null : runs.get(runId);
+        if (run == null) {
+            return false;
+        }
+        int interrupted;
+        synchronized (run) {
+            if (run.cancelReason != null) {
+                return false;
+            }
+            run.cancelReason = reason;
+            run.toolThreads.forEach(Thread::interrupt);
+            interrupted = run.toolThreads.size();
+        }
+        meterRegistry.counter("qa.runs.cancelled", "reason", reason).increment();
+        log.info("Run {} cancelled ({}), interrupted {} pending tool calls", runId, reason, interrupted);
+        return true;
+    }
+
+    /**
+     * 실행 종료를 알립니다. 취소된 실행이면 브라우저를 닫은 뒤 반환하므로, 호출자는 이후에 세션을 반납해야 합니다.
+     */
+    public void finish(String runId) {
+        ActiveRun run = runId == null ? null : runs.remove(runId);
+        if (run == null) {
+            return;
+        }
+        run.notices.tryEmitComplete();
+        String status = run.cancelReason != null ? ("deadline".equals(run.cancelReason) ? "TIMED_OUT" : "CANCELLED")
+            : run.error != null ? "FAILED" : "COMPLETED";
+        runEventLog.append(RunEvent.runFinished(runId, run.model, run.url, Duration.between(run.startedAt, Instant.now()).toMillis(),
+            run.chunks.get(), run.toolCalls.get(), status, run.cancelReason != null ? run.cancelReason : run.error,
+            tokenUsageService.close(runId)));
+        if (run.cancelReason == null) {
+            return;
+        }
+        ToolCallback[] tools = run.sessionTools;
+        if (tools == null && !runs.isEmpty()) {
+            // The shared browser is still in use by other runs
+            return;
+        }
+        closeBrowser(run.runId, tools != null ? tools : sharedToolCallbackProvider.getToolCallbacks());
+    }
+
+    /**
+     * 오랫동안 활동이 없는 실행(연결이 끊긴 클라이언트 등)을 취소하고,
+     * 취소 후에도 종료되지 않은 실행은 직접 정리합니다.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void reapIdleRuns() {
+        Instant threshold = Instant.now().minus(runProperties.getIdleTimeout());
+        for (ActiveRun run : List.copyOf(runs.values())) {
+            if (!run.lastActivity.isBefore(threshold)) {
+                continue;
+            }
+            if (run.cancelReason == null) {
+                cancel(run.runId, "idle");
+                run.lastActivity = Instant.now();
+            } else {
+                log.warn("Run {} did not finish after cancellation ({}); reaping it", run.runId, run.cancelReason);
+                finish(run.runId);
+            }
+        }
+    }
+
+    public int activeCount() {
+        return runs.size();
+    }
+
+    /**
+     * 진행 중인 실행의 현재 상태를 시작 순으로 반환합니다. 카운터 값만 읽으므로 자주 호출해도 됩니다.
+     */
+    public List<ActiveRunInfo> snapshot() {
+        Instant now = Instant.now();
+        return runs.values().stream()
+            .sorted(Comparator.comparing(run -> run.startedAt))
+            .map(run -> {
+                String tool = run.currentTool;
+                Instant rateLimitedUntil = run.rateLimitedUntil != null && run.rateLimitedUntil.isAfter(now) ? run.rateLimitedUntil : null;
+                return new ActiveRunInfo(run.runId, run.model, run.url, null, run.browserSessionId, run.startedAt,
+                    tool != null ? "tool:" + tool : rateLimitedUntil != null ? "rate-limit" : run.stage,
+                    run.chunks.get(), run.toolCalls.get(),
+                    Duration.between(run.startedAt, now).toMillis(), run.cancelReason != null, rateLimitedUntil);
+            })
+            .toList();
+    }
+
+    private void closeBrowser(String runId, ToolCallback[] tools) {
+        ToolCallback close = Arrays.stream(tools)
+            .filter(tc -> CLOSE_TOOL.equals(tc.getToolDefinition().name()))
+            .findFirst()
+            .orElse(null);
+        if (close == null) {
+            return;
+        }
+        // The finishing thread is usually the interrupted one; clear the flag so the MCP call can block
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (close instanceof QaToolCallback qaToolCallback) {
+                qaToolCallback.callDelegate("{}");
+            } else {
+                close.call("{}");
+            }
+            log.info("Closed browser of cancelled run {}", runId);
+        } catch (Exception e) {
+            log.warn("Failed to close browser of cancelled run {}: {}", runId, e.getMessage());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,22 +1,24 @@
 package com.auto.qa.service;
 
 
+import com.auto.qa.tool.QaToolCallback;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -27,43 +29,101 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class AgentService {
 
-    private final Map<String, ChatClient> chatClients; // Inject map of ChatClients
-    private final Map<String, Disposable> activeDisposables = new ConcurrentHashMap<>(); // To manage active streaming operations
+    private final ModelRegistry modelRegistry;
+    private final ModelHealthAdvisor modelHealthAdvisor;
+    private final TokenUsageService tokenUsageService;
+    private final ConversationMemoryService conversationMemoryService;
+    private final PromptHistoryService promptHistoryService;
+    private final SnapshotDiffService snapshotDiffService;
+    private final BrowserSessionPool browserSessionPool;
+    private final ActiveRunRegistry activeRunRegistry;
+    private final PreflightService preflightService;
+    private final RunUsageAdvisor runUsageAdvisor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, SessionRun> activeDisposables = new ConcurrentHashMap<>(); // To manage active streaming operations
+
+    /** WebSocket 세션에서 시작된 스트리밍 실행 */
+    private record SessionRun(String runId, Disposable disposable) {}
 
-    @Value("${spring.ai.mcp.client.stdio.filesystem.args[2]:./qa-prompts}")
-    private String qaPromptsBasePath;
-    
     // Default model if none is specified or invalid
     private static final String DEFAULT_MODEL = "gemini-2.5-flash";
 
+    public boolean isKnownModel(String modelName) {
+        return modelRegistry.isKnown(modelName);
+    }
+
     /**
      * 스트리밍 방식으로 QA 테스트 실행
      */
     public Flux<String> runQaTest(String url, String message, String modelName) {
-        String effectiveModelName = Optional.ofNullable(modelName)
-                                            .filter(name -> chatClients.containsKey(name))
+        return runQaTest(UUID.randomUUID().toString(), url, message, modelName);
+    }
+
+    /**
+     * 스트리밍 방식으로 QA 테스트 실행 (실행 ID 지정)
+     */
+    public Flux<String> runQaTest(String runId, String url, String message, String modelName) {
+        String requestedModelName = Optional.ofNullable(modelName)
+                                            .filter(modelRegistry::isKnown)
                                             .orElse(DEFAULT_MODEL);
+        TokenUsageService.BudgetDecision budget = tokenUsageService.checkStart(requestedModelName, tokenUsageService.user(runId));
+        if (budget.rejected()) {
+            return Flux.error(new IllegalStateException(budget.rejection()));
+        }
+        String effectiveModelName = budget.model();
 
-        ChatClient selectedChatClient = chatClients.get(effectiveModelName);
+        ChatClient selectedChatClient = modelRegistry.chatClient(effectiveModelName).orElse(null);
         if (selectedChatClient == null) {
             return Flux.just("❌ 오류: 지정된 모델 '" + modelName + "'을(를) 찾을 수 없습니다. 기본 모델 사용을 시도합니다.");
         }
 
         String processedUrl = processLocalUrl(url);
         // aiPrompt is the full prompt sent to the AI, including the processed URL and user's message
-        String aiPrompt = processedUrl + " " + message;
+        String aiPrompt = conversationMemoryService.context(runId).map(context -> context + "\n").orElse("")
+            + processedUrl + " " + message;
         log.debug("Processing QA request: {}", aiPrompt);
 
         // Save only the user's original message to the prompt history
-        savePromptToFile(message);
+        promptHistoryService.save(message);
 
         Instant startTime = Instant.now(); // Record start time
+        StringBuilder response = new StringBuilder();
 
-        return selectedChatClient.prompt() // Use selectedChatClient
-            .user(aiPrompt)
-            .stream()
-            .content()
-            .doOnNext(chunk -> log.debug("Streaming chunk: {}", chunk))
+        // Each run leases its own browser session for its whole lifetime when the pool is enabled
+        return Flux.using(
+                () -> {
+                    // Fail fast on a dead environment before leasing a browser or calling the model
+                    preflightService.ensureReady();
+                    activeRunRegistry.register(runId, effectiveModelName, processedUrl);
+                    Optional<BrowserSession> session = Optional.empty();
+                    try {
+                        // Opened only once the run is registered, so its finish always closes the account
+                        tokenUsageService.open(runId, effectiveModelName);
+                        session = leaseBrowserSession(runId);
+                        session.ifPresent(s -> activeRunRegistry.attachSession(runId, s));
+                        return session;
+                    } catch (RuntimeException e) {
+                        // Flux.using only runs the cleanup for a resource it received
+                        activeRunRegistry.finish(runId);
+                        session.ifPresent(browserSessionPool::release);
+                        throw e;
+                    }
+                },
+                session -> prompt(selectedChatClient, runId, effectiveModelName, aiPrompt, session).stream().content()
+                    .doOnError(e -> activeRunRegistry.fail(runId, e))
+                    // Interleave wait notices (e.g. model rate limit) with the output until the model is done
+                    .publish(content -> Flux.merge(content, activeRunRegistry.notices(runId).takeUntilOther(content.then()))),
+                // Cleanup may run on the cancelling thread; closing the browser must not block it
+                session -> Thread.ofVirtual().name("run-cleanup-" + runId).start(() -> {
+                    activeRunRegistry.finish(runId);
+                    session.ifPresent(browserSessionPool::release);
+                }))
+            .subscribeOn(Schedulers.boundedElastic())
+            .doOnNext(chunk -> {
+                activeRunRegistry.recordChunk(runId);
+                response.append(chunk);
+                log.debug("Streaming chunk: {}", chunk);
+            })
             .concatWith(Flux.defer(() -> { // Use Flux.defer to calculate time lazily
                 Instant endTime = Instant.now();
                 Duration duration = Duration.between(startTime, endTime);
@@ -71,6 +131,13 @@ public class AgentService {
                 return Flux.just(elapsedTimeMessage);
             }))
             .doFinally(signalType -> {
+                snapshotDiffService.finishRun(runId);
+                if (signalType == reactor.core.publisher.SignalType.ON_ERROR) {
+                    conversationMemoryService.discard(runId);
+                } else {
+                    conversationMemoryService.complete(runId, processedUrl, message, response.toString(),
+                        signalType == reactor.core.publisher.SignalType.CANCEL);
+                }
                 if (signalType == reactor.core.publisher.SignalType.ON_COMPLETE) {
                     log.info("QA test Flux completed successfully using model: {}", effectiveModelName);
                 } else if (signalType == reactor.core.publisher.SignalType.ON_ERROR) {
@@ -85,111 +152,206 @@ public class AgentService {
      * 동기 방식으로 QA 테스트 실행
      */
     public String runQaTestSync(String url, String message, String modelName) {
-        String effectiveModelName = Optional.ofNullable(modelName)
-                                            .filter(name -> chatClients.containsKey(name))
+        return runQaTestSync(UUID.randomUUID().toString(), url, message, modelName);
+    }
+
+    /**
+     * 동기 방식으로 QA 테스트 실행 (실행 ID 지정)
+     */
+    public String runQaTestSync(String runId, String url, String message, String modelName) {
+        return runQaTestSync(runId, url, message, modelName, null, null);
+    }
+
+    /**
+     * 동기 방식으로 QA 테스트 실행
+     * @param leasedSession 호출자가 이미 임대한 브라우저 세션 (null이면 직접 임대/반납)
+     * @param handoffContext 프롬프트 뒤에 덧붙일 이어받기 안내 (예: 트랜스크립트 재생 불일치 지점), 히스토리에는 저장하지 않음
+     */
+    public String runQaTestSync(String runId, String url, String message, String modelName,
+                                BrowserSession leasedSession, String handoffContext) {
+        String requestedModelName = Optional.ofNullable(modelName)
+                                            .filter(modelRegistry::isKnown)
                                             .orElse(DEFAULT_MODEL);
+        TokenUsageService.BudgetDecision budget = tokenUsageService.checkStart(requestedModelName, tokenUsageService.user(runId));
+        if (budget.rejected()) {
+            throw new IllegalStateException(budget.rejection());
+        }
+        String effectiveModelName = budget.model();
 
-        ChatClient selectedChatClient = chatClients.get(effectiveModelName);
+        ChatClient selectedChatClient = modelRegistry.chatClient(effectiveModelName).orElse(null);
         if (selectedChatClient == null) {
             return "❌ 오류: 지정된 모델 '" + modelName + "'을(를) 찾을 수 없습니다. 기본 모델 사용을 시도합니다.";
         }
 
         String processedUrl = processLocalUrl(url);
         // aiPrompt is the full prompt sent to the AI, including the processed URL and user's message
-        String aiPrompt = processedUrl + " " + message;
+        String aiPrompt = conversationMemoryService.context(runId).map(context -> context + "\n").orElse("")
+            + processedUrl + " " + message;
+        if (handoffContext != null) {
+            aiPrompt = aiPrompt + "\n\n" + handoffContext;
+        }
         log.debug("Processing QA request (sync) using model: {}", aiPrompt);
         
         // Save only the user's original message to the prompt history
-        savePromptToFile(message);
+        promptHistoryService.save(message);
+
+        // Fail fast on a dead environment before leasing a browser or calling the model
+        preflightService.ensureReady();
+
+        activeRunRegistry.register(runId, effectiveModelName, processedUrl);
+        tokenUsageService.open(runId, effectiveModelName);
+        Optional<BrowserSession> session = Optional.empty();
+        try {
+            session = leasedSession != null ? Optional.of(leasedSession) : leaseBrowserSession(runId);
+            session.ifPresent(s -> activeRunRegistry.attachSession(runId, s));
+            String response = prompt(selectedChatClient, runId, effectiveModelName, aiPrompt, session)
+                .call()
+                .content();
+            conversationMemoryService.complete(runId, processedUrl, message, response, false);
+            return response;
+        } catch (RuntimeException e) {
+            activeRunRegistry.fail(runId, e);
+            conversationMemoryService.discard(runId);
+            throw e;
+        } finally {
+            // Closes the browser first when the run was cancelled, so the session is returned clean
+            activeRunRegistry.finish(runId);
+            if (leasedSession == null) {
+                session.ifPresent(browserSessionPool::release);
+            }
+            snapshotDiffService.finishRun(runId);
+        }
+    }
 
-        return selectedChatClient.prompt() // Use selectedChatClient
+    private ChatClient.ChatClientRequestSpec prompt(ChatClient chatClient, String runId, String modelName, String aiPrompt,
+                                                    Optional<BrowserSession> session) {
+        ChatClient.ChatClientRequestSpec spec = chatClient.prompt()
             .user(aiPrompt)
-            .call()
-            .content();
+            .advisors(a -> a.advisors(runUsageAdvisor, modelHealthAdvisor)
+                .param(QaToolCallback.RUN_ID_KEY, runId)
+                .param(ModelHealthAdvisor.MODEL_KEY, modelName))
+            .toolContext(Map.of(QaToolCallback.RUN_ID_KEY, runId));
+        session.ifPresent(s -> spec.toolCallbacks(s.getToolCallbacks()));
+        return spec;
+    }
+
+    private Optional<BrowserSession> leaseBrowserSession(String runId) {
+        return browserSessionPool.isEnabled() ? Optional.of(browserSessionPool.lease(runId)) : Optional.empty();
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("qa.runs.websocket.subscriptions", activeDisposables, Map::size).register(meterRegistry);
     }
 
     /**
      * 특정 세션 ID와 연결된 Flux 구독을 저장합니다.
      * @param sessionId 현재 WebSocket 세션 ID
+     * @param runId 구독 중인 실행 ID
      * @param disposable Flux 구독 객체
      */
-    public void addDisposable(String sessionId, Disposable disposable) {
-        activeDisposables.put(sessionId, disposable);
+    public void addDisposable(String sessionId, String runId, Disposable disposable) {
+        SessionRun previous = activeDisposables.put(sessionId, new SessionRun(runId, disposable));
+        if (previous != null && !previous.disposable().isDisposed()) {
+            // A new request on the same session supersedes the one still streaming
+            cancel(previous, "superseded");
+        }
         log.debug("Disposable added for session: {}", sessionId);
     }
 
     /**
      * 특정 세션 ID와 연결된 Flux 구독을 제거합니다.
      * @param sessionId 현재 WebSocket 세션 ID
+     * @param runId 종료된 실행 ID (같은 세션의 이후 실행은 제거하지 않음)
      */
-    public void removeDisposable(String sessionId) {
-        activeDisposables.remove(sessionId);
+    public void removeDisposable(String sessionId, String runId) {
+        activeDisposables.computeIfPresent(sessionId, (id, entry) -> entry.runId().equals(runId) ? null : entry);
         log.debug("Disposable removed for session: {}", sessionId);
     }
 
     /**
      * 특정 세션 ID와 연결된 Flux 구독을 취소합니다.
+     * 진행 중인 도구 호출을 중단하고, 실행이 정리되며 해당 실행의 브라우저를 닫습니다.
      * @param sessionId 현재 WebSocket 세션 ID
      * @return 취소 성공 여부
      */
     public boolean cancelDisposable(String sessionId) {
-        Disposable disposable = activeDisposables.get(sessionId);
-        if (disposable != null && !disposable.isDisposed()) {
-            disposable.dispose();
-            activeDisposables.remove(sessionId);
-            log.info("Cancelled ongoing Flux for session: {}", sessionId);
-            return true;
-        }
-        log.warn("No active Flux or already disposed for session: {}", sessionId);
-        return false;
+        return cancelSession(sessionId, "client");
     }
 
     /**
-     * localhost URL을 host.docker.internal로 변환
+     * WebSocket 연결이 취소 요청 없이 끊긴 경우 진행 중인 실행을 정리합니다.
      */
-    private String processLocalUrl(String message) {
-        return message
-            .replace("localhost", "host.docker.internal")
-            .replace("127.0.0.1", "host.docker.internal");
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        if (cancelSession(event.getSessionId(), "disconnect")) {
+            log.info("Cleaned up run of disconnected session: {}", event.getSessionId());
+        }
     }
 
     /**
-     * 프롬프트를 파일로 저장 (중복 방지)
+     * 이미 끝났거나 유휴 상태로 취소된 실행의 구독 항목을 정리합니다.
      */
-    private void savePromptToFile(String prompt) {
-        try {
-            Path historyDir = Paths.get(qaPromptsBasePath, "history");
-            if (!Files.exists(historyDir)) {
-                Files.createDirectories(historyDir);
+    @Scheduled(fixedDelay = 60_000)
+    public void reapOrphanedSubscriptions() {
+        activeDisposables.forEach((sessionId, entry) -> {
+            if (entry.disposable().isDisposed()) {
+                activeDisposables.remove(sessionId, entry);
+            } else if (activeRunRegistry.isCancelled(entry.runId())) {
+                activeDisposables.remove(sessionId, entry);
+                entry.disposable().dispose();
+                log.info("Disposed orphaned stream of run {} for session {}", entry.runId(), sessionId);
             }
+        });
+    }
 
-            // Check for duplicate prompts
-            try (var paths = Files.list(historyDir)) {
-                boolean duplicate = paths
-                    .filter(Files::isRegularFile)
-                    .anyMatch(file -> {
-                        try {
-                            return Files.readString(file).equals(prompt);
-                        } catch (IOException e) {
-                            log.warn("Failed to read history file {}: {}", file, e.getMessage());
-                            return false;
-                        }
-                    });
-
-                if (duplicate) {
-                    log.info("Duplicate prompt found, not saving: {}", prompt);
-                    return;
-                }
+    /**
+     * 실행 ID로 WebSocket 스트림을 취소합니다.
+     * @return 해당 실행의 스트림이 있어 취소했는지 여부
+     */
+    public boolean cancelRun(String runId, String reason) {
+        for (Map.Entry<String, SessionRun> entry : activeDisposables.entrySet()) {
+            if (entry.getValue().runId().equals(runId) && activeDisposables.remove(entry.getKey(), entry.getValue())) {
+                cancel(entry.getValue(), reason);
+                log.info("Cancelled run {} of session {} ({})", runId, entry.getKey(), reason);
+                return true;
             }
+        }
+        return false;
+    }
 
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String fileName = String.format("prompt_%s_%s.txt", timestamp, UUID.randomUUID().toString().substring(0, 8));
-            Path filePath = historyDir.resolve(fileName);
+    /**
+     * 스트리밍 중인 실행 ID별 WebSocket 세션 ID
+     */
+    public Map<String, String> streamingSessions() {
+        Map<String, String> sessions = new HashMap<>();
+        activeDisposables.forEach((sessionId, entry) -> sessions.put(entry.runId(), sessionId));
+        return sessions;
+    }
 
-            Files.writeString(filePath, prompt);
-            log.info("Prompt saved to: {}", filePath);
-        } catch (IOException e) {
-            log.error("Failed to save prompt to file: {}", e.getMessage());
+    private boolean cancelSession(String sessionId, String reason) {
+        SessionRun entry = activeDisposables.remove(sessionId);
+        if (entry != null && !entry.disposable().isDisposed()) {
+            cancel(entry, reason);
+            log.info("Cancelled ongoing Flux for session: {}", sessionId);
+            return true;
         }
+        log.debug("No active Flux or already disposed for session: {}", sessionId);
+        return false;
+    }
+
+    private void cancel(SessionRun entry, String reason) {
+        // Interrupt pending tool calls before disposing, so the cleanup sees the run as cancelled
+        activeRunRegistry.cancel(entry.runId(), reason);
+        entry.disposable().dispose();
+    }
+
+    /**
+     * localhost URL을 host.docker.internal로 변환
+     */
+    static String processLocalUrl(String message) {
+        return message
+            .replace("localhost", "host.docker.internal")
+            .replace("127.0.0.1", "host.docker.internal");
     }
 }
@@ -0,0 +1,388 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.ArtifactStoreProperties;
+import com.auto.qa.dto.ArtifactRef;
+import com.auto.qa.dto.RunEvent;
+import com.auto.qa.tool.AccessibilitySnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 도구 결과의 스크린샷(이미지)과 스냅샷(텍스트)을 내용 해시로 주소를 매긴 blob으로 저장합니다.
+ * 같은 내용은 실행이 달라도 한 번만 기록되며, 실행 기록(TOOL_CALL_END 이벤트)은 해시만 참조합니다.
+ * 실행별 참조 목록(runs/{runId})에는 실행이 남긴 blob과 실행이 쓴 리포트를 기록하며,
+ * 실행 기록이나 리포트가 남아 있는 실행의 blob만 유지하고 나머지는 주기적으로 삭제합니다 (리포트 보관 정책을 따름).
+ */
+@Slf4j
+@Service
+public class ArtifactStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+    private static final String TEXT_MEDIA_TYPE = "text/plain";
+    private static final String SNAPSHOT_MEDIA_TYPE = "text/yaml";
+    private static final Pattern RUN_ID = Pattern.compile("[A-Za-z0-9._-]+");
+    private static final Set<String> FILE_WRITE_TOOLS = Set.of("write_file", "edit_file");
+    private static final String ARTIFACT_LINE = "a ";
+    private static final String REPORT_LINE = "r ";
+
+    private final ArtifactStoreProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final RunEventLog runEventLog;
+    private final ReportStore reportStore;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 저장된 blob (압축은 이미 풀려 있음)
+     */
+    public record Blob(String hash, String mediaType, byte[] content) {}
+
+    public ArtifactStore(ArtifactStoreProperties properties, MeterRegistry meterRegistry, RunEventLog runEventLog, ReportStore reportStore) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.runEventLog = runEventLog;
+        this.reportStore = reportStore;
+    }
+
+    /**
+     * MCP 도구 결과(JSON content 배열)에서 이미지와 큰 스냅샷 텍스트를 저장하고 참조 목록을 반환합니다.
+     * 저장한 blob은 실행의 참조 목록에도 기록합니다.
+     */
+    public List<ArtifactRef> capture(String runId, String toolName, String result) {
+        List<ArtifactRef> refs = capture(toolName, result);
+        if (!refs.isEmpty()) {
+            appendToRun(runId, refs.stream().map(ref -> ARTIFACT_LINE + ref.hash()).toList());
+        }
+        return refs;
+    }
+
+    /**
+     * 리포트 파일(report_*.md)을 쓴 도구 호출이면 실행과 리포트를 연결합니다. 리포트가 남아 있는 동안 실행의 blob은 삭제되지 않습니다.
+     */
+    public void recordReport(String runId, String toolName, String arguments) {
+        if (!properties.isEnabled() || !FILE_WRITE_TOOLS.contains(toolName) || arguments == null) {
+            return;
+        }
+        String fileName;
+        try {
+            String path = objectMapper.readTree(arguments).path("path").asText("");
+            fileName = Paths.get(path).getFileName() != null ? Paths.get(path).getFileName().toString() : "";
+        } catch (JsonProcessingException | InvalidPathException e) {
+            return;
+        }
+        if (fileName.startsWith("report") && fileName.endsWith(".md")) {
+            appendToRun(runId, List.of(REPORT_LINE + fileName.substring(0, fileName.length() - ".md".length())));
+        }
+    }
+
+    private List<ArtifactRef> capture(String toolName, String result) {
+        if (!properties.isEnabled() || result == null || !result.trim().startsWith("[")) {
+            return List.of();
+        }
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(result.trim());
+        } catch (JsonProcessingException e) {
+            return List.of();
+        }
+        if (!(root instanceof ArrayNode contents)) {
+            return List.of();
+        }
+        List<ArtifactRef> refs = new ArrayList<>();
+        for (JsonNode content : contents) {
+            String type = content.path("type").asText();
+            if ("image".equals(type) && content.hasNonNull("data")) {
+                try {
+                    byte[] image = Base64.getDecoder().decode(content.get("data").asText());
+                    put(image, content.path("mimeType").asText("image/png"), toolName).ifPresent(refs::add);
+                } catch (IllegalArgumentException e) {
+                    log.debug("Skipping image of tool {} with invalid base64 data", toolName);
+                }
+            } else if ("text".equals(type) && isSnapshotTool(toolName)) {
+                String text = content.path("text").asText();
+                Matcher block = AccessibilitySnapshot.findBlock(text);
+                // Keep only the tree; the surrounding console/tab lines differ between otherwise identical snapshots
+                String snapshot = block != null ? block.group(2) : text;
+                if (snapshot.length() >= properties.getMinTextChars()) {
+                    put(snapshot.getBytes(StandardCharsets.UTF_8), block != null ? SNAPSHOT_MEDIA_TYPE : TEXT_MEDIA_TYPE, toolName)
+                        .ifPresent(refs::add);
+                }
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * 내용을 저장합니다. 같은 해시의 blob이 이미 있으면 쓰지 않고 수정 시각만 갱신합니다.
+     */
+    public Optional<ArtifactRef> put(byte[] content, String mediaType, String toolName) {
+        String hash = hash(content);
+        Path path = blobPath(hash);
+        ArtifactRef ref = new ArtifactRef(hash, mediaType, content.length, toolName);
+        if (Files.exists(path)) {
+            // A reused blob counts as new for the GC grace period, until the run records its reference
+            touch(path);
+            meterRegistry.counter("qa.artifacts.bytes", "result", "deduplicated").increment(content.length);
+            return Optional.of(ref);
+        }
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), hash.substring(0, 8), ".tmp");
+            try {
+                byte[] stored = properties.isCompress() && mediaType.startsWith("text/") ? gzip(content) : content;
+                Files.write(temp, stored);
+                // Not ATOMIC_MOVE, which replaces an existing target on POSIX: without options the move refuses one,
+                // and a rename within the blob directory is atomic all the same
+                Files.move(temp, path);
+                meterRegistry.counter("qa.artifacts.bytes", "result", "written").increment(stored.length);
+            } catch (FileAlreadyExistsException e) {
+                // Another run stored the same content after the exists check
+                touch(path);
+                meterRegistry.counter("qa.artifacts.bytes", "result", "deduplicated").increment(content.length);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return Optional.of(ref);
+        } catch (IOException e) {
+            log.warn("Failed to store {} artifact of tool {}: {}", mediaType, toolName, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 해시로 blob을 읽습니다. 미디어 타입은 내용으로 판별합니다.
+     */
+    public Optional<Blob> get(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = blobPath(hash);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            byte[] stored = Files.readAllBytes(path);
+            byte[] content = startsWith(stored, GZIP_MAGIC) ? gunzip(stored) : stored;
+            return Optional.of(new Blob(hash, sniffMediaType(content), content));
+        } catch (IOException e) {
+            log.warn("Failed to read artifact {}: {}", hash, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 실행 기록에서 실행의 아티팩트 참조를 찾습니다.
+     */
+    public List<ArtifactRef> artifactsOf(String runId) {
+        List<ArtifactRef> refs = new ArrayList<>();
+        runEventLog.readFrom(RunEventLog.Position.START, event -> {
+            if (runId.equals(event.runId()) && event.artifacts() != null) {
+                refs.addAll(event.artifacts());
+            }
+        });
+        return refs;
+    }
+
+    /**
+     * 남아 있는 실행 기록과 리포트가 참조하지 않는 blob을 삭제합니다. 최근에 쓰거나 재사용한 blob은 진행 중인 실행을 위해 남깁니다.
+     * 실행의 blob은 실행 기록(이벤트 로그)에 실행이 남아 있거나, 실행이 쓴 리포트가 보관되어 있는 동안 유지됩니다.
+     */
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 600_000)
+    public void collectGarbage() {
+        Path blobs = Paths.get(properties.getDirectory(), "blobs");
+        if (!properties.isEnabled() || !Files.isDirectory(blobs)) {
+            return;
+        }
+        Set<String> live = new HashSet<>();
+        Set<String> loggedRuns = new HashSet<>();
+        runEventLog.readFrom(RunEventLog.Position.START, event -> {
+            if (event.runId() != null) {
+                loggedRuns.add(event.runId());
+            }
+            if (event.type() == RunEvent.Type.TOOL_CALL_END && event.artifacts() != null) {
+                event.artifacts().forEach(ref -> live.add(ref.hash()));
+            }
+        });
+
+        Instant graceSince = Instant.now().minus(properties.getGcGrace());
+        long releasedRuns = 0;
+        Path runs = runsDirectory();
+        if (Files.isDirectory(runs)) {
+            try (Stream<Path> paths = Files.list(runs)) {
+                for (Path manifest : paths.filter(Files::isRegularFile).toList()) {
+                    if (!collectRun(manifest, loggedRuns, graceSince, live) && Files.deleteIfExists(manifest)) {
+                        releasedRuns++;
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Artifact garbage collection could not read the run references: {}", e.getMessage());
+                return;
+            }
+        }
+
+        long deleted = 0;
+        long freedBytes = 0;
+        try (Stream<Path> paths = Files.walk(blobs)) {
+            for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                String name = path.getFileName().toString();
+                if (live.contains(name) || Files.getLastModifiedTime(path).toInstant().isAfter(graceSince)) {
+                    continue;
+                }
+                long size = Files.size(path);
+                if (Files.deleteIfExists(path)) {
+                    deleted++;
+                    freedBytes += size;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Artifact garbage collection stopped early: {}", e.getMessage());
+        }
+        if (deleted > 0 || releasedRuns > 0) {
+            meterRegistry.counter("qa.artifacts.gc.deleted").increment(deleted);
+            log.info("Artifact GC removed {} unreferenced blobs ({} bytes) of {} released runs; {} blobs still referenced",
+                deleted, freedBytes, releasedRuns, live.size());
+        }
+    }
+
+    /**
+     * 실행이 아직 유지되면 참조 목록의 blob을 live에 추가하고 true를 반환합니다.
+     */
+    private boolean collectRun(Path manifest, Set<String> loggedRuns, Instant graceSince, Set<String> live) throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        // A run still writing its references is younger than the grace period
+        boolean retained = loggedRuns.contains(manifest.getFileName().toString())
+            || Files.getLastModifiedTime(manifest).toInstant().isAfter(graceSince)
+            || lines.stream()
+                .filter(line -> line.startsWith(REPORT_LINE))
+                .anyMatch(line -> reportStore.locate(line.substring(REPORT_LINE.length())).isPresent());
+        if (retained) {
+            lines.stream()
+                .filter(line -> line.startsWith(ARTIFACT_LINE))
+                .forEach(line -> live.add(line.substring(ARTIFACT_LINE.length())));
+        }
+        return retained;
+    }
+
+    private synchronized void appendToRun(String runId, List<String> lines) {
+        if (runId == null || !RUN_ID.matcher(runId).matches()) {
+            return;
+        }
+        try {
+            Files.createDirectories(runsDirectory());
+            Files.write(runsDirectory().resolve(runId), lines, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Failed to record artifact references of run {}: {}", runId, e.getMessage());
+        }
+    }
+
+    private Path runsDirectory() {
+        return Paths.get(properties.getDirectory(), "runs");
+    }
+
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.debug("Failed to refresh the modification time of artifact {}: {}", path.getFileName(), e.getMessage());
+        }
+    }
+
+    private static boolean isSnapshotTool(String toolName) {
+        // browser_snapshot (Playwright MCP), take_snapshot (chrome-devtools MCP)
+        return toolName != null && toolName.endsWith("snapshot");
+    }
+
+    private Path blobPath(String hash) {
+        return Paths.get(properties.getDirectory(), "blobs", hash.substring(0, 2), hash);
+    }
+
+    private static String sniffMediaType(byte[] content) {
+        if (startsWith(content, new byte[]{(byte) 0x89, 'P', 'N', 'G'})) {
+            return "image/png";
+        }
+        if (startsWith(content, new byte[]{(byte) 0xff, (byte) 0xd8, (byte) 0xff})) {
+            return "image/jpeg";
+        }
+        if (content.length > 12 && startsWith(content, "RIFF".getBytes(StandardCharsets.US_ASCII))
+                && new String(content, 8, 4, StandardCharsets.US_ASCII).equals("WEBP")) {
+            return "image/webp";
+        }
+        return TEXT_MEDIA_TYPE + ";charset=UTF-8";
+    }
+
+    private static boolean startsWith(byte[] content, byte[] prefix) {
+        if (content.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (content[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 4);
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] stored) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(stored))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
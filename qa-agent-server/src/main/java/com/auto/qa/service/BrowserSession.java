@@ -0,0 +1,60 @@
+package com.auto.qa.service;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+import lombok.Getter;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 풀에 속한 Playwright MCP 프로세스 하나와 그 도구 콜백
+ */
+@Getter
+public class BrowserSession {
+
+    private final String id;
+    private final McpSyncClient client;
+    private final ToolCallback[] toolCallbacks;
+    private final Instant createdAt = Instant.now();
+    private final AtomicInteger runsServed = new AtomicInteger();
+
+    private volatile String leasedBy;
+    private volatile Instant leasedAt;
+
+    BrowserSession(String id, McpSyncClient client, ToolCallback[] toolCallbacks) {
+        this.id = id;
+        this.client = client;
+        this.toolCallbacks = toolCallbacks;
+    }
+
+    void lease(String runId) {
+        this.leasedBy = runId;
+        this.leasedAt = Instant.now();
+    }
+
+    void unlease() {
+        this.leasedBy = null;
+        this.leasedAt = null;
+        runsServed.incrementAndGet();
+    }
+
+    boolean isAlive() {
+        try {
+            client.ping();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    void close() {
+        try {
+            if (!client.closeGracefully()) {
+                client.close();
+            }
+        } catch (Exception e) {
+            client.close();
+        }
+    }
+}
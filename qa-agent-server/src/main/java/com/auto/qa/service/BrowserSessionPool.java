@@ -0,0 +1,236 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.BrowserPoolProperties;
+import com.auto.qa.config.RunProperties;
+import com.auto.qa.tool.QaToolCallbackFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.json.McpJsonMapper;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.McpToolNamePrefixGenerator;
+import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 미리 띄워 둔 Playwright MCP 프로세스 풀.
+ * 각 QA 실행은 세션 하나를 실행 전체 동안 독점하므로 동시 사용자가 같은 브라우저를 조작하지 않습니다.
+ */
+@Slf4j
+@Service
+public class BrowserSessionPool {
+
+    private final BrowserPoolProperties properties;
+    private final QaToolCallbackFactory qaToolCallbackFactory;
+    private final MeterRegistry meterRegistry;
+    private final ActiveRunRegistry activeRunRegistry;
+    private final RunProperties runProperties;
+
+    private final BlockingQueue<BrowserSession> idleSessions = new LinkedBlockingQueue<>();
+    private final Map<String, BrowserSession> leasedSessions = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingSessions = new AtomicInteger();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final Timer leaseWaitTimer;
+    private volatile boolean shuttingDown;
+
+    public BrowserSessionPool(BrowserPoolProperties properties,
+                              QaToolCallbackFactory qaToolCallbackFactory,
+                              MeterRegistry meterRegistry,
+                              ActiveRunRegistry activeRunRegistry,
+                              RunProperties runProperties) {
+        this.properties = properties;
+        this.qaToolCallbackFactory = qaToolCallbackFactory;
+        this.meterRegistry = meterRegistry;
+        this.activeRunRegistry = activeRunRegistry;
+        this.runProperties = runProperties;
+
+        Gauge.builder("qa.browser.pool.sessions", idleSessions, BlockingQueue::size).tag("state", "idle").register(meterRegistry);
+        Gauge.builder("qa.browser.pool.sessions", leasedSessions, Map::size).tag("state", "leased").register(meterRegistry);
+        Gauge.builder("qa.browser.pool.sessions", pendingSessions, AtomicInteger::get).tag("state", "starting").register(meterRegistry);
+        this.leaseWaitTimer = Timer.builder("qa.browser.pool.lease.wait").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 애플리케이션 기동 후 백그라운드에서 세션을 미리 띄웁니다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        if (isEnabled()) {
+            log.info("Pre-warming {} Playwright MCP sessions", properties.getSize());
+            topUp();
+        }
+    }
+
+    /**
+     * 실행 하나에 세션을 임대합니다. 빈 세션이 없으면 leaseTimeout까지 대기합니다.
+     */
+    public BrowserSession lease(String runId) {
+        long start = System.nanoTime();
+        try {
+            BrowserSession session = idleSessions.poll(properties.getLeaseTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            if (session == null) {
+                throw new IllegalStateException("No browser session available within " + properties.getLeaseTimeout().getSeconds() + "s");
+            }
+            session.lease(runId);
+            leasedSessions.put(session.getId(), session);
+            log.debug("Browser session {} leased to run {}", session.getId(), runId);
+            return session;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a browser session", e);
+        } finally {
+            leaseWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 임대한 세션을 반납합니다. 사용 횟수 초과 또는 응답이 없는 세션은 새 프로세스로 교체합니다.
+     */
+    public void release(BrowserSession session) {
+        if (session == null || leasedSessions.remove(session.getId()) == null) {
+            return;
+        }
+        String runId = session.getLeasedBy();
+        session.unlease();
+
+        if (session.getRunsServed().get() >= properties.getMaxRunsPerSession()) {
+            recycle(session, "max-runs");
+        } else if (!session.isAlive()) {
+            recycle(session, "crashed");
+        } else if (shuttingDown) {
+            session.close();
+        } else {
+            idleSessions.offer(session);
+            log.debug("Browser session {} returned by run {}", session.getId(), runId);
+        }
+    }
+
+    /**
+     * 유휴 세션의 상태를 확인하고, 이미 사라진 실행이 붙잡고 있는 세션을 회수한 뒤 부족한 세션을 보충합니다.
+     */
+    @Scheduled(fixedDelayString = "${app.browser-pool.health-check-interval-ms:30000}")
+    public void healthCheck() {
+        if (!isEnabled() || shuttingDown) {
+            return;
+        }
+        List<BrowserSession> sessions = new ArrayList<>();
+        idleSessions.drainTo(sessions);
+        for (BrowserSession session : sessions) {
+            if (session.isAlive()) {
+                idleSessions.offer(session);
+            } else {
+                recycle(session, "health-check");
+            }
+        }
+        Instant orphanThreshold = Instant.now().minus(runProperties.getIdleTimeout());
+        for (BrowserSession session : List.copyOf(leasedSessions.values())) {
+            Instant leasedAt = session.getLeasedAt();
+            if (leasedAt != null && leasedAt.isBefore(orphanThreshold) && !activeRunRegistry.isActive(session.getLeasedBy())) {
+                log.warn("Reclaiming browser session {} from orphaned run {}", session.getId(), session.getLeasedBy());
+                meterRegistry.counter("qa.browser.pool.reclaimed").increment();
+                release(session);
+            }
+        }
+        topUp();
+    }
+
+    public int idleCount() {
+        return idleSessions.size();
+    }
+
+    public int leasedCount() {
+        return leasedSessions.size();
+    }
+
+    private void recycle(BrowserSession session, String reason) {
+        log.info("Recycling browser session {} after {} runs (reason: {})", session.getId(), session.getRunsServed().get(), reason);
+        meterRegistry.counter("qa.browser.pool.recycled", "reason", reason).increment();
+        Thread.ofVirtual().start(session::close);
+        topUp();
+    }
+
+    private void topUp() {
+        while (!shuttingDown) {
+            int current = pendingSessions.get();
+            if (idleSessions.size() + leasedSessions.size() + current >= properties.getSize()) {
+                return;
+            }
+            if (pendingSessions.compareAndSet(current, current + 1)) {
+                Thread.ofVirtual().name("browser-session-starter").start(this::startSession);
+            }
+        }
+    }
+
+    private void startSession() {
+        String sessionId = "browser-" + sequence.incrementAndGet();
+        McpSyncClient client = null;
+        try {
+            ServerParameters parameters = ServerParameters.builder(properties.getCommand())
+                .args(properties.getArgs())
+                .build();
+            client = McpClient.sync(new StdioClientTransport(parameters, McpJsonMapper.getDefault()))
+                .requestTimeout(properties.getRequestTimeout())
+                .initializationTimeout(properties.getInitializationTimeout())
+                .clientInfo(new McpSchema.Implementation("qa-agent - " + sessionId, "1.0.0"))
+                .build();
+            client.initialize();
+
+            ToolCallback[] toolCallbacks = qaToolCallbackFactory.wrap(SyncMcpToolCallbackProvider.builder()
+                    .mcpClients(client)
+                    .toolNamePrefixGenerator(McpToolNamePrefixGenerator.noPrefix())
+                    .build())
+                .getToolCallbacks();
+
+            BrowserSession session = new BrowserSession(sessionId, client, toolCallbacks);
+            if (shuttingDown) {
+                session.close();
+                return;
+            }
+            idleSessions.offer(session);
+            log.info("Browser session {} ready with {} tools", sessionId, toolCallbacks.length);
+        } catch (Exception e) {
+            log.error("Failed to start browser session {}: {}", sessionId, e.getMessage());
+            meterRegistry.counter("qa.browser.pool.start.failures").increment();
+            if (client != null) {
+                // The MCP server process is already running when the handshake fails
+                client.close();
+            }
+        } finally {
+            pendingSessions.decrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        List<BrowserSession> sessions = new ArrayList<>();
+        idleSessions.drainTo(sessions);
+        sessions.addAll(leasedSessions.values());
+        leasedSessions.clear();
+        sessions.forEach(BrowserSession::close);
+    }
+}
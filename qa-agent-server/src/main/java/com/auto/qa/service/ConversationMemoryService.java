@@ -0,0 +1,374 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.ConversationMemoryProperties;
+import com.auto.qa.tool.AccessibilitySnapshot;
+import com.auto.qa.tool.QaToolCallback;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 채팅 대화(conversation)별로 이전 QA 턴을 보관하고, 후속 요청의 프롬프트에 덧붙일 맥락을 만듭니다.
+ * 맥락은 토큰 예산 안에서 최근 턴 원문과 오래된 턴의 요약으로 구성되며, 스냅샷 같은 도구 결과는
+ * 원문 대신 페이지 참조만 남깁니다. 요약은 모델 호출 없이 요청/이슈/방문 페이지를 추출해 만듭니다.
+ */
+@Slf4j
+@Service
+public class ConversationMemoryService {
+
+    // Mixed Korean/English text; deliberately conservative so the real prompt stays under budget
+    private static final int CHARS_PER_TOKEN = 3;
+    private static final int LARGE_BLOCK_CHARS = 800;
+    private static final int SUMMARY_REQUEST_CHARS = 120;
+    private static final int SUMMARY_ISSUE_CHARS = 100;
+    private static final int SUMMARY_ISSUES = 3;
+    private static final int TOOL_ARGS_CHARS = 80;
+    private static final String NAVIGATE_TOOL = "browser_navigate";
+
+    private static final Pattern FENCED_BLOCK = Pattern.compile("```[^\\n]*\\n(.*?)```", Pattern.DOTALL);
+    private static final Pattern ISSUE_LINE = Pattern.compile("(?m)^.*\\[(High|Medium|Low)].*$");
+    private static final Pattern URL_ARG = Pattern.compile("\"url\"\\s*:\\s*\"([^\"]+)\"");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final ConversationMemoryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+    private final Map<String, PendingTurn> pending = new ConcurrentHashMap<>();
+
+    private record Turn(Instant at, String url, String request, String response, List<String> toolNotes, boolean interrupted) {
+        private int estimatedTokens() {
+            int chars = url.length() + request.length() + response.length();
+            for (String note : toolNotes) {
+                chars += note.length() + 3;
+            }
+            return estimateTokens(chars);
+        }
+    }
+
+    private static final class Conversation {
+        private final String id;
+        // Guarded by this
+        private final Deque<Turn> turns = new ArrayDeque<>();
+        private final Deque<String> summary = new ArrayDeque<>();
+        private boolean summaryTruncated;
+        private volatile Instant lastActive = Instant.now();
+
+        private Conversation(String id) {
+            this.id = id;
+        }
+    }
+
+    private static final class PendingTurn {
+        private final String conversationId;
+        private final Instant createdAt = Instant.now();
+        // Guarded by this
+        private final Deque<String> toolNotes = new ArrayDeque<>();
+        private int droppedNotes;
+
+        private PendingTurn(String conversationId) {
+            this.conversationId = conversationId;
+        }
+    }
+
+    public ConversationMemoryService(ConversationMemoryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("qa.conversations.active", conversations, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * 실행을 대화에 연결합니다. 실행이 끝나면 {@link #complete}로 턴이 대화에 추가됩니다.
+     */
+    public void bind(String runId, String conversationId) {
+        if (!properties.isEnabled() || runId == null || conversationId == null || conversationId.isBlank()) {
+            return;
+        }
+        pending.put(runId, new PendingTurn(conversationId));
+    }
+
+    /**
+     * 실행에 연결된 대화의 이전 맥락을 프롬프트 앞에 붙일 텍스트로 반환합니다. 이전 턴이 없으면 empty.
+     */
+    public Optional<String> context(String runId) {
+        PendingTurn turn = runId == null ? null : pending.get(runId);
+        Conversation conversation = turn == null ? null : conversations.get(turn.conversationId);
+        if (conversation == null) {
+            return Optional.empty();
+        }
+        conversation.lastActive = Instant.now();
+        synchronized (conversation) {
+            if (conversation.turns.isEmpty() && conversation.summary.isEmpty()) {
+                return Optional.empty();
+            }
+            String rendered = render(conversation);
+            meterRegistry.summary("qa.conversation.context.tokens").record(estimateTokens(rendered.length()));
+            return Optional.of(rendered);
+        }
+    }
+
+    /**
+     * 도구 호출을 진행 중인 턴의 메모로 남깁니다. 결과 원문은 보관하지 않고, 스냅샷은 페이지 참조로 대체합니다.
+     */
+    public void recordToolCall(String runId, String toolName, String arguments, String result) {
+        PendingTurn turn = runId == null ? null : pending.get(runId);
+        if (turn == null) {
+            return;
+        }
+        String note = describeToolCall(toolName, arguments, result);
+        synchronized (turn) {
+            turn.toolNotes.addLast(note);
+            while (turn.toolNotes.size() > Math.max(1, properties.getMaxToolNotes())) {
+                turn.toolNotes.removeFirst();
+                turn.droppedNotes++;
+            }
+        }
+    }
+
+    /**
+     * 실행 결과를 대화의 새 턴으로 추가하고, 예산을 넘는 오래된 턴을 요약으로 접습니다.
+     * @param interrupted 사용자가 중단하는 등 응답이 끝까지 생성되지 않았는지 여부
+     */
+    public void complete(String runId, String url, String request, String response, boolean interrupted) {
+        PendingTurn turn = runId == null ? null : pending.remove(runId);
+        if (turn == null) {
+            return;
+        }
+        List<String> notes;
+        synchronized (turn) {
+            notes = new ArrayList<>(turn.toolNotes);
+            if (turn.droppedNotes > 0) {
+                notes.addFirst("(이전 도구 호출 " + turn.droppedNotes + "건 생략)");
+            }
+        }
+        Turn completed = new Turn(Instant.now(), url != null ? url : "", request != null ? request : "",
+            compactResponse(response != null ? response : ""), List.copyOf(notes), interrupted);
+
+        Conversation conversation = conversations.computeIfAbsent(turn.conversationId, Conversation::new);
+        conversation.lastActive = Instant.now();
+        int folded;
+        synchronized (conversation) {
+            conversation.turns.addLast(completed);
+            folded = compact(conversation);
+        }
+        if (folded > 0) {
+            meterRegistry.counter("qa.conversation.turns.summarized").increment(folded);
+            log.debug("Conversation {} folded {} older turns into its summary", conversation.id, folded);
+        }
+        enforceCapacity();
+    }
+
+    /**
+     * 턴을 남기지 않고 실행과 대화의 연결만 해제합니다 (실행 오류 등).
+     */
+    public void discard(String runId) {
+        if (runId != null) {
+            pending.remove(runId);
+        }
+    }
+
+    /**
+     * 대화 메모리를 지웁니다.
+     */
+    public boolean clear(String conversationId) {
+        return conversationId != null && conversations.remove(conversationId) != null;
+    }
+
+    /**
+     * WebSocket 채팅은 세션 ID를 기본 대화 ID로 쓰므로, 연결이 끊기면 해당 대화를 지웁니다.
+     */
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        clear(event.getSessionId());
+    }
+
+    /**
+     * 오랫동안 활동이 없는 대화와, 시작되지 않은 채 남은 실행 연결을 정리합니다.
+     */
+    @Scheduled(fixedDelay = 300_000)
+    public void evictIdle() {
+        Instant threshold = Instant.now().minus(properties.getIdleTtl());
+        conversations.values().removeIf(conversation -> conversation.lastActive.isBefore(threshold));
+        pending.values().removeIf(turn -> turn.createdAt.isBefore(threshold));
+    }
+
+    private void enforceCapacity() {
+        int excess = conversations.size() - Math.max(1, properties.getMaxConversations());
+        if (excess <= 0) {
+            return;
+        }
+        conversations.values().stream()
+            .sorted(Comparator.comparing(conversation -> conversation.lastActive))
+            .limit(excess)
+            .toList()
+            .forEach(conversation -> conversations.remove(conversation.id, conversation));
+    }
+
+    /**
+     * 최근 턴의 예산을 넘는 오래된 턴을 요약 줄로 접고, 요약도 예산을 넘으면 가장 오래된 줄부터 버립니다.
+     */
+    private int compact(Conversation conversation) {
+        int turnBudget = Math.max(0, properties.getMaxContextTokens() - properties.getMaxSummaryTokens());
+        int turnTokens = conversation.turns.stream().mapToInt(Turn::estimatedTokens).sum();
+        int folded = 0;
+        while (conversation.turns.size() > Math.max(0, properties.getKeepRecentTurns()) && turnTokens > turnBudget) {
+            Turn oldest = conversation.turns.removeFirst();
+            turnTokens -= oldest.estimatedTokens();
+            conversation.summary.addLast(summarize(oldest));
+            folded++;
+        }
+        int summaryTokens = conversation.summary.stream().mapToInt(line -> estimateTokens(line.length() + 1)).sum();
+        while (conversation.summary.size() > 1 && summaryTokens > properties.getMaxSummaryTokens()) {
+            summaryTokens -= estimateTokens(conversation.summary.removeFirst().length() + 1);
+            conversation.summaryTruncated = true;
+        }
+        return folded;
+    }
+
+    /**
+     * 요약과 최근 턴을 렌더링합니다. 예산은 가장 최근 턴부터 채우고, 턴은 시간 순서대로 출력합니다.
+     * keepRecentTurns 때문에 예산을 넘으면 예산이 닿은 턴은 앞부분만 남기고 그보다 오래된 턴은 생략합니다.
+     */
+    private String render(Conversation conversation) {
+        StringBuilder sb = new StringBuilder("[이전 대화 맥락] 같은 채팅에서 앞서 수행한 QA 작업입니다. "
+            + "페이지 상태는 바뀌었을 수 있으니 필요하면 browser_snapshot으로 다시 확인하세요.\n");
+        if (!conversation.summary.isEmpty()) {
+            sb.append("\n## 이전 작업 요약\n");
+            if (conversation.summaryTruncated) {
+                sb.append("- (더 오래된 작업은 생략)\n");
+            }
+            conversation.summary.forEach(line -> sb.append(line).append('\n'));
+        }
+        int remainingChars = (properties.getMaxContextTokens() * CHARS_PER_TOKEN) - sb.length();
+        List<Turn> turns = new ArrayList<>(conversation.turns);
+        // The newest turn is what the next request most likely refers to, so it is the last one to be cut
+        Deque<String> kept = new ArrayDeque<>();
+        int omitted = 0;
+        for (int i = turns.size() - 1; i >= 0; i--) {
+            String rendered = renderTurn(turns.get(i), turns.size() - i);
+            if (rendered.length() <= remainingChars) {
+                kept.addFirst(rendered);
+                remainingChars -= rendered.length();
+                continue;
+            }
+            // The turn where the budget runs out keeps its beginning (the newest always does); older turns are left out
+            boolean partial = remainingChars > 0 || kept.isEmpty();
+            if (partial) {
+                kept.addFirst(rendered.substring(0, Math.max(0, remainingChars)) + "\n... (생략)\n");
+            }
+            omitted = partial ? i : i + 1;
+            break;
+        }
+        if (omitted > 0) {
+            sb.append("\n- (예산을 넘는 이전 요청 ").append(omitted).append("건 생략)\n");
+        }
+        kept.forEach(sb::append);
+        return sb.append("\n[현재 요청]\n").toString();
+    }
+
+    private static String renderTurn(Turn turn, int age) {
+        StringBuilder sb = new StringBuilder("\n## ").append(age == 1 ? "직전 요청" : age + "번째 전 요청")
+            .append(" (").append(turn.url()).append(")\n").append(turn.request()).append('\n');
+        if (!turn.toolNotes().isEmpty()) {
+            sb.append("### 수행한 도구 호출\n");
+            turn.toolNotes().forEach(note -> sb.append("- ").append(note).append('\n'));
+        }
+        sb.append("### 응답").append(turn.interrupted() ? " (사용자가 중단함)" : "").append('\n')
+            .append(turn.response()).append('\n');
+        return sb.toString();
+    }
+
+    private static String summarize(Turn turn) {
+        StringBuilder sb = new StringBuilder("- [")
+            .append(LocalTime.ofInstant(turn.at(), ZoneId.systemDefault()).truncatedTo(ChronoUnit.MINUTES).format(TIME))
+            .append("] ").append(turn.url()).append(": ").append(abbreviate(oneLine(turn.request()), SUMMARY_REQUEST_CHARS));
+        List<String> issues = new ArrayList<>();
+        Matcher matcher = ISSUE_LINE.matcher(turn.response());
+        while (matcher.find()) {
+            issues.add(abbreviate(oneLine(matcher.group()).replaceFirst("^[-*\\d.\\s]+", ""), SUMMARY_ISSUE_CHARS));
+        }
+        if (issues.isEmpty()) {
+            sb.append(" → 보고된 이슈 없음");
+        } else {
+            sb.append(" → 이슈 ").append(issues.size()).append("건: ")
+                .append(String.join(" / ", issues.subList(0, Math.min(SUMMARY_ISSUES, issues.size()))));
+        }
+        turn.toolNotes().stream()
+            .filter(note -> note.startsWith(QaToolCallback.SNAPSHOT_TOOL) || note.startsWith(NAVIGATE_TOOL))
+            .reduce((first, second) -> second)
+            .ifPresent(last -> sb.append(" (마지막: ").append(last).append(')'));
+        if (turn.interrupted()) {
+            sb.append(" (중단됨)");
+        }
+        return sb.toString();
+    }
+
+    private static String describeToolCall(String toolName, String arguments, String result) {
+        if (QaToolCallback.SNAPSHOT_TOOL.equals(toolName)) {
+            String page = AccessibilitySnapshot.extractPageUrl(result).orElse("현재 페이지");
+            int nodes = AccessibilitySnapshot.extract(result).map(AccessibilitySnapshot::size).orElse(0);
+            return toolName + " → " + page + " 스냅샷 (" + nodes + "개 노드, 원문 생략)";
+        }
+        if (NAVIGATE_TOOL.equals(toolName) && arguments != null) {
+            Matcher matcher = URL_ARG.matcher(arguments);
+            if (matcher.find()) {
+                return toolName + " → " + matcher.group(1);
+            }
+        }
+        String args = arguments == null || arguments.isBlank() || "{}".equals(arguments.trim()) ? "" : " " + abbreviate(oneLine(arguments), TOOL_ARGS_CHARS);
+        return toolName + args;
+    }
+
+    /**
+     * 큰 코드/스냅샷 블록을 길이 표시로 바꾸고, 그래도 길면 앞부분만 남깁니다.
+     */
+    private String compactResponse(String response) {
+        Matcher matcher = FENCED_BLOCK.matcher(response);
+        StringBuilder sb = new StringBuilder(response.length());
+        while (matcher.find()) {
+            String replacement = matcher.group(1).length() > LARGE_BLOCK_CHARS
+                ? "[코드/스냅샷 블록 " + matcher.group(1).length() + "자 생략]"
+                : matcher.group();
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(sb);
+        String compacted = sb.toString().strip();
+        int maxChars = properties.getMaxResponseChars();
+        if (maxChars > 0 && compacted.length() > maxChars) {
+            compacted = compacted.substring(0, maxChars) + "\n... (응답 " + (compacted.length() - maxChars) + "자 생략)";
+        }
+        return compacted;
+    }
+
+    private static String oneLine(String text) {
+        return text.replaceAll("\\s+", " ").strip();
+    }
+
+    private static String abbreviate(String text, int maxChars) {
+        return text.length() <= maxChars ? text : text.substring(0, maxChars) + "…";
+    }
+
+    private static int estimateTokens(int chars) {
+        return (chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
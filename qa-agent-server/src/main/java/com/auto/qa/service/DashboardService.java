@@ -1,33 +1,64 @@
 package com.auto.qa.service;
 
+import com.auto.qa.config.RunProperties;
 import com.auto.qa.dto.ChartData;
 import com.auto.qa.dto.DashboardStats;
+import com.auto.qa.dto.RunEvent;
 import com.auto.qa.dto.TestReport;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+/**
+ * 대시보드 통계를 제공합니다.
+ * 실행 이벤트 로그({@link RunEventLog})의 종료된 실행이 기준 데이터이며, 모델이 작성한 마크다운 리포트는
+ * 같은 실행 중에 저장된 경우 해당 실행의 첨부(이슈 목록, 판정)로 연결됩니다.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DashboardService {
     
-    private final ReportParserService reportParserService;
-    private static final String REPORT_DIR = "qa-prompts/report";
+    private final ReportStore reportStore;
+    private final RunEventLog runEventLog;
+    private final RunProperties runProperties;
+    /** 실행 종료 후 리포트 저장이 늦어질 수 있는 시간 */
+    private static final Duration REPORT_GRACE = Duration.ofMinutes(1);
+
+    // Guarded by this; rebuilt incrementally from the event log
+    private final Map<String, RunRecord> runs = new LinkedHashMap<>();
+    private RunEventLog.Position position = RunEventLog.Position.START;
+
+    private static final class RunRecord {
+        private final String runId;
+        private String model;
+        private String url;
+        private Instant startedAt;
+        private long durationMs;
+        private String status;
+        /** 마지막 이벤트가 있는 세그먼트 */
+        private long segment;
+
+        private RunRecord(String runId) {
+            this.runId = runId;
+        }
+
+        private Instant finishedAt() {
+            return startedAt.plusMillis(durationMs);
+        }
+    }
     
     public DashboardStats getStats() {
-        List<TestReport> reports = getAllReports();
+        List<TestReport> reports = getAllRuns(null);
         
         DashboardStats stats = DashboardStats.builder()
             .totalTests(reports.size())
@@ -73,7 +104,7 @@ public class DashboardService {
     }
     
     public List<TestReport> getReports(int page, int size) {
-        List<TestReport> allReports = getAllReports();
+        List<TestReport> allReports = getAllRuns(null);
         
         // Sort by executedAt descending (most recent first)
         allReports.sort((r1, r2) -> {
@@ -94,8 +125,9 @@ public class DashboardService {
     }
     
     public ChartData getDailyTestsChart(int days) {
-        List<TestReport> reports = getAllReports();
         LocalDate today = LocalDate.now();
+        // Only the partitions inside the chart range are read
+        List<TestReport> reports = getAllRuns(today.minusDays(days));
         
         Map<LocalDate, Integer> testsByDate = new TreeMap<>();
         
@@ -140,23 +172,129 @@ public class DashboardService {
         return chartData;
     }
     
-    private List<TestReport> getAllReports() {
-        Path reportDir = Paths.get(REPORT_DIR);
-        
-        if (!Files.exists(reportDir)) {
-            log.warn("Report directory does not exist: {}", REPORT_DIR);
-            return Collections.emptyList();
+    /**
+     * 종료된 실행 목록에 리포트를 연결하고, 실행 기록이 없는 리포트(이벤트 로그 도입 이전 등)는 그대로 덧붙입니다.
+     * since가 주어지면 그날 이후 시작된 실행과 그 이후 파티션의 리포트만 읽습니다.
+     */
+    private List<TestReport> getAllRuns(LocalDate since) {
+        List<RunRecord> finished = catchUp();
+        List<TestReport> reports = new ArrayList<>();
+        Map<TestReport, Instant> savedAt = new IdentityHashMap<>();
+        for (ReportStore.StoredReport stored : reportStore.list(since)) {
+            reports.add(stored.report());
+            if (stored.savedAt() != null) {
+                savedAt.put(stored.report(), stored.savedAt());
+            }
         }
-        
-        try (Stream<Path> paths = Files.list(reportDir)) {
-            return paths
-                .filter(path -> path.toString().endsWith(".md"))
-                .map(reportParserService::parseReport)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-        } catch (IOException e) {
-            log.error("Failed to read reports from directory: {}", REPORT_DIR, e);
-            return Collections.emptyList();
+
+        List<TestReport> results = new ArrayList<>();
+        for (RunRecord run : finished) {
+            if (since != null && LocalDate.ofInstant(run.startedAt, ZoneId.systemDefault()).isBefore(since)) {
+                continue;
+            }
+            TestReport report = takeReport(run, reports, savedAt);
+            results.add(toTestReport(run, report));
+        }
+        results.addAll(reports);
+        return results;
+    }
+
+    private synchronized List<RunRecord> catchUp() {
+        position = runEventLog.readFrom(position, this::apply);
+        prune();
+        return runs.values().stream()
+            .filter(run -> run.status != null)
+            .collect(Collectors.toList());
+    }
+
+    private void apply(RunEvent event, long segment) {
+        switch (event.type()) {
+            case RUN_STARTED -> {
+                RunRecord run = runs.computeIfAbsent(event.runId(), RunRecord::new);
+                run.segment = segment;
+                run.model = event.model();
+                run.url = event.url();
+                run.startedAt = event.timestamp();
+            }
+            case RUN_FINISHED -> {
+                RunRecord run = runs.computeIfAbsent(event.runId(), RunRecord::new);
+                run.segment = segment;
+                run.durationMs = event.durationMs() != null ? event.durationMs() : 0;
+                if (run.startedAt == null) {
+                    // The start event was in a segment that has since been deleted
+                    run.startedAt = event.timestamp().minusMillis(run.durationMs);
+                }
+                run.model = run.model != null ? run.model : event.model();
+                run.url = run.url != null ? run.url : event.url();
+                run.status = event.status();
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * 이벤트가 모두 삭제된 세그먼트에 있던 실행과, 최대 실행 시간이 지나도록 종료 이벤트가 없는 실행을 뺍니다.
+     */
+    private void prune() {
+        long oldestSegment = runEventLog.oldestSegment();
+        // Lost when the server stopped mid-run; should it finish after all, its finish event adds it back
+        Instant abandoned = Instant.now().minus(runProperties.getMaxDeadline());
+        runs.values().removeIf(run -> run.segment < oldestSegment
+            || (run.status == null && run.startedAt != null && run.startedAt.isBefore(abandoned)));
+    }
+
+    /**
+     * 실행 중(또는 종료 직후)에 저장된 같은 URL의 리포트 중 종료 시각에 가장 가까운 것을 꺼냅니다.
+     */
+    private TestReport takeReport(RunRecord run, List<TestReport> reports, Map<TestReport, Instant> savedAt) {
+        Instant from = run.startedAt;
+        Instant to = run.finishedAt().plus(REPORT_GRACE);
+        TestReport best = null;
+        long bestDistance = Long.MAX_VALUE;
+        for (TestReport report : reports) {
+            Instant saved = savedAt.get(report);
+            if (saved == null || saved.isBefore(from) || saved.isAfter(to) || !sameUrl(run.url, report.getUrl())) {
+                continue;
+            }
+            long distance = Math.abs(Duration.between(run.finishedAt(), saved).toMillis());
+            if (distance < bestDistance) {
+                best = report;
+                bestDistance = distance;
+            }
+        }
+        if (best != null) {
+            reports.remove(best);
+        }
+        return best;
+    }
+
+    private static boolean sameUrl(String runUrl, String reportUrl) {
+        if (runUrl == null || reportUrl == null) {
+            return true;
         }
+        return normalizeUrl(runUrl).equals(normalizeUrl(AgentService.processLocalUrl(reportUrl)));
+    }
+
+    private static String normalizeUrl(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    private TestReport toTestReport(RunRecord run, TestReport report) {
+        // A completed run is judged by its report when the model wrote one
+        String status = "COMPLETED".equals(run.status)
+            ? (report != null && report.getStatus() != null ? report.getStatus() : "SUCCESS")
+            : run.status;
+        return TestReport.builder()
+            .id(run.runId)
+            .url(report != null && report.getUrl() != null ? report.getUrl() : run.url)
+            .executedAt(LocalDateTime.ofInstant(run.startedAt, ZoneId.systemDefault()))
+            .model(run.model)
+            .status(status)
+            .issues(report != null ? report.getIssues() : new ArrayList<>())
+            .executionTime(Duration.ofMillis(run.durationMs))
+            .filePath(report != null ? report.getFilePath() : null)
+            .build();
     }
 }
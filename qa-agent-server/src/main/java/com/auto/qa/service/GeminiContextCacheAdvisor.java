@@ -0,0 +1,351 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.GeminiCacheProperties;
+import com.google.genai.Client;
+import com.google.genai.errors.ApiException;
+import com.google.genai.types.CachedContent;
+import com.google.genai.types.CachedContentUsageMetadata;
+import com.google.genai.types.Content;
+import com.google.genai.types.CreateCachedContentConfig;
+import com.google.genai.types.DeleteCachedContentConfig;
+import com.google.genai.types.FunctionDeclaration;
+import com.google.genai.types.Part;
+import com.google.genai.types.Schema;
+import com.google.genai.types.Tool;
+import com.google.genai.types.UpdateCachedContentConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.google.genai.GoogleGenAiChatOptions;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gemini 요청의 고정 접두부(시스템 프롬프트 + MCP 도구 선언)를 서버 측 캐시(cachedContents)로 보내는 advisor.
+ * 같은 모델/시스템 프롬프트/도구 목록에 대해 캐시를 한 번 만들어 재사용하고, 사용 중인 캐시는 만료 전에 TTL을 연장합니다.
+ * Gemini는 캐시를 쓰는 요청에 system_instruction이나 tools가 함께 오면 거부하므로, 캐시를 쓰는 요청에서는 시스템 메시지를 빼고
+ * {@link #toolCallingManager(ToolCallingManager)}가 도구 선언을 생략합니다 (도구 실행은 그대로).
+ * 캐시를 만들 수 없거나 캐시를 쓴 호출이 캐시 오류로 실패하면 캐시 없이 요청합니다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GeminiContextCacheAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final Client genAiClient;
+    private final ToolCallingManager toolCallingManager;
+    private final GeminiCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    // Fingerprint of (model, system prompt, tool declarations) -> provider-side cache
+    private final Map<String, CacheEntry> caches = new ConcurrentHashMap<>();
+    // Fingerprints whose cache could not be created, and when to try again
+    private final Map<String, Instant> unsupported = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return "geminiContextCacheAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // Right before the model, so the other advisors see the prompt as the caller built it
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("qa.gemini.cache.entries", caches, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        Optional<CachedRequest> cached = withCache(request);
+        if (cached.isEmpty()) {
+            return chain.nextCall(request);
+        }
+        try {
+            return chain.nextCall(cached.get().request());
+        } catch (RuntimeException e) {
+            if (!isCacheError(e)) {
+                throw e;
+            }
+            invalidate(cached.get().entry(), e);
+            return chain.copy(this).nextCall(request);
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        Optional<CachedRequest> cached = withCache(request);
+        if (cached.isEmpty()) {
+            return chain.nextStream(request);
+        }
+        // The stream chain cannot be replayed; drop the cache so the next request goes without it
+        return chain.nextStream(cached.get().request())
+            .doOnError(e -> {
+                if (isCacheError(e)) {
+                    invalidate(cached.get().entry(), e);
+                }
+            });
+    }
+
+    /**
+     * Gemini 모델용 ToolCallingManager. 캐시를 쓰는 요청에는 도구 선언을 보내지 않고(선언은 캐시에 있음),
+     * 모델 호출 한 번마다 캐시에서 읽힌 토큰 수를 기록합니다.
+     */
+    public ToolCallingManager toolCallingManager(ToolCallingManager delegate) {
+        return new ToolCallingManager() {
+            @Override
+            public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions options) {
+                // Called once per model round while building the Gemini request
+                CacheEntry entry = cacheOf(options);
+                if (entry == null) {
+                    if (options instanceof GoogleGenAiChatOptions gemini) {
+                        meterRegistry.counter("qa.gemini.cache.rounds", "model", String.valueOf(gemini.getModel()), "result", "uncached").increment();
+                    }
+                    return delegate.resolveToolDefinitions(options);
+                }
+                entry.lastUsed = Instant.now();
+                meterRegistry.counter("qa.gemini.cache.rounds", "model", entry.model, "result", "cached").increment();
+                meterRegistry.counter("qa.gemini.cache.tokens", "model", entry.model).increment(entry.tokens);
+                return List.of();
+            }
+
+            @Override
+            public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+                return delegate.executeToolCalls(prompt, chatResponse);
+            }
+        };
+    }
+
+    /**
+     * 만료가 가까운 캐시 중 최근 사용된 것은 TTL을 연장하고, 오래 사용되지 않은 것은 삭제합니다.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void refresh() {
+        Instant now = Instant.now();
+        caches.forEach((key, entry) -> {
+            if (entry.lastUsed.isBefore(now.minus(properties.getIdleTimeout()))) {
+                caches.remove(key, entry);
+                delete(entry);
+            } else if (entry.expireTime.isBefore(now.plus(properties.getRefreshBefore()))) {
+                try {
+                    CachedContent updated = genAiClient.caches.update(entry.name,
+                        UpdateCachedContentConfig.builder().ttl(properties.getTtl()).build());
+                    entry.expireTime = updated.expireTime().orElse(now.plus(properties.getTtl()));
+                    meterRegistry.counter("qa.gemini.cache.refreshes", "result", "success").increment();
+                } catch (RuntimeException e) {
+                    // The next request creates a new one
+                    caches.remove(key, entry);
+                    meterRegistry.counter("qa.gemini.cache.refreshes", "result", "failed").increment();
+                    log.warn("Failed to extend Gemini cache {}: {}", entry.name, e.getMessage());
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    void deleteAll() {
+        // Cached tokens are billed for storage until they expire
+        caches.values().forEach(this::delete);
+        caches.clear();
+    }
+
+    private Optional<CachedRequest> withCache(ChatClientRequest request) {
+        if (!properties.isEnabled() || !(request.prompt().getOptions() instanceof GoogleGenAiChatOptions options)
+                || options.getModel() == null) {
+            return Optional.empty();
+        }
+        List<Message> messages = request.prompt().getInstructions();
+        List<Message> systemMessages = messages.stream().filter(SystemMessage.class::isInstance).toList();
+        if (systemMessages.size() != 1) {
+            return Optional.empty();
+        }
+        String system = systemMessages.get(0).getText();
+        List<ToolDefinition> tools = toolCallingManager.resolveToolDefinitions(options);
+        String key = fingerprint(options.getModel(), system, tools);
+
+        Instant retryAt = unsupported.get(key);
+        if (retryAt != null && Instant.now().isBefore(retryAt)) {
+            return Optional.empty();
+        }
+        CacheEntry entry = caches.get(key);
+        if (entry == null || !entry.expireTime.isAfter(Instant.now().plusSeconds(30))) {
+            entry = install(key, entry, options.getModel(), system, tools);
+            if (entry == null) {
+                return Optional.empty();
+            }
+        }
+        entry.lastUsed = Instant.now();
+
+        GoogleGenAiChatOptions cachedOptions = options.copy();
+        cachedOptions.setCachedContentName(entry.name);
+        cachedOptions.setUseCachedContent(true);
+        Prompt prompt = new Prompt(messages.stream().filter(message -> !(message instanceof SystemMessage)).toList(), cachedOptions);
+        return Optional.of(new CachedRequest(request.mutate().prompt(prompt).build(), entry));
+    }
+
+    /**
+     * 새 캐시를 만들어 등록합니다. 원격 호출은 맵 밖에서 하므로 다른 요청을 막지 않으며,
+     * 동시에 같은 캐시를 만든 요청이 먼저 등록했으면 그 캐시를 쓰고 방금 만든 캐시는 삭제합니다.
+     */
+    private CacheEntry install(String key, CacheEntry expiring, String model, String system, List<ToolDefinition> tools) {
+        CacheEntry created = create(key, model, system, tools);
+        if (created == null) {
+            return null;
+        }
+        CacheEntry winner = expiring != null && caches.replace(key, expiring, created) ? null : caches.putIfAbsent(key, created);
+        if (winner == null) {
+            return created;
+        }
+        delete(created);
+        return winner;
+    }
+
+    private CacheEntry create(String key, String model, String system, List<ToolDefinition> tools) {
+        CreateCachedContentConfig.Builder config = CreateCachedContentConfig.builder()
+            .displayName("qa-agent-" + key.substring(0, 12))
+            .systemInstruction(Content.fromParts(Part.fromText(system)))
+            .ttl(properties.getTtl());
+        if (!tools.isEmpty()) {
+            // Same declarations GoogleGenAiChatModel would send with every request
+            config.tools(Tool.builder()
+                .functionDeclarations(tools.stream()
+                    .map(tool -> FunctionDeclaration.builder()
+                        .name(tool.name())
+                        .description(tool.description())
+                        .parameters(Schema.fromJson(tool.inputSchema()))
+                        .build())
+                    .toList())
+                .build());
+        }
+        try {
+            CachedContent cached = genAiClient.caches.create(model, config.build());
+            int tokens = cached.usageMetadata().flatMap(CachedContentUsageMetadata::totalTokenCount).orElse(0);
+            CacheEntry entry = new CacheEntry(cached.name().orElseThrow(), model, tokens,
+                cached.expireTime().orElse(Instant.now().plus(properties.getTtl())));
+            unsupported.remove(key);
+            meterRegistry.counter("qa.gemini.cache.creates", "model", model, "result", "success").increment();
+            log.info("Created Gemini cache {} for {} ({} tokens, {} tools)", entry.name, model, tokens, tools.size());
+            return entry;
+        } catch (RuntimeException e) {
+            // e.g. prefix below the model's minimum cache size, or caching not available for the model
+            unsupported.put(key, Instant.now().plus(properties.getRetryAfter()));
+            meterRegistry.counter("qa.gemini.cache.creates", "model", model, "result", "failed").increment();
+            log.warn("Gemini context cache unavailable for {}; sending the full prompt for {}: {}",
+                model, properties.getRetryAfter(), e.getMessage());
+            return null;
+        }
+    }
+
+    private CacheEntry cacheOf(ToolCallingChatOptions options) {
+        if (options instanceof GoogleGenAiChatOptions gemini && Boolean.TRUE.equals(gemini.getUseCachedContent())
+                && gemini.getCachedContentName() != null) {
+            String name = gemini.getCachedContentName();
+            return caches.values().stream()
+                .filter(entry -> entry.name.equals(name))
+                .findFirst()
+                // Dropped between the advisor and the model call; the request still references it
+                .orElseGet(() -> new CacheEntry(name, String.valueOf(gemini.getModel()), 0, Instant.now()));
+        }
+        return null;
+    }
+
+    private void invalidate(CacheEntry entry, Throwable e) {
+        caches.values().removeIf(existing -> existing == entry);
+        meterRegistry.counter("qa.gemini.cache.fallbacks", "model", entry.model).increment();
+        log.warn("Gemini cache {} rejected; retrying without it: {}", entry.name, e.getMessage());
+    }
+
+    private void delete(CacheEntry entry) {
+        try {
+            genAiClient.caches.delete(entry.name, DeleteCachedContentConfig.builder().build());
+        } catch (RuntimeException e) {
+            log.debug("Failed to delete Gemini cache {}: {}", entry.name, e.getMessage());
+        }
+    }
+
+    /**
+     * 캐시가 만료/삭제되어 거부된 경우인지 판단합니다 (예: 404/403 "CachedContent not found (or permission denied)").
+     * 모델이 없는 404 같은 다른 오류는 캐시 없이 재시도해도 같으므로 그대로 전달합니다.
+     */
+    static boolean isCacheError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException api && (api.code() == 400 || api.code() == 403 || api.code() == 404)) {
+                String message = String.valueOf(api.message()).toLowerCase();
+                if (message.contains("cachedcontent") || message.contains("cached content")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String fingerprint(String model, String system, List<ToolDefinition> tools) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(system.getBytes(StandardCharsets.UTF_8));
+            tools.stream()
+                .sorted(Comparator.comparing(ToolDefinition::name))
+                .forEach(tool -> {
+                    digest.update((byte) 0);
+                    digest.update((tool.name() + "\n" + tool.description() + "\n" + tool.inputSchema()).getBytes(StandardCharsets.UTF_8));
+                });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CachedRequest(ChatClientRequest request, CacheEntry entry) {
+    }
+
+    private static final class CacheEntry {
+        private final String name;
+        private final String model;
+        // Prompt tokens held by the cache, read from it instead of the request on every round
+        private final int tokens;
+        private volatile Instant expireTime;
+        private volatile Instant lastUsed = Instant.now();
+
+        private CacheEntry(String name, String model, int tokens, Instant expireTime) {
+            this.name = name;
+            this.model = model;
+            this.tokens = tokens;
+            this.expireTime = expireTime;
+        }
+    }
+}
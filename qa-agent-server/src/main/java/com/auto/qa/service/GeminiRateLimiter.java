@@ -0,0 +1,338 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.GeminiRateLimitProperties;
+import com.google.genai.errors.ApiException;
+import com.google.genai.types.GenerateContentResponse;
+import com.google.genai.types.GenerateContentResponseUsageMetadata;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.BackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gemini 모델별 클라이언트 측 요청 빈도 제한.
+ * 분당 요청 수와 분당 토큰 수를 토큰 버킷으로 지키며, 429 응답을 받으면 한도를 줄이고(Retry-After 동안은 요청 중지)
+ * 429 없이 시간이 지나면 설정값까지 서서히 회복합니다.
+ * 재시도는 decorrelated jitter로 간격을 흩어 여러 실행이 같은 시점에 다시 몰리지 않게 하고,
+ * 대기가 길어지는 실행에는 {@link ActiveRunRegistry#rateLimited}로 예상 대기 시간을 알립니다.
+ */
+@Slf4j
+@Service
+public class GeminiRateLimiter {
+
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    // Shorter waits are not worth telling the user about
+    private static final Duration NOTICE_THRESHOLD = Duration.ofSeconds(2);
+    // "Please retry in 37.2s." in the message, or RetryInfo's "retryDelay": "37s" in the error details
+    private static final Pattern RETRY_DELAY = Pattern.compile("(?:retry in |\"retryDelay\"\\s*:\\s*\")([0-9.]+)s", Pattern.CASE_INSENSITIVE);
+
+    private final GeminiRateLimitProperties properties;
+    private final ActiveRunRegistry activeRunRegistry;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ModelLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final class ModelLimiter {
+        private final String model;
+        private final Timer waitTimer;
+        // Share of the configured limits currently in use; lowered on 429 and recovered over time
+        private double fraction = 1;
+        // Request permits; negative while callers hold reservations for permits that have not refilled yet
+        private double requests;
+        // Token balance; responses are charged after the fact, so it may go negative
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        private long lastThrottle = System.nanoTime() - 60 * NANOS_PER_MINUTE;
+        private long blockedUntil = System.nanoTime();
+
+        private ModelLimiter(String model) {
+            this.model = model;
+            this.requests = requestCapacity();
+            this.tokens = properties.tokensPerMinute(model);
+            Gauge.builder("qa.gemini.ratelimit.fraction", this, limiter -> limiter.fraction).tag("model", model).register(meterRegistry);
+            this.waitTimer = Timer.builder("qa.gemini.ratelimit.wait").tag("model", model).register(meterRegistry);
+        }
+
+        private double requestsPerMinute() {
+            return properties.requestsPerMinute(model) * fraction;
+        }
+
+        private double tokensPerMinute() {
+            return properties.tokensPerMinute(model) * fraction;
+        }
+
+        /** 버스트는 10초 분량까지 (분 단위 할당량을 한꺼번에 쓰지 않도록) */
+        private double requestCapacity() {
+            return Math.max(1, requestsPerMinute() / 6);
+        }
+
+        private void refill(long now) {
+            double minutes = (now - lastRefill) / (double) NANOS_PER_MINUTE;
+            lastRefill = now;
+            if (fraction < 1 && now - lastThrottle > NANOS_PER_MINUTE) {
+                fraction = Math.min(1, fraction + properties.getRecoveryPerMinute() * minutes);
+            }
+            requests = Math.min(requestCapacity(), requests + minutes * requestsPerMinute());
+            tokens = Math.min(tokensPerMinute(), tokens + minutes * tokensPerMinute());
+        }
+
+        /** 요청 1건을 예약하고, 보내기 전까지 기다려야 할 시간(ns)을 반환합니다. */
+        private synchronized long reserve(long now) {
+            refill(now);
+            long wait = Math.max(0, blockedUntil - now);
+            if (properties.requestsPerMinute(model) > 0) {
+                if (requests < 1) {
+                    wait = Math.max(wait, (long) ((1 - requests) / requestsPerMinute() * NANOS_PER_MINUTE));
+                }
+                requests -= 1;
+            }
+            if (properties.tokensPerMinute(model) > 0 && tokens < 0) {
+                wait = Math.max(wait, (long) (-tokens / tokensPerMinute() * NANOS_PER_MINUTE));
+            }
+            return wait;
+        }
+
+        private synchronized void charge(long used) {
+            tokens -= used;
+        }
+
+        private synchronized void throttled(long now, Duration retryAfter) {
+            refill(now);
+            // Requests that were in flight together hit the same exhausted window; cut once per window
+            if (now >= blockedUntil && now - lastThrottle > TimeUnit.SECONDS.toNanos(1)) {
+                fraction = Math.max(properties.getMinFraction(), fraction * properties.getDecreaseFactor());
+            }
+            lastThrottle = now;
+            requests = Math.min(requests, 0);
+            if (retryAfter != null) {
+                blockedUntil = Math.max(blockedUntil, now + retryAfter.toNanos());
+            }
+        }
+    }
+
+    public GeminiRateLimiter(GeminiRateLimitProperties properties, ActiveRunRegistry activeRunRegistry, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.activeRunRegistry = activeRunRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 모델 요청 1건을 예약하고 보내기 전까지 기다려야 할 시간을 반환합니다 (스트리밍용, 직접 대기하지 않음).
+     */
+    public Duration reserve(String model, String runId) {
+        if (!properties.isEnabled()) {
+            return Duration.ZERO;
+        }
+        ModelLimiter limiter = limiters.computeIfAbsent(model, ModelLimiter::new);
+        Duration wait = Duration.ofNanos(limiter.reserve(System.nanoTime()));
+        limiter.waitTimer.record(wait);
+        notifyRun(runId, model, wait);
+        return wait;
+    }
+
+    /**
+     * 모델 요청 1건을 보낼 수 있을 때까지 기다립니다.
+     */
+    public void acquire(String model, String runId) {
+        Duration wait = reserve(model, runId);
+        if (wait.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Gemini 요청 한도 대기 중 중단되었습니다", e);
+        }
+    }
+
+    /**
+     * 응답에서 확인한 토큰 사용량을 모델의 분당 토큰 한도에서 차감합니다.
+     */
+    public void recordTokens(String model, long tokens) {
+        if (properties.isEnabled() && tokens > 0) {
+            limiters.computeIfAbsent(model, ModelLimiter::new).charge(tokens);
+        }
+    }
+
+    /**
+     * 429 응답을 반영합니다. 한도를 줄이고, 응답에 재시도 지연이 있으면 그때까지 이 모델의 요청을 멈춥니다.
+     */
+    public void onThrottled(String model, Throwable error) {
+        Duration retryAfter = retryAfter(error).orElse(null);
+        meterRegistry.counter("qa.gemini.ratelimit.throttled", "model", model).increment();
+        if (properties.isEnabled()) {
+            ModelLimiter limiter = limiters.computeIfAbsent(model, ModelLimiter::new);
+            limiter.throttled(System.nanoTime(), retryAfter);
+            log.warn("Gemini {} rate limited (retry after {}); limits reduced to {}%", model,
+                retryAfter != null ? retryAfter : "unknown", Math.round(limiter.fraction * 100));
+        }
+    }
+
+    /**
+     * 동기 호출용 모델별 RetryTemplate. 시도마다 한도를 지키고, 429/5xx는 decorrelated jitter 간격으로 재시도합니다.
+     * @param runId 호출 중인 실행 ID (대기 알림용, 없으면 null)
+     */
+    public RetryTemplate retryTemplate(String model, Supplier<String> runId) {
+        RetryTemplate template = new RetryTemplate();
+        template.setRetryPolicy(new SimpleRetryPolicy(properties.getMaxAttempts()) {
+            @Override
+            public boolean canRetry(RetryContext context) {
+                Throwable last = context.getLastThrowable();
+                return (last == null || isRetryable(last)) && super.canRetry(context);
+            }
+        });
+        template.setBackOffPolicy(new BackOffPolicy() {
+            @Override
+            public BackOffContext start(RetryContext context) {
+                return new JitterContext(context, properties.getInitialBackoff());
+            }
+
+            @Override
+            public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+                JitterContext jitter = (JitterContext) backOffContext;
+                jitter.delay = backoff(jitter.delay, jitter.retry.getLastThrowable());
+                retrying(model, runId.get(), jitter.delay);
+                try {
+                    Thread.sleep(jitter.delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BackOffInterruptedException("Gemini 재시도 대기 중 중단되었습니다", e);
+                }
+                acquire(model, runId.get());
+            }
+        });
+        template.registerListener(new RetryListener() {
+            @Override
+            public <T, E extends Throwable> boolean open(RetryContext context, RetryCallback<T, E> callback) {
+                acquire(model, runId.get());
+                return true;
+            }
+
+            @Override
+            public <T, E extends Throwable> void onSuccess(RetryContext context, RetryCallback<T, E> callback, T result) {
+                if (result instanceof GenerateContentResponse response) {
+                    recordTokens(model, response.usageMetadata()
+                        .flatMap(GenerateContentResponseUsageMetadata::totalTokenCount)
+                        .orElse(0));
+                }
+            }
+
+            @Override
+            public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+                if (isThrottle(throwable)) {
+                    onThrottled(model, throwable);
+                }
+            }
+        });
+        return template;
+    }
+
+    /**
+     * 스트리밍 모델 요청 한 번(도구 호출 왕복 하나)에 대한 재시도 규칙. 이미 응답을 내보낸 뒤의 오류는 재시도하지 않습니다.
+     * @param emitted 이 요청이 응답을 하나라도 내보냈는지
+     */
+    public Retry streamRetry(String model, String runId, BooleanSupplier emitted) {
+        AtomicReference<Duration> delay = new AtomicReference<>(properties.getInitialBackoff());
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable error = signal.failure();
+            // Output already reached the client; repeating the round would send it twice
+            if (emitted.getAsBoolean() || !isRetryable(error) || signal.totalRetries() + 1 >= properties.getMaxAttempts()) {
+                return Mono.error(error);
+            }
+            if (isThrottle(error)) {
+                onThrottled(model, error);
+            }
+            Duration next = delay.updateAndGet(previous -> backoff(previous, error));
+            retrying(model, runId, next);
+            return Mono.delay(next);
+        }));
+    }
+
+    /**
+     * decorrelated jitter: min(maxBackoff, random(initialBackoff, 이전 대기 × 3)). 서버가 재시도 지연을 알려 주면 그보다 짧게 기다리지 않습니다.
+     */
+    Duration backoff(Duration previous, Throwable error) {
+        long base = properties.getInitialBackoff().toMillis();
+        long upper = Math.max(base + 1, previous.toMillis() * 3);
+        long jitter = Math.min(properties.getMaxBackoff().toMillis(), ThreadLocalRandom.current().nextLong(base, upper));
+        long retryAfter = retryAfter(error).map(Duration::toMillis).orElse(0L);
+        return Duration.ofMillis(Math.max(jitter, retryAfter));
+    }
+
+    static boolean isRetryable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException api && (api.code() == 429 || api.code() >= 500)) {
+                return true;
+            }
+            if (cause instanceof TransientAiException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isThrottle(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException api && api.code() == 429) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static Optional<Duration> retryAfter(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            Matcher matcher = RETRY_DELAY.matcher(String.valueOf(cause.getMessage()));
+            if (matcher.find()) {
+                return Optional.of(Duration.ofMillis((long) (Double.parseDouble(matcher.group(1)) * 1000)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void retrying(String model, String runId, Duration delay) {
+        meterRegistry.counter("qa.gemini.ratelimit.retries", "model", model).increment();
+        notifyRun(runId, model, delay);
+    }
+
+    private void notifyRun(String runId, String model, Duration wait) {
+        if (runId != null && wait.compareTo(NOTICE_THRESHOLD) >= 0) {
+            activeRunRegistry.rateLimited(runId, model, wait);
+        }
+    }
+
+    private static final class JitterContext implements BackOffContext {
+        private final RetryContext retry;
+        private Duration delay;
+
+        private JitterContext(RetryContext retry, Duration delay) {
+            this.retry = retry;
+            this.delay = delay;
+        }
+    }
+}
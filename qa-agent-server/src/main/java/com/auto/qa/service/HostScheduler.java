@@ -0,0 +1,237 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.HostPolitenessProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 대상 호스트별로 QA 실행을 대기열에 넣고, 호스트당 동시 실행 수와 분당 시작 수를 제한합니다.
+ * 실행 가능한 작업은 호스트를 번갈아 가며 꺼내므로, 한 호스트의 대량 실행이 다른 호스트의 실행을 막지 않습니다.
+ * 한동안 작업이 없는 호스트는 대기열과 메트릭을 정리하므로, 한 번씩만 실행된 호스트가 쌓이지 않습니다.
+ */
+@Slf4j
+@Service
+public class HostScheduler {
+
+    private final HostPolitenessProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Guarded by this; insertion order gives the round-robin order
+    private final Map<String, HostQueue> hosts = new LinkedHashMap<>();
+    private int cursor;
+
+    private record QueuedTask(FutureTask<?> task, long enqueuedAt) {}
+
+    private final class HostQueue {
+        private final String host;
+        private final Deque<QueuedTask> pending = new ArrayDeque<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final Timer waitTimer;
+        private final List<Meter> meters = new ArrayList<>();
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        // Last time a task was queued or finished; read without the lock by the eviction
+        private volatile long lastUsed = System.nanoTime();
+
+        private HostQueue(String host) {
+            this.host = host;
+            this.tokens = burst();
+            meters.add(Gauge.builder("qa.host.queue.depth", queued, AtomicInteger::get).tag("host", host).register(meterRegistry));
+            meters.add(Gauge.builder("qa.host.active", active, AtomicInteger::get).tag("host", host).register(meterRegistry));
+            this.waitTimer = Timer.builder("qa.host.queue.wait").tag("host", host).register(meterRegistry);
+            meters.add(waitTimer);
+        }
+
+        private boolean atConcurrencyLimit() {
+            int limit = properties.maxConcurrency(host);
+            return limit > 0 && active.get() >= limit;
+        }
+
+        /** 토큰 버킷 크기: 동시 실행 한도까지 (동시 실행이 무제한이면 분당 시작 수까지) */
+        private double burst() {
+            int limit = properties.maxConcurrency(host);
+            return Math.max(1, limit > 0 ? limit : properties.runsPerMinute(host));
+        }
+
+        /** 분당 시작 수 제한용 토큰 버킷 */
+        private boolean tryAcquireStart() {
+            if (!refill()) {
+                return true;
+            }
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        /** 버킷을 현재 시각까지 채웁니다. 분당 시작 수 제한이 없으면 false */
+        private boolean refill() {
+            int perMinute = properties.runsPerMinute(host);
+            if (perMinute <= 0) {
+                return false;
+            }
+            long now = System.nanoTime();
+            tokens = Math.min(burst(), tokens + (now - lastRefill) * perMinute / (double) TimeUnit.MINUTES.toNanos(1));
+            lastRefill = now;
+            return true;
+        }
+
+        /**
+         * 작업 없이 idleTimeout이 지났고, 버킷도 가득 찼는지 여부.
+         * 다시 만든 대기열은 버킷이 가득 찬 상태로 시작하므로, 덜 찬 버킷을 버리면 분당 시작 수 제한을 우회하게 됩니다.
+         */
+        private boolean idle(long now) {
+            if (!pending.isEmpty() || active.get() > 0 || now - lastUsed < properties.getIdleTimeout().toNanos()) {
+                return false;
+            }
+            return !refill() || tokens >= burst();
+        }
+
+        private void removeMeters() {
+            meters.forEach(meterRegistry::remove);
+        }
+    }
+
+    public HostScheduler(HostPolitenessProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 작업을 대상 URL의 호스트 대기열에 넣습니다. 반환된 Future를 취소하면 대기 중인 작업은 실행되지 않습니다.
+     */
+    public Future<?> submit(String url, Runnable work) {
+        if (!properties.isEnabled()) {
+            return executor.submit(work);
+        }
+        String host = hostOf(url);
+        FutureTask<Void> task = new FutureTask<>(work, null);
+        synchronized (this) {
+            HostQueue queue = hosts.computeIfAbsent(host, HostQueue::new);
+            queue.pending.add(new QueuedTask(task, System.nanoTime()));
+            queue.queued.incrementAndGet();
+            queue.lastUsed = System.nanoTime();
+        }
+        dispatch();
+        return task;
+    }
+
+    /**
+     * 대기 중인 작업의 호스트별 개수
+     */
+    public synchronized Map<String, Integer> queueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        hosts.forEach((host, queue) -> depths.put(host, queue.queued.get()));
+        return depths;
+    }
+
+    /**
+     * localhost 변환을 적용한 URL의 호스트명 (파싱할 수 없으면 "unknown")
+     */
+    public static String hostOf(String url) {
+        if (url == null || url.isBlank()) {
+            return "unknown";
+        }
+        String processed = AgentService.processLocalUrl(url.trim());
+        try {
+            String host = URI.create(processed.contains("://") ? processed : "http://" + processed).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "unknown";
+        } catch (IllegalArgumentException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * 분당 시작 수 제한으로 보류된 작업을 다시 확인하고, 유휴 호스트를 정리합니다.
+     */
+    @Scheduled(fixedDelay = 1_000)
+    public void tick() {
+        dispatch();
+        evictIdle();
+    }
+
+    private synchronized void evictIdle() {
+        long now = System.nanoTime();
+        hosts.values().removeIf(queue -> {
+            if (!queue.idle(now)) {
+                return false;
+            }
+            queue.removeMeters();
+            log.debug("Evicted idle host queue {}", queue.host);
+            return true;
+        });
+    }
+
+    private void dispatch() {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            List<HostQueue> order = new ArrayList<>(hosts.values());
+            if (order.isEmpty()) {
+                return;
+            }
+            boolean progress = true;
+            while (progress) {
+                progress = false;
+                // One task per host per pass, starting from a rotating host
+                for (int i = 0; i < order.size(); i++) {
+                    HostQueue queue = order.get((cursor + i) % order.size());
+                    if (queue.pending.removeIf(queued -> queued.task().isCancelled())) {
+                        queue.queued.set(queue.pending.size());
+                    }
+                    if (queue.pending.isEmpty()
+                            || queue.atConcurrencyLimit()
+                            || !queue.tryAcquireStart()) {
+                        continue;
+                    }
+                    QueuedTask next = queue.pending.poll();
+                    queue.queued.decrementAndGet();
+                    queue.active.incrementAndGet();
+                    queue.waitTimer.record(System.nanoTime() - next.enqueuedAt(), TimeUnit.NANOSECONDS);
+                    ready.add(() -> runAndRelease(queue, next.task()));
+                    progress = true;
+                }
+                cursor = (cursor + 1) % order.size();
+            }
+        }
+        ready.forEach(executor::execute);
+    }
+
+    private void runAndRelease(HostQueue queue, FutureTask<?> task) {
+        try {
+            task.run();
+        } finally {
+            queue.lastUsed = System.nanoTime();
+            queue.active.decrementAndGet();
+            dispatch();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
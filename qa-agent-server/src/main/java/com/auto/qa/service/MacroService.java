@@ -0,0 +1,339 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.MacroProperties;
+import com.auto.qa.dto.MacroStep;
+import com.auto.qa.dto.TestMacro;
+import com.auto.qa.dto.ToolCallRecord;
+import com.auto.qa.dto.ToolTranscript;
+import com.auto.qa.tool.AccessibilitySnapshot;
+import com.auto.qa.tool.McpToolResults;
+import com.auto.qa.tool.QaToolCallback;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 성공한 실행의 브라우저 조작을 테스트 케이스별 매크로로 컴파일하고 캐시합니다.
+ * 매크로는 (테스트 케이스 ID, 첫 페이지 구조 지문)으로 식별되며, ref 대신 접근성 트리의 역할/이름으로 요소를 찾습니다.
+ */
+@Slf4j
+@Service
+public class MacroService {
+
+    private static final String URL_PARAMETER = "${url}";
+    private static final String NAVIGATE_TOOL = "browser_navigate";
+
+    private final MacroProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    // testCaseId -> fingerprint -> macro, loaded from disk on first use
+    private final Map<String, Map<String, TestMacro>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param executed 실행된 단계 수
+     * @param total 매크로 전체 단계 수
+     * @param failure 실패 사유 (성공하면 null)
+     * @param finalSnapshot 마지막으로 관찰한 도구 결과 텍스트 (스냅샷 포함)
+     */
+    public record MacroResult(int executed, int total, String failure, String finalSnapshot) {
+        public boolean failed() {
+            return failure != null;
+        }
+    }
+
+    public MacroService(MacroProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    public boolean hasMacros(String testCaseId) {
+        return !macros(testCaseId).isEmpty();
+    }
+
+    /**
+     * 트랜스크립트의 브라우저 조작을 매크로로 컴파일하여 저장합니다.
+     * 첫 단계가 테스트 URL 이동이 아니거나, 대상 요소를 역할/이름으로 특정할 수 없으면 컴파일하지 않습니다.
+     * 같은 역할/이름을 가진 요소가 여럿이면 그중 몇 번째인지와 전체 개수를 함께 저장합니다.
+     */
+    public Optional<TestMacro> compile(ToolTranscript transcript) {
+        String url = transcript.getUrl();
+        String processedUrl = AgentService.processLocalUrl(url);
+        List<MacroStep> steps = new ArrayList<>();
+        AccessibilitySnapshot snapshot = null;
+        String fingerprint = null;
+
+        for (ToolCallRecord call : transcript.getCalls()) {
+            if (!call.tool().startsWith("browser_") || "browser_close".equals(call.tool())) {
+                continue;
+            }
+            if (steps.isEmpty() && !NAVIGATE_TOOL.equals(call.tool())) {
+                log.debug("Transcript for test case {} does not start with navigation; no macro compiled", transcript.getTestCaseId());
+                return Optional.empty();
+            }
+
+            String target = null;
+            int occurrence = 0;
+            int matches = 0;
+            String arguments = call.arguments() == null ? "{}" : call.arguments();
+            try {
+                JsonNode args = objectMapper.readTree(arguments);
+                if (args instanceof ObjectNode objectArgs && objectArgs.hasNonNull("ref")) {
+                    String ref = objectArgs.remove("ref").asText();
+                    target = snapshot == null ? null : snapshot.describeRef(ref).orElse(null);
+                    if (target == null) {
+                        log.debug("Cannot resolve [ref={}] of test case {} to a role/name; no macro compiled", ref, transcript.getTestCaseId());
+                        return Optional.empty();
+                    }
+                    List<String> refs = snapshot.findRefs(target);
+                    occurrence = refs.indexOf(ref);
+                    matches = refs.size();
+                    arguments = objectMapper.writeValueAsString(objectArgs);
+                }
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+            if (url != null) {
+                arguments = arguments.replace(processedUrl, URL_PARAMETER).replace(url, URL_PARAMETER);
+            }
+            steps.add(new MacroStep(call.tool(), arguments, target, occurrence, matches));
+
+            Optional<AccessibilitySnapshot> observed = AccessibilitySnapshot.extract(McpToolResults.text(call.result()));
+            if (observed.isPresent()) {
+                snapshot = observed.get();
+                if (fingerprint == null) {
+                    fingerprint = snapshot.fingerprint();
+                }
+            }
+        }
+        if (fingerprint == null) {
+            return Optional.empty();
+        }
+
+        TestMacro macro = TestMacro.builder()
+            .testCaseId(transcript.getTestCaseId())
+            .fingerprint(fingerprint)
+            .sourceModel(transcript.getModel())
+            .compiledAt(LocalDateTime.now())
+            .steps(steps)
+            .build();
+        try {
+            save(macro);
+        } catch (IOException e) {
+            log.error("Failed to save macro for test case {}", macro.getTestCaseId(), e);
+            return Optional.empty();
+        }
+        macros(macro.getTestCaseId()).put(fingerprint, macro);
+        log.info("Compiled macro {} with {} steps for test case {}", fingerprint, steps.size(), macro.getTestCaseId());
+        return Optional.of(macro);
+    }
+
+    /**
+     * 테스트 URL로 이동한 뒤 페이지 지문에 맞는 매크로를 실행합니다.
+     * 단계가 실패하거나 대상 요소를 하나로 특정할 수 없으면 해당 매크로를 캐시에서 제거합니다.
+     * 매크로가 없거나 현재 페이지 구조에 맞는 매크로가 없으면 (매크로 단계를 실행하지 않았으면) 빈 값을 반환합니다.
+     */
+    public Optional<MacroResult> execute(String runId, String testCaseId, String url, List<QaToolCallback> tools) {
+        Map<String, TestMacro> candidates = macros(testCaseId);
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, QaToolCallback> toolsByName = tools.stream()
+            .collect(Collectors.toMap(tc -> tc.getToolDefinition().name(), Function.identity(), (a, b) -> a));
+        String processedUrl = AgentService.processLocalUrl(url);
+
+        // Every macro starts with the same navigation; its snapshot decides which macro applies
+        MacroStep entry = candidates.values().iterator().next().getSteps().get(0);
+        String lastText;
+        try {
+            lastText = call(runId, toolsByName, entry.tool(), entry.arguments().replace(URL_PARAMETER, processedUrl));
+            if (AccessibilitySnapshot.extract(lastText).isEmpty()) {
+                lastText = call(runId, toolsByName, QaToolCallback.SNAPSHOT_TOOL, "{}");
+            }
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            // Nothing of the macro ran; the caller falls back to the transcript replay or the model
+            meterRegistry.counter("qa.macro.runs", "outcome", "failed").increment();
+            log.info("Run {} could not navigate for the macros of test case {}: {}", runId, testCaseId, e.getMessage());
+            return Optional.empty();
+        }
+        AccessibilitySnapshot snapshot = AccessibilitySnapshot.extract(lastText).orElse(null);
+        TestMacro macro = snapshot == null ? null : candidates.get(snapshot.fingerprint());
+        if (macro == null) {
+            meterRegistry.counter("qa.macro.runs", "outcome", "miss").increment();
+            log.debug("Run {} found no macro for the current page structure of test case {}", runId, testCaseId);
+            return Optional.empty();
+        }
+
+        List<MacroStep> steps = macro.getSteps();
+        for (int i = 1; i < steps.size(); i++) {
+            MacroStep step = steps.get(i);
+            if (Thread.currentThread().isInterrupted()) {
+                return Optional.of(new MacroResult(i, steps.size(), "macro interrupted", lastText));
+            }
+            String arguments = step.arguments().replace(URL_PARAMETER, processedUrl);
+            if (step.target() != null) {
+                List<String> refs = snapshot == null ? List.of() : snapshot.findRefs(step.target());
+                if (refs.isEmpty()) {
+                    return Optional.of(failed(macro, i, steps.size(), "element '" + step.target() + "' not found for " + step.tool(), lastText));
+                }
+                Optional<String> ref = resolveRef(step, refs);
+                if (ref.isEmpty()) {
+                    return Optional.of(failed(macro, i, steps.size(), "element '" + step.target() + "' is ambiguous for " + step.tool()
+                        + " (" + refs.size() + " matches, " + step.matches() + " when recorded)", lastText));
+                }
+                try {
+                    ObjectNode args = (ObjectNode) objectMapper.readTree(arguments);
+                    args.put("ref", ref.get());
+                    arguments = objectMapper.writeValueAsString(args);
+                } catch (IOException e) {
+                    return Optional.of(failed(macro, i, steps.size(), "invalid arguments for " + step.tool(), lastText));
+                }
+            }
+            try {
+                String text = call(runId, toolsByName, step.tool(), arguments);
+                Optional<AccessibilitySnapshot> observed = AccessibilitySnapshot.extract(text);
+                if (observed.isPresent()) {
+                    snapshot = observed.get();
+                    lastText = text;
+                }
+            } catch (CancellationException e) {
+                throw e;
+            } catch (Exception e) {
+                return Optional.of(failed(macro, i, steps.size(), step.tool() + " failed: " + e.getMessage(), lastText));
+            }
+        }
+
+        meterRegistry.counter("qa.macro.runs", "outcome", "matched").increment();
+        log.info("Run {} executed macro {} ({} steps) for test case {}", runId, macro.getFingerprint(), steps.size(), testCaseId);
+        return Optional.of(new MacroResult(steps.size(), steps.size(), null, lastText));
+    }
+
+    /**
+     * 테스트 케이스의 모든 매크로를 제거합니다 (시나리오 수정/삭제 시).
+     */
+    public void invalidateAll(String testCaseId) {
+        cache.remove(testCaseId);
+        Path dir = Paths.get(properties.getDirectory(), testCaseId);
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            log.warn("Failed to delete macros for test case {}: {}", testCaseId, e.getMessage());
+        }
+    }
+
+    private void invalidate(TestMacro macro) {
+        macros(macro.getTestCaseId()).remove(macro.getFingerprint());
+        try {
+            Files.deleteIfExists(macroPath(macro.getTestCaseId(), macro.getFingerprint()));
+        } catch (IOException e) {
+            log.warn("Failed to delete macro {} of test case {}: {}", macro.getFingerprint(), macro.getTestCaseId(), e.getMessage());
+        }
+    }
+
+    private MacroResult failed(TestMacro macro, int executed, int total, String reason, String lastText) {
+        meterRegistry.counter("qa.macro.runs", "outcome", "failed").increment();
+        if (macro != null) {
+            invalidate(macro);
+            log.info("Macro {} of test case {} failed at step {}/{} and was invalidated: {}",
+                macro.getFingerprint(), macro.getTestCaseId(), executed + 1, total, reason);
+        }
+        return new MacroResult(executed, total, reason, lastText);
+    }
+
+    /**
+     * 현재 스냅샷에서 단계의 대상 요소를 고릅니다.
+     * 일치하는 요소가 하나뿐이거나 기록 당시와 개수가 같을 때만 고르고, 그 외에는 어느 요소인지 알 수 없으므로 빈 값을 반환합니다.
+     */
+    private static Optional<String> resolveRef(MacroStep step, List<String> refs) {
+        if (refs.size() == 1 && step.matches() <= 1) {
+            return Optional.of(refs.get(0));
+        }
+        if (refs.size() == step.matches() && step.occurrence() >= 0 && step.occurrence() < refs.size()) {
+            return Optional.of(refs.get(step.occurrence()));
+        }
+        return Optional.empty();
+    }
+
+    private String call(String runId, Map<String, QaToolCallback> toolsByName, String toolName, String arguments) {
+        QaToolCallback tool = toolsByName.get(toolName);
+        if (tool == null) {
+            throw new IllegalStateException("tool '" + toolName + "' is not available");
+        }
+        // Instrumented like a model call: cancellable, recorded in the transcript, run events and artifacts
+        return McpToolResults.text(tool.replay(runId, arguments));
+    }
+
+    private Map<String, TestMacro> macros(String testCaseId) {
+        return cache.computeIfAbsent(testCaseId, this::loadMacros);
+    }
+
+    private Map<String, TestMacro> loadMacros(String testCaseId) {
+        Map<String, TestMacro> macros = new ConcurrentHashMap<>();
+        Path dir = Paths.get(properties.getDirectory(), testCaseId);
+        if (!Files.exists(dir)) {
+            return macros;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(path -> path.toString().endsWith(".json"))
+                .sorted(Comparator.naturalOrder())
+                .forEach(path -> {
+                    try {
+                        TestMacro macro = objectMapper.readValue(path.toFile(), TestMacro.class);
+                        if (!macro.getSteps().isEmpty()) {
+                            macros.put(macro.getFingerprint(), macro);
+                        }
+                    } catch (IOException e) {
+                        log.warn("Skipping unreadable macro {}: {}", path, e.getMessage());
+                    }
+                });
+        } catch (IOException e) {
+            log.error("Failed to list macros for test case {}", testCaseId, e);
+        }
+        return macros;
+    }
+
+    private void save(TestMacro macro) throws IOException {
+        Path path = macroPath(macro.getTestCaseId(), macro.getFingerprint());
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(path.getParent(), "macro", ".tmp");
+        objectMapper.writeValue(temp.toFile(), macro);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path macroPath(String testCaseId, String fingerprint) {
+        return Paths.get(properties.getDirectory(), testCaseId, fingerprint + ".json");
+    }
+}
@@ -0,0 +1,155 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.StartupProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.client.McpSyncClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 공유 MCP 서버(playwright, filesystem, chrome-devtools)를 기동 후 백그라운드에서 병렬로 연결합니다.
+ * 브라우저 풀이 켜져 있으면 playwright는 공유 연결에서 빠지고 실행마다 임대한 세션이 대신합니다.
+ * 모든 서버가 연결되고 도구 목록을 받으면 준비 완료이며, 그 전까지 도구가 필요한 요청은 {@link #awaitReady()}에서 기다립니다.
+ * 연결에 실패한 서버는 30초마다 다시 시도합니다.
+ */
+@Slf4j
+@Service
+public class McpStartupService {
+
+    private final List<McpSyncClient> mcpSyncClients;
+    private final ToolCallbackProvider toolCallbackProvider;
+    private final StartupProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final CompletableFuture<Integer> ready = new CompletableFuture<>();
+    private final AtomicBoolean connecting = new AtomicBoolean();
+    // Client name -> "connecting", "ready in N ms" or the last error
+    private final Map<String, String> states = new ConcurrentHashMap<>();
+
+    public McpStartupService(List<McpSyncClient> mcpSyncClients,
+                             ToolCallbackProvider toolCallbackProvider,
+                             StartupProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.mcpSyncClients = mcpSyncClients;
+        this.toolCallbackProvider = toolCallbackProvider;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        mcpSyncClients.forEach(client -> states.put(name(client), "connecting"));
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void connectInBackground() {
+        Thread.ofVirtual().name("mcp-startup").start(this::connect);
+    }
+
+    /**
+     * 연결에 실패한 서버를 다시 연결합니다.
+     */
+    @Scheduled(fixedDelay = 30_000, initialDelay = 30_000)
+    public void retry() {
+        if (!ready.isDone()) {
+            connect();
+        }
+    }
+
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    /**
+     * 서버별 연결 상태와 도구 수 (readiness 상세)
+     */
+    public Map<String, Object> details() {
+        Map<String, Object> details = new LinkedHashMap<>(states);
+        if (isReady()) {
+            details.put("tools", ready.join());
+        }
+        return details;
+    }
+
+    /**
+     * MCP 도구가 준비될 때까지 기다립니다. mcpReadyTimeout 안에 준비되지 않으면 예외를 던집니다.
+     */
+    public void awaitReady() {
+        if (isReady()) {
+            return;
+        }
+        try {
+            ready.get(properties.getMcpReadyTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("MCP 서버가 아직 준비되지 않았습니다: " + states);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("MCP 서버 준비를 기다리는 중 중단되었습니다", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("MCP 서버 준비 실패: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void connect() {
+        if (!connecting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Each server is an npx process that takes seconds to start; connect them side by side
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                mcpSyncClients.stream()
+                    .filter(client -> !client.isInitialized())
+                    .forEach(client -> executor.submit(() -> connect(client)));
+            }
+            if (mcpSyncClients.stream().allMatch(McpSyncClient::isInitialized)) {
+                if (toolCallbackProvider instanceof SyncMcpToolCallbackProvider provider) {
+                    // A request that arrived before the servers were up may have cached a partial list
+                    provider.invalidateCache();
+                }
+                int tools = toolCallbackProvider.getToolCallbacks().length;
+                Duration elapsed = Duration.ofMillis(System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+                meterRegistry.timer("qa.startup.mcp.ready").record(elapsed);
+                log.info("MCP tools ready: {} tools from {} servers, {} ms after JVM start", tools, mcpSyncClients.size(), elapsed.toMillis());
+                ready.complete(tools);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to list MCP tools: {}", e.getMessage());
+        } finally {
+            connecting.set(false);
+        }
+    }
+
+    private void connect(McpSyncClient client) {
+        String name = name(client);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            client.initialize();
+            long millis = TimeUnit.NANOSECONDS.toMillis(sample.stop(meterRegistry.timer("qa.startup.mcp.connect", "server", name)));
+            states.put(name, "ready in " + millis + " ms");
+            log.info("MCP server {} connected in {} ms", name, millis);
+        } catch (RuntimeException e) {
+            states.put(name, "failed: " + e.getMessage());
+            log.warn("MCP server {} failed to connect; retrying in 30s: {}", name, e.getMessage());
+        }
+    }
+
+    private static String name(McpSyncClient client) {
+        return client.getClientInfo().name();
+    }
+}
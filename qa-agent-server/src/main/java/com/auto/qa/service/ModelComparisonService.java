@@ -0,0 +1,115 @@
+package com.auto.qa.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 같은 QA 요청을 여러 모델로 동시에 실행하고, 모델 태그가 붙은 하나의 스트림으로 합칩니다.
+ * 각 모델은 별도 실행(run)으로 자체 브라우저 세션을 사용하며, 마지막에 모델별 비교 요약을 전송합니다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ModelComparisonService {
+
+    /** 비교 요약 청크의 태그 */
+    public static final String SUMMARY_TAG = "summary";
+
+    private static final Pattern ISSUE_PATTERN = Pattern.compile("\\[(High|Medium|Low)]");
+
+    private final AgentService agentService;
+    private final RunStatsService runStatsService;
+    private final BrowserSessionPool browserSessionPool;
+    private final ActiveRunRegistry activeRunRegistry;
+
+    public record ModelChunk(String model, String content) {}
+
+    private static final class ModelRun {
+        private final String model;
+        private final String runId = UUID.randomUUID().toString();
+        private final StringBuilder output = new StringBuilder();
+        private volatile Instant startedAt;
+        private volatile Duration duration;
+        private volatile String error;
+
+        private ModelRun(String model) {
+            this.model = model;
+        }
+    }
+
+    public Flux<ModelChunk> compare(String url, String message, List<String> models) {
+        List<String> unknown = models.stream().filter(model -> !agentService.isKnownModel(model)).toList();
+        if (!unknown.isEmpty()) {
+            return Flux.just(new ModelChunk(SUMMARY_TAG, "❌ 오류: 알 수 없는 모델 " + unknown));
+        }
+        List<ModelRun> runs = new LinkedHashSet<>(models).stream().map(ModelRun::new).toList();
+        if (browserSessionPool.isEnabled() && runs.size() > browserSessionPool.idleCount() + browserSessionPool.leasedCount()) {
+            log.warn("Comparing {} models with a browser pool of {} sessions; some models will wait for a session",
+                runs.size(), browserSessionPool.idleCount() + browserSessionPool.leasedCount());
+        }
+
+        List<Flux<ModelChunk>> streams = new ArrayList<>();
+        for (ModelRun run : runs) {
+            runStatsService.track(run.runId);
+            streams.add(agentService.runQaTest(run.runId, url, message, run.model)
+                .doOnSubscribe(subscription -> run.startedAt = Instant.now())
+                .doOnNext(run.output::append)
+                .map(chunk -> new ModelChunk(run.model, chunk))
+                .onErrorResume(e -> {
+                    run.error = e.getMessage();
+                    return Flux.just(new ModelChunk(run.model, "\n❌ 오류: " + e.getMessage()));
+                })
+                .doFinally(signal -> run.duration = Duration.between(run.startedAt != null ? run.startedAt : Instant.now(), Instant.now())));
+        }
+
+        log.info("Comparing models {} for URL={}", models, url);
+        // Each stream already subscribes on its own worker, so merging runs them concurrently
+        return Flux.merge(streams)
+            .concatWith(Flux.defer(() -> Flux.just(new ModelChunk(SUMMARY_TAG, summarize(runs)))))
+            // Mark every model run cancelled before the cancel reaches them, so their cleanup closes the browsers
+            .doOnCancel(() -> runs.forEach(run -> activeRunRegistry.cancel(run.runId, "client")))
+            .doFinally(signal -> runs.forEach(run -> runStatsService.remove(run.runId)));
+    }
+
+    private String summarize(List<ModelRun> runs) {
+        StringBuilder sb = new StringBuilder("\n\n## 📊 모델 비교 결과\n\n");
+        sb.append("| 모델 | 결과 | 소요 시간 | 도구 호출 | 토큰 (입력/출력) | 발견 이슈 (High/Medium/Low) |\n");
+        sb.append("|------|------|-----------|-----------|------------------|-----------------------------|\n");
+        for (ModelRun run : runs) {
+            RunStatsService.RunStats stats = runStatsService.get(run.runId).orElseGet(RunStatsService.RunStats::new);
+            int[] issues = countIssues(run.output);
+            sb.append(String.format("| %s | %s | %d초 | %d | %,d / %,d | %d (%d/%d/%d) |\n",
+                run.model,
+                run.error == null ? "✅ 완료" : "❌ 실패",
+                run.duration != null ? run.duration.getSeconds() : 0,
+                stats.toolCalls(),
+                stats.promptTokens(), stats.completionTokens(),
+                issues[0] + issues[1] + issues[2], issues[0], issues[1], issues[2]));
+        }
+        return sb.toString();
+    }
+
+    private int[] countIssues(CharSequence output) {
+        int[] counts = new int[3];
+        Matcher matcher = ISSUE_PATTERN.matcher(output);
+        while (matcher.find()) {
+            switch (matcher.group(1)) {
+                case "High" -> counts[0]++;
+                case "Medium" -> counts[1]++;
+                default -> counts[2]++;
+            }
+        }
+        return counts;
+    }
+}
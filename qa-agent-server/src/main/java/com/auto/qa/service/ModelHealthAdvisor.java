@@ -0,0 +1,114 @@
+package com.auto.qa.service;
+
+import com.auto.qa.tool.QaToolCallback;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 모델 호출의 성공/실패와 지연을 ModelRegistry에 기록하는 advisor.
+ * 스트리밍은 첫 응답까지, 동기 호출은 도구 실행 시간을 뺀 모델 호출 한 번의 평균 시간을 지연으로 기록합니다.
+ * 모델 이름은 advisor 파라미터 {@link #MODEL_KEY}로 전달됩니다. 취소되거나 중단된 실행은 실패로 기록하지 않습니다.
+ */
+@Component
+@RequiredArgsConstructor
+public class ModelHealthAdvisor implements CallAdvisor, StreamAdvisor {
+
+    /** advisor 파라미터로 모델 이름을 담는 키 */
+    public static final String MODEL_KEY = "qaModel";
+
+    private final ModelRegistry modelRegistry;
+    private final ActiveRunRegistry activeRunRegistry;
+
+    @Override
+    public String getName() {
+        return "modelHealthAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        String runId = runId(request);
+        // The model's tool loop runs inside nextCall; its tool rounds are taken out of the latency
+        ActiveRunRegistry.ToolTime toolsBefore = activeRunRegistry.toolTime(runId);
+        long start = System.nanoTime();
+        try {
+            ChatClientResponse response = chain.nextCall(request);
+            modelRegistry.recordOutcome(model(request), true, modelLatencyMs(runId, toolsBefore, start));
+            return response;
+        } catch (RuntimeException e) {
+            if (!stopped(runId, e)) {
+                modelRegistry.recordOutcome(model(request), false, modelLatencyMs(runId, toolsBefore, start));
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        String model = model(request);
+        AtomicLong start = new AtomicLong();
+        AtomicLong firstResponse = new AtomicLong();
+        AtomicBoolean recorded = new AtomicBoolean();
+        return chain.nextStream(request)
+            .doOnSubscribe(subscription -> start.set(System.currentTimeMillis()))
+            .doOnNext(response -> firstResponse.compareAndSet(0, System.currentTimeMillis() - start.get()))
+            .doOnComplete(() -> {
+                if (recorded.compareAndSet(false, true)) {
+                    modelRegistry.recordOutcome(model, true, firstResponse.get() > 0 ? firstResponse.get() : System.currentTimeMillis() - start.get());
+                }
+            })
+            .doOnError(e -> {
+                if (!stopped(runId(request), e) && recorded.compareAndSet(false, true)) {
+                    modelRegistry.recordOutcome(model, false, System.currentTimeMillis() - start.get());
+                }
+            });
+    }
+
+    /**
+     * 도구 실행 시간을 뺀 모델 호출 한 번의 평균 시간 (도구 라운드가 n번이면 모델 호출은 n+1번)
+     */
+    private long modelLatencyMs(String runId, ActiveRunRegistry.ToolTime toolsBefore, long start) {
+        ActiveRunRegistry.ToolTime toolsAfter = activeRunRegistry.toolTime(runId);
+        long modelNanos = System.nanoTime() - start - (toolsAfter.nanos() - toolsBefore.nanos());
+        int modelCalls = toolsAfter.rounds() - toolsBefore.rounds() + 1;
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(0, modelNanos) / modelCalls);
+    }
+
+    /**
+     * 실행 취소, 스레드 중단, 예산 초과로 멈춘 호출은 모델의 실패가 아님
+     */
+    private boolean stopped(String runId, Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException || cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return runId != null && activeRunRegistry.isCancelled(runId);
+    }
+
+    private static String runId(ChatClientRequest request) {
+        Object runId = request.context().get(QaToolCallback.RUN_ID_KEY);
+        return runId != null ? runId.toString() : null;
+    }
+
+    private static String model(ChatClientRequest request) {
+        Object model = request.context().get(MODEL_KEY);
+        return model != null ? model.toString() : null;
+    }
+}
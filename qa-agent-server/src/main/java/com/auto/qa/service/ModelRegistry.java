@@ -0,0 +1,355 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.AiConfig;
+import com.auto.qa.config.AiModelProperties;
+import com.auto.qa.config.ModelRegistryProperties;
+import com.auto.qa.dto.ModelInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 사용할 수 있는 모델과 그 상태를 관리합니다.
+ * Ollama는 주기적으로 /api/tags, /api/ps를 조회하여 설치된 모델과 메모리에 올라온(warm) 모델을 확인하고,
+ * Gemini는 최근 호출 결과로 상태를 판단합니다.
+ * /api/models는 변경 시에만 다시 만드는 불변 스냅샷을 반환합니다.
+ */
+@Slf4j
+@Service
+public class ModelRegistry {
+
+    public static final String GEMINI = "gemini";
+    public static final String OLLAMA = "ollama";
+
+    private static final String LATEST_TAG = ":latest";
+    private static final double LATENCY_SMOOTHING = 0.3;
+    private static final int MAX_TRACKED_USES = 1_000;
+
+    private final Set<String> geminiModels;
+    private final AiConfig aiConfig;
+    private final ModelRegistryProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final RestClient ollamaClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, ChatClient> geminiClients = new ConcurrentHashMap<>();
+    private final Map<String, ChatClient> ollamaClients = new ConcurrentHashMap<>();
+    private final Map<String, CallHealth> health = new ConcurrentHashMap<>();
+
+    // null until the first probe finishes
+    private volatile Set<String> pulledOllamaModels;
+    // Resident Ollama models and when Ollama will unload them
+    private volatile Map<String, Instant> loadedOllamaModels = Map.of();
+    private volatile String ollamaError;
+    private volatile List<ModelInfo> snapshot = List.of();
+
+    private final class CallHealth {
+        // Guarded by this; true = success
+        private final Deque<Boolean> outcomes = new ArrayDeque<>();
+        private final Deque<Instant> uses = new ArrayDeque<>();
+        private int consecutiveFailures;
+        private Double latencyMs;
+
+        private synchronized void record(boolean success, long latency) {
+            uses.addLast(Instant.now());
+            while (uses.size() > MAX_TRACKED_USES) {
+                uses.removeFirst();
+            }
+            outcomes.addLast(success);
+            while (outcomes.size() > Math.max(1, properties.getHealthWindow())) {
+                outcomes.removeFirst();
+            }
+            consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+            if (success) {
+                latencyMs = latencyMs == null ? latency : latencyMs + LATENCY_SMOOTHING * (latency - latencyMs);
+            }
+        }
+
+        private synchronized int failures() {
+            return (int) outcomes.stream().filter(outcome -> !outcome).count();
+        }
+    }
+
+    public ModelRegistry(AiConfig aiConfig,
+                         AiModelProperties aiModelProperties,
+                         ModelRegistryProperties properties,
+                         MeterRegistry meterRegistry) {
+        this.geminiModels = new LinkedHashSet<>();
+        if (aiModelProperties.getModels() != null) {
+            aiModelProperties.getModels().stream().filter(name -> name != null && !name.isBlank()).forEach(geminiModels::add);
+        }
+        this.aiConfig = aiConfig;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.getProbeTimeout());
+        requestFactory.setReadTimeout(properties.getProbeTimeout());
+        this.ollamaClient = RestClient.builder()
+            .baseUrl(aiConfig.getOllamaBaseUrl())
+            .requestFactory(requestFactory)
+            .build();
+    }
+
+    @PostConstruct
+    void buildSnapshot() {
+        rebuildSnapshot();
+    }
+
+    /**
+     * 현재 모델 목록과 상태 (불변)
+     */
+    public List<ModelInfo> models() {
+        return snapshot;
+    }
+
+    public boolean isKnown(String modelName) {
+        return modelName != null && (geminiModels.contains(modelName) || ollamaModelNames().contains(modelName));
+    }
+
+    /**
+     * 모델의 ChatClient를 반환합니다. 클라이언트는 모델이 처음 요청될 때 생성하며, 설치되지 않은 것으로 확인된 Ollama 모델은 빈 값입니다.
+     */
+    public Optional<ChatClient> chatClient(String modelName) {
+        if (modelName == null) {
+            return Optional.empty();
+        }
+        if (geminiModels.contains(modelName)) {
+            return Optional.of(geminiClients.computeIfAbsent(modelName, name -> {
+                log.info("Creating ChatClient for Gemini model {}", name);
+                return aiConfig.createGeminiChatClient(name);
+            }));
+        }
+        Set<String> pulled = pulledOllamaModels;
+        if (!ollamaModelNames().contains(modelName) || (pulled != null && !pulled.contains(modelName))) {
+            return Optional.empty();
+        }
+        return Optional.of(ollamaClients.computeIfAbsent(modelName, name -> {
+            log.info("Creating ChatClient for Ollama model {}", name);
+            return aiConfig.createOllamaChatClient(name);
+        }));
+    }
+
+    public boolean isOllamaModel(String modelName) {
+        return modelName != null && !geminiModels.contains(modelName) && ollamaModelNames().contains(modelName);
+    }
+
+    /**
+     * 설치가 확인된 Ollama 모델 (첫 조회 전이면 설정된 모델)
+     */
+    public Set<String> pulledOllamaModels() {
+        Set<String> pulled = pulledOllamaModels;
+        return pulled != null ? pulled : Set.copyOf(ollamaModelNames());
+    }
+
+    /**
+     * Ollama 모델이 메모리에 올라와 있는지 여부
+     */
+    public boolean isWarm(String modelName) {
+        Instant expiresAt = loadedOllamaModels.get(modelName);
+        return expiresAt != null && expiresAt.isAfter(Instant.now());
+    }
+
+    /**
+     * 예열 요청 결과를 다음 조회 전에 반영합니다.
+     */
+    public void markWarm(String modelName, Duration keepAlive) {
+        Map<String, Instant> loaded = new HashMap<>(loadedOllamaModels);
+        loaded.put(modelName, Instant.now().plus(keepAlive));
+        loadedOllamaModels = Map.copyOf(loaded);
+        rebuildSnapshot();
+    }
+
+    /**
+     * since 이후의 모델 호출 수
+     */
+    public int callsSince(String modelName, Instant since) {
+        CallHealth callHealth = health.get(modelName);
+        if (callHealth == null) {
+            return 0;
+        }
+        synchronized (callHealth) {
+            return (int) callHealth.uses.stream().filter(use -> use.isAfter(since)).count();
+        }
+    }
+
+    /**
+     * 마지막 모델 호출 시각
+     */
+    public Optional<Instant> lastUsed(String modelName) {
+        CallHealth callHealth = health.get(modelName);
+        if (callHealth == null) {
+            return Optional.empty();
+        }
+        synchronized (callHealth) {
+            return Optional.ofNullable(callHealth.uses.peekLast());
+        }
+    }
+
+    /**
+     * 모델 호출 결과를 기록합니다.
+     * @param latencyMs 첫 응답까지 걸린 시간
+     */
+    public void recordOutcome(String modelName, boolean success, long latencyMs) {
+        if (modelName == null) {
+            return;
+        }
+        health.computeIfAbsent(modelName, name -> new CallHealth()).record(success, latencyMs);
+        Timer.builder("qa.model.calls")
+            .tag("model", modelName)
+            .tag("outcome", success ? "success" : "error")
+            .register(meterRegistry)
+            .record(latencyMs, TimeUnit.MILLISECONDS);
+        rebuildSnapshot();
+    }
+
+    /**
+     * Ollama에 설치된 모델과 메모리에 올라온 모델을 조회합니다.
+     */
+    @Scheduled(fixedDelay = 30_000)
+    public void probeOllama() {
+        try {
+            Set<String> pulled = new TreeSet<>();
+            for (JsonNode model : fetchModels("/api/tags")) {
+                String name = normalizeName(model.path("name").asText(""));
+                if (!name.isBlank()) {
+                    pulled.add(name);
+                }
+            }
+            Map<String, Instant> loaded = new HashMap<>();
+            for (JsonNode model : fetchModels("/api/ps")) {
+                String name = normalizeName(model.path("name").asText(""));
+                String expiresAt = model.path("expires_at").asText("");
+                if (!name.isBlank()) {
+                    loaded.put(name, parseExpiry(expiresAt));
+                }
+            }
+            loadedOllamaModels = Map.copyOf(loaded);
+            Set<String> previous = pulledOllamaModels;
+            if (previous == null || !previous.equals(pulled) || ollamaError != null) {
+                log.info("Ollama models available: {}", pulled);
+            }
+            pulledOllamaModels = Set.copyOf(pulled);
+            ollamaError = null;
+        } catch (Exception e) {
+            if (ollamaError == null) {
+                log.warn("Ollama is not reachable at {}: {}", aiConfig.getOllamaBaseUrl(), e.getMessage());
+            }
+            pulledOllamaModels = Set.of();
+            loadedOllamaModels = Map.of();
+            ollamaError = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+        }
+        rebuildSnapshot();
+    }
+
+    private JsonNode fetchModels(String path) throws Exception {
+        String body = ollamaClient.get().uri(path).retrieve().body(String.class);
+        return objectMapper.readTree(body == null ? "{}" : body).path("models");
+    }
+
+    private static String normalizeName(String name) {
+        return name.endsWith(LATEST_TAG) ? name.substring(0, name.length() - LATEST_TAG.length()) : name;
+    }
+
+    private static Instant parseExpiry(String expiresAt) {
+        try {
+            return OffsetDateTime.parse(expiresAt).toInstant();
+        } catch (RuntimeException e) {
+            // A model pinned with a negative keep-alive reports no usable expiry
+            return Instant.MAX;
+        }
+    }
+
+    private synchronized void rebuildSnapshot() {
+        List<ModelInfo> models = new ArrayList<>();
+        for (String name : geminiModelNames()) {
+            models.add(describe(name, GEMINI, null));
+        }
+        Set<String> pulled = pulledOllamaModels;
+        for (String name : ollamaModelNames()) {
+            String unavailable = null;
+            if (ollamaError != null) {
+                unavailable = "Ollama 연결 불가";
+            } else if (pulled != null && !pulled.contains(name)) {
+                unavailable = "모델이 설치되지 않음 (ollama pull " + name + ")";
+            }
+            models.add(describe(name, OLLAMA, unavailable));
+        }
+        snapshot = List.copyOf(models);
+    }
+
+    private ModelInfo describe(String name, String provider, String unavailable) {
+        CallHealth callHealth = health.get(name);
+        int calls = 0;
+        int failures = 0;
+        int consecutiveFailures = 0;
+        Long latency = null;
+        if (callHealth != null) {
+            synchronized (callHealth) {
+                calls = callHealth.outcomes.size();
+                failures = callHealth.failures();
+                consecutiveFailures = callHealth.consecutiveFailures;
+                latency = callHealth.latencyMs != null ? Math.round(callHealth.latencyMs) : null;
+            }
+        }
+
+        String status;
+        String detail = unavailable;
+        if (unavailable != null) {
+            status = "UNAVAILABLE";
+        } else if (consecutiveFailures >= properties.getFailureThreshold()) {
+            status = "UNAVAILABLE";
+            detail = "최근 " + consecutiveFailures + "회 연속 호출 실패";
+        } else if (failures > 0) {
+            status = "DEGRADED";
+            detail = "최근 " + calls + "회 중 " + failures + "회 실패";
+        } else if (calls == 0 && OLLAMA.equals(provider) && pulledOllamaModels != null) {
+            status = "AVAILABLE";
+        } else {
+            status = calls == 0 ? "UNKNOWN" : "AVAILABLE";
+        }
+        Boolean warm = OLLAMA.equals(provider) ? isWarm(name) : null;
+        return new ModelInfo(name, provider, !"UNAVAILABLE".equals(status), status, detail, latency, calls, failures, warm);
+    }
+
+    private List<String> geminiModelNames() {
+        return List.copyOf(geminiModels);
+    }
+
+    /**
+     * 설정된 Ollama 모델과 설치가 확인된 모델 (설정 순서 우선)
+     */
+    private Set<String> ollamaModelNames() {
+        Set<String> names = new LinkedHashSet<>();
+        aiConfig.getOllamaModels().stream().filter(name -> name != null && !name.isBlank()).forEach(names::add);
+        Set<String> pulled = pulledOllamaModels;
+        if (pulled != null) {
+            names.addAll(pulled);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,173 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.AiConfig;
+import com.auto.qa.config.OllamaWarmupProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ollama 모델을 미리 메모리에 올리고(예열), 최근 사용량에 따라 keep_alive를 연장합니다.
+ * 예열은 프롬프트 없이 /api/generate를 호출하는 방식이며, 모델 로드는 메모리 경합을 피하기 위해 하나씩 수행합니다.
+ */
+@Slf4j
+@Service
+public class OllamaWarmupService {
+
+    private final ModelRegistry modelRegistry;
+    private final AiConfig aiConfig;
+    private final OllamaWarmupProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final RestClient ollamaClient;
+
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Instant> lastPing = new ConcurrentHashMap<>();
+    // Serializes model loads; Ollama swaps models out when several large ones load at once.
+    // A ReentrantLock rather than a monitor, so a virtual thread waiting on a load does not pin its carrier
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public OllamaWarmupService(ModelRegistry modelRegistry,
+                               AiConfig aiConfig,
+                               OllamaWarmupProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.modelRegistry = modelRegistry;
+        this.aiConfig = aiConfig;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofSeconds(5));
+        requestFactory.setReadTimeout(properties.getWarmupTimeout());
+        this.ollamaClient = RestClient.builder()
+            .baseUrl(aiConfig.getOllamaBaseUrl())
+            .requestFactory(requestFactory)
+            .build();
+    }
+
+    /**
+     * 시작 시 설정된 Ollama 모델을 순서대로 예열합니다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (!properties.isEnabled() || !properties.isPreloadOnStartup()) {
+            return;
+        }
+        Thread.ofVirtual().name("ollama-preload").start(() -> {
+            modelRegistry.probeOllama();
+            for (String model : aiConfig.getOllamaModels()) {
+                if (modelRegistry.pulledOllamaModels().contains(model) && !modelRegistry.isWarm(model)) {
+                    warm(model).join();
+                }
+            }
+        });
+    }
+
+    /**
+     * 모델을 비동기로 예열합니다. 같은 모델의 예열이 진행 중이면 그 결과를 공유합니다.
+     * @return 예열 성공 여부 (Ollama 모델이 아니거나 설치되지 않았으면 false)
+     */
+    public CompletableFuture<Boolean> warm(String model) {
+        if (!properties.isEnabled() || !modelRegistry.isOllamaModel(model) || !modelRegistry.pulledOllamaModels().contains(model)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (modelRegistry.isWarm(model)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return submitLoad(model, keepAlive(model));
+    }
+
+    /**
+     * 최근 호출된 모델의 keep_alive를 수요에 맞게 연장합니다.
+     * 모델 호출은 Ollama 기본 keep_alive로 만료 시각을 덮어쓰므로, 마지막 연장 이후 호출이 있었으면 다시 연장합니다.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void refreshKeepAlive() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Instant now = Instant.now();
+        for (String model : modelRegistry.pulledOllamaModels()) {
+            if (modelRegistry.callsSince(model, now.minus(properties.getDemandWindow())) == 0) {
+                // No recent demand: let Ollama unload it when its current keep-alive runs out
+                continue;
+            }
+            Duration keepAlive = keepAlive(model);
+            Instant pinged = lastPing.get(model);
+            Instant lastUsed = modelRegistry.lastUsed(model).orElse(Instant.MIN);
+            boolean usedSincePing = pinged == null || lastUsed.isAfter(pinged);
+            boolean halfExpired = pinged != null && pinged.plus(keepAlive.dividedBy(2)).isBefore(now);
+            if (usedSincePing || halfExpired) {
+                submitLoad(model, keepAlive);
+            }
+        }
+    }
+
+    /**
+     * 최근 수요에 따른 keep_alive
+     */
+    Duration keepAlive(String model) {
+        int calls = modelRegistry.callsSince(model, Instant.now().minus(properties.getDemandWindow()));
+        Duration keepAlive = properties.getKeepAlive().plus(properties.getKeepAlivePerCall().multipliedBy(calls));
+        return keepAlive.compareTo(properties.getMaxKeepAlive()) > 0 ? properties.getMaxKeepAlive() : keepAlive;
+    }
+
+    /**
+     * 모델 로드를 가상 스레드에서 수행합니다. 로드에는 수십 초가 걸릴 수 있어 스케줄러 스레드를 막지 않도록 합니다.
+     */
+    private CompletableFuture<Boolean> submitLoad(String model, Duration keepAlive) {
+        return inFlight.computeIfAbsent(model, name -> {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            Thread.ofVirtual().name("ollama-warmup-" + name).start(() -> {
+                try {
+                    future.complete(load(name, keepAlive));
+                } finally {
+                    inFlight.remove(name, future);
+                }
+            });
+            return future;
+        });
+    }
+
+    private boolean load(String model, Duration keepAlive) {
+        boolean cold = !modelRegistry.isWarm(model);
+        long start = System.currentTimeMillis();
+        try {
+            loadLock.lock();
+            try {
+                ollamaClient.post()
+                    .uri("/api/generate")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("model", model, "keep_alive", keepAlive.toSeconds() + "s", "stream", false))
+                    .retrieve()
+                    .toBodilessEntity();
+            } finally {
+                loadLock.unlock();
+            }
+            lastPing.put(model, Instant.now());
+            modelRegistry.markWarm(model, keepAlive);
+            meterRegistry.counter("qa.ollama.warmups", "model", model, "cold", String.valueOf(cold)).increment();
+            if (cold) {
+                log.info("Ollama model {} loaded in {}ms (keep_alive {}m)", model, System.currentTimeMillis() - start, keepAlive.toMinutes());
+            } else {
+                log.debug("Ollama model {} keep_alive extended to {}m", model, keepAlive.toMinutes());
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to warm up Ollama model {}: {}", model, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.InfrastructureValidationProperties;
+import com.auto.qa.dto.PreflightCheckResult;
+import com.auto.qa.dto.PreflightReport;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * infrastructure.validation 설정의 파일/API를 QA 실행 전에 점검합니다.
+ * 모든 점검은 가상 스레드에서 동시에 실행되며, 결과는 cacheTtl 동안 재사용됩니다.
+ */
+@Slf4j
+@Service
+public class PreflightService {
+
+    private final InfrastructureValidationProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService checkExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient httpClient;
+    // A ReentrantLock rather than a monitor, so a virtual thread waiting on the checks does not pin its carrier
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile PreflightReport cachedReport;
+
+    private record PendingCheck(PreflightCheckResult target, Future<PreflightCheckResult> future) {}
+
+    public PreflightService(InfrastructureValidationProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(properties.getCheckTimeout())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(checkExecutor)
+            .build();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 캐시된 결과가 유효하면 재사용하고, 아니면 새로 점검합니다.
+     */
+    public PreflightReport check() {
+        PreflightReport report = cachedReport;
+        if (report != null && report.checkedAt().plus(properties.getCacheTtl()).isAfter(Instant.now())) {
+            return report;
+        }
+        refreshLock.lock();
+        try {
+            report = cachedReport;
+            if (report != null && report.checkedAt().plus(properties.getCacheTtl()).isAfter(Instant.now())) {
+                return report;
+            }
+            return runChecks();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * 캐시를 무시하고 모든 항목을 다시 점검합니다.
+     */
+    public PreflightReport refresh() {
+        refreshLock.lock();
+        try {
+            return runChecks();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private PreflightReport runChecks() {
+        long start = System.currentTimeMillis();
+        List<PendingCheck> checks = new ArrayList<>();
+        List<PreflightCheckResult> results = new ArrayList<>();
+
+        for (InfrastructureValidationProperties.FileCheck file : properties.getFiles()) {
+            PreflightCheckResult target = new PreflightCheckResult("FILE", file.getPath(), file.getDescription(), file.isCritical(), null, null, 0);
+            checks.add(new PendingCheck(target, checkExecutor.submit(() -> checkFile(target))));
+        }
+        for (InfrastructureValidationProperties.ApiCheck api : properties.getApis()) {
+            PreflightCheckResult target = new PreflightCheckResult("API", api.getUrl(), api.getDescription(), api.isCritical(), null, null, 0);
+            if (isExcluded(api.getUrl())) {
+                results.add(complete(target, "SKIPPED", "excluded by pattern", 0));
+            } else {
+                checks.add(new PendingCheck(target, checkExecutor.submit(() -> checkApi(target))));
+            }
+        }
+
+        // All checks start together, so a shared deadline is a per-check timeout
+        long deadline = System.nanoTime() + properties.getCheckTimeout().toNanos();
+        for (PendingCheck check : checks) {
+            try {
+                results.add(check.future().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                check.future().cancel(true);
+                results.add(complete(check.target(), "TIMED_OUT",
+                    "no result within " + properties.getCheckTimeout().toMillis() + "ms", properties.getCheckTimeout().toMillis()));
+            } catch (ExecutionException e) {
+                results.add(complete(check.target(), "FAILED", String.valueOf(e.getCause().getMessage()), 0));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                checks.forEach(pending -> pending.future().cancel(true));
+                throw new IllegalStateException("Interrupted during infrastructure preflight", e);
+            }
+        }
+
+        PreflightReport report = new PreflightReport(Instant.now(), System.currentTimeMillis() - start, List.copyOf(results));
+        for (PreflightCheckResult result : results) {
+            meterRegistry.counter("qa.preflight.checks", "type", result.type(), "status", result.status()).increment();
+        }
+        if (!report.healthy()) {
+            log.warn("Infrastructure preflight is {}: {}", report.status(), describe(report.criticalFailures()));
+        } else {
+            log.debug("Infrastructure preflight {} in {}ms ({} checks)", report.status(), report.durationMs(), results.size());
+        }
+        cachedReport = report;
+        return report;
+    }
+
+    /**
+     * critical 점검이 실패했으면 예외를 던집니다 (failFast가 꺼져 있으면 경고만 남김).
+     */
+    public void ensureReady() {
+        if (!isEnabled()) {
+            return;
+        }
+        PreflightReport report = check();
+        if (!report.healthy() && properties.isFailFast()) {
+            throw new IllegalStateException("인프라 사전 점검 실패: " + describe(report.criticalFailures()));
+        }
+    }
+
+    public static String describe(List<PreflightCheckResult> failures) {
+        return failures.stream()
+            .map(check -> (check.description() != null ? check.description() : check.target()) + " (" + check.detail() + ")")
+            .collect(Collectors.joining(", "));
+    }
+
+    private PreflightCheckResult checkFile(PreflightCheckResult target) {
+        long start = System.currentTimeMillis();
+        Path path = Paths.get(target.target());
+        if (!Files.exists(path)) {
+            return complete(target, "FAILED", "file not found", System.currentTimeMillis() - start);
+        }
+        if (!Files.isReadable(path)) {
+            return complete(target, "FAILED", "file not readable", System.currentTimeMillis() - start);
+        }
+        return complete(target, "OK", "readable", System.currentTimeMillis() - start);
+    }
+
+    private PreflightCheckResult checkApi(PreflightCheckResult target) {
+        long start = System.currentTimeMillis();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target.target()))
+            .timeout(properties.getCheckTimeout())
+            .GET()
+            .build();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            return complete(target, response.statusCode() < 400 ? "OK" : "FAILED",
+                "HTTP " + response.statusCode(), System.currentTimeMillis() - start);
+        } catch (HttpTimeoutException e) {
+            return complete(target, "TIMED_OUT", "no response within " + properties.getCheckTimeout().toMillis() + "ms",
+                System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            return complete(target, "FAILED", e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : ""),
+                System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return complete(target, "TIMED_OUT", "cancelled", System.currentTimeMillis() - start);
+        }
+    }
+
+    private static PreflightCheckResult complete(PreflightCheckResult target, String status, String detail, long durationMs) {
+        return new PreflightCheckResult(target.type(), target.target(), target.description(), target.critical(), status, detail, durationMs);
+    }
+
+    private boolean isExcluded(String url) {
+        String host;
+        try {
+            host = URI.create(url).getHost();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (host == null) {
+            return false;
+        }
+        for (String pattern : properties.getExcludePatterns()) {
+            String regex = Pattern.quote(pattern).replace("*", "\\E.*\\Q");
+            if (host.matches(regex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,357 @@
+package com.auto.qa.service;
+
+import com.auto.qa.dto.PromptHistoryEntry;
+import com.auto.qa.dto.PromptHistoryPage;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * qa-prompts/history의 프롬프트 파일을 저장하고, 파일 목록 대신 인덱스(시각, 해시, 크기, 미리보기)로 조회합니다.
+ * 인덱스는 저장할 때마다 history-index.jsonl에 한 줄씩 추가되며, 시작 시 디렉터리와 맞춰 다시 정리됩니다.
+ * 검색용 본문은 시작 후 백그라운드에서 읽으며, 그 전까지는 미리보기로 검색합니다.
+ */
+@Slf4j
+@Service
+public class PromptHistoryService {
+
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_BATCH = 100;
+
+    private static final String INDEX_FILE = "history-index.jsonl";
+    private static final int PREVIEW_CHARS = 160;
+    // Search covers the start of each prompt; history prompts are short, this only bounds memory for pasted dumps
+    private static final int SEARCH_CHARS = 4_000;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    // Newest first; the filename breaks ties between prompts saved in the same instant
+    private static final Comparator<PromptHistoryEntry> NEWEST_FIRST = Comparator
+        .comparing(PromptHistoryEntry::savedAt).reversed()
+        .thenComparing(PromptHistoryEntry::filename, Comparator.reverseOrder());
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${spring.ai.mcp.client.stdio.filesystem.args[2]:./qa-prompts}")
+    private String qaPromptsBasePath;
+
+    // Guarded by this
+    private final NavigableMap<PromptHistoryEntry, String> searchTexts = new TreeMap<>(NEWEST_FIRST);
+    private final Map<String, PromptHistoryEntry> byFilename = new HashMap<>();
+    private final Map<String, String> filenameByHash = new HashMap<>();
+
+    public PromptHistoryService() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * 인덱스 파일을 읽고 디렉터리와 맞춥니다. 인덱스에 없는 파일만 읽어서 추가하고, 사라진 파일은 제거합니다.
+     */
+    @PostConstruct
+    synchronized void loadIndex() {
+        Path historyDir = historyDir();
+        Map<String, PromptHistoryEntry> indexed = new LinkedHashMap<>();
+        Path indexFile = indexFile();
+        if (Files.exists(indexFile)) {
+            try (Stream<String> lines = Files.lines(indexFile, StandardCharsets.UTF_8)) {
+                lines.filter(line -> !line.isBlank()).forEach(line -> {
+                    try {
+                        PromptHistoryEntry entry = objectMapper.readValue(line, PromptHistoryEntry.class);
+                        indexed.put(entry.filename(), entry);
+                    } catch (IOException e) {
+                        log.warn("Skipping unreadable prompt history index line: {}", e.getMessage());
+                    }
+                });
+            } catch (IOException e) {
+                log.warn("Failed to read prompt history index {}: {}", indexFile, e.getMessage());
+            }
+        }
+
+        List<String> files;
+        try (Stream<Path> paths = Files.isDirectory(historyDir) ? Files.list(historyDir) : Stream.empty()) {
+            files = paths.filter(Files::isRegularFile).map(path -> path.getFileName().toString()).toList();
+        } catch (IOException e) {
+            log.error("Failed to list prompt history directory {}: {}", historyDir, e.getMessage());
+            files = List.of();
+        }
+
+        int added = 0;
+        for (String filename : files) {
+            PromptHistoryEntry entry = indexed.remove(filename);
+            if (entry != null) {
+                put(entry, entry.preview() != null ? entry.preview().toLowerCase(Locale.ROOT) : "");
+            } else {
+                Optional<PromptHistoryEntry> read = readEntry(filename);
+                if (read.isPresent()) {
+                    put(read.get(), searchTextOf(filename));
+                    added++;
+                }
+            }
+        }
+        // Whatever is left in the old index no longer has a file
+        int removed = indexed.size();
+        if (added > 0 || removed > 0 || !Files.exists(indexFile) && !byFilename.isEmpty()) {
+            rewriteIndex();
+        }
+        log.info("Prompt history index loaded: {} prompts ({} newly indexed, {} stale entries removed)", byFilename.size(), added, removed);
+        Thread.ofVirtual().name("prompt-history-search").start(this::loadSearchTexts);
+    }
+
+    /**
+     * 인덱스에서 읽은 항목의 검색용 본문을 채웁니다.
+     */
+    private void loadSearchTexts() {
+        List<PromptHistoryEntry> entries;
+        synchronized (this) {
+            entries = List.copyOf(searchTexts.keySet());
+        }
+        for (PromptHistoryEntry entry : entries) {
+            String text = searchTextOf(entry.filename());
+            synchronized (this) {
+                if (byFilename.get(entry.filename()) == entry) {
+                    searchTexts.put(entry, text);
+                }
+            }
+        }
+        log.debug("Prompt history search text loaded for {} prompts", entries.size());
+    }
+
+    /**
+     * 프롬프트를 히스토리에 저장합니다. 같은 내용이 이미 있으면 저장하지 않습니다.
+     */
+    public synchronized void save(String prompt) {
+        if (prompt == null || prompt.isBlank()) {
+            return;
+        }
+        String hash = hash(prompt);
+        if (filenameByHash.containsKey(hash)) {
+            log.info("Duplicate prompt found, not saving: {}", prompt);
+            return;
+        }
+        try {
+            Files.createDirectories(historyDir());
+            LocalDateTime now = LocalDateTime.now();
+            String fileName = String.format("prompt_%s_%s.txt", now.format(FILE_TIMESTAMP), UUID.randomUUID().toString().substring(0, 8));
+            Path filePath = historyDir().resolve(fileName);
+            Files.writeString(filePath, prompt);
+
+            PromptHistoryEntry entry = new PromptHistoryEntry(fileName, Instant.now(), hash,
+                prompt.getBytes(StandardCharsets.UTF_8).length, preview(prompt));
+            put(entry, searchText(prompt));
+            Files.writeString(indexFile(), objectMapper.writeValueAsString(entry) + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            log.info("Prompt saved to: {}", filePath);
+        } catch (IOException e) {
+            log.error("Failed to save prompt to file: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 최신순 페이지를 반환합니다.
+     * @param cursor 이전 페이지의 nextCursor (null이면 처음부터)
+     * @param prefix 프롬프트가 이 문자열로 시작하는 항목만 (대소문자 무시)
+     * @param query 프롬프트에 이 문자열이 포함된 항목만 (대소문자 무시)
+     */
+    public synchronized PromptHistoryPage page(String cursor, int limit, String prefix, String query) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        Predicate<String> matches = matcher(prefix, query);
+        NavigableMap<PromptHistoryEntry, String> remaining = cursor == null || cursor.isBlank()
+            ? searchTexts
+            : searchTexts.tailMap(decodeCursor(cursor), false);
+
+        List<PromptHistoryEntry> items = new ArrayList<>(pageSize);
+        boolean more = false;
+        for (Map.Entry<PromptHistoryEntry, String> entry : remaining.entrySet()) {
+            if (!matches.test(entry.getValue())) {
+                continue;
+            }
+            if (items.size() == pageSize) {
+                more = true;
+                break;
+            }
+            items.add(entry.getKey());
+        }
+        int total = prefix == null && query == null
+            ? searchTexts.size()
+            : (int) searchTexts.values().stream().filter(matches).count();
+        return new PromptHistoryPage(items, more ? encodeCursor(items.getLast()) : null, total);
+    }
+
+    /**
+     * 최신순 파일명 목록 (기존 목록 API용)
+     */
+    public synchronized List<String> filenames() {
+        return searchTexts.keySet().stream().map(PromptHistoryEntry::filename).toList();
+    }
+
+    public Optional<String> content(String filename) {
+        if (!isIndexed(filename)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Files.readString(historyDir().resolve(filename)));
+        } catch (IOException e) {
+            log.warn("Failed to read prompt history file {}: {}", filename, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 여러 프롬프트 내용을 한 번에 읽습니다. 없는 파일은 결과에서 빠집니다.
+     */
+    public Map<String, String> contents(List<String> filenames) {
+        Map<String, String> contents = new LinkedHashMap<>();
+        filenames.stream().distinct().limit(MAX_BATCH)
+            .forEach(filename -> content(filename).ifPresent(content -> contents.put(filename, content)));
+        return contents;
+    }
+
+    /**
+     * 인덱스에 있는 파일인지 확인합니다. 시작 후 외부에서 추가된 파일은 이때 인덱스에 추가됩니다.
+     */
+    private synchronized boolean isIndexed(String filename) {
+        if (filename == null || filename.contains("/") || filename.contains("\\") || filename.startsWith(".")) {
+            return false;
+        }
+        if (byFilename.containsKey(filename)) {
+            return true;
+        }
+        Optional<PromptHistoryEntry> entry = Files.isRegularFile(historyDir().resolve(filename)) ? readEntry(filename) : Optional.empty();
+        entry.ifPresent(e -> {
+            put(e, searchTextOf(filename));
+            rewriteIndex();
+        });
+        return entry.isPresent();
+    }
+
+    private void put(PromptHistoryEntry entry, String searchText) {
+        PromptHistoryEntry previous = byFilename.put(entry.filename(), entry);
+        if (previous != null) {
+            searchTexts.remove(previous);
+        }
+        searchTexts.put(entry, searchText);
+        filenameByHash.putIfAbsent(entry.hash(), entry.filename());
+    }
+
+    private Optional<PromptHistoryEntry> readEntry(String filename) {
+        Path path = historyDir().resolve(filename);
+        try {
+            String content = Files.readString(path);
+            return Optional.of(new PromptHistoryEntry(filename, Files.getLastModifiedTime(path).toInstant(), hash(content),
+                content.getBytes(StandardCharsets.UTF_8).length, preview(content)));
+        } catch (IOException e) {
+            log.warn("Failed to index prompt history file {}: {}", filename, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private String searchTextOf(String filename) {
+        try {
+            return searchText(Files.readString(historyDir().resolve(filename)));
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private void rewriteIndex() {
+        Path indexFile = indexFile();
+        Path temp = indexFile.resolveSibling(INDEX_FILE + ".tmp");
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (PromptHistoryEntry entry : searchTexts.descendingKeySet()) {
+                    writer.write(objectMapper.writeValueAsString(entry));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to rewrite prompt history index {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    private static Predicate<String> matcher(String prefix, String query) {
+        String normalizedPrefix = prefix == null || prefix.isBlank() ? null : prefix.strip().toLowerCase(Locale.ROOT);
+        String normalizedQuery = query == null || query.isBlank() ? null : query.strip().toLowerCase(Locale.ROOT);
+        return text -> (normalizedPrefix == null || text.startsWith(normalizedPrefix))
+            && (normalizedQuery == null || text.contains(normalizedQuery));
+    }
+
+    private String encodeCursor(PromptHistoryEntry entry) {
+        String raw = entry.savedAt() + "|" + entry.filename();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private PromptHistoryEntry decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new PromptHistoryEntry(raw.substring(separator + 1), Instant.parse(raw.substring(0, separator)), null, 0, null);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("잘못된 커서입니다: " + cursor);
+        }
+    }
+
+    private static String searchText(String content) {
+        String stripped = content.strip();
+        return (stripped.length() > SEARCH_CHARS ? stripped.substring(0, SEARCH_CHARS) : stripped).toLowerCase(Locale.ROOT);
+    }
+
+    private static String preview(String content) {
+        String oneLine = content.replaceAll("\\s+", " ").strip();
+        return oneLine.length() > PREVIEW_CHARS ? oneLine.substring(0, PREVIEW_CHARS) + "…" : oneLine;
+    }
+
+    private static String hash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path historyDir() {
+        return Paths.get(qaPromptsBasePath, "history");
+    }
+
+    private Path indexFile() {
+        return Paths.get(qaPromptsBasePath, INDEX_FILE);
+    }
+}
@@ -0,0 +1,119 @@
+package com.auto.qa.service;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * 하나의 QA 실행 상태
+ */
+@Getter
+public class QaRun {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED, TIMED_OUT,
+        /** 서버 재시작으로 중단됨 (체크포인트에서 재개 가능) */
+        INTERRUPTED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    private final String id;
+    private final String url;
+    private final String message;
+    private final String model;
+    /** 실행이 이어가는 대화 (없으면 null) */
+    private final String conversationId;
+    private final Instant createdAt = Instant.now();
+    private final Instant deadline;
+    private final CompletableFuture<String> completion = new CompletableFuture<>();
+    /** 체크포인트에서 이어서 실행한 횟수 */
+    private final int resumeCount;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String result;
+    private volatile String error;
+    private volatile Future<?> task;
+
+    public QaRun(String id, String url, String message, String model, Instant deadline) {
+        this(id, url, message, model, null, deadline, 0);
+    }
+
+    public QaRun(String id, String url, String message, String model, String conversationId, Instant deadline, int resumeCount) {
+        this.id = id;
+        this.url = url;
+        this.message = message;
+        this.model = model;
+        this.conversationId = conversationId;
+        this.deadline = deadline;
+        this.resumeCount = resumeCount;
+    }
+
+    void attach(Future<?> task) {
+        this.task = task;
+    }
+
+    synchronized boolean markRunning() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        startedAt = Instant.now();
+        return true;
+    }
+
+    synchronized void complete(String result) {
+        if (finish(Status.COMPLETED)) {
+            this.result = result;
+            completion.complete(result);
+        }
+    }
+
+    synchronized void fail(Throwable cause) {
+        if (finish(Status.FAILED)) {
+            this.error = cause.getMessage();
+            completion.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 실행을 중단합니다. 이미 종료된 실행이면 false를 반환합니다.
+     */
+    synchronized boolean abort(Status abortStatus, String reason) {
+        if (!finish(abortStatus)) {
+            return false;
+        }
+        this.error = reason;
+        Future<?> current = task;
+        if (current != null) {
+            current.cancel(true);
+        }
+        completion.cancel(false);
+        return true;
+    }
+
+    /**
+     * 이전 프로세스에서 중단된 실행으로 표시합니다 (재개 전까지 조회용).
+     */
+    synchronized void interrupted(String reason) {
+        if (finish(Status.INTERRUPTED)) {
+            this.error = reason;
+            completion.cancel(false);
+        }
+    }
+
+    private boolean finish(Status finalStatus) {
+        if (status.isFinished()) {
+            return false;
+        }
+        status = finalStatus;
+        finishedAt = Instant.now();
+        return true;
+    }
+}
@@ -0,0 +1,244 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.RunCheckpointProperties;
+import com.auto.qa.config.RunProperties;
+import com.auto.qa.dto.ChatRequest;
+import com.auto.qa.dto.RunCheckpoint;
+import com.auto.qa.dto.TestCase;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동기/폴링 방식 QA 실행을 가상 스레드에서 처리합니다.
+ * 긴 브라우저 세션 동안 서블릿 컨테이너 스레드를 점유하지 않도록 하며, 실행은 대상 호스트별 대기열(HostScheduler)을 거칩니다.
+ * 실행 중에는 체크포인트를 남겨, 서버 재시작으로 중단된 실행을 같은 실행 ID로 이어서 실행할 수 있습니다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QaRunService {
+
+    private final AgentService agentService;
+    private final TestCaseRunService testCaseRunService;
+    private final ActiveRunRegistry activeRunRegistry;
+    private final HostScheduler hostScheduler;
+    private final TokenUsageService tokenUsageService;
+    private final ConversationMemoryService conversationMemoryService;
+    private final RunProperties runProperties;
+    private final RunCheckpointStore runCheckpointStore;
+    private final RunCheckpointProperties runCheckpointProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, QaRun> runs = new ConcurrentHashMap<>();
+
+    /**
+     * 요청된 데드라인을 설정 범위 안으로 보정합니다.
+     */
+    public Duration resolveDeadline(Long requestedSeconds) {
+        if (requestedSeconds == null || requestedSeconds <= 0) {
+            return runProperties.getDefaultDeadline();
+        }
+        Duration requested = Duration.ofSeconds(requestedSeconds);
+        return requested.compareTo(runProperties.getMaxDeadline()) > 0 ? runProperties.getMaxDeadline() : requested;
+    }
+
+    /**
+     * QA 테스트를 가상 스레드에 제출하고 즉시 실행 객체를 반환합니다.
+     * @param user 토큰 사용량을 집계할 요청자 (null이면 anonymous)
+     */
+    public QaRun submit(ChatRequest request, Duration deadline, String user) {
+        QaRun run = new QaRun(UUID.randomUUID().toString(), request.url(), request.message(), request.model(), request.conversationId(),
+            Instant.now().plus(deadline), 0);
+        tokenUsageService.attribute(run.getId(), user, null);
+        conversationMemoryService.bind(run.getId(), run.getConversationId());
+        runCheckpointStore.begin(run, user, null);
+        return start(run, deadline, () -> agentService.runQaTestSync(run.getId(), run.getUrl(), run.getMessage(), run.getModel()));
+    }
+
+    /**
+     * 저장된 테스트 케이스를 가상 스레드에 제출합니다. 기록된 트랜스크립트가 있으면 재생을 먼저 시도합니다.
+     */
+    public QaRun submitTestCase(TestCase testCase, String model, TestCaseRunService.Mode mode, Duration deadline, String user) {
+        QaRun run = new QaRun(UUID.randomUUID().toString(), testCase.getUrl(), testCase.getPrompt(), model, Instant.now().plus(deadline));
+        tokenUsageService.attribute(run.getId(), user, testCase.getId());
+        runCheckpointStore.begin(run, user, testCase.getId());
+        return start(run, deadline, () -> testCaseRunService.run(run.getId(), testCase, model, mode));
+    }
+
+    private QaRun start(QaRun run, Duration deadline, Callable<String> task) {
+        String runId = run.getId();
+        runs.put(runId, run);
+
+        // Queued per target host; the deadline below also covers the time spent waiting for a slot
+        run.attach(hostScheduler.submit(run.getUrl(), () -> execute(run, task)));
+        CompletableFuture.delayedExecutor(deadline.toMillis(), TimeUnit.MILLISECONDS)
+            .execute(() -> {
+                if (abort(run, QaRun.Status.TIMED_OUT, "Deadline exceeded after " + deadline.getSeconds() + "s", "deadline")) {
+                    log.warn("QA run {} exceeded its deadline of {}s", runId, deadline.getSeconds());
+                }
+            });
+
+        log.info("QA run {} submitted: URL={}, Model={}, Deadline={}s", runId, run.getUrl(), run.getModel(), deadline.getSeconds());
+        return run;
+    }
+
+    public Optional<QaRun> getRun(String runId) {
+        return Optional.ofNullable(runs.get(runId));
+    }
+
+    /**
+     * 서버 시작 시 이전 프로세스에서 중단된 실행을 복원합니다.
+     * 자동 재개가 켜져 있으면 체크포인트에서 이어서 실행하고, 아니면 재개 요청을 기다리는 중단 상태로 등록합니다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreInterruptedRuns() {
+        List<RunCheckpoint> checkpoints = runCheckpointStore.interrupted();
+        for (RunCheckpoint checkpoint : checkpoints) {
+            if (runCheckpointProperties.isAutoResume() && checkpoint.getResumeCount() < runCheckpointProperties.getMaxResumes()) {
+                resume(checkpoint, "restart");
+            } else {
+                QaRun run = new QaRun(checkpoint.getRunId(), checkpoint.getUrl(), checkpoint.getMessage(), checkpoint.getModel(),
+                    checkpoint.getConversationId(), checkpoint.getDeadline(), checkpoint.getResumeCount());
+                run.interrupted("Interrupted by server restart; resume with POST /api/runs/" + run.getId() + "/resume");
+                runs.put(run.getId(), run);
+                log.info("QA run {} was interrupted by a restart and is waiting to be resumed", run.getId());
+            }
+        }
+    }
+
+    /**
+     * 서버 재시작으로 중단된 실행을 마지막 체크포인트에서 이어서 실행합니다.
+     * @return 재개된 실행 (중단된 실행이 아니거나 체크포인트가 없으면 빈 값)
+     */
+    public synchronized Optional<QaRun> resume(String runId) {
+        QaRun interrupted = runs.get(runId);
+        if (interrupted == null || interrupted.getStatus() != QaRun.Status.INTERRUPTED) {
+            return Optional.empty();
+        }
+        return runCheckpointStore.interrupted().stream()
+            .filter(checkpoint -> checkpoint.getRunId().equals(runId))
+            .findFirst()
+            .map(checkpoint -> resume(checkpoint, "client"));
+    }
+
+    private QaRun resume(RunCheckpoint checkpoint, String trigger) {
+        // The clock kept running while the server was down; only the budget left at the last checkpoint counts
+        Duration deadline = checkpoint.getDeadline() != null && checkpoint.getUpdatedAt() != null
+            ? Duration.between(checkpoint.getUpdatedAt(), checkpoint.getDeadline())
+            : runProperties.getDefaultDeadline();
+        if (!deadline.isPositive()) {
+            // Nothing of the budget is left; resuming would just run past the deadline the client asked for
+            QaRun expired = new QaRun(checkpoint.getRunId(), checkpoint.getUrl(), checkpoint.getMessage(), checkpoint.getModel(),
+                checkpoint.getConversationId(), checkpoint.getDeadline(), checkpoint.getResumeCount());
+            runs.put(expired.getId(), expired);
+            runCheckpointStore.finish(expired.getId());
+            expired.abort(QaRun.Status.TIMED_OUT, "Deadline exceeded before the run could resume");
+            meterRegistry.counter("qa.runs.resume.expired", "trigger", trigger).increment();
+            log.warn("QA run {} had no time left at its last checkpoint and was not resumed", expired.getId());
+            return expired;
+        }
+        String handoff = runCheckpointStore.handoff(checkpoint);
+
+        QaRun run = new QaRun(checkpoint.getRunId(), checkpoint.getUrl(), checkpoint.getMessage(), checkpoint.getModel(),
+            checkpoint.getConversationId(), Instant.now().plus(deadline), checkpoint.getResumeCount() + 1);
+        tokenUsageService.attribute(run.getId(), checkpoint.getUser(), checkpoint.getTestCaseId());
+        conversationMemoryService.bind(run.getId(), run.getConversationId());
+        checkpoint.setResumeCount(run.getResumeCount());
+        checkpoint.setDeadline(run.getDeadline());
+        runCheckpointStore.begin(checkpoint);
+        meterRegistry.counter("qa.runs.resumed", "trigger", trigger).increment();
+        log.info("Resuming QA run {} from its checkpoint ({} tool calls, resume #{})", run.getId(),
+            checkpoint.getSteps().size() + checkpoint.getDroppedSteps(), run.getResumeCount());
+        // Test case runs resume as agent runs too: the replayed transcript cannot continue mid-way in a new browser
+        return start(run, deadline, () -> agentService.runQaTestSync(run.getId(), run.getUrl(), run.getMessage(), run.getModel(), null, handoff));
+    }
+
+    /**
+     * 진행 중인 실행을 취소합니다.
+     * @return 취소 성공 여부
+     */
+    public boolean cancel(String runId) {
+        return cancel(runId, "client");
+    }
+
+    /**
+     * 진행 중인 실행을 지정한 사유로 취소합니다.
+     * @return 취소 성공 여부
+     */
+    public boolean cancel(String runId, String reason) {
+        QaRun run = runs.get(runId);
+        if (run != null && abort(run, QaRun.Status.CANCELLED, "Cancelled by " + reason, reason)) {
+            log.info("QA run {} cancelled ({})", runId, reason);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 호스트 대기열에서 시작을 기다리는 실행 목록
+     */
+    public List<QaRun> queuedRuns() {
+        return runs.values().stream()
+            .filter(run -> run.getStatus() == QaRun.Status.QUEUED)
+            .toList();
+    }
+
+    private boolean abort(QaRun run, QaRun.Status status, String message, String reason) {
+        if (run.getStatus().isFinished()) {
+            return false;
+        }
+        // Mark the run cancelled before interrupting its thread, so its cleanup closes the browser
+        activeRunRegistry.cancel(run.getId(), reason);
+        runCheckpointStore.finish(run.getId());
+        return run.abort(status, message);
+    }
+
+    private void execute(QaRun run, Callable<String> task) {
+        if (!run.markRunning()) {
+            return;
+        }
+        try {
+            String result = task.call();
+            runCheckpointStore.finish(run.getId());
+            run.complete(result);
+            log.info("QA run {} completed", run.getId());
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted() || run.getStatus().isFinished()) {
+                log.debug("QA run {} interrupted with status {}", run.getId(), run.getStatus());
+                return;
+            }
+            log.error("QA run {} failed", run.getId(), e);
+            runCheckpointStore.finish(run.getId());
+            run.fail(e);
+        }
+    }
+
+    /**
+     * 보관 기간이 지난 완료 실행을 정리합니다.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpiredRuns() {
+        Instant threshold = Instant.now().minus(runProperties.getRetention());
+        // Interrupted runs stay until resumed; their checkpoints expire on their own
+        runs.values().removeIf(run -> run.getStatus().isFinished()
+            && run.getStatus() != QaRun.Status.INTERRUPTED
+            && run.getFinishedAt() != null
+            && run.getFinishedAt().isBefore(threshold));
+    }
+}
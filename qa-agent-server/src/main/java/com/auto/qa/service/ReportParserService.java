@@ -29,35 +29,38 @@ public class ReportParserService {
     
     public TestReport parseReport(Path reportPath) {
         try {
-            String content = Files.readString(reportPath);
-            String fileName = reportPath.getFileName().toString();
-            
-            TestReport.TestReportBuilder builder = TestReport.builder()
-                .id(extractIdFromFileName(fileName))
-                .filePath(reportPath.toString());
-            
-            // Parse frontmatter
-            Matcher frontmatterMatcher = FRONTMATTER_PATTERN.matcher(content);
-            if (frontmatterMatcher.find()) {
-                String frontmatter = frontmatterMatcher.group(1);
-                parseFrontmatter(frontmatter, builder);
-                content = content.substring(frontmatterMatcher.end());
-            }
-            
-            // Parse issues from markdown body
-            List<TestIssue> issues = new ArrayList<>();
-            issues.addAll(parseIssues(content, ISSUE_PATTERN, "HIGH"));
-            issues.addAll(parseIssues(content, MEDIUM_ISSUE_PATTERN, "MEDIUM"));
-            issues.addAll(parseIssues(content, LOW_ISSUE_PATTERN, "LOW"));
-            builder.issues(issues);
-            
-            return builder.build();
-            
+            return parseReport(reportPath.getFileName().toString(), reportPath.toString(), Files.readString(reportPath));
         } catch (IOException e) {
             log.error("Failed to parse report: {}", reportPath, e);
             return null;
         }
     }
+
+    /**
+     * 이미 읽은 리포트 내용을 파싱합니다 (압축 묶음 안의 리포트 등).
+     */
+    public TestReport parseReport(String fileName, String filePath, String content) {
+        TestReport.TestReportBuilder builder = TestReport.builder()
+            .id(extractIdFromFileName(fileName))
+            .filePath(filePath);
+        
+        // Parse frontmatter
+        Matcher frontmatterMatcher = FRONTMATTER_PATTERN.matcher(content);
+        if (frontmatterMatcher.find()) {
+            String frontmatter = frontmatterMatcher.group(1);
+            parseFrontmatter(frontmatter, builder);
+            content = content.substring(frontmatterMatcher.end());
+        }
+        
+        // Parse issues from markdown body
+        List<TestIssue> issues = new ArrayList<>();
+        issues.addAll(parseIssues(content, ISSUE_PATTERN, "HIGH"));
+        issues.addAll(parseIssues(content, MEDIUM_ISSUE_PATTERN, "MEDIUM"));
+        issues.addAll(parseIssues(content, LOW_ISSUE_PATTERN, "LOW"));
+        builder.issues(issues);
+        
+        return builder.build();
+    }
     
     private void parseFrontmatter(String frontmatter, TestReport.TestReportBuilder builder) {
         Yaml yaml = new Yaml();
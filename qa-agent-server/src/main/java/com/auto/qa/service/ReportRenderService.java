@@ -0,0 +1,173 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.ReportRenderProperties;
+import com.vladsch.flexmark.ext.autolink.AutolinkExtension;
+import com.vladsch.flexmark.ext.gfm.strikethrough.StrikethroughExtension;
+import com.vladsch.flexmark.ext.gfm.tasklist.TaskListExtension;
+import com.vladsch.flexmark.ext.tables.TablesExtension;
+import com.vladsch.flexmark.ext.yaml.front.matter.AbstractYamlFrontMatterVisitor;
+import com.vladsch.flexmark.ext.yaml.front.matter.YamlFrontMatterExtension;
+import com.vladsch.flexmark.html.HtmlRenderer;
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.data.MutableDataSet;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * {@link ReportStore}의 마크다운 리포트(파티션/압축 묶음 포함)를 flexmark로 HTML 렌더링합니다.
+ * 결과는 (리포트 ID, 수정 시각, 크기)를 키로 크기 제한 LRU에 캐시되며, ETag도 같은 값에서 만들어지므로
+ * 변경되지 않은 리포트는 파일 상태 조회 한 번으로 응답할 수 있습니다.
+ */
+@Slf4j
+@Service
+public class ReportRenderService {
+
+    // Bump when the parser options or the page structure change so clients drop their cached copies
+    private static final String RENDER_VERSION = "1";
+
+    private final ReportRenderProperties properties;
+    private final ReportStore reportStore;
+    private final MeterRegistry meterRegistry;
+    private final Parser parser;
+    private final HtmlRenderer renderer;
+
+    // Guarded by this; access order makes the first entry the least recently used
+    private final LinkedHashMap<String, RenderedReport> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * 리포트 파일 상태. 내용을 읽지 않고 ETag를 만들 수 있습니다.
+     */
+    public record ReportFile(String id, ReportStore.Location location, Instant lastModified, long size) {
+        public String etag() {
+            return "\"" + RENDER_VERSION + "-" + Long.toHexString(lastModified.toEpochMilli()) + "-" + Long.toHexString(size) + "\"";
+        }
+    }
+
+    /**
+     * @param frontMatter 리포트 머리말 (url, model, status 등)
+     */
+    public record RenderedReport(ReportFile file, String title, Map<String, String> frontMatter, String html) {
+        private long weight() {
+            // Java strings are UTF-16 in the worst case
+            return 2L * html.length() + 256;
+        }
+    }
+
+    public ReportRenderService(ReportRenderProperties properties, ReportStore reportStore, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.reportStore = reportStore;
+        this.meterRegistry = meterRegistry;
+        MutableDataSet options = new MutableDataSet();
+        options.set(Parser.EXTENSIONS, List.of(
+            TablesExtension.create(),
+            StrikethroughExtension.create(),
+            TaskListExtension.create(),
+            AutolinkExtension.create(),
+            YamlFrontMatterExtension.create()));
+        // Reports are written by the model; raw HTML in them must not reach the page as markup
+        options.set(HtmlRenderer.ESCAPE_HTML, true);
+        options.set(HtmlRenderer.SOFT_BREAK, "<br />\n");
+        this.parser = Parser.builder(options).build();
+        this.renderer = HtmlRenderer.builder(options).build();
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("qa.report.render.cache.bytes", this, service -> service.cachedBytes()).register(meterRegistry);
+    }
+
+    /**
+     * 리포트 ID(확장자 없는 파일명)의 파일 상태를 조회합니다.
+     */
+    public Optional<ReportFile> stat(String id) {
+        if (id == null || id.isBlank() || id.contains("/") || id.contains("\\") || id.startsWith(".")) {
+            return Optional.empty();
+        }
+        return reportStore.locate(id).map(location -> new ReportFile(id, location, location.lastModified(), location.size()));
+    }
+
+    /**
+     * 리포트를 렌더링합니다. 같은 상태의 파일은 캐시된 결과를 반환합니다.
+     */
+    public RenderedReport render(ReportFile file) throws IOException {
+        String key = file.id() + "|" + file.lastModified().toEpochMilli() + "|" + file.size();
+        synchronized (this) {
+            RenderedReport cached = cache.get(key);
+            if (cached != null) {
+                meterRegistry.counter("qa.report.render.cache", "result", "hit").increment();
+                return cached;
+            }
+        }
+        meterRegistry.counter("qa.report.render.cache", "result", "miss").increment();
+
+        // Parsing happens outside the lock; two concurrent misses render twice and the second put wins
+        String markdown = reportStore.read(file.location());
+        Document document = parser.parse(markdown);
+        AbstractYamlFrontMatterVisitor frontMatterVisitor = new AbstractYamlFrontMatterVisitor();
+        frontMatterVisitor.visit(document);
+        Map<String, String> frontMatter = new LinkedHashMap<>();
+        frontMatterVisitor.getData().forEach((name, values) -> frontMatter.put(name, String.join(", ", values)));
+        RenderedReport rendered = new RenderedReport(file, title(markdown, file.id()), frontMatter, renderer.render(document));
+
+        synchronized (this) {
+            // Older versions of the same report can never be served again
+            evictOtherVersions(file.id());
+            put(key, rendered);
+        }
+        return rendered;
+    }
+
+    public synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+
+    private void put(String key, RenderedReport rendered) {
+        long maxBytes = properties.getCacheMaxSize().toBytes();
+        if (rendered.weight() > maxBytes) {
+            return;
+        }
+        RenderedReport previous = cache.put(key, rendered);
+        if (previous != null) {
+            cachedBytes -= previous.weight();
+        }
+        cachedBytes += rendered.weight();
+        Iterator<Map.Entry<String, RenderedReport>> eldest = cache.entrySet().iterator();
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().getValue().weight();
+            eldest.remove();
+        }
+    }
+
+    private void evictOtherVersions(String id) {
+        Set<String> stale = new LinkedHashSet<>();
+        cache.forEach((key, rendered) -> {
+            if (rendered.file().id().equals(id)) {
+                stale.add(key);
+            }
+        });
+        stale.forEach(key -> cachedBytes -= cache.remove(key).weight());
+    }
+
+    private static String title(String markdown, String fallback) {
+        return markdown.lines()
+            .filter(line -> line.startsWith("# "))
+            .map(line -> line.substring(2).strip())
+            .findFirst()
+            .orElse(fallback);
+    }
+}
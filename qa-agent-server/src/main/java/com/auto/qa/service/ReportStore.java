@@ -0,0 +1,469 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.ReportStoreProperties;
+import com.auto.qa.dto.TestReport;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 마크다운 리포트 저장소.
+ * 모델은 리포트 디렉터리 최상위에 리포트를 저장하고, 수집 단계가 이를 YYYY/MM/DD 파티션으로 옮깁니다.
+ * 보관 기간이 지난 일 파티션은 같은 위치의 DD.zip 묶음으로 압축되며, 목록 조회와 렌더링에서 그대로 읽을 수 있습니다.
+ * 파티션별 파싱 결과는 디렉터리/묶음의 수정 시각이 바뀌기 전까지 캐시됩니다.
+ */
+@Slf4j
+@Service
+public class ReportStore {
+
+    private static final String REPORT_SUFFIX = ".md";
+    private static final String BUNDLE_SUFFIX = ".zip";
+    private static final Pattern REPORT_TIMESTAMP = Pattern.compile("(\\d{8})_\\d{6}");
+    private static final Pattern YEAR = Pattern.compile("\\d{4}");
+    private static final Pattern MONTH_OR_DAY = Pattern.compile("\\d{2}");
+    private static final Pattern DAY_BUNDLE = Pattern.compile("\\d{2}\\.zip");
+
+    private final ReportStoreProperties properties;
+    private final ReportParserService reportParserService;
+    private final MeterRegistry meterRegistry;
+
+    // Keyed by partition directory or bundle; an entry is valid while the modification time matches
+    private final Map<Path, CachedPartition> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 파싱된 리포트와 저장 시각 (실행 기록과 연결할 때 사용)
+     */
+    public record StoredReport(TestReport report, Instant savedAt) {}
+
+    /**
+     * 리포트 위치. 압축된 리포트는 묶음 파일 경로와 항목 이름으로 가리킵니다.
+     * @param entry 묶음 안의 항목 이름 (압축되지 않은 리포트면 null)
+     */
+    public record Location(String id, Path path, String entry, Instant lastModified, long size) {}
+
+    private record Partition(LocalDate date, Path path, boolean bundle) {}
+
+    private record CachedPartition(FileTime modified, List<StoredReport> reports) {}
+
+    public ReportStore(ReportStoreProperties properties, ReportParserService reportParserService, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.reportParserService = reportParserService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * since 이후 파티션과 아직 수집되지 않은 리포트를 반환합니다. since가 null이면 전체를 반환합니다.
+     */
+    public List<StoredReport> list(LocalDate since) {
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            log.warn("Report directory does not exist: {}", root);
+            return List.of();
+        }
+        // A partition being compacted briefly exists both as a directory and as a bundle
+        Map<String, StoredReport> reports = new LinkedHashMap<>();
+        for (Partition partition : partitions(since)) {
+            for (StoredReport report : load(partition)) {
+                reports.putIfAbsent(report.report().getId(), report);
+            }
+        }
+        for (Path file : looseReports()) {
+            StoredReport report = parse(file);
+            if (report != null) {
+                reports.putIfAbsent(report.report().getId(), report);
+            }
+        }
+        return new ArrayList<>(reports.values());
+    }
+
+    /**
+     * 리포트 ID(확장자 없는 파일명)의 위치를 찾습니다. 최상위, 파일명 날짜의 파티션, 전체 파티션 순으로 찾습니다.
+     */
+    public Optional<Location> locate(String id) {
+        String fileName = id + REPORT_SUFFIX;
+        Optional<Location> loose = locateFile(id, root().resolve(fileName));
+        if (loose.isPresent()) {
+            return loose;
+        }
+        LocalDate date = dateOf(fileName);
+        if (date != null) {
+            Optional<Location> located = locateIn(id, date);
+            if (located.isPresent()) {
+                return located;
+            }
+        }
+        // Reports without a timestamp in the name were partitioned by modification date
+        List<Partition> partitions = partitions(null);
+        for (int i = partitions.size() - 1; i >= 0; i--) {
+            Partition partition = partitions.get(i);
+            Optional<Location> located = partition.bundle()
+                ? locateEntry(id, partition.path())
+                : locateFile(id, partition.path().resolve(fileName));
+            if (located.isPresent()) {
+                return located;
+            }
+        }
+        return Optional.empty();
+    }
+
+    public String read(Location location) throws IOException {
+        if (location.entry() == null) {
+            return Files.readString(location.path());
+        }
+        try (ZipFile zip = new ZipFile(location.path().toFile())) {
+            ZipEntry entry = zip.getEntry(location.entry());
+            if (entry == null) {
+                throw new NoSuchFileException(location.path() + "!/" + location.entry());
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * 최상위에 저장된 리포트를 파일명의 날짜(없으면 수정 날짜) 파티션으로 옮깁니다.
+     */
+    @Scheduled(fixedDelay = 30_000, initialDelay = 30_000)
+    public void ingest() {
+        Instant quietSince = Instant.now().minus(properties.getIngestQuietPeriod());
+        int moved = 0;
+        for (Path file : looseReports()) {
+            try {
+                Instant modified = Files.getLastModifiedTime(file).toInstant();
+                if (modified.isAfter(quietSince)) {
+                    continue;
+                }
+                String fileName = file.getFileName().toString();
+                LocalDate date = dateOf(fileName);
+                Path partition = partitionDirectory(date != null ? date : LocalDate.ofInstant(modified, ZoneId.systemDefault()));
+                Path target = partition.resolve(fileName);
+                // An atomic rename silently replaces an existing target on POSIX
+                String id = fileName.substring(0, fileName.length() - REPORT_SUFFIX.length());
+                if (Files.exists(target) || locateEntry(id, bundleOf(partition)).isPresent()) {
+                    log.warn("Report {} already exists in its partition; leaving it in place", fileName);
+                    continue;
+                }
+                Files.createDirectories(partition);
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                moved++;
+            } catch (NoSuchFileException e) {
+                // Removed by the filesystem MCP server in the meantime
+            } catch (IOException e) {
+                log.warn("Failed to move report {} into its partition: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        if (moved > 0) {
+            meterRegistry.counter("qa.reports.ingested").increment(moved);
+            log.debug("Moved {} reports into date partitions", moved);
+        }
+    }
+
+    /**
+     * 보관 기간이 지난 일 파티션을 DD.zip 묶음으로 압축합니다. 묶음이 이미 있으면(늦게 수집된 리포트) 합쳐서 다시 씁니다.
+     */
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 300_000)
+    public void compact() {
+        LocalDate cutoff = LocalDate.now().minusDays(properties.getHotRetention().toDays());
+        for (Partition partition : partitions(null)) {
+            if (partition.bundle() || !partition.date().isBefore(cutoff)) {
+                continue;
+            }
+            try {
+                compact(partition);
+            } catch (IOException e) {
+                log.warn("Failed to compact report partition {}: {}", partition.path(), e.getMessage());
+            }
+        }
+    }
+
+    private void compact(Partition partition) throws IOException {
+        Path directory = partition.path();
+        Path bundle = bundleOf(directory);
+        Path temp = directory.resolveSibling(bundle.getFileName() + ".tmp");
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.filter(Files::isRegularFile).sorted().toList();
+        }
+        Set<String> names = new HashSet<>();
+        files.forEach(file -> names.add(file.getFileName().toString()));
+
+        long before = 0;
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(temp))) {
+            out.setLevel(Deflater.BEST_COMPRESSION);
+            if (Files.exists(bundle)) {
+                try (ZipFile existing = new ZipFile(bundle.toFile())) {
+                    for (ZipEntry entry : existing.stream().toList()) {
+                        // The loose copy of a report is newer than the archived one
+                        if (!names.contains(entry.getName())) {
+                            try (InputStream in = existing.getInputStream(entry)) {
+                                before += write(out, entry.getName(), entry.getLastModifiedTime(), in);
+                            }
+                        }
+                    }
+                }
+            }
+            for (Path file : files) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    before += write(out, file.getFileName().toString(), Files.getLastModifiedTime(file), in);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, bundle, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        try {
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            // Something new was written in the meantime; it is picked up by the next compaction
+            log.debug("Report partition {} is not empty after compaction", directory);
+        }
+        cache.remove(directory);
+        cache.remove(bundle);
+        meterRegistry.counter("qa.reports.archived").increment(files.size());
+        log.info("Compacted {} reports of {} into {} ({} -> {} bytes)", files.size(), partition.date(), bundle, before, Files.size(bundle));
+    }
+
+    private static long write(ZipOutputStream out, String name, FileTime modified, InputStream in) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setLastModifiedTime(modified);
+        out.putNextEntry(entry);
+        long size = in.transferTo(out);
+        out.closeEntry();
+        return size;
+    }
+
+    private List<StoredReport> load(Partition partition) {
+        Path path = partition.path();
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            cache.remove(path);
+            return List.of();
+        }
+        CachedPartition cached = cache.get(path);
+        if (cached != null && cached.modified().equals(modified)) {
+            return cached.reports();
+        }
+        List<StoredReport> reports = partition.bundle() ? parseBundle(path) : parseDirectory(path);
+        cache.put(path, new CachedPartition(modified, reports));
+        return reports;
+    }
+
+    private List<StoredReport> parseDirectory(Path directory) {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths
+                .filter(path -> path.toString().endsWith(REPORT_SUFFIX))
+                .map(this::parse)
+                .filter(report -> report != null)
+                .toList();
+        } catch (IOException e) {
+            log.warn("Failed to read report partition {}: {}", directory, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<StoredReport> parseBundle(Path bundle) {
+        List<StoredReport> reports = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(bundle.toFile())) {
+            for (ZipEntry entry : zip.stream().toList()) {
+                if (!entry.getName().endsWith(REPORT_SUFFIX)) {
+                    continue;
+                }
+                String content;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                TestReport report = reportParserService.parseReport(entry.getName(), bundle.resolve(entry.getName()).toString(), content);
+                if (report != null) {
+                    reports.add(new StoredReport(report, entry.getLastModifiedTime().toInstant()));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read report bundle {}: {}", bundle, e.getMessage());
+        }
+        return reports;
+    }
+
+    private StoredReport parse(Path file) {
+        TestReport report = reportParserService.parseReport(file);
+        if (report == null) {
+            return null;
+        }
+        try {
+            return new StoredReport(report, Files.getLastModifiedTime(file).toInstant());
+        } catch (IOException e) {
+            log.debug("Failed to read modification time of report {}: {}", file, e.getMessage());
+            return new StoredReport(report, null);
+        }
+    }
+
+    /**
+     * since 이후의 일 파티션(디렉터리와 묶음)을 날짜순으로 반환합니다. 연/월 디렉터리 이름으로 범위 밖을 건너뜁니다.
+     */
+    private List<Partition> partitions(LocalDate since) {
+        List<Partition> partitions = new ArrayList<>();
+        for (Path year : children(root(), YEAR, true)) {
+            int y = Integer.parseInt(year.getFileName().toString());
+            if (since != null && y < since.getYear()) {
+                continue;
+            }
+            for (Path month : children(year, MONTH_OR_DAY, true)) {
+                int m = Integer.parseInt(month.getFileName().toString());
+                if (since != null && (y == since.getYear() && m < since.getMonthValue())) {
+                    continue;
+                }
+                for (Path day : children(month, MONTH_OR_DAY, true)) {
+                    addPartition(partitions, since, y, m, day.getFileName().toString(), day, false);
+                }
+                for (Path bundle : children(month, DAY_BUNDLE, false)) {
+                    addPartition(partitions, since, y, m, bundle.getFileName().toString().substring(0, 2), bundle, true);
+                }
+            }
+        }
+        partitions.sort(Comparator.comparing(Partition::date).thenComparing(Partition::bundle));
+        return partitions;
+    }
+
+    private static void addPartition(List<Partition> partitions, LocalDate since, int year, int month, String day, Path path, boolean bundle) {
+        LocalDate date;
+        try {
+            date = LocalDate.of(year, month, Integer.parseInt(day));
+        } catch (RuntimeException e) {
+            return;
+        }
+        if (since == null || !date.isBefore(since)) {
+            partitions.add(new Partition(date, path, bundle));
+        }
+    }
+
+    private static List<Path> children(Path directory, Pattern name, boolean directories) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths
+                .filter(path -> name.matcher(path.getFileName().toString()).matches())
+                .filter(path -> directories ? Files.isDirectory(path) : Files.isRegularFile(path))
+                .toList();
+        } catch (IOException e) {
+            log.warn("Failed to list report partitions in {}: {}", directory, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<Path> looseReports() {
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(root)) {
+            return paths
+                .filter(path -> path.toString().endsWith(REPORT_SUFFIX) && Files.isRegularFile(path))
+                .toList();
+        } catch (IOException e) {
+            log.error("Failed to read reports from directory: {}", root, e);
+            return List.of();
+        }
+    }
+
+    private Optional<Location> locateIn(String id, LocalDate date) {
+        Path directory = partitionDirectory(date);
+        Optional<Location> located = locateFile(id, directory.resolve(id + REPORT_SUFFIX));
+        return located.isPresent() ? located : locateEntry(id, bundleOf(directory));
+    }
+
+    private static Optional<Location> locateFile(String id, Path file) {
+        try {
+            if (!Files.isRegularFile(file)) {
+                return Optional.empty();
+            }
+            return Optional.of(new Location(id, file, null, Files.getLastModifiedTime(file).toInstant(), Files.size(file)));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<Location> locateEntry(String id, Path bundle) {
+        if (!Files.isRegularFile(bundle)) {
+            return Optional.empty();
+        }
+        String name = id + REPORT_SUFFIX;
+        try (ZipFile zip = new ZipFile(bundle.toFile())) {
+            ZipEntry entry = zip.getEntry(name);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new Location(id, bundle, name, entry.getLastModifiedTime().toInstant(), entry.getSize()));
+        } catch (IOException e) {
+            log.warn("Failed to read report bundle {}: {}", bundle, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Path partitionDirectory(LocalDate date) {
+        return root().resolve(String.format("%04d", date.getYear()))
+            .resolve(String.format("%02d", date.getMonthValue()))
+            .resolve(String.format("%02d", date.getDayOfMonth()));
+    }
+
+    private static Path bundleOf(Path partitionDirectory) {
+        return partitionDirectory.resolveSibling(partitionDirectory.getFileName() + BUNDLE_SUFFIX);
+    }
+
+    /**
+     * report_YYYYMMDD_HHMMSS.md 형식 파일명의 날짜
+     */
+    private static LocalDate dateOf(String fileName) {
+        Matcher matcher = REPORT_TIMESTAMP.matcher(fileName);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(matcher.group(1), DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private Path root() {
+        return Paths.get(properties.getDirectory());
+    }
+}
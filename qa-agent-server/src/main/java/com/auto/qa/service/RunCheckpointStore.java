@@ -0,0 +1,350 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.RunCheckpointProperties;
+import com.auto.qa.dto.RunCheckpoint;
+import com.auto.qa.tool.AccessibilitySnapshot;
+import com.auto.qa.tool.QaToolCallback;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 진행 중인 QA 실행의 체크포인트(모델의 도구 호출 왕복, 현재 페이지)를 로컬 파일로 저장합니다.
+ * 도구 호출 왕복은 {@link #toolCallingManager}가 기록하고, 변경된 체크포인트는 주기적으로 파일에 씁니다.
+ * 정상 종료된 실행의 파일은 삭제되므로, 서버 시작 시 남아 있는 파일은 중단된 실행입니다.
+ */
+@Slf4j
+@Service
+public class RunCheckpointStore {
+
+    private static final String EXTENSION = ".json";
+    private static final String NAVIGATE_TOOL = "browser_navigate";
+    private static final Pattern URL_ARG = Pattern.compile("\"url\"\\s*:\\s*\"([^\"]+)\"");
+    // Tool results are shortened further in the resume prompt than in the checkpoint
+    private static final int HANDOFF_RESULT_CHARS = 300;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final RunCheckpointProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, Entry> active = new ConcurrentHashMap<>();
+    // Set once the application starts shutting down; runs interrupted from then on keep their checkpoint
+    private volatile boolean closing;
+
+    private static final class Entry {
+        // Guarded by this
+        private final RunCheckpoint checkpoint;
+        private boolean dirty;
+
+        private Entry(RunCheckpoint checkpoint) {
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    public RunCheckpointStore(RunCheckpointProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 새 실행의 체크포인트 기록을 시작하고 바로 저장합니다 (시작 전에 중단되어도 재개할 수 있도록).
+     */
+    public void begin(QaRun run, String user, String testCaseId) {
+        begin(RunCheckpoint.builder()
+            .runId(run.getId())
+            .url(run.getUrl())
+            .message(run.getMessage())
+            .model(run.getModel())
+            .user(user)
+            .testCaseId(testCaseId)
+            .conversationId(run.getConversationId())
+            .createdAt(run.getCreatedAt())
+            .deadline(run.getDeadline())
+            .build());
+    }
+
+    /**
+     * 체크포인트 기록을 시작합니다. 재개된 실행은 이전 체크포인트에 이어서 기록합니다.
+     */
+    public void begin(RunCheckpoint checkpoint) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        checkpoint.setUpdatedAt(Instant.now());
+        Entry entry = new Entry(checkpoint);
+        active.put(checkpoint.getRunId(), entry);
+        write(entry);
+    }
+
+    /**
+     * 실행이 끝나 더 이상 재개할 필요가 없는 체크포인트를 삭제합니다.
+     * 서버 종료 중에 중단된 실행은 다음 시작 때 재개할 수 있도록 남겨 둡니다.
+     */
+    public void finish(String runId) {
+        if (!properties.isEnabled() || closing) {
+            return;
+        }
+        active.remove(runId);
+        delete(runId);
+    }
+
+    /**
+     * 저장소에 남아 있는 체크포인트 중 기록 중이 아닌 것 (이전 프로세스에서 중단된 실행).
+     * 보관 기간이 지난 체크포인트는 삭제합니다.
+     */
+    public List<RunCheckpoint> interrupted() {
+        if (!properties.isEnabled() || !Files.isDirectory(directory())) {
+            return List.of();
+        }
+        Instant threshold = Instant.now().minus(properties.getRetention());
+        List<RunCheckpoint> checkpoints = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory())) {
+            for (Path path : paths.filter(p -> p.getFileName().toString().endsWith(EXTENSION)).toList()) {
+                try {
+                    RunCheckpoint checkpoint = objectMapper.readValue(path.toFile(), RunCheckpoint.class);
+                    if (checkpoint.getRunId() == null || active.containsKey(checkpoint.getRunId())) {
+                        continue;
+                    }
+                    if (checkpoint.getUpdatedAt() == null || checkpoint.getUpdatedAt().isBefore(threshold)) {
+                        Files.deleteIfExists(path);
+                        log.info("Deleted expired checkpoint of run {}", checkpoint.getRunId());
+                        continue;
+                    }
+                    checkpoints.add(checkpoint);
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable run checkpoint {}: {}", path, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to list run checkpoints in {}", directory(), e);
+        }
+        return checkpoints;
+    }
+
+    /**
+     * 실행의 모델 도구 호출 왕복을 체크포인트에 기록하도록 ToolCallingManager를 감쌉니다.
+     */
+    public ToolCallingManager toolCallingManager(ToolCallingManager delegate) {
+        return new ToolCallingManager() {
+            @Override
+            public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions options) {
+                return delegate.resolveToolDefinitions(options);
+            }
+
+            @Override
+            public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+                ToolExecutionResult result = delegate.executeToolCalls(prompt, chatResponse);
+                Entry entry = active.get(String.valueOf(QaToolCallback.runId(prompt)));
+                if (entry != null) {
+                    record(entry, chatResponse, result);
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * 체크포인트의 진행 내역을 재개 실행의 프롬프트 뒤에 붙일 이어받기 안내로 만듭니다.
+     */
+    public String handoff(RunCheckpoint checkpoint) {
+        String at = LocalTime.ofInstant(checkpoint.getUpdatedAt(), ZoneId.systemDefault()).truncatedTo(ChronoUnit.SECONDS).format(TIME);
+        StringBuilder sb = new StringBuilder("[중단된 실행 이어받기] 이 실행은 서버 재시작으로 중단되었으며, 마지막 체크포인트(")
+            .append(at).append(")에서 이어서 진행합니다. 브라우저는 새로 열렸으므로 이전 요소 참조(ref)는 유효하지 않습니다. ");
+        if (checkpoint.getCurrentUrl() != null) {
+            sb.append("마지막 페이지(").append(checkpoint.getCurrentUrl()).append(")로 이동해 ");
+        }
+        sb.append("browser_snapshot으로 상태를 확인한 뒤, 이미 확인한 항목은 반복하지 말고 남은 작업만 수행하세요.\n");
+        if (checkpoint.getSteps().isEmpty()) {
+            return sb.append("(중단 전에 수행한 도구 호출 없음)\n").toString();
+        }
+        sb.append("\n## 중단 전까지 수행한 도구 호출\n");
+        if (checkpoint.getDroppedSteps() > 0) {
+            sb.append("- (이전 도구 호출 ").append(checkpoint.getDroppedSteps()).append("건 생략)\n");
+        }
+        for (RunCheckpoint.Step step : checkpoint.getSteps()) {
+            if (step.text() != null && !step.text().isBlank()) {
+                sb.append("> ").append(abbreviate(oneLine(step.text()), HANDOFF_RESULT_CHARS)).append('\n');
+            }
+            sb.append("- ").append(step.tool());
+            if (step.arguments() != null && !step.arguments().isBlank() && !"{}".equals(step.arguments().trim())) {
+                sb.append(' ').append(abbreviate(oneLine(step.arguments()), HANDOFF_RESULT_CHARS));
+            }
+            if (step.result() != null) {
+                sb.append(" → ").append(abbreviate(oneLine(step.result()), HANDOFF_RESULT_CHARS));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 변경된 체크포인트를 파일에 씁니다.
+     */
+    @Scheduled(fixedDelay = 10_000)
+    public void flush() {
+        active.values().forEach(entry -> {
+            synchronized (entry) {
+                if (!entry.dirty) {
+                    return;
+                }
+            }
+            write(entry);
+        });
+    }
+
+    /**
+     * 종료가 시작되면 이후 중단되는 실행의 체크포인트를 지우지 않도록 하고, 최신 상태를 저장합니다.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void onShutdown() {
+        closing = true;
+        flush();
+        if (!active.isEmpty()) {
+            log.info("Saved checkpoints of {} in-flight runs for resumption after restart", active.size());
+        }
+    }
+
+    private void record(Entry entry, ChatResponse chatResponse, ToolExecutionResult result) {
+        AssistantMessage request = chatResponse.getResults().stream()
+            .map(Generation::getOutput)
+            .filter(AssistantMessage::hasToolCalls)
+            .findFirst()
+            .orElse(null);
+        List<Message> history = result.conversationHistory();
+        if (request == null || history.isEmpty() || !(history.getLast() instanceof ToolResponseMessage responses)) {
+            return;
+        }
+        synchronized (entry) {
+            RunCheckpoint checkpoint = entry.checkpoint;
+            String text = request.getText();
+            for (int i = 0; i < request.getToolCalls().size(); i++) {
+                AssistantMessage.ToolCall call = request.getToolCalls().get(i);
+                String response = i < responses.getResponses().size() ? responses.getResponses().get(i).responseData() : null;
+                checkpoint.getSteps().add(new RunCheckpoint.Step(Instant.now(), i == 0 ? text : null, call.name(), call.arguments(),
+                    response != null ? abbreviate(response, properties.getMaxResultChars()) : null));
+                currentUrl(call, response).ifPresent(checkpoint::setCurrentUrl);
+            }
+            int excess = checkpoint.getSteps().size() - Math.max(1, properties.getMaxToolCalls());
+            if (excess > 0) {
+                checkpoint.getSteps().subList(0, excess).clear();
+                checkpoint.setDroppedSteps(checkpoint.getDroppedSteps() + excess);
+            }
+            checkpoint.setUpdatedAt(Instant.now());
+            entry.dirty = true;
+        }
+    }
+
+    private static Optional<String> currentUrl(AssistantMessage.ToolCall call, String response) {
+        // Results reach the model JSON-encoded, with escaped line breaks
+        Optional<String> page = AccessibilitySnapshot.extractPageUrl(response != null ? response.replace("\\n", "\n") : null);
+        if (page.isPresent() || !NAVIGATE_TOOL.equals(call.name()) || call.arguments() == null) {
+            return page;
+        }
+        Matcher matcher = URL_ARG.matcher(call.arguments());
+        return matcher.find() ? Optional.of(matcher.group(1)) : Optional.empty();
+    }
+
+    private void write(Entry entry) {
+        byte[] json;
+        String runId;
+        synchronized (entry) {
+            runId = entry.checkpoint.getRunId();
+            try {
+                json = objectMapper.writeValueAsBytes(entry.checkpoint);
+            } catch (IOException e) {
+                log.warn("Failed to serialize checkpoint of run {}: {}", runId, e.getMessage());
+                return;
+            }
+            entry.dirty = false;
+        }
+        // A run that finished meanwhile must not leave its checkpoint behind
+        if (active.get(runId) != entry) {
+            return;
+        }
+        Path path = checkpointPath(runId);
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), "checkpoint", ".tmp");
+            Files.write(temp, json);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            meterRegistry.counter("qa.run.checkpoints.writes").increment();
+        } catch (IOException e) {
+            log.warn("Failed to write checkpoint of run {}: {}", runId, e.getMessage());
+            synchronized (entry) {
+                entry.dirty = true;
+            }
+        }
+        if (active.get(runId) != entry) {
+            delete(runId);
+        }
+    }
+
+    private void delete(String runId) {
+        try {
+            Files.deleteIfExists(checkpointPath(runId));
+        } catch (IOException e) {
+            log.warn("Failed to delete checkpoint of run {}: {}", runId, e.getMessage());
+        }
+    }
+
+    private static String oneLine(String text) {
+        return text.replaceAll("\\s+", " ").strip();
+    }
+
+    private static String abbreviate(String text, int maxChars) {
+        return text.length() <= maxChars ? text : text.substring(0, maxChars) + "…";
+    }
+
+    private Path checkpointPath(String runId) {
+        return directory().resolve(runId + EXTENSION);
+    }
+
+    private Path directory() {
+        return Paths.get(properties.getDirectory());
+    }
+}
@@ -0,0 +1,300 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.RunEventLogProperties;
+import com.auto.qa.dto.RunEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * 실행 수명주기 이벤트를 메모리 매핑된 세그먼트 파일에 순서대로 추가 기록합니다.
+ * 레코드는 [길이(int)][JSON]이며, 길이 0은 세그먼트의 끝을 뜻합니다. 세그먼트가 가득 차면 다음 파일로 넘어갑니다.
+ */
+@Slf4j
+@Service
+public class RunEventLog {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final RunEventLogProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    // Guarded by this
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long segment = -1;
+
+    /**
+     * 로그 안의 읽기 위치 (세그먼트 번호와 그 안의 바이트 오프셋)
+     */
+    public record Position(long segment, int offset) {
+        public static final Position START = new Position(0, 0);
+    }
+
+    public RunEventLog(RunEventLogProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @PostConstruct
+    synchronized void open() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory());
+            List<Long> segments = segments();
+            openSegment(segments.isEmpty() ? 0 : segments.getLast());
+            // Resume after the last complete record of the previous process
+            buffer.position(scanEnd(buffer));
+            log.info("Run event log opened at {} (segment {}, offset {})", directory(), segment, buffer.position());
+        } catch (IOException e) {
+            log.error("Failed to open run event log at {}; run events will not be recorded", directory(), e);
+            buffer = null;
+        }
+    }
+
+    public void append(RunEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize run event {}: {}", event.type(), e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            if (buffer == null) {
+                return;
+            }
+            // Keep room for the zero length that terminates the segment
+            int required = payload.length + 2 * LENGTH_BYTES;
+            if (required > buffer.capacity()) {
+                log.warn("Dropping run event {} of run {}: {} bytes exceed the segment size", event.type(), event.runId(), payload.length);
+                return;
+            }
+            try {
+                if (buffer.remaining() < required) {
+                    roll();
+                }
+            } catch (IOException e) {
+                log.error("Failed to roll run event log segment; run events will not be recorded", e);
+                buffer = null;
+                return;
+            }
+            int start = buffer.position();
+            // Payload before length: a record cut short by a crash still reads as the end of the segment
+            buffer.put(start + LENGTH_BYTES, payload);
+            buffer.putInt(start, payload.length);
+            buffer.position(start + LENGTH_BYTES + payload.length);
+        }
+        meterRegistry.counter("qa.run.events", "type", event.type().name()).increment();
+    }
+
+    /**
+     * from 이후에 기록된 이벤트를 순서대로 전달하고, 다음 읽기 위치를 반환합니다.
+     * 이미 삭제된 세그먼트는 건너뜁니다.
+     */
+    public Position readFrom(Position from, Consumer<RunEvent> consumer) {
+        return readFrom(from, (event, segment) -> consumer.accept(event));
+    }
+
+    /**
+     * {@link #readFrom(Position, Consumer)}와 같지만, 각 이벤트와 함께 그 이벤트가 있는 세그먼트 번호를 전달합니다.
+     */
+    public Position readFrom(Position from, ObjLongConsumer<RunEvent> consumer) {
+        ByteBuffer active;
+        long activeSegment;
+        int activeEnd;
+        synchronized (this) {
+            if (buffer == null) {
+                return from;
+            }
+            // Bytes below the current position are complete and never rewritten, so they can be read outside the lock
+            active = buffer.duplicate();
+            activeSegment = segment;
+            activeEnd = buffer.position();
+        }
+
+        Position position = from;
+        List<Long> segments;
+        try {
+            segments = segments();
+        } catch (IOException e) {
+            log.warn("Failed to list run event log segments: {}", e.getMessage());
+            return from;
+        }
+        for (long current : segments) {
+            if (current < position.segment() || current > activeSegment) {
+                continue;
+            }
+            int offset = current == position.segment() ? position.offset() : 0;
+            if (current == activeSegment) {
+                offset = readRecords(active, current, offset, activeEnd, consumer);
+            } else {
+                ByteBuffer closed = mapReadOnly(current);
+                if (closed == null) {
+                    continue;
+                }
+                offset = readRecords(closed, current, offset, scanEnd(closed), consumer);
+            }
+            position = new Position(current, offset);
+        }
+        return position;
+    }
+
+    /**
+     * 보관 중인 가장 오래된 세그먼트 번호. 이보다 앞선 세그먼트의 이벤트는 삭제되었습니다.
+     */
+    public long oldestSegment() {
+        try {
+            List<Long> segments = segments();
+            return segments.isEmpty() ? 0 : segments.getFirst();
+        } catch (IOException e) {
+            log.warn("Failed to list run event log segments: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    @Scheduled(fixedDelay = 5_000)
+    public synchronized void flush() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (buffer == null) {
+            return;
+        }
+        buffer.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close run event log segment: {}", e.getMessage());
+        }
+        buffer = null;
+    }
+
+    private void roll() throws IOException {
+        buffer.force();
+        channel.close();
+        openSegment(segment + 1);
+        deleteOldSegments();
+    }
+
+    private void openSegment(long number) throws IOException {
+        Path path = segmentPath(number);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(properties.getSegmentSize().toBytes(), channel.size());
+        // Mapping beyond the end grows the file with zeros, which read as "no more records"
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(size, Integer.MAX_VALUE));
+        segment = number;
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Long> segments = segments();
+        for (int i = 0; i < segments.size() - properties.getMaxSegments(); i++) {
+            Files.deleteIfExists(segmentPath(segments.get(i)));
+            log.info("Deleted old run event log segment {}", segments.get(i));
+        }
+    }
+
+    private int readRecords(ByteBuffer view, long segment, int offset, int end, ObjLongConsumer<RunEvent> consumer) {
+        int position = offset;
+        while (position + LENGTH_BYTES <= end) {
+            int length = view.getInt(position);
+            if (length <= 0 || position + LENGTH_BYTES + length > end) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            view.get(position + LENGTH_BYTES, payload);
+            try {
+                consumer.accept(objectMapper.readValue(payload, RunEvent.class), segment);
+            } catch (IOException e) {
+                log.warn("Skipping unreadable run event at segment offset {}: {}", position, e.getMessage());
+            }
+            position += LENGTH_BYTES + length;
+        }
+        return position;
+    }
+
+    private static int scanEnd(ByteBuffer view) {
+        int position = 0;
+        while (position + LENGTH_BYTES <= view.limit()) {
+            int length = view.getInt(position);
+            if (length <= 0 || position + LENGTH_BYTES + length > view.limit()) {
+                break;
+            }
+            position += LENGTH_BYTES + length;
+        }
+        return position;
+    }
+
+    private ByteBuffer mapReadOnly(long number) {
+        try (FileChannel readChannel = FileChannel.open(segmentPath(number), StandardOpenOption.READ)) {
+            return readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read run event log segment {}: {}", number, e.getMessage());
+            return null;
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        if (!Files.isDirectory(directory())) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(directory())) {
+            return paths
+                .map(path -> path.getFileName().toString())
+                .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                .map(name -> name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))
+                .filter(number -> number.chars().allMatch(Character::isDigit) && !number.isEmpty())
+                .map(Long::parseLong)
+                .sorted()
+                .toList();
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory().resolve(String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private Path directory() {
+        return Paths.get(properties.getDirectory());
+    }
+}
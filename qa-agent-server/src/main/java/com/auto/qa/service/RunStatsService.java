@@ -0,0 +1,76 @@
+package com.auto.qa.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 실행별 도구 호출 수와 토큰 사용량을 집계합니다. track으로 등록한 실행만 집계됩니다.
+ */
+@Slf4j
+@Service
+public class RunStatsService {
+
+    private final Map<String, RunStats> stats = new ConcurrentHashMap<>();
+
+    public static final class RunStats {
+        private final AtomicInteger toolCalls = new AtomicInteger();
+        private final AtomicLong promptTokens = new AtomicLong();
+        private final AtomicLong completionTokens = new AtomicLong();
+
+        public int toolCalls() {
+            return toolCalls.get();
+        }
+
+        public long promptTokens() {
+            return promptTokens.get();
+        }
+
+        public long completionTokens() {
+            return completionTokens.get();
+        }
+
+        public long totalTokens() {
+            return promptTokens.get() + completionTokens.get();
+        }
+    }
+
+    public RunStats track(String runId) {
+        return stats.computeIfAbsent(runId, id -> new RunStats());
+    }
+
+    public Optional<RunStats> get(String runId) {
+        return Optional.ofNullable(runId == null ? null : stats.get(runId));
+    }
+
+    public Optional<RunStats> remove(String runId) {
+        return Optional.ofNullable(runId == null ? null : stats.remove(runId));
+    }
+
+    public void recordToolCall(String runId) {
+        get(runId).ifPresent(run -> run.toolCalls.incrementAndGet());
+    }
+
+    /**
+     * 모델 응답의 사용량을 기록합니다. 도구 호출 루프의 응답은 누적 사용량을 담으므로 최댓값을 유지합니다.
+     */
+    public void recordUsage(String runId, Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        get(runId).ifPresent(run -> {
+            if (usage.getPromptTokens() != null) {
+                run.promptTokens.accumulateAndGet(usage.getPromptTokens(), Math::max);
+            }
+            if (usage.getCompletionTokens() != null) {
+                run.completionTokens.accumulateAndGet(usage.getCompletionTokens(), Math::max);
+            }
+        });
+    }
+}
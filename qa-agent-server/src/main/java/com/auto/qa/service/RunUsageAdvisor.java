@@ -0,0 +1,105 @@
+package com.auto.qa.service;
+
+import com.auto.qa.tool.QaToolCallback;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * 모델 응답 메타데이터의 토큰 사용량을 실행 ID별로 RunStatsService에 기록하는 advisor (TokenUsageService의 예산도 이 집계를 사용).
+ * 실행 ID는 advisor 파라미터 {@link QaToolCallback#RUN_ID_KEY}로 전달됩니다.
+ * 스트리밍 실행이 실행당 토큰 예산을 넘으면 실행을 취소하고 스트림을 오류로 끝냅니다.
+ * 동기 실행은 모델 내부의 도구 호출 루프 안에서 {@link #toolCallingManager(ToolCallingManager)}가 같은 예산을 적용합니다.
+ */
+@Component
+@RequiredArgsConstructor
+public class RunUsageAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final RunStatsService runStatsService;
+    private final TokenUsageService tokenUsageService;
+    private final ActiveRunRegistry activeRunRegistry;
+
+    @Override
+    public String getName() {
+        return "runUsageAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // Any position before the terminal model advisor sees the final response
+        return 0;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        ChatClientResponse response = chain.nextCall(request);
+        record(request, response);
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        Object runId = request.context().get(QaToolCallback.RUN_ID_KEY);
+        return chain.nextStream(request).handle((response, sink) -> {
+            record(request, response);
+            sink.next(response);
+            if (runId != null && tokenUsageService.exceedsRunBudget(runId.toString())) {
+                // Stops further tool calls as well; the stream error ends the model round
+                activeRunRegistry.cancel(runId.toString(), "budget");
+                sink.error(budgetExceeded());
+            }
+        });
+    }
+
+    /**
+     * 모델의 도구 호출 루프에서 매 라운드의 사용량을 기록하고, 실행당 예산을 넘었으면 도구를 실행하지 않고 루프를 끝냅니다.
+     * 동기 호출은 루프가 모두 끝난 뒤에야 advisor로 돌아오므로 예산은 여기서 적용합니다.
+     */
+    public ToolCallingManager toolCallingManager(ToolCallingManager delegate) {
+        return new ToolCallingManager() {
+            @Override
+            public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions options) {
+                return delegate.resolveToolDefinitions(options);
+            }
+
+            @Override
+            public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+                String runId = QaToolCallback.runId(prompt);
+                if (runId != null && chatResponse.getMetadata() != null) {
+                    // The response of each round carries the usage of the whole loop so far
+                    runStatsService.recordUsage(runId, chatResponse.getMetadata().getUsage());
+                    if (tokenUsageService.exceedsRunBudget(runId)) {
+                        activeRunRegistry.cancel(runId, "budget");
+                        throw budgetExceeded();
+                    }
+                }
+                return delegate.executeToolCalls(prompt, chatResponse);
+            }
+        };
+    }
+
+    private IllegalStateException budgetExceeded() {
+        return new IllegalStateException("실행당 토큰 예산(" + tokenUsageService.perRunBudget() + ")을 초과하여 실행을 중단했습니다.");
+    }
+
+    private void record(ChatClientRequest request, ChatClientResponse response) {
+        Object runId = request.context().get(QaToolCallback.RUN_ID_KEY);
+        if (runId != null && response.chatResponse() != null && response.chatResponse().getMetadata() != null) {
+            runStatsService.recordUsage(runId.toString(), response.chatResponse().getMetadata().getUsage());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.SnapshotDiffProperties;
+import com.auto.qa.tool.AccessibilitySnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+
+/**
+ * 실행(run)별 직전 browser_snapshot을 보관하고, 전체 트리 대신 변경분(delta)을 모델에 전달합니다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SnapshotDiffService {
+
+    // Rough chars-per-token ratio used for the before/after estimate in logs
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final SnapshotDiffProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RunState> runStates = new ConcurrentHashMap<>();
+
+    private static class RunState {
+        private AccessibilitySnapshot previous;
+        private String previousUrl;
+        private final AtomicLong rawChars = new AtomicLong();
+        private final AtomicLong sentChars = new AtomicLong();
+        private final AtomicLong deltas = new AtomicLong();
+        private final AtomicLong snapshots = new AtomicLong();
+    }
+
+    /**
+     * 도구 결과 텍스트에 포함된 스냅샷을 가능하면 델타로 치환합니다.
+     * @param runId 실행 ID (null이면 상태를 유지할 수 없으므로 그대로 반환)
+     * @param text 도구 결과 텍스트
+     * @param forceFull true이면 델타 없이 전체 스냅샷 전달 (상태는 갱신)
+     */
+    public String compact(String runId, String text, boolean forceFull) {
+        if (runId == null || text == null) {
+            return text;
+        }
+        Matcher matcher = AccessibilitySnapshot.findBlock(text);
+        if (matcher == null) {
+            return text;
+        }
+
+        String yaml = matcher.group(2);
+        String url = AccessibilitySnapshot.extractPageUrl(text).orElse(null);
+
+        RunState state = runStates.computeIfAbsent(runId, id -> new RunState());
+        AccessibilitySnapshot current = AccessibilitySnapshot.parse(yaml);
+        String delta = null;
+
+        synchronized (state) {
+            AccessibilitySnapshot previous = state.previous;
+            boolean samePage = url != null && url.equals(state.previousUrl);
+            state.previous = current;
+            state.previousUrl = url;
+
+            if (properties.isEnabled() && !forceFull && previous != null && samePage
+                    && yaml.length() >= properties.getMinSnapshotChars()) {
+                String rendered = current.render(current.diff(previous));
+                if (rendered.length() < yaml.length() * properties.getMaxDeltaRatio()) {
+                    delta = rendered + "\n# unchanged nodes keep their refs; call browser_snapshot with {\"fullSnapshot\": true} for the full tree";
+                    state.deltas.incrementAndGet();
+                }
+            }
+        }
+
+        int sentLength = delta != null ? delta.length() : yaml.length();
+        state.snapshots.incrementAndGet();
+        state.rawChars.addAndGet(yaml.length());
+        state.sentChars.addAndGet(sentLength);
+        meterRegistry.counter("qa.snapshot.chars", "mode", "raw").increment(yaml.length());
+        meterRegistry.counter("qa.snapshot.chars", "mode", "sent").increment(sentLength);
+
+        if (delta == null) {
+            return text;
+        }
+        return text.substring(0, matcher.start(2)) + delta + text.substring(matcher.end(2));
+    }
+
+    /**
+     * 실행 종료 시 상태를 정리하고 스냅샷 토큰 사용량(추정치)을 기록합니다.
+     */
+    public void finishRun(String runId) {
+        RunState state = runStates.remove(runId);
+        if (state == null || state.snapshots.get() == 0) {
+            return;
+        }
+        long rawTokens = state.rawChars.get() / CHARS_PER_TOKEN;
+        long sentTokens = state.sentChars.get() / CHARS_PER_TOKEN;
+        meterRegistry.summary("qa.snapshot.tokens.per.run", "mode", "raw").record(rawTokens);
+        meterRegistry.summary("qa.snapshot.tokens.per.run", "mode", "sent").record(sentTokens);
+        log.info("Run {} snapshots: {} total, {} sent as delta, ~{} tokens before, ~{} tokens after",
+            runId, state.snapshots.get(), state.deltas.get(), rawTokens, sentTokens);
+    }
+}
@@ -0,0 +1,123 @@
+package com.auto.qa.service;
+
+import com.auto.qa.dto.TestCase;
+import com.auto.qa.dto.ToolTranscript;
+import com.auto.qa.tool.QaToolCallback;
+import com.auto.qa.tool.QaToolCallbackFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 저장된 테스트 케이스를 실행합니다.
+ * 컴파일된 매크로가 있으면 매크로로 조작한 뒤 모델은 최종 화면 분석에만 사용하고,
+ * 매크로가 없으면 기록된 트랜스크립트를 모델 없이 재생합니다. 실패/불일치 지점부터는 LLM에 이어서 맡깁니다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TestCaseRunService {
+
+    public enum Mode {
+        /** 매크로 → 트랜스크립트 재생 → LLM 순으로 시도 */
+        AUTO,
+        /** 재생만 수행 (트랜스크립트가 없거나 불일치하면 실패) */
+        REPLAY,
+        /** 항상 LLM으로 실행하고 트랜스크립트를 새로 기록 */
+        LLM
+    }
+
+    private final AgentService agentService;
+    private final TranscriptService transcriptService;
+    private final TranscriptReplayService transcriptReplayService;
+    private final MacroService macroService;
+    private final ToolResultBudgetService toolResultBudgetService;
+    private final ActiveRunRegistry activeRunRegistry;
+    private final PreflightService preflightService;
+    private final BrowserSessionPool browserSessionPool;
+    private final QaToolCallbackFactory qaToolCallbackFactory;
+    private final ToolCallbackProvider toolCallbackProvider;
+    private final McpStartupService mcpStartupService;
+
+    public String run(String runId, TestCase testCase, String model, Mode mode) {
+        preflightService.ensureReady();
+        Optional<ToolTranscript> transcript = mode == Mode.LLM ? Optional.empty() : transcriptService.load(testCase.getId());
+        if (mode == Mode.REPLAY && transcript.isEmpty()) {
+            throw new IllegalStateException("No recorded transcript for test case " + testCase.getId());
+        }
+
+        BrowserSession session = browserSessionPool.isEnabled() ? browserSessionPool.lease(runId) : null;
+        activeRunRegistry.register(runId, model, testCase.getUrl());
+        activeRunRegistry.attachSession(runId, session);
+        transcriptService.begin(runId, testCase.getId(), testCase.getUrl(), model);
+        // Only a model-driven run produces a new recording; a matched replay keeps the existing transcript
+        boolean persist = false;
+        try {
+            String handoffContext = null;
+            activeRunRegistry.stage(runId, "macro");
+            Optional<MacroService.MacroResult> macro = mode == Mode.AUTO
+                ? macroService.execute(runId, testCase.getId(), testCase.getUrl(), replayTools(session))
+                : Optional.empty();
+            if (macro.isPresent()) {
+                MacroService.MacroResult result = macro.get();
+                if (!result.failed()) {
+                    // The browser work is done; the model only analyses where the macro ended up
+                    handoffContext = "[매크로 실행 완료] 이 시나리오의 브라우저 조작(" + result.total() + "단계)은 캐시된 매크로로 이미 수행되었습니다."
+                        + " 브라우저 도구를 다시 호출하지 말고, 아래 최종 화면 스냅샷을 분석하여 문제를 찾고 리포트를 작성하세요.\n"
+                        + toolResultBudgetService.apply(QaToolCallback.SNAPSHOT_TOOL, result.finalSnapshot());
+                    activeRunRegistry.stage(runId, "llm");
+                    return agentService.runQaTestSync(runId, testCase.getUrl(), testCase.getPrompt(), model, session, handoffContext);
+                }
+                log.info("Run {} escalating test case {} to the model: {}", runId, testCase.getId(), result.failure());
+                handoffContext = "[이어받기] 캐시된 매크로를 " + result.executed() + "/" + result.total()
+                    + " 단계까지 실행했지만 다음 이유로 중단되었습니다: " + result.failure()
+                    + "\n브라우저는 이미 해당 상태입니다. browser_snapshot으로 현재 화면을 확인한 뒤 남은 테스트를 진행하세요.";
+            } else if (transcript.isPresent()) {
+                activeRunRegistry.stage(runId, "replay");
+                TranscriptReplayService.ReplayResult replay = transcriptReplayService.replay(runId, transcript.get(), replayTools(session));
+                if (!replay.diverged()) {
+                    return "♻️ 기록된 실행을 재생했습니다 (" + replay.replayed() + "/" + replay.total()
+                        + " 단계 일치, 모델 호출 없음). 테스트 케이스: " + testCase.getName();
+                }
+                if (mode == Mode.REPLAY) {
+                    throw new IllegalStateException("Replay diverged at step " + (replay.replayed() + 1) + ": " + replay.divergence());
+                }
+                log.info("Run {} escalating test case {} to the model after {}/{} replayed steps",
+                    runId, testCase.getId(), replay.replayed(), replay.total());
+                handoffContext = "[이어받기] 기록된 실행을 " + replay.replayed() + "/" + replay.total()
+                    + " 단계까지 재생했지만 다음 지점에서 화면이 기록과 달라졌습니다: " + replay.divergence()
+                    + "\n브라우저는 이미 해당 상태입니다. 처음부터 다시 시작하지 말고 browser_snapshot으로 현재 화면을 확인한 뒤 남은 테스트를 진행하세요.";
+            }
+            activeRunRegistry.stage(runId, "llm");
+            String result = agentService.runQaTestSync(runId, testCase.getUrl(), testCase.getPrompt(), model, session, handoffContext);
+            persist = true;
+            return result;
+        } catch (RuntimeException e) {
+            activeRunRegistry.fail(runId, e);
+            throw e;
+        } finally {
+            transcriptService.complete(runId, persist).ifPresent(macroService::compile);
+            activeRunRegistry.finish(runId);
+            if (session != null) {
+                browserSessionPool.release(session);
+            }
+        }
+    }
+
+    private List<QaToolCallback> replayTools(BrowserSession session) {
+        List<ToolCallback> callbacks = new ArrayList<>();
+        if (session != null) {
+            callbacks.addAll(Arrays.asList(session.getToolCallbacks()));
+        }
+        mcpStartupService.awaitReady();
+        callbacks.addAll(Arrays.asList(toolCallbackProvider.getToolCallbacks()));
+        return callbacks.stream().map(qaToolCallbackFactory::wrap).toList();
+    }
+}
@@ -21,8 +21,12 @@ public class TestCaseService {
     
     private static final String TEST_CASES_DIR = "qa-prompts/test-cases";
     private final ObjectMapper objectMapper;
+    private final TranscriptService transcriptService;
+    private final MacroService macroService;
     
-    public TestCaseService() {
+    public TestCaseService(TranscriptService transcriptService, MacroService macroService) {
+        this.transcriptService = transcriptService;
+        this.macroService = macroService;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
         
@@ -96,6 +100,9 @@ public class TestCaseService {
         updated.setUpdatedAt(LocalDateTime.now());
         
         saveTestCase(updated);
+        // The recorded tool sequence no longer matches the edited scenario
+        transcriptService.delete(id);
+        macroService.invalidateAll(id);
         return updated;
     }
     
@@ -104,6 +111,8 @@ public class TestCaseService {
         
         try {
             Files.deleteIfExists(filePath);
+            transcriptService.delete(id);
+            macroService.invalidateAll(id);
             log.info("Deleted test case: {}", id);
         } catch (IOException e) {
             log.error("Failed to delete test case: {}", id, e);
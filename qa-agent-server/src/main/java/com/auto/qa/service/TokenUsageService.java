@@ -0,0 +1,261 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.TokenBudgetProperties;
+import com.auto.qa.dto.RunEvent;
+import com.auto.qa.dto.TokenTotals;
+import com.auto.qa.dto.TokenUsageReport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 실행의 토큰 사용량(RunStatsService가 집계)을 모델/사용자/테스트 케이스별 일 단위로 집계하며, 설정된 예산을 적용합니다.
+ * 집계는 실행 종료 이벤트에 함께 기록되므로 재시작 시 실행 이벤트 로그에서 복원됩니다.
+ */
+@Slf4j
+@Service
+public class TokenUsageService {
+
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final String MODEL = "model:";
+    private static final String USER = "user:";
+    private static final String TEST_CASE = "testCase:";
+    private static final int RETAINED_DAYS = 62;
+    private static final Duration STALE_ACCOUNT = Duration.ofHours(24);
+
+    private final TokenBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final RunEventLog runEventLog;
+    private final RunStatsService runStatsService;
+
+    private final Map<String, RunAccount> accounts = new ConcurrentHashMap<>();
+    // Guarded by this; dimension key -> day -> totals
+    private final Map<String, NavigableMap<LocalDate, TokenTotals>> daily = new HashMap<>();
+
+    private static final class RunAccount {
+        private final Instant createdAt = Instant.now();
+        private volatile String model;
+        private volatile String user;
+        private volatile String testCaseId;
+        // False when another caller (e.g. a model comparison) tracks the run's stats and removes them itself
+        private volatile boolean ownsStats;
+    }
+
+    /**
+     * 실행 시작 시 예산 판단 결과
+     * @param model 실행할 모델 (downgrade 시 대체 모델)
+     * @param rejection 거부 사유 (허용이면 null)
+     */
+    public record BudgetDecision(String model, boolean downgraded, String rejection) {
+        public boolean rejected() {
+            return rejection != null;
+        }
+    }
+
+    public TokenUsageService(TokenBudgetProperties properties, MeterRegistry meterRegistry, RunEventLog runEventLog,
+                             RunStatsService runStatsService) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.runEventLog = runEventLog;
+        this.runStatsService = runStatsService;
+    }
+
+    @PostConstruct
+    void restore() {
+        LocalDate oldest = today().minusDays(RETAINED_DAYS);
+        runEventLog.readFrom(RunEventLog.Position.START, event -> {
+            if (event.type() == RunEvent.Type.RUN_FINISHED && event.promptTokens() != null) {
+                LocalDate day = LocalDate.ofInstant(event.timestamp(), ZoneId.systemDefault());
+                if (!day.isBefore(oldest)) {
+                    add(day, event.model(), event.user(), event.testCaseId(),
+                        event.promptTokens(), event.completionTokens() != null ? event.completionTokens() : 0);
+                }
+            }
+        });
+    }
+
+    /**
+     * 실행의 요청자와 테스트 케이스를 기록합니다. 실행이 시작되기 전에 호출해도 됩니다.
+     */
+    public void attribute(String runId, String user, String testCaseId) {
+        RunAccount account = accounts.computeIfAbsent(runId, id -> new RunAccount());
+        if (user != null && !user.isBlank()) {
+            account.user = user;
+        }
+        if (testCaseId != null) {
+            account.testCaseId = testCaseId;
+        }
+    }
+
+    public String user(String runId) {
+        RunAccount account = runId == null ? null : accounts.get(runId);
+        return account != null && account.user != null ? account.user : ANONYMOUS;
+    }
+
+    /**
+     * 새 실행에 예산을 적용합니다. 사용자 예산이 소진되면 거부하고, 모델 예산이 소진되면 대체 모델로 바꾸거나 거부합니다.
+     */
+    public BudgetDecision checkStart(String model, String user) {
+        if (!properties.isEnabled()) {
+            return new BudgetDecision(model, false, null);
+        }
+        long userBudget = properties.userMonthly(user);
+        if (userBudget > 0 && monthToDate(USER + user).totalTokens() >= userBudget) {
+            return new BudgetDecision(model, false, "사용자 '" + user + "'의 이번 달 토큰 예산(" + userBudget + ")을 모두 사용했습니다.");
+        }
+        if (!modelBudgetExhausted(model)) {
+            return new BudgetDecision(model, false, null);
+        }
+        String fallback = properties.getDowngradeTo();
+        if (fallback != null && !fallback.equals(model) && !modelBudgetExhausted(fallback)) {
+            log.warn("Model {} exhausted its monthly token budget; running on {} instead", model, fallback);
+            meterRegistry.counter("qa.tokens.budget.enforced", "action", "downgrade").increment();
+            return new BudgetDecision(fallback, true, null);
+        }
+        meterRegistry.counter("qa.tokens.budget.enforced", "action", "reject").increment();
+        return new BudgetDecision(model, false, "모델 '" + model + "'의 이번 달 토큰 예산(" + properties.modelMonthly(model) + ")을 모두 사용했습니다.");
+    }
+
+    /**
+     * 실행이 실제로 사용하는 모델을 기록하고, 실행의 토큰 사용량 집계를 시작합니다.
+     */
+    public void open(String runId, String model) {
+        RunAccount account = accounts.computeIfAbsent(runId, id -> new RunAccount());
+        account.model = model;
+        account.ownsStats = runStatsService.get(runId).isEmpty();
+        runStatsService.track(runId);
+    }
+
+    /**
+     * 실행의 토큰 사용량이 실행당 예산을 넘었는지 여부
+     */
+    public boolean exceedsRunBudget(String runId) {
+        return properties.isEnabled() && properties.getPerRun() > 0 && runId != null && accounts.containsKey(runId)
+            && runStatsService.get(runId).map(RunStatsService.RunStats::totalTokens).orElse(0L) > properties.getPerRun();
+    }
+
+    public long perRunBudget() {
+        return properties.getPerRun();
+    }
+
+    /**
+     * 실행을 종료하고 사용량을 집계에 더합니다.
+     */
+    public RunEvent.TokenUsage close(String runId) {
+        RunAccount account = runId == null ? null : accounts.remove(runId);
+        if (account == null) {
+            return RunEvent.TokenUsage.NONE;
+        }
+        String user = account.user != null ? account.user : ANONYMOUS;
+        Optional<RunStatsService.RunStats> stats = account.ownsStats ? runStatsService.remove(runId) : runStatsService.get(runId);
+        long prompt = stats.map(RunStatsService.RunStats::promptTokens).orElse(0L);
+        long completion = stats.map(RunStatsService.RunStats::completionTokens).orElse(0L);
+        if (account.model != null) {
+            add(today(), account.model, user, account.testCaseId, prompt, completion);
+            meterRegistry.counter("qa.tokens", "model", account.model, "type", "prompt").increment(prompt);
+            meterRegistry.counter("qa.tokens", "model", account.model, "type", "completion").increment(completion);
+            String key = MODEL + account.model;
+            Gauge.builder("qa.tokens.month", this, service -> service.monthToDate(key).totalTokens())
+                .tag("model", account.model)
+                .register(meterRegistry);
+        }
+        return new RunEvent.TokenUsage(user, account.testCaseId, prompt, completion);
+    }
+
+    /**
+     * 최근 days일 동안의 사용량
+     */
+    public synchronized TokenUsageReport report(int days) {
+        LocalDate since = today().minusDays(Math.max(1, days) - 1L);
+        Map<String, TokenTotals> byModel = new TreeMap<>();
+        Map<String, TokenTotals> byUser = new TreeMap<>();
+        Map<String, TokenTotals> byTestCase = new TreeMap<>();
+        Map<String, TokenTotals> monthToDate = new TreeMap<>();
+        TokenTotals total = TokenTotals.EMPTY;
+        for (Map.Entry<String, NavigableMap<LocalDate, TokenTotals>> entry : daily.entrySet()) {
+            TokenTotals sum = sum(entry.getValue(), since);
+            String key = entry.getKey();
+            if (key.startsWith(MODEL)) {
+                byModel.put(key.substring(MODEL.length()), sum);
+                monthToDate.put(key.substring(MODEL.length()), monthToDate(key));
+                total = total.plus(sum);
+            } else if (key.startsWith(USER)) {
+                byUser.put(key.substring(USER.length()), sum);
+            } else if (key.startsWith(TEST_CASE)) {
+                byTestCase.put(key.substring(TEST_CASE.length()), sum);
+            }
+        }
+        return new TokenUsageReport(since, total, byModel, byUser, byTestCase, monthToDate, Map.copyOf(properties.getModels()));
+    }
+
+    /**
+     * 오래된 일별 집계와, 시작되지 않은 채 남은 실행 기록을 정리합니다.
+     */
+    @Scheduled(fixedDelay = 600_000)
+    public void evictStale() {
+        Instant threshold = Instant.now().minus(STALE_ACCOUNT);
+        accounts.entrySet().removeIf(entry -> {
+            boolean stale = entry.getValue().createdAt.isBefore(threshold);
+            if (stale && entry.getValue().ownsStats) {
+                runStatsService.remove(entry.getKey());
+            }
+            return stale;
+        });
+        LocalDate oldest = today().minusDays(RETAINED_DAYS);
+        synchronized (this) {
+            daily.values().forEach(days -> days.headMap(oldest).clear());
+            daily.values().removeIf(Map::isEmpty);
+        }
+    }
+
+    private boolean modelBudgetExhausted(String model) {
+        long budget = properties.modelMonthly(model);
+        return budget > 0 && monthToDate(MODEL + model).totalTokens() >= budget;
+    }
+
+    private synchronized TokenTotals monthToDate(String key) {
+        NavigableMap<LocalDate, TokenTotals> days = daily.get(key);
+        return days == null ? TokenTotals.EMPTY : sum(days, today().withDayOfMonth(1));
+    }
+
+    private static TokenTotals sum(NavigableMap<LocalDate, TokenTotals> days, LocalDate since) {
+        TokenTotals sum = TokenTotals.EMPTY;
+        for (TokenTotals totals : days.tailMap(since, true).values()) {
+            sum = sum.plus(totals);
+        }
+        return sum;
+    }
+
+    private synchronized void add(LocalDate day, String model, String user, String testCaseId, long prompt, long completion) {
+        if (model != null) {
+            addTo(MODEL + model, day, prompt, completion);
+        }
+        addTo(USER + (user != null ? user : ANONYMOUS), day, prompt, completion);
+        if (testCaseId != null) {
+            addTo(TEST_CASE + testCaseId, day, prompt, completion);
+        }
+    }
+
+    private void addTo(String key, LocalDate day, long prompt, long completion) {
+        daily.computeIfAbsent(key, k -> new TreeMap<>()).merge(day, TokenTotals.ofRun(prompt, completion), TokenTotals::plus);
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now();
+    }
+}
@@ -0,0 +1,87 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.ToolResultBudgetProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 도구 결과가 도구별 예산을 넘으면 반복 줄을 요약하고 앞/뒤를 보존한 채 잘라냅니다.
+ * 콘솔 로그, 네트워크 덤프 등 대용량 결과가 그대로 컨텍스트에 들어가는 것을 막습니다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ToolResultBudgetService {
+
+    private final ToolResultBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public String apply(String toolName, String text) {
+        int maxChars = properties.maxCharsFor(toolName);
+        if (!properties.isEnabled() || text == null || maxChars <= 0 || text.length() <= maxChars) {
+            return text;
+        }
+
+        String budgeted = collapseRepeatedLines(text);
+        if (budgeted.length() > maxChars) {
+            budgeted = truncate(budgeted, maxChars, text.length());
+        }
+
+        long savedBytes = (long) text.getBytes(StandardCharsets.UTF_8).length
+            - budgeted.getBytes(StandardCharsets.UTF_8).length;
+        meterRegistry.counter("qa.tool.result.bytes.saved", "tool", toolName).increment(savedBytes);
+        meterRegistry.counter("qa.tool.result.truncated", "tool", toolName).increment();
+        log.debug("Tool {} result reduced from {} to {} chars", toolName, text.length(), budgeted.length());
+        return budgeted;
+    }
+
+    /**
+     * 연속으로 반복되는 동일한 줄을 한 줄과 반복 횟수로 요약합니다.
+     */
+    private String collapseRepeatedLines(String text) {
+        String[] lines = text.split("\n", -1);
+        StringBuilder sb = new StringBuilder(text.length());
+        int i = 0;
+        while (i < lines.length) {
+            int j = i + 1;
+            while (j < lines.length && lines[j].equals(lines[i])) {
+                j++;
+            }
+            sb.append(lines[i]);
+            if (j - i > 1) {
+                sb.append(" (repeated ").append(j - i).append(" times)");
+            }
+            if (j < lines.length) {
+                sb.append('\n');
+            }
+            i = j;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 앞/뒤 구간을 보존하고 가운데를 생략 표시로 대체합니다. 가능하면 줄 경계에서 자릅니다.
+     */
+    private String truncate(String text, int maxChars, int originalLength) {
+        int headChars = (int) (maxChars * properties.getHeadRatio());
+        int tailChars = maxChars - headChars;
+
+        int headEnd = text.lastIndexOf('\n', headChars);
+        if (headEnd < headChars / 2) {
+            headEnd = headChars;
+        }
+        int tailStart = text.indexOf('\n', text.length() - tailChars);
+        if (tailStart < 0 || tailStart - (text.length() - tailChars) > tailChars / 2) {
+            tailStart = text.length() - tailChars;
+        }
+
+        int omitted = tailStart - headEnd;
+        return text.substring(0, headEnd)
+            + "\n... [" + omitted + " of " + originalLength + " chars omitted to fit the tool result budget] ...\n"
+            + text.substring(tailStart);
+    }
+}
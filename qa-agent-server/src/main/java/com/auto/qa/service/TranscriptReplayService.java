@@ -0,0 +1,134 @@
+package com.auto.qa.service;
+
+import com.auto.qa.dto.ToolCallRecord;
+import com.auto.qa.dto.ToolTranscript;
+import com.auto.qa.tool.AccessibilitySnapshot;
+import com.auto.qa.tool.McpToolResults;
+import com.auto.qa.tool.QaToolCallback;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 기록된 도구 호출 순서를 모델 없이 MCP에 직접 재실행합니다.
+ * 각 단계의 대상 요소(ref)와 페이지 URL을 기록과 비교하고, 처음 달라지는 지점에서 멈춥니다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TranscriptReplayService {
+
+    // Report writes and browser teardown are not replayed; the run that follows produces its own
+    private static final Set<String> SKIPPED_TOOLS = Set.of(
+        "write_file", "edit_file", "create_directory", "move_file", "browser_close");
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param replayed 기록과 일치한 단계 수
+     * @param total 기록된 전체 단계 수
+     * @param divergence 불일치 사유 (끝까지 일치하면 null)
+     */
+    public record ReplayResult(int replayed, int total, String divergence) {
+        public boolean diverged() {
+            return divergence != null;
+        }
+    }
+
+    public ReplayResult replay(String runId, ToolTranscript transcript, List<QaToolCallback> tools) {
+        Map<String, QaToolCallback> toolsByName = tools.stream()
+            .collect(Collectors.toMap(tc -> tc.getToolDefinition().name(), Function.identity(), (a, b) -> a));
+        List<ToolCallRecord> calls = transcript.getCalls();
+
+        AccessibilitySnapshot recordedSnapshot = null;
+        AccessibilitySnapshot liveSnapshot = null;
+
+        for (int step = 0; step < calls.size(); step++) {
+            ToolCallRecord call = calls.get(step);
+            if (Thread.currentThread().isInterrupted()) {
+                return diverged(step, calls.size(), "replay interrupted");
+            }
+            if (SKIPPED_TOOLS.contains(call.tool())) {
+                continue;
+            }
+            QaToolCallback tool = toolsByName.get(call.tool());
+            if (tool == null) {
+                return diverged(step, calls.size(), "tool '" + call.tool() + "' is no longer available");
+            }
+
+            String targetMismatch = verifyTarget(call, recordedSnapshot, liveSnapshot);
+            if (targetMismatch != null) {
+                return diverged(step, calls.size(), targetMismatch);
+            }
+
+            String liveResult;
+            try {
+                // Instrumented like a model call: cancellable, recorded in the transcript, run events and artifacts
+                liveResult = tool.replay(runId, call.arguments());
+            } catch (CancellationException e) {
+                throw e;
+            } catch (Exception e) {
+                return diverged(step, calls.size(), call.tool() + " failed: " + e.getMessage());
+            }
+
+            String recordedText = McpToolResults.text(call.result());
+            String liveText = McpToolResults.text(liveResult);
+            Optional<String> recordedUrl = AccessibilitySnapshot.extractPageUrl(recordedText);
+            Optional<String> liveUrl = AccessibilitySnapshot.extractPageUrl(liveText);
+            if (recordedUrl.isPresent() && !recordedUrl.equals(liveUrl)) {
+                return diverged(step + 1, calls.size(), "page URL after " + call.tool() + " was "
+                    + liveUrl.orElse("unknown") + " instead of " + recordedUrl.get());
+            }
+
+            recordedSnapshot = AccessibilitySnapshot.extract(recordedText).orElse(recordedSnapshot);
+            liveSnapshot = AccessibilitySnapshot.extract(liveText).orElse(liveSnapshot);
+        }
+
+        meterRegistry.counter("qa.replay.runs", "outcome", "matched").increment();
+        log.info("Run {} replayed all {} recorded tool calls for test case {}", runId, calls.size(), transcript.getTestCaseId());
+        return new ReplayResult(calls.size(), calls.size(), null);
+    }
+
+    /**
+     * 요소를 대상으로 하는 호출이면, 기록 당시와 현재 스냅샷에서 같은 ref가 같은 역할/이름을 가리키는지 확인합니다.
+     */
+    private String verifyTarget(ToolCallRecord call, AccessibilitySnapshot recordedSnapshot, AccessibilitySnapshot liveSnapshot) {
+        if (recordedSnapshot == null || call.arguments() == null || !call.arguments().contains("\"ref\"")) {
+            return null;
+        }
+        String ref;
+        try {
+            JsonNode args = objectMapper.readTree(call.arguments());
+            ref = args.path("ref").asText(null);
+        } catch (Exception e) {
+            return null;
+        }
+        Optional<String> expected = ref == null ? Optional.empty() : recordedSnapshot.describeRef(ref);
+        if (expected.isEmpty()) {
+            return null;
+        }
+        Optional<String> actual = liveSnapshot == null ? Optional.empty() : liveSnapshot.describeRef(ref);
+        if (!expected.equals(actual)) {
+            return call.tool() + " target [ref=" + ref + "] is now '" + actual.orElse("missing") + "' instead of '" + expected.get() + "'";
+        }
+        return null;
+    }
+
+    private ReplayResult diverged(int replayed, int total, String reason) {
+        meterRegistry.counter("qa.replay.runs", "outcome", "diverged").increment();
+        log.info("Replay diverged after {}/{} steps: {}", replayed, total, reason);
+        return new ReplayResult(replayed, total, reason);
+    }
+}
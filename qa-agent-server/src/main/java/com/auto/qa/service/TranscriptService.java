@@ -0,0 +1,157 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.TranscriptProperties;
+import com.auto.qa.dto.ToolCallRecord;
+import com.auto.qa.dto.ToolTranscript;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 테스트 케이스 실행의 도구 호출 순서(도구, 인자, 결과)를 기록하고 저장합니다.
+ * 저장 형식은 gzip으로 압축한 JSON Lines입니다 (첫 줄은 헤더, 이후 한 줄에 호출 하나).
+ */
+@Slf4j
+@Service
+public class TranscriptService {
+
+    private static final String EXTENSION = ".jsonl.gz";
+
+    private final TranscriptProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Map<String, ToolTranscript> activeRecordings = new ConcurrentHashMap<>();
+
+    public TranscriptService(TranscriptProperties properties) {
+        this.properties = properties;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    /**
+     * 실행의 도구 호출 기록을 시작합니다. 기록이 시작된 실행만 record 호출이 저장됩니다.
+     */
+    public void begin(String runId, String testCaseId, String url, String model) {
+        activeRecordings.put(runId, ToolTranscript.builder()
+            .testCaseId(testCaseId)
+            .url(url)
+            .model(model)
+            .recordedAt(LocalDateTime.now())
+            .build());
+    }
+
+    public void record(String runId, String tool, String arguments, String result, long durationMs) {
+        if (runId == null) {
+            return;
+        }
+        ToolTranscript transcript = activeRecordings.get(runId);
+        if (transcript != null) {
+            synchronized (transcript) {
+                transcript.getCalls().add(new ToolCallRecord(tool, arguments, result, durationMs));
+            }
+        }
+    }
+
+    /**
+     * 기록을 종료합니다. persist가 true이면 테스트 케이스의 트랜스크립트를 교체 저장합니다.
+     * @return 저장된 트랜스크립트 (저장하지 않았으면 빈 값)
+     */
+    public Optional<ToolTranscript> complete(String runId, boolean persist) {
+        ToolTranscript transcript = activeRecordings.remove(runId);
+        if (transcript == null || !persist || transcript.getCalls().isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            save(transcript);
+            return Optional.of(transcript);
+        } catch (IOException e) {
+            log.error("Failed to save transcript for test case {}", transcript.getTestCaseId(), e);
+            return Optional.empty();
+        }
+    }
+
+    public Optional<ToolTranscript> load(String testCaseId) {
+        Path path = transcriptPath(testCaseId);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null) {
+                return Optional.empty();
+            }
+            ToolTranscript transcript = objectMapper.readValue(header, ToolTranscript.class);
+            List<ToolCallRecord> calls = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    calls.add(objectMapper.readValue(line, ToolCallRecord.class));
+                }
+            }
+            transcript.setCalls(calls);
+            return Optional.of(transcript);
+        } catch (IOException e) {
+            log.error("Failed to read transcript: {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    public void delete(String testCaseId) {
+        try {
+            Files.deleteIfExists(transcriptPath(testCaseId));
+        } catch (IOException e) {
+            log.warn("Failed to delete transcript for test case {}: {}", testCaseId, e.getMessage());
+        }
+    }
+
+    private void save(ToolTranscript transcript) throws IOException {
+        Path path = transcriptPath(transcript.getTestCaseId());
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(path.getParent(), "transcript", ".tmp");
+
+        ToolTranscript header = ToolTranscript.builder()
+            .testCaseId(transcript.getTestCaseId())
+            .url(transcript.getUrl())
+            .model(transcript.getModel())
+            .recordedAt(transcript.getRecordedAt())
+            .calls(List.of())
+            .build();
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+            writer.write(objectMapper.writeValueAsString(header));
+            writer.newLine();
+            for (ToolCallRecord call : transcript.getCalls()) {
+                writer.write(objectMapper.writeValueAsString(call));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Saved transcript with {} tool calls for test case {}", transcript.getCalls().size(), transcript.getTestCaseId());
+    }
+
+    private Path transcriptPath(String testCaseId) {
+        return Paths.get(properties.getDirectory(), testCaseId + EXTENSION);
+    }
+}
@@ -0,0 +1,356 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.WebSocketOutboundProperties;
+import com.auto.qa.config.WebSocketOutboundProperties.SlowConsumerPolicy;
+import com.auto.qa.dto.ChatResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * WebSocket(STOMP) 세션별 송신 버퍼.
+ * 실행 스트림과 브로커 사이에서 세션마다 청크를 제한된 수만큼만 쌓아 두고, 소켓에 실제로 쓰인 만큼만 브로커에 넘깁니다.
+ * 버퍼가 가득 차면 설정된 정책(청크 병합, 진행 안내 제거, 연결 종료)을 적용하며, 그래도 차 있으면 모델 스트림에 요청하지 않아
+ * 느린 클라이언트의 속도에 맞춰 스트림이 멈춥니다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WebSocketOutboundService {
+
+    // STOMP command line of the frames that carry broker messages to the client
+    private static final String MESSAGE_FRAME = "MESSAGE\n";
+
+    private final WebSocketOutboundProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    /** 연결된 WebSocket 세션의 송신 상태 */
+    private final class SessionState {
+        private final WebSocketSession session;
+        // MESSAGE frames handed to the client outbound channel but not yet written to the socket
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final List<Meter> meters;
+        private volatile SessionOutbound outbound;
+
+        private SessionState(WebSocketSession session) {
+            this.session = session;
+            this.meters = List.of(
+                Gauge.builder("qa.websocket.outbound.queued", this, state -> state.outbound != null ? state.outbound.queued() : 0)
+                    .tag("session", session.getId()).register(meterRegistry),
+                Gauge.builder("qa.websocket.outbound.inflight", inFlight, AtomicInteger::get)
+                    .tag("session", session.getId()).register(meterRegistry));
+        }
+
+        private void written() {
+            inFlight.decrementAndGet();
+            SessionOutbound current = outbound;
+            if (current != null) {
+                current.drain();
+            }
+        }
+    }
+
+    /**
+     * 세션으로 보낼 스트림을 송신 버퍼를 거쳐 구독합니다.
+     * @param payloads 세션에 보낼 메시지 (오류/완료 메시지까지 포함한 스트림)
+     * @param sender 메시지 하나를 브로커에 넘기는 함수
+     * @return 구독 (취소하면 버퍼에 남은 메시지도 버림)
+     */
+    public Disposable stream(String sessionId, Flux<?> payloads, Consumer<Object> sender) {
+        SessionState state = sessions.get(sessionId);
+        if (!properties.isEnabled() || state == null) {
+            return payloads.subscribe(sender);
+        }
+        SessionOutbound outbound = new SessionOutbound(state, sender);
+        state.outbound = outbound;
+        payloads.subscribe(outbound);
+        return outbound;
+    }
+
+    /**
+     * 브로커가 세션으로 보내는 MESSAGE 프레임 수를 세는 인터셉터 (clientOutboundChannel용)
+     */
+    public ChannelInterceptor outboundChannelInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                    SessionState state = sessions.get(String.valueOf(SimpMessageHeaderAccessor.getSessionId(message.getHeaders())));
+                    if (state != null) {
+                        state.inFlight.incrementAndGet();
+                    }
+                }
+                return message;
+            }
+        };
+    }
+
+    /**
+     * STOMP 핸들러를 감싸 세션의 연결/종료와 소켓에 실제로 쓰인 MESSAGE 프레임을 추적합니다.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionState state = new SessionState(session);
+                sessions.put(session.getId(), state);
+                super.afterConnectionEstablished(new WebSocketSessionDecorator(session) {
+                    @Override
+                    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+                        try {
+                            super.sendMessage(message);
+                        } finally {
+                            if (isMessageFrame(message)) {
+                                state.written();
+                            }
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                try {
+                    super.afterConnectionClosed(session, closeStatus);
+                } finally {
+                    SessionState state = sessions.remove(session.getId());
+                    if (state != null) {
+                        state.meters.forEach(meterRegistry::remove);
+                        SessionOutbound outbound = state.outbound;
+                        if (outbound != null) {
+                            outbound.dispose();
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    private static boolean isMessageFrame(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage text) {
+            return text.getPayload().startsWith(MESSAGE_FRAME);
+        }
+        if (message instanceof BinaryMessage binary && binary.getPayloadLength() >= MESSAGE_FRAME.length()) {
+            byte[] head = new byte[MESSAGE_FRAME.length()];
+            binary.getPayload().duplicate().get(head);
+            return MESSAGE_FRAME.equals(new String(head, StandardCharsets.US_ASCII));
+        }
+        return false;
+    }
+
+    /**
+     * 세션 하나의 스트림 구독. 모델 스트림에는 버퍼에 남은 자리만큼만 요청하고,
+     * 소켓에 쓰이지 않은 프레임이 maxInFlight 미만일 때만 브로커로 넘깁니다.
+     */
+    private final class SessionOutbound extends BaseSubscriber<Object> {
+        private final SessionState state;
+        private final Consumer<Object> sender;
+        private final Deque<Object> queue = new ArrayDeque<>();
+        // Serializes drain(): only one thread hands messages to the broker and requests upstream at a time
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicInteger toRequest = new AtomicInteger();
+        private volatile boolean upstreamDone;
+        // Set when the buffer fills up, cleared once it has drained completely
+        private volatile boolean full;
+        // Logged once per stream; later stalls only count
+        private boolean stalled;
+        private volatile long fullSince;
+
+        private SessionOutbound(SessionState state, Consumer<Object> sender) {
+            this.state = state;
+            this.sender = sender;
+        }
+
+        private int queued() {
+            synchronized (queue) {
+                return queue.size();
+            }
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(properties.getBufferSize());
+        }
+
+        @Override
+        protected void hookOnNext(Object payload) {
+            synchronized (queue) {
+                queue.addLast(payload);
+                if (queue.size() >= properties.getBufferSize()) {
+                    onFull();
+                }
+            }
+            drain();
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            // The caller maps errors to an error message; anything left is a bug upstream
+            log.error("WebSocket stream for session {} failed", state.session.getId(), throwable);
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        protected void hookFinally(SignalType type) {
+            if (type == SignalType.CANCEL) {
+                synchronized (queue) {
+                    queue.clear();
+                }
+                detach();
+            }
+        }
+
+        /** 버퍼가 가득 찼을 때 정책에 따라 자리를 만듭니다 (queue 잠금 안에서 호출). */
+        private void onFull() {
+            SlowConsumerPolicy policy = properties.getPolicy();
+            int before = queue.size();
+            if (policy == SlowConsumerPolicy.MERGE) {
+                mergeQueued();
+            } else if (policy == SlowConsumerPolicy.DROP_PROGRESS) {
+                queue.removeIf(payload -> payload instanceof ChatResponse chunk && !chunk.done()
+                    && chunk.content() != null && chunk.content().startsWith(ActiveRunRegistry.NOTICE_PREFIX));
+                meterRegistry.counter("qa.websocket.outbound.dropped").increment(before - queue.size());
+            }
+            int freed = before - queue.size();
+            if (freed > 0) {
+                toRequest.addAndGet(freed);
+                return;
+            }
+            // Nothing to free: stop requesting until the client catches up
+            if (!full) {
+                full = true;
+                fullSince = System.nanoTime();
+                meterRegistry.counter("qa.websocket.outbound.stalls").increment();
+                if (!stalled) {
+                    stalled = true;
+                    log.warn("WebSocket session {} is a slow consumer ({} chunks buffered, {} in flight); pausing the stream",
+                        state.session.getId(), queue.size(), state.inFlight.get());
+                }
+                if (policy == SlowConsumerPolicy.DISCONNECT) {
+                    long timeout = properties.getDisconnectAfter().toNanos();
+                    Schedulers.parallel().schedule(this::disconnectIfStalled, timeout, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        /** 이어 붙일 수 있는 텍스트 청크(같은 모델, 완료 전)를 하나로 합칩니다. */
+        private void mergeQueued() {
+            Deque<Object> merged = new ArrayDeque<>(queue.size());
+            for (Iterator<Object> it = queue.iterator(); it.hasNext(); ) {
+                Object payload = it.next();
+                if (merged.peekLast() instanceof ChatResponse last && payload instanceof ChatResponse chunk
+                        && !last.done() && !chunk.done() && Objects.equals(last.model(), chunk.model())) {
+                    merged.pollLast();
+                    merged.addLast(new ChatResponse(last.content() + chunk.content(), false, last.model()));
+                } else {
+                    merged.addLast(payload);
+                }
+            }
+            meterRegistry.counter("qa.websocket.outbound.merged").increment(queue.size() - merged.size());
+            queue.clear();
+            queue.addAll(merged);
+        }
+
+        private void disconnectIfStalled() {
+            if (!full || isDisposed() || System.nanoTime() - fullSince < properties.getDisconnectAfter().toNanos()) {
+                return;
+            }
+            log.warn("Disconnecting WebSocket session {}: outbound buffer full for {}s",
+                state.session.getId(), properties.getDisconnectAfter().toSeconds());
+            meterRegistry.counter("qa.websocket.outbound.disconnects").increment();
+            dispose();
+            try {
+                // The disconnect event cancels the session's run
+                state.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                log.debug("Failed to close WebSocket session {}", state.session.getId(), e);
+            }
+        }
+
+        /** 소켓 쓰기 여유가 있는 만큼 브로커로 넘기고, 비운 자리만큼 모델 스트림에 요청합니다. */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (state.inFlight.get() < properties.getMaxInFlight()) {
+                    Object payload;
+                    synchronized (queue) {
+                        payload = queue.pollFirst();
+                        // A client that keeps the buffer from ever emptying is still behind
+                        if (queue.isEmpty()) {
+                            full = false;
+                        }
+                    }
+                    if (payload == null) {
+                        break;
+                    }
+                    toRequest.incrementAndGet();
+                    try {
+                        sender.accept(payload);
+                    } catch (RuntimeException e) {
+                        log.warn("Failed to send to WebSocket session {}", state.session.getId(), e);
+                    }
+                }
+                if (upstreamDone && queued() == 0) {
+                    detach();
+                    return;
+                }
+                int n = toRequest.getAndSet(0);
+                if (n > 0 && !upstreamDone && !isDisposed()) {
+                    request(n);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private void detach() {
+            if (state.outbound == this) {
+                state.outbound = null;
+            }
+        }
+    }
+}
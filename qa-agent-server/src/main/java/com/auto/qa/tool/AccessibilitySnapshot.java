@@ -0,0 +1,208 @@
+package com.auto.qa.tool;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Playwright MCP가 반환하는 YAML 형식 접근성 트리 스냅샷.
+ * 각 노드는 ref 속성이 있으면 ref로, 없으면 부모 경로 + 텍스트로 식별됩니다.
+ */
+public final class AccessibilitySnapshot {
+
+    private static final Pattern REF_PATTERN = Pattern.compile("\\[ref=([^\\]]+)]");
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile("\\s*\\[[^\\]]*]");
+    private static final Pattern SNAPSHOT_BLOCK = Pattern.compile("(- Page Snapshot:?\\s*\\n```yaml\\n)(.*?)(\\n```)", Pattern.DOTALL);
+    private static final Pattern ROLE_PATTERN = Pattern.compile("^-?\\s*([A-Za-z/]+)");
+    private static final Pattern PAGE_URL = Pattern.compile("- Page URL:\\s*(\\S+)");
+
+    public record Node(String id, String line, String parentId) {}
+
+    public record Delta(List<Node> added, List<Node> removed, List<Node> changed, int unchanged) {
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+    }
+
+    private final Map<String, Node> nodes;
+
+    private AccessibilitySnapshot(Map<String, Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    public static AccessibilitySnapshot parse(String yaml) {
+        Map<String, Node> nodes = new LinkedHashMap<>();
+        // Indents and ids of the current ancestor chain
+        Deque<Integer> indentStack = new ArrayDeque<>();
+        Deque<String> idStack = new ArrayDeque<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+
+        for (String rawLine : yaml.split("\n")) {
+            if (rawLine.isBlank()) {
+                continue;
+            }
+            int indent = rawLine.length() - rawLine.stripLeading().length();
+            String line = rawLine.strip();
+
+            while (!indentStack.isEmpty() && indentStack.peek() >= indent) {
+                indentStack.pop();
+                idStack.pop();
+            }
+            String parentId = idStack.isEmpty() ? "" : idStack.peek();
+
+            String id;
+            Matcher refMatcher = REF_PATTERN.matcher(line);
+            if (refMatcher.find()) {
+                id = "ref:" + refMatcher.group(1);
+            } else {
+                String base = parentId + "/" + line;
+                int occurrence = occurrences.merge(base, 1, Integer::sum);
+                id = base + "#" + occurrence;
+            }
+
+            nodes.putIfAbsent(id, new Node(id, line, parentId));
+            indentStack.push(indent);
+            idStack.push(id);
+        }
+        return new AccessibilitySnapshot(nodes);
+    }
+
+    /**
+     * 도구 결과 텍스트에서 스냅샷 YAML 블록 위치를 찾습니다.
+     */
+    public static Matcher findBlock(String toolResultText) {
+        Matcher matcher = SNAPSHOT_BLOCK.matcher(toolResultText);
+        return matcher.find() ? matcher : null;
+    }
+
+    public static Optional<AccessibilitySnapshot> extract(String toolResultText) {
+        Matcher matcher = toolResultText == null ? null : findBlock(toolResultText);
+        return matcher == null ? Optional.empty() : Optional.of(parse(matcher.group(2)));
+    }
+
+    public static Optional<String> extractPageUrl(String toolResultText) {
+        if (toolResultText == null) {
+            return Optional.empty();
+        }
+        Matcher matcher = PAGE_URL.matcher(toolResultText);
+        return matcher.find() ? Optional.of(matcher.group(1)) : Optional.empty();
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * ref로 노드를 찾아 역할과 이름만 남긴 형태(속성 제거)로 반환합니다.
+     */
+    public Optional<String> describeRef(String ref) {
+        Node node = nodes.get("ref:" + ref);
+        return node == null ? Optional.empty() : Optional.of(ATTRIBUTE_PATTERN.matcher(node.line()).replaceAll("").strip());
+    }
+
+    /**
+     * 역할과 이름(describeRef 형식)이 일치하는 모든 노드의 ref를 문서 순서대로 찾습니다.
+     */
+    public List<String> findRefs(String description) {
+        List<String> refs = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (node.id().startsWith("ref:") && ATTRIBUTE_PATTERN.matcher(node.line()).replaceAll("").strip().equals(description)) {
+                refs.add(node.id().substring("ref:".length()));
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * 페이지 구조 지문. 텍스트와 ref, 반복 횟수에 영향을 받지 않도록 (부모 역할 > 역할) 쌍의 집합만 해시합니다.
+     */
+    public String fingerprint() {
+        Set<String> edges = new TreeSet<>();
+        for (Node node : nodes.values()) {
+            Node parent = nodes.get(node.parentId());
+            edges.add((parent == null ? "" : role(parent.line())) + ">" + role(node.line()));
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(String.join("\n", edges).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String role(String line) {
+        Matcher matcher = ROLE_PATTERN.matcher(line);
+        return matcher.find() ? matcher.group(1) : "";
+    }
+
+    /**
+     * 이전 스냅샷 대비 추가/삭제/변경된 노드를 계산합니다.
+     */
+    public Delta diff(AccessibilitySnapshot previous) {
+        List<Node> added = new ArrayList<>();
+        List<Node> changed = new ArrayList<>();
+        int unchanged = 0;
+
+        for (Node node : nodes.values()) {
+            Node before = previous.nodes.get(node.id());
+            if (before == null) {
+                added.add(node);
+            } else if (!before.line().equals(node.line())) {
+                changed.add(node);
+            } else {
+                unchanged++;
+            }
+        }
+
+        List<Node> removed = new ArrayList<>();
+        for (Node node : previous.nodes.values()) {
+            if (!nodes.containsKey(node.id())) {
+                removed.add(node);
+            }
+        }
+        return new Delta(added, removed, changed, unchanged);
+    }
+
+    /**
+     * 델타를 모델에 전달할 간결한 YAML 텍스트로 변환합니다.
+     */
+    public String render(Delta delta) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("# delta: +%d added, -%d removed, ~%d changed, %d unchanged omitted\n",
+            delta.added().size(), delta.removed().size(), delta.changed().size(), delta.unchanged()));
+        appendSection(sb, "added", delta.added(), true);
+        appendSection(sb, "changed", delta.changed(), true);
+        appendSection(sb, "removed", delta.removed(), false);
+        return sb.toString().stripTrailing();
+    }
+
+    private void appendSection(StringBuilder sb, String title, List<Node> section, boolean withParent) {
+        if (section.isEmpty()) {
+            return;
+        }
+        sb.append(title).append(":\n");
+        for (Node node : section) {
+            sb.append("  ").append(node.line());
+            if (withParent) {
+                Node parent = nodes.get(node.parentId());
+                if (parent != null) {
+                    sb.append("  # in: ").append(parent.line());
+                }
+            }
+            sb.append('\n');
+        }
+    }
+}
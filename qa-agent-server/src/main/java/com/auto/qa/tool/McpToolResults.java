@@ -0,0 +1,48 @@
+package com.auto.qa.tool;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+/**
+ * MCP 도구 결과(JSON content 배열) 처리 유틸리티
+ */
+public final class McpToolResults {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private McpToolResults() {
+    }
+
+    /**
+     * content 배열의 text 항목을 이어 붙여 반환합니다. JSON 배열이 아니면 원문을 반환합니다.
+     */
+    public static String text(String result) {
+        if (result == null) {
+            return null;
+        }
+        String trimmed = result.trim();
+        if (!trimmed.startsWith("[")) {
+            return result;
+        }
+        try {
+            JsonNode root = OBJECT_MAPPER.readTree(trimmed);
+            if (!(root instanceof ArrayNode contents)) {
+                return result;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (JsonNode content : contents) {
+                if ("text".equals(content.path("type").asText())) {
+                    if (!sb.isEmpty()) {
+                        sb.append('\n');
+                    }
+                    sb.append(content.path("text").asText());
+                }
+            }
+            return sb.toString();
+        } catch (JsonProcessingException e) {
+            return result;
+        }
+    }
+}
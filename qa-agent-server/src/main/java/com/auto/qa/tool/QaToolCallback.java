@@ -0,0 +1,261 @@
+package com.auto.qa.tool;
+
+import com.auto.qa.dto.ArtifactRef;
+import com.auto.qa.dto.RunEvent;
+import com.auto.qa.service.ActiveRunRegistry;
+import com.auto.qa.service.ArtifactStore;
+import com.auto.qa.service.ConversationMemoryService;
+import com.auto.qa.service.RunEventLog;
+import com.auto.qa.service.RunStatsService;
+import com.auto.qa.service.SnapshotDiffService;
+import com.auto.qa.service.ToolResultBudgetService;
+import com.auto.qa.service.TranscriptService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.UnaryOperator;
+
+/**
+ * MCP 도구 콜백 래퍼.
+ * 미리 정규화된 도구 정의를 제공하고, 도구 결과를 JSON으로 감싸며,
+ * 실행(run) 단위 후처리(트랜스크립트 기록, 아티팩트 저장, 스냅샷 델타, 결과 크기 예산)를 적용합니다.
+ * 인스턴스는 {@link QaToolCallbackFactory}를 통해 생성합니다.
+ */
+public class QaToolCallback implements ToolCallback {
+
+    /** ChatClient toolContext에 실행 ID를 담는 키 */
+    public static final String RUN_ID_KEY = "qaRunId";
+
+    /** browser_snapshot 전체 트리 강제 인자 (MCP 서버로는 전달되지 않음) */
+    public static final String FULL_SNAPSHOT_ARG = "fullSnapshot";
+
+    public static final String SNAPSHOT_TOOL = "browser_snapshot";
+
+    private final ToolCallback delegate;
+    private final ToolDefinition toolDefinition;
+    private final Services services;
+
+    /**
+     * 모든 래퍼가 공유하는 협력 객체 묶음 ({@link QaToolCallbackFactory}가 한 번 만들어 전달)
+     */
+    record Services(ObjectMapper objectMapper,
+                    SnapshotDiffService snapshotDiffService,
+                    ToolResultBudgetService toolResultBudgetService,
+                    TranscriptService transcriptService,
+                    ActiveRunRegistry activeRunRegistry,
+                    RunStatsService runStatsService,
+                    RunEventLog runEventLog,
+                    ConversationMemoryService conversationMemoryService,
+                    ArtifactStore artifactStore) {
+    }
+
+    QaToolCallback(ToolCallback delegate, ToolDefinition toolDefinition, Services services) {
+        this.delegate = delegate;
+        this.toolDefinition = toolDefinition;
+        this.services = services;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return toolDefinition;
+    }
+
+    @Override
+    public String call(String input) {
+        return call(input, null);
+    }
+
+    @Override
+    public String call(String input, ToolContext toolContext) {
+        String runId = runId(toolContext);
+        try {
+            boolean forceFull = false;
+            String toolInput = input;
+            String toolName = toolDefinition.name();
+            if (SNAPSHOT_TOOL.equals(toolName) && input != null && input.contains(FULL_SNAPSHOT_ARG)) {
+                ObjectNode args = (ObjectNode) services.objectMapper().readTree(input);
+                forceFull = args.path(FULL_SNAPSHOT_ARG).asBoolean(false);
+                args.remove(FULL_SNAPSHOT_ARG);
+                toolInput = services.objectMapper().writeValueAsString(args);
+            }
+
+            String result = invoke(runId, toolInput);
+            if (result == null) return "{\"error\": \"null result\"}";
+
+            boolean fullSnapshot = forceFull;
+            result = transformText(result, text -> {
+                String compacted = services.snapshotDiffService().compact(runId, text, fullSnapshot);
+                // The model asked for the whole tree because it needs refs a cut would drop, so it is never budgeted
+                return fullSnapshot ? compacted : services.toolResultBudgetService().apply(toolName, compacted);
+            });
+
+            String trimmed = result.trim();
+            if ((trimmed.startsWith("{") && trimmed.endsWith("}")) ||
+                    (trimmed.startsWith("[") && trimmed.endsWith("]"))) {
+                return result;
+            }
+
+            Map<String, String> wrapMap = new HashMap<>();
+            wrapMap.put("result", result);
+            return services.objectMapper().writeValueAsString(wrapMap);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            if (stopped(runId, e)) {
+                // Reported to the model as a tool error, the run would go on calling the model after it was stopped
+                throw cancellation(runId, e);
+            }
+            try {
+                Map<String, String> errorMap = new HashMap<>();
+                errorMap.put("error", e.getMessage());
+                return services.objectMapper().writeValueAsString(errorMap);
+            } catch (Exception ex) {
+                return "{\"error\": \"Tool call failed and could not be serialized\"}";
+            }
+        }
+    }
+
+    /**
+     * 모델 없이 기록된 호출을 다시 실행합니다 (트랜스크립트 재생, 매크로).
+     * 실행 취소, 실행 이벤트, 아티팩트 저장, 트랜스크립트 기록은 모델의 호출과 똑같이 적용하고,
+     * 결과는 기록과 비교할 수 있도록 후처리 없이 원본 그대로 반환합니다. 도구 오류는 예외로 전달됩니다.
+     */
+    public String replay(String runId, String input) {
+        String result;
+        try {
+            result = invoke(runId, input);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if (stopped(runId, e)) {
+                throw cancellation(runId, e);
+            }
+            throw e;
+        }
+        if (result == null) {
+            throw new IllegalStateException(toolDefinition.name() + " returned no result");
+        }
+        return result;
+    }
+
+    /**
+     * 후처리 없이 원본 MCP 도구를 호출합니다 (실행에 속하지 않는 정리 작업용).
+     */
+    public String callDelegate(String input) {
+        return delegate.call(input);
+    }
+
+    /**
+     * 실행 단위 계측(취소 등록, 통계, 실행 이벤트, 아티팩트, 트랜스크립트, 보고서, 대화 메모리)을 적용해 원본 도구를 호출합니다.
+     */
+    private String invoke(String runId, String toolInput) {
+        String toolName = toolDefinition.name();
+        long start = System.currentTimeMillis();
+        String result;
+        // Registered so that cancelling the run interrupts this call instead of waiting for the MCP timeout
+        services.activeRunRegistry().beforeToolCall(runId, toolName);
+        services.runStatsService().recordToolCall(runId);
+        services.runEventLog().append(RunEvent.toolCallBegin(runId, toolName));
+        String error = null;
+        List<ArtifactRef> artifacts = List.of();
+        try {
+            result = delegate.call(toolInput);
+            // Screenshots and snapshots go to the artifact store; the run event only keeps their hashes
+            artifacts = services.artifactStore().capture(runId, toolName, result);
+        } catch (RuntimeException e) {
+            error = String.valueOf(e.getMessage());
+            throw e;
+        } finally {
+            services.activeRunRegistry().afterToolCall(runId);
+            services.runEventLog().append(RunEvent.toolCallEnd(runId, toolName, System.currentTimeMillis() - start, error, artifacts));
+        }
+        if (result == null) {
+            return null;
+        }
+        services.transcriptService().record(runId, toolName, toolInput, result, System.currentTimeMillis() - start);
+        services.artifactStore().recordReport(runId, toolName, toolInput);
+        services.conversationMemoryService().recordToolCall(runId, toolName, toolInput, result);
+        return result;
+    }
+
+    private boolean stopped(String runId, Exception error) {
+        return interrupted(error) || services.activeRunRegistry().isCancelled(runId);
+    }
+
+    private CancellationException cancellation(String runId, Exception error) {
+        CancellationException cancelled = new CancellationException("Run " + runId + " was stopped during " + toolDefinition.name());
+        cancelled.initCause(error);
+        return cancelled;
+    }
+
+    public static String runId(ToolContext toolContext) {
+        if (toolContext == null || toolContext.getContext() == null) {
+            return null;
+        }
+        Object runId = toolContext.getContext().get(RUN_ID_KEY);
+        return runId != null ? runId.toString() : null;
+    }
+
+    /**
+     * 모델 요청의 toolContext에 담긴 실행 ID
+     */
+    public static String runId(Prompt prompt) {
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options && options.getToolContext() != null) {
+            Object runId = options.getToolContext().get(RUN_ID_KEY);
+            return runId != null ? runId.toString() : null;
+        }
+        return null;
+    }
+
+    private static boolean interrupted(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * MCP 결과(JSON content 배열)의 text 항목에 변환을 적용합니다. JSON이 아니면 전체 문자열에 적용합니다.
+     */
+    private String transformText(String result, UnaryOperator<String> transform) throws Exception {
+        String trimmed = result.trim();
+        if (!trimmed.startsWith("[")) {
+            return transform.apply(result);
+        }
+        JsonNode root;
+        try {
+            root = services.objectMapper().readTree(trimmed);
+        } catch (JsonProcessingException e) {
+            return transform.apply(result);
+        }
+        if (!(root instanceof ArrayNode contents)) {
+            return result;
+        }
+        boolean modified = false;
+        for (JsonNode content : contents) {
+            if (content instanceof ObjectNode part && "text".equals(part.path("type").asText()) && part.has("text")) {
+                String original = part.get("text").asText();
+                String transformed = transform.apply(original);
+                if (!original.equals(transformed)) {
+                    part.put("text", transformed);
+                    modified = true;
+                }
+            }
+        }
+        return modified ? services.objectMapper().writeValueAsString(contents) : result;
+    }
+}
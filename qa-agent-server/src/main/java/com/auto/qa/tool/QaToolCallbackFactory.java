@@ -0,0 +1,142 @@
+package com.auto.qa.tool;
+
+import com.auto.qa.service.ActiveRunRegistry;
+import com.auto.qa.service.ArtifactStore;
+import com.auto.qa.service.ConversationMemoryService;
+import com.auto.qa.service.RunEventLog;
+import com.auto.qa.service.RunStatsService;
+import com.auto.qa.service.SnapshotDiffService;
+import com.auto.qa.service.ToolResultBudgetService;
+import com.auto.qa.service.TranscriptService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * MCP 도구 콜백을 QaToolCallback으로 감쌉니다.
+ * 정규화된 도구 정의는 도구 이름과 입력 스키마별로 한 번만 계산하여 재사용합니다.
+ */
+@Slf4j
+@Component
+public class QaToolCallbackFactory {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final QaToolCallback.Services services;
+
+    // Keyed by tool name and schema rather than by callback, so closed MCP clients are not kept reachable from here;
+    // the number of entries is bounded by the distinct tool definitions the MCP servers expose
+    private final Map<String, ToolDefinition> definitions = new ConcurrentHashMap<>();
+
+    public QaToolCallbackFactory(SnapshotDiffService snapshotDiffService,
+                                 ToolResultBudgetService toolResultBudgetService,
+                                 TranscriptService transcriptService,
+                                 ActiveRunRegistry activeRunRegistry,
+                                 RunStatsService runStatsService,
+                                 RunEventLog runEventLog,
+                                 ConversationMemoryService conversationMemoryService,
+                                 ArtifactStore artifactStore) {
+        this.services = new QaToolCallback.Services(objectMapper, snapshotDiffService, toolResultBudgetService, transcriptService,
+            activeRunRegistry, runStatsService, runEventLog, conversationMemoryService, artifactStore);
+    }
+
+    /**
+     * 원본 provider의 콜백을 감싼 provider를 반환합니다.
+     * 원본 콜백이 바뀌지 않는 동안은 마지막으로 감싼 콜백을 재사용하여 요청마다 재생성되지 않습니다.
+     */
+    public ToolCallbackProvider wrap(ToolCallbackProvider provider) {
+        AtomicReference<Wrapped> last = new AtomicReference<>();
+        return () -> {
+            ToolCallback[] delegates = provider.getToolCallbacks();
+            Wrapped cached = last.get();
+            if (cached != null && cached.sameDelegates(delegates)) {
+                return cached.callbacks().clone();
+            }
+            Wrapped wrapped = new Wrapped(delegates.clone(), Arrays.stream(delegates).map(this::wrap).toArray(ToolCallback[]::new));
+            last.set(wrapped);
+            return wrapped.callbacks().clone();
+        };
+    }
+
+    /**
+     * 원본 콜백 하나를 감쌉니다. 감싼 콜백은 호출자가 보관하며 (예: BrowserSession), 원본과 함께 버려집니다.
+     */
+    public QaToolCallback wrap(ToolCallback delegate) {
+        if (delegate instanceof QaToolCallback wrapped) {
+            return wrapped;
+        }
+        return new QaToolCallback(delegate, definition(delegate.getToolDefinition()), services);
+    }
+
+    private ToolDefinition definition(ToolDefinition original) {
+        return definitions.computeIfAbsent(original.name() + '\n' + original.inputSchema(), key -> normalize(original));
+    }
+
+    /**
+     * provider가 마지막으로 돌려준 원본 콜백과 그 래퍼 (provider당 최신 한 벌만 보관)
+     */
+    private record Wrapped(ToolCallback[] delegates, ToolCallback[] callbacks) {
+
+        boolean sameDelegates(ToolCallback[] other) {
+            if (other.length != delegates.length) {
+                return false;
+            }
+            for (int i = 0; i < other.length; i++) {
+                if (other[i] != delegates[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 모델 호환성을 위해 입력 스키마를 정규화합니다 (타입 배열 → 첫 번째 타입, browser_snapshot 전체 트리 인자 추가).
+     */
+    @SuppressWarnings("unchecked")
+    ToolDefinition normalize(ToolDefinition original) {
+        String schemaJson = original.inputSchema();
+        try {
+            Map<String, Object> schemaMap = objectMapper.readValue(schemaJson, new TypeReference<Map<String, Object>>() {});
+            if (schemaMap.containsKey("properties") && schemaMap.get("properties") instanceof Map) {
+                Map<String, Object> props = (Map<String, Object>) schemaMap.get("properties");
+                for (Map.Entry<String, Object> entry : props.entrySet()) {
+                    if (entry.getValue() instanceof Map) {
+                        Map<String, Object> propDetails = (Map<String, Object>) entry.getValue();
+                        if (propDetails.get("type") instanceof List) {
+                            List<?> types = (List<?>) propDetails.get("type");
+                            if (!types.isEmpty()) {
+                                propDetails.put("type", types.get(0));
+                            }
+                        }
+                    }
+                }
+            }
+            if (QaToolCallback.SNAPSHOT_TOOL.equals(original.name())) {
+                Map<String, Object> props = (Map<String, Object>) schemaMap.computeIfAbsent("properties", k -> new LinkedHashMap<>());
+                props.put(QaToolCallback.FULL_SNAPSHOT_ARG, Map.of(
+                    "type", "boolean",
+                    "description", "Return the full accessibility tree instead of a delta against the previous snapshot"));
+            }
+            String newSchemaJson = objectMapper.writeValueAsString(schemaMap);
+            return ToolDefinition.builder()
+                .name(original.name())
+                .description(original.description())
+                .inputSchema(newSchemaJson)
+                .build();
+        } catch (Exception e) {
+            log.warn("Failed to normalize schema of tool {}: {}", original.name(), e.getMessage());
+            return original;
+        }
+    }
+}
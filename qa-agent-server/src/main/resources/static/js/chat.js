@@ -17,9 +17,14 @@ class QaAgentChat {
         this.promptHistoryModal = document.getElementById('promptHistoryModal');
         this.closeModalBtn = this.promptHistoryModal.querySelector('.close-button');
         this.promptList = document.getElementById('promptList');
+        this.promptSearch = document.getElementById('promptSearch');
+        this.promptMoreBtn = document.getElementById('promptMoreBtn');
+        this.promptCursor = null;
+        this.promptSearchTimer = null;
         
         this.connect();
         this.chatForm.addEventListener('submit', (e) => this.handleSubmit(e));
+        this.modelSelect.addEventListener('change', () => this.warmSelectedModel());
         
         // Auto-resize textarea
         this.userInput.addEventListener('input', () => {
@@ -38,6 +43,11 @@ class QaAgentChat {
         // Event listeners for the modal
         this.loadPromptBtn.addEventListener('click', () => this.openPromptHistoryModal());
         this.closeModalBtn.addEventListener('click', () => this.closePromptHistoryModal());
+        this.promptMoreBtn.addEventListener('click', () => this.fetchPromptFiles(true));
+        this.promptSearch.addEventListener('input', () => {
+            clearTimeout(this.promptSearchTimer);
+            this.promptSearchTimer = setTimeout(() => this.fetchPromptFiles(), 250);
+        });
         window.addEventListener('click', (event) => {
             if (event.target == this.promptHistoryModal) {
                 this.closePromptHistoryModal();
@@ -108,16 +118,36 @@ class QaAgentChat {
 
             models.forEach(model => {
                 const option = document.createElement('option');
-                option.value = model;
-                option.textContent = model;
+                option.value = model.name;
+                option.textContent = model.latencyMs != null
+                    ? `${model.name} (~${(model.latencyMs / 1000).toFixed(1)}s)`
+                    : model.name;
+                option.dataset.provider = model.provider;
+                option.dataset.warm = model.warm === true ? 'true' : 'false';
+                if (model.warm === true) {
+                    option.textContent += ' 🔥';
+                } else if (model.warm === false && model.available) {
+                    option.textContent += ' (로딩 필요)';
+                }
+                if (!model.available) {
+                    option.disabled = true;
+                    option.textContent += ' - 사용 불가';
+                    option.title = model.detail || '';
+                } else if (model.status === 'DEGRADED') {
+                    option.textContent += ' ⚠️';
+                    option.title = model.detail || '';
+                }
                 this.modelSelect.appendChild(option);
             });
             console.log('Loaded models:', models);
-            if (models && models.length > 0) {
-                if (models.includes('gemini-2.5-flash')) {
+            const available = models.filter(model => model.available).map(model => model.name);
+            // Prefer models that answer without a load delay
+            const ready = models.filter(model => model.available && model.warm !== false).map(model => model.name);
+            if (available.length > 0) {
+                if (available.includes('gemini-2.5-flash')) {
                     this.modelSelect.value = 'gemini-2.5-flash';
                 } else {
-                    this.modelSelect.value = models[0];
+                    this.modelSelect.value = ready.length > 0 ? ready[0] : available[0];
                 }
             }
             this.sendBtn.style.display = 'inline-block'; // Show send button after models are loaded
@@ -126,6 +156,19 @@ class QaAgentChat {
         }
     }
     
+    async warmSelectedModel() {
+        const option = this.modelSelect.selectedOptions[0];
+        if (!option || option.dataset.provider !== 'ollama' || option.dataset.warm === 'true') {
+            return;
+        }
+        try {
+            // Starts loading the model in the background while the user writes the request
+            await fetch('/api/models/warm?model=' + encodeURIComponent(option.value), { method: 'POST' });
+        } catch (error) {
+            console.warn('모델 예열 요청에 실패했습니다:', error);
+        }
+    }
+
     handleSubmit(e) {
         e.preventDefault();
         if (this.isProcessing) {
@@ -274,26 +317,46 @@ class QaAgentChat {
     closePromptHistoryModal() {
         this.promptHistoryModal.style.display = 'none';
         this.promptList.innerHTML = '';
+        this.promptSearch.value = '';
+        this.promptCursor = null;
+        this.promptMoreBtn.style.display = 'none';
     }
 
-    async fetchPromptFiles() {
+    async fetchPromptFiles(append = false) {
         try {
-            const response = await fetch('/api/prompts/history/files');
+            const params = new URLSearchParams({ limit: '50' });
+            const query = this.promptSearch.value.trim();
+            if (query) {
+                params.set('q', query);
+            }
+            if (append && this.promptCursor) {
+                params.set('cursor', this.promptCursor);
+            }
+            const response = await fetch(`/api/prompts/history?${params}`);
             if (!response.ok) {
                 throw new Error(`HTTP error! status: ${response.status}`);
             }
-            const files = await response.json();
-            this.promptList.innerHTML = '';
+            const page = await response.json();
+            if (!append) {
+                this.promptList.innerHTML = '';
+            }
+            this.promptCursor = page.nextCursor;
+            this.promptMoreBtn.style.display = page.nextCursor ? 'block' : 'none';
 
-            if (files.length === 0) {
+            if (page.items.length === 0 && !append) {
                 const listItem = document.createElement('li');
-                listItem.textContent = '저장된 프롬프트가 없습니다.';
+                listItem.textContent = query ? '검색 결과가 없습니다.' : '저장된 프롬프트가 없습니다.';
                 this.promptList.appendChild(listItem);
             } else {
-                files.forEach(filename => {
+                page.items.forEach(entry => {
                     const listItem = document.createElement('li');
-                    listItem.textContent = filename;
-                    listItem.addEventListener('click', () => this.loadPromptContent(filename));
+                    const time = document.createElement('span');
+                    time.className = 'prompt-time';
+                    time.textContent = new Date(entry.savedAt).toLocaleString('ko-KR');
+                    listItem.appendChild(time);
+                    listItem.appendChild(document.createTextNode(entry.preview || entry.filename));
+                    listItem.title = entry.filename;
+                    listItem.addEventListener('click', () => this.loadPromptContent(entry.filename));
                     this.promptList.appendChild(listItem);
                 });
             }
@@ -305,7 +368,7 @@ class QaAgentChat {
 
     async loadPromptContent(filename) {
         try {
-            const response = await fetch(`/api/prompts/history/content/${filename}`);
+            const response = await fetch(`/api/prompts/history/content/${encodeURIComponent(filename)}`);
             if (!response.ok) {
                 throw new Error(`HTTP error! status: ${response.status}`);
             }
@@ -0,0 +1,157 @@
+package com.auto.qa.config;
+
+import com.auto.qa.service.ActiveRunRegistry;
+import com.auto.qa.service.GeminiRateLimiter;
+import com.google.genai.Client;
+import com.google.genai.errors.ApiException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.google.genai.GoogleGenAiChatOptions;
+import org.springframework.ai.model.google.genai.autoconfigure.chat.GoogleGenAiConnectionProperties;
+import org.springframework.ai.model.tool.ToolCallingManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 분당 요청 한도가 있는 로컬 HTTP 서버를 Gemini API 대신 사용해, SDK 재시도를 끈 클라이언트와 모델별 한도가 함께 동작하는지 검증합니다.
+ */
+class RateLimitedGeminiChatModelTest {
+
+    private static final String MODEL = "gemini-2.5-flash";
+    private static final String API_KEY = "test-key";
+    // The stand-in serves this many requests per window and answers 429 to the rest
+    private static final int QUOTA = 4;
+    private static final long WINDOW_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private HttpServer server;
+    private final AtomicInteger served = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final List<String> apiKeys = new ArrayList<>();
+    private volatile boolean quotaExhausted;
+    private long windowStart;
+    private int windowRequests;
+
+    private GeminiRateLimitProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::generateContent);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        windowStart = System.nanoTime();
+        Client.setDefaultBaseUrls(Optional.of("http://127.0.0.1:" + server.getAddress().getPort()), Optional.empty());
+
+        // Matches the stand-in's sustained rate, but the 10s burst alone would overrun its window
+        properties = new GeminiRateLimitProperties();
+        properties.setRequestsPerMinute(QUOTA * 60);
+        properties.setTokensPerMinute(0);
+        properties.setMaxAttempts(10);
+        properties.setInitialBackoff(Duration.ofMillis(100));
+        properties.setMaxBackoff(Duration.ofSeconds(2));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Client.setDefaultBaseUrls(Optional.empty(), Optional.empty());
+        server.stop(0);
+    }
+
+    @Test
+    void clientWithoutSdkRetriesKeepsTheConnectionSettingsAndSendsEachRequestOnce() {
+        quotaExhausted = true;
+        Client client = AiConfig.withoutSdkRetries(connection());
+
+        assertThatThrownBy(() -> client.models.generateContent(MODEL, "hi", null))
+            .isInstanceOf(ApiException.class)
+            .satisfies(e -> assertThat(((ApiException) e).code()).isEqualTo(429));
+
+        // The SDK's own retries would have sent up to five requests without the limiter seeing them
+        assertThat(throttled).hasValue(1);
+        assertThat(apiKeys).containsExactly(API_KEY);
+    }
+
+    @Test
+    void concurrentCallsAllSucceedWhileEveryThrottleReachesTheLimiter() throws Exception {
+        GeminiRateLimiter limiter = new GeminiRateLimiter(properties, mock(ActiveRunRegistry.class), meterRegistry);
+        RateLimitedGeminiChatModel model = new RateLimitedGeminiChatModel(AiConfig.withoutSdkRetries(connection()),
+            GoogleGenAiChatOptions.builder().model(MODEL).build(), ToolCallingManager.builder().build(), limiter,
+            ObservationRegistry.NOOP);
+
+        List<Future<String>> calls = new ArrayList<>();
+        try (ExecutorService runs = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 16; i++) {
+                calls.add(runs.submit(() -> model.call(new Prompt("hi")).getResult().getOutput().getText()));
+            }
+        }
+
+        for (Future<String> call : calls) {
+            assertThat(call.get()).isEqualTo("ok");
+        }
+        assertThat(served).hasValue(16);
+        // Each 429 came back to the limiter once, which paused the model instead of piling on retries
+        assertThat(meterRegistry.get("qa.gemini.ratelimit.throttled").counter().count()).isEqualTo(throttled.get());
+        assertThat(throttled.get()).isLessThan(16);
+    }
+
+    private static GoogleGenAiConnectionProperties connection() {
+        GoogleGenAiConnectionProperties connection = new GoogleGenAiConnectionProperties();
+        connection.setApiKey(API_KEY);
+        return connection;
+    }
+
+    private void generateContent(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        synchronized (apiKeys) {
+            apiKeys.add(exchange.getRequestHeaders().getFirst("x-goog-api-key"));
+        }
+        boolean allowed;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now - windowStart >= WINDOW_NANOS) {
+                windowStart = now;
+                windowRequests = 0;
+            }
+            allowed = !quotaExhausted && ++windowRequests <= QUOTA;
+        }
+        String body;
+        int status;
+        if (allowed) {
+            served.incrementAndGet();
+            status = 200;
+            body = "{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":[{\"text\":\"ok\"}]},\"finishReason\":\"STOP\",\"index\":0}],"
+                + "\"usageMetadata\":{\"promptTokenCount\":10,\"candidatesTokenCount\":1,\"totalTokenCount\":11},\"modelVersion\":\"" + MODEL + "\"}";
+        } else {
+            throttled.incrementAndGet();
+            status = 429;
+            body = "{\"error\":{\"code\":429,\"message\":\"Resource has been exhausted. Please retry in 1s.\",\"status\":\"RESOURCE_EXHAUSTED\"}}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,183 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.RunProperties;
+import com.auto.qa.tool.QaToolCallback;
+import com.auto.qa.tool.QaToolCallbackFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 로컬 HTTP 서버를 Ollama /api/chat 대신 사용해, 모델의 도구 호출 루프 안에서 실행 취소가 적용되는지 검증합니다.
+ */
+class ActiveRunRegistryTest {
+
+    private static final String RUN_ID = "run-1";
+
+    private HttpServer server;
+    private final AtomicInteger chatRequests = new AtomicInteger();
+    // Requests after this many answer with text instead of another tool call
+    private volatile int toolRounds = Integer.MAX_VALUE;
+
+    private ActiveRunRegistry activeRunRegistry;
+    private ChatClient chatClient;
+    private volatile Function<String, String> tool = input -> "navigated";
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/chat", this::chat);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        TokenUsageService tokenUsageService = mock(TokenUsageService.class);
+        activeRunRegistry = new ActiveRunRegistry(new RunProperties(), () -> new ToolCallback[0], new SimpleMeterRegistry(),
+            mock(RunEventLog.class), tokenUsageService);
+
+        OllamaChatModel chatModel = OllamaChatModel.builder()
+            .ollamaApi(OllamaApi.builder().baseUrl("http://127.0.0.1:" + server.getAddress().getPort()).build())
+            .defaultOptions(OllamaChatOptions.builder().model("llama3.2").build())
+            .toolCallingManager(activeRunRegistry.toolCallingManager(ToolCallingManager.builder().build()))
+            .build();
+        chatClient = ChatClient.builder(chatModel).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void cancellingDuringAToolCallStopsTheSyncRun() throws Exception {
+        CountDownLatch toolStarted = new CountDownLatch(1);
+        tool = input -> {
+            toolStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+                return "navigated";
+            } catch (InterruptedException e) {
+                // What a blocking MCP call reports when its thread is interrupted
+                throw new IllegalStateException("Interrupted while waiting for the tool result", e);
+            }
+        };
+        activeRunRegistry.register(RUN_ID, "llama3.2", "https://example.com");
+        Thread.ofVirtual().start(() -> {
+            try {
+                toolStarted.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            activeRunRegistry.cancel(RUN_ID, "client");
+        });
+
+        long start = System.nanoTime();
+        assertThatThrownBy(this::call).isInstanceOf(CancellationException.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(chatRequests).hasValue(1);
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    void cancellingWhileToolsRunStopsBeforeTheNextModelCall() {
+        tool = input -> {
+            activeRunRegistry.cancel(RUN_ID, "client");
+            return "navigated";
+        };
+        activeRunRegistry.register(RUN_ID, "llama3.2", "https://example.com");
+
+        assertThatThrownBy(this::call).isInstanceOf(CancellationException.class);
+
+        assertThat(chatRequests).hasValue(1);
+    }
+
+    @Test
+    void toolErrorsOfARunningRunGoBackToTheModel() {
+        toolRounds = 1;
+        tool = input -> {
+            throw new IllegalStateException("element not found");
+        };
+        activeRunRegistry.register(RUN_ID, "llama3.2", "https://example.com");
+
+        assertThat(call()).isEqualTo("done");
+
+        assertThat(chatRequests).hasValue(2);
+    }
+
+    private String call() {
+        return chatClient.prompt()
+            .user("check https://example.com")
+            .toolCallbacks(wrappedTool())
+            .toolContext(Map.of(QaToolCallback.RUN_ID_KEY, RUN_ID))
+            .call()
+            .content();
+    }
+
+    private ToolCallback wrappedTool() {
+        SnapshotDiffService snapshotDiffService = mock(SnapshotDiffService.class);
+        when(snapshotDiffService.compact(any(), any(), anyBoolean())).thenAnswer(invocation -> invocation.getArgument(1));
+        ToolResultBudgetService toolResultBudgetService = mock(ToolResultBudgetService.class);
+        when(toolResultBudgetService.apply(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        QaToolCallbackFactory factory = new QaToolCallbackFactory(snapshotDiffService, toolResultBudgetService,
+            mock(TranscriptService.class), activeRunRegistry, mock(RunStatsService.class), mock(RunEventLog.class),
+            mock(ConversationMemoryService.class), mock(ArtifactStore.class));
+        ToolDefinition definition = ToolDefinition.builder()
+            .name("browser_navigate")
+            .description("Navigate to a URL")
+            .inputSchema("{\"type\":\"object\",\"properties\":{\"url\":{\"type\":\"string\"}}}")
+            .build();
+        return factory.wrap(new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return tool.apply(toolInput);
+            }
+        });
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        String message = chatRequests.incrementAndGet() > toolRounds
+            ? "{\"role\":\"assistant\",\"content\":\"done\"}"
+            : "{\"role\":\"assistant\",\"content\":\"\",\"tool_calls\":[{\"function\":{\"name\":\"browser_navigate\",\"arguments\":{\"url\":\"https://example.com\"}}}]}";
+        byte[] body = ("{\"model\":\"llama3.2\",\"created_at\":\"2026-01-01T00:00:00Z\",\"message\":" + message
+            + ",\"done\":true,\"done_reason\":\"stop\",\"prompt_eval_count\":1000,\"eval_count\":100}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+}
@@ -0,0 +1,51 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.ArtifactStoreProperties;
+import com.auto.qa.dto.ArtifactRef;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 같은 내용은 blob 하나로만 저장되고, 압축해 저장한 blob을 원래 내용으로 읽을 수 있는지 검증합니다.
+ */
+class ArtifactStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ArtifactStore artifactStore;
+
+    @BeforeEach
+    void setUp() {
+        ArtifactStoreProperties properties = new ArtifactStoreProperties();
+        properties.setDirectory(directory.toString());
+        meterRegistry = new SimpleMeterRegistry();
+        artifactStore = new ArtifactStore(properties, meterRegistry, mock(RunEventLog.class), mock(ReportStore.class));
+    }
+
+    @Test
+    void sameContentIsStoredOnce() throws Exception {
+        byte[] content = "- button \"Delete\" [ref=e1]\n".repeat(200).getBytes(StandardCharsets.UTF_8);
+
+        ArtifactRef first = artifactStore.put(content, "text/yaml", "browser_snapshot").orElseThrow();
+        ArtifactRef second = artifactStore.put(content, "text/yaml", "browser_snapshot").orElseThrow();
+
+        assertThat(second.hash()).isEqualTo(first.hash());
+        assertThat(meterRegistry.get("qa.artifacts.bytes").tag("result", "deduplicated").counter().count()).isEqualTo(content.length);
+        try (Stream<Path> files = Files.walk(directory)) {
+            assertThat(files.filter(Files::isRegularFile)).hasSize(1);
+        }
+        assertThat(artifactStore.get(first.hash())).hasValueSatisfying(blob -> assertThat(blob.content()).isEqualTo(content));
+    }
+}
@@ -0,0 +1,160 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.BrowserPoolProperties;
+import com.auto.qa.config.RunProperties;
+import com.auto.qa.tool.QaToolCallback;
+import com.auto.qa.tool.QaToolCallbackFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 로컬 stdio MCP 서버({@link FakeMcpServer})를 Playwright MCP 대신 띄워 BrowserSessionPool을 검증합니다.
+ */
+class BrowserSessionPoolTest {
+
+    private BrowserPoolProperties properties;
+    private RunProperties runProperties;
+    private ActiveRunRegistry activeRunRegistry;
+    private SimpleMeterRegistry meterRegistry;
+    private static final Duration AWAIT_TIMEOUT = Duration.ofSeconds(60);
+
+    private BrowserSessionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        properties = new BrowserPoolProperties();
+        properties.setEnabled(true);
+        properties.setSize(1);
+        properties.setLeaseTimeout(Duration.ofMillis(200));
+        // A fake server JVM is ready in 1-2s even on one CPU; AWAIT_TIMEOUT stays well above this
+        properties.setInitializationTimeout(Duration.ofSeconds(10));
+        properties.setCommand(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        properties.setArgs(List.of("-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC",
+            "-cp", System.getProperty("java.class.path"), FakeMcpServer.class.getName()));
+        runProperties = new RunProperties();
+        activeRunRegistry = mock(ActiveRunRegistry.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void prewarmStartsSessionsWithWrappedTools() throws Exception {
+        properties.setSize(2);
+
+        pool().prewarm();
+        await(() -> pool.idleCount() == 2);
+
+        BrowserSession session = pool.lease("run-1");
+        assertThat(session.getLeasedBy()).isEqualTo("run-1");
+        assertThat(session.getToolCallbacks()).singleElement().isInstanceOfSatisfying(QaToolCallback.class, tool -> {
+            assertThat(tool.getToolDefinition().name()).isEqualTo("browser_navigate");
+            assertThat(tool.callDelegate("{\"url\":\"https://example.com\"}")).contains("navigated to https://example.com");
+        });
+        assertThat(pool.idleCount()).isEqualTo(1);
+        assertThat(pool.leasedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void leasesAreExclusiveAndTimeOutWhenNoSessionIsIdle() throws Exception {
+        pool().prewarm();
+        await(() -> pool.idleCount() == 1);
+
+        BrowserSession first = pool.lease("run-1");
+        assertThatThrownBy(() -> pool.lease("run-2"))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("No browser session available");
+
+        pool.release(first);
+        BrowserSession second = pool.lease("run-2");
+        assertThat(second).isSameAs(first);
+        assertThat(second.getLeasedBy()).isEqualTo("run-2");
+        assertThat(second.getRunsServed()).hasValue(1);
+    }
+
+    @Test
+    void recyclesSessionsThatServedTheirMaximumRuns() throws Exception {
+        properties.setMaxRunsPerSession(1);
+        pool().prewarm();
+        await(() -> pool.idleCount() == 1);
+
+        BrowserSession first = pool.lease("run-1");
+        pool.release(first);
+
+        assertThat(meterRegistry.get("qa.browser.pool.recycled").tag("reason", "max-runs").counter().count()).isEqualTo(1.0);
+        await(() -> pool.idleCount() == 1);
+        assertThat(pool.lease("run-2").getId()).isNotEqualTo(first.getId());
+    }
+
+    @Test
+    void recyclesSessionsWhoseServerDied() throws Exception {
+        pool().prewarm();
+        await(() -> pool.idleCount() == 1);
+
+        BrowserSession session = pool.lease("run-1");
+        session.getClient().close();
+        pool.release(session);
+
+        assertThat(meterRegistry.get("qa.browser.pool.recycled").tag("reason", "crashed").counter().count()).isEqualTo(1.0);
+        await(() -> pool.idleCount() == 1);
+    }
+
+    @Test
+    void healthCheckReclaimsSessionsOfRunsThatAreGone() throws Exception {
+        runProperties.setIdleTimeout(Duration.ZERO);
+        pool().prewarm();
+        await(() -> pool.idleCount() == 1);
+
+        pool.lease("run-1");
+        Thread.sleep(10);
+        pool.healthCheck();
+
+        assertThat(pool.leasedCount()).isZero();
+        assertThat(pool.idleCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("qa.browser.pool.reclaimed").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void countsSessionsThatFailToStart() throws Exception {
+        properties.setCommand(Path.of(System.getProperty("java.home"), "bin", "no-such-command").toString());
+        // A process that never starts only surfaces once the initialization timeout expires
+        properties.setInitializationTimeout(Duration.ofSeconds(1));
+
+        pool().prewarm();
+        await(() -> meterRegistry.find("qa.browser.pool.start.failures").counter() != null);
+
+        assertThat(pool.idleCount()).isZero();
+    }
+
+    private BrowserSessionPool pool() {
+        QaToolCallbackFactory factory = new QaToolCallbackFactory(mock(SnapshotDiffService.class), mock(ToolResultBudgetService.class),
+            mock(TranscriptService.class), activeRunRegistry, mock(RunStatsService.class), mock(RunEventLog.class),
+            mock(ConversationMemoryService.class), mock(ArtifactStore.class));
+        pool = new BrowserSessionPool(properties, factory, meterRegistry, activeRunRegistry, runProperties);
+        return pool;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + AWAIT_TIMEOUT.toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,69 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.ConversationMemoryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 최근 턴이 예산을 넘을 때 가장 최근 턴부터 남기고, 남긴 턴은 시간 순서대로 렌더링하는지 검증합니다.
+ */
+class ConversationMemoryServiceTest {
+
+    private static final String CONVERSATION_ID = "chat-1";
+
+    private ConversationMemoryProperties properties;
+    private ConversationMemoryService conversationMemoryService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConversationMemoryProperties();
+        properties.setMaxContextTokens(400);
+        properties.setMaxSummaryTokens(100);
+        // Three turns stay unsummarized even though together they are well over the budget
+        properties.setKeepRecentTurns(3);
+        conversationMemoryService = new ConversationMemoryService(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void overBudgetContextKeepsTheNewestTurnWhole() {
+        completeTurn("run-1", "first", 700);
+        completeTurn("run-2", "second", 700);
+        completeTurn("run-3", "third", 700);
+
+        String context = context();
+
+        assertThat(context).contains(response("third", 700));
+        assertThat(context).contains("second-request").doesNotContain(response("second", 700));
+        assertThat(context).doesNotContain("first-request").contains("이전 요청 1건 생략");
+        assertThat(context.indexOf("2번째 전 요청")).isLessThan(context.indexOf("직전 요청"));
+        assertThat(context.length()).isLessThan(properties.getMaxContextTokens() * 3 + 100);
+    }
+
+    @Test
+    void turnsWithinTheBudgetAreRenderedOldestFirst() {
+        completeTurn("run-1", "first", 50);
+        completeTurn("run-2", "second", 50);
+
+        String context = context();
+
+        assertThat(context).contains(response("first", 50), response("second", 50)).doesNotContain("생략");
+        assertThat(context.indexOf("first-request")).isLessThan(context.indexOf("second-request"));
+    }
+
+    private void completeTurn(String runId, String name, int responseChars) {
+        conversationMemoryService.bind(runId, CONVERSATION_ID);
+        conversationMemoryService.complete(runId, "https://example.com", name + "-request", response(name, responseChars), false);
+    }
+
+    private String context() {
+        conversationMemoryService.bind("run-next", CONVERSATION_ID);
+        return conversationMemoryService.context("run-next").orElseThrow();
+    }
+
+    private static String response(String name, int chars) {
+        return name + "-response:" + "x".repeat(chars);
+    }
+}
@@ -0,0 +1,77 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.RunEventLogProperties;
+import com.auto.qa.config.RunProperties;
+import com.auto.qa.dto.RunEvent;
+import com.auto.qa.dto.TestReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 실행 이벤트 로그의 오래된 세그먼트가 삭제되면 대시보드의 실행 목록에서도 해당 실행이 빠지는지 검증합니다.
+ */
+class DashboardServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private RunEventLog runEventLog;
+    private DashboardService dashboardService;
+
+    @BeforeEach
+    void setUp() {
+        RunEventLogProperties properties = new RunEventLogProperties();
+        properties.setDirectory(directory.toString());
+        // A few runs per segment, so older segments are deleted while the test writes
+        properties.setSegmentSize(DataSize.ofKilobytes(2));
+        properties.setMaxSegments(2);
+        runEventLog = new RunEventLog(properties, new SimpleMeterRegistry());
+        runEventLog.open();
+        dashboardService = new DashboardService(mock(ReportStore.class), runEventLog, new RunProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        runEventLog.close();
+    }
+
+    @Test
+    void runsWhoseSegmentsWereDeletedAreDropped() {
+        finishRun("run-0");
+        assertThat(runIds()).containsExactly("run-0");
+
+        for (int i = 1; i <= 30; i++) {
+            finishRun("run-" + i);
+        }
+
+        List<String> logged = new ArrayList<>();
+        runEventLog.readFrom(RunEventLog.Position.START, event -> {
+            if (event.type() == RunEvent.Type.RUN_FINISHED) {
+                logged.add(event.runId());
+            }
+        });
+        assertThat(logged).doesNotContain("run-0").hasSizeLessThan(30);
+        assertThat(runIds()).containsExactlyInAnyOrderElementsOf(logged);
+    }
+
+    private void finishRun(String runId) {
+        runEventLog.append(RunEvent.runStarted(runId, "llama3.2", "https://example.com"));
+        runEventLog.append(RunEvent.runFinished(runId, "llama3.2", "https://example.com", 1_000, 10, 2, "COMPLETED", null,
+            new RunEvent.TokenUsage(null, null, 1_000, 100)));
+    }
+
+    private List<String> runIds() {
+        return dashboardService.getReports(0, 100).stream().map(TestReport::getId).toList();
+    }
+}
@@ -0,0 +1,51 @@
+package com.auto.qa.service;
+
+import io.modelcontextprotocol.json.McpJsonMapper;
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.transport.StdioServerTransportProvider;
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * BrowserSessionPoolTest가 Playwright MCP 대신 띄우는 stdio MCP 서버 (browser_navigate 도구 하나만 제공).
+ */
+class FakeMcpServer {
+
+    public static void main(String[] args) throws InterruptedException {
+        // stdout carries the MCP protocol; anything else printed (e.g. console logging) goes to stderr
+        PrintStream protocolOut = System.out;
+        System.setOut(System.err);
+        CountDownLatch stdinClosed = new CountDownLatch(1);
+        InputStream protocolIn = new FilterInputStream(System.in) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read < 0) {
+                    stdinClosed.countDown();
+                }
+                return read;
+            }
+        };
+        McpJsonMapper jsonMapper = McpJsonMapper.getDefault();
+        McpSchema.Tool navigate = McpSchema.Tool.builder()
+            .name("browser_navigate")
+            .description("Navigate to a URL")
+            .inputSchema(jsonMapper, "{\"type\":\"object\",\"properties\":{\"url\":{\"type\":\"string\"}},\"required\":[\"url\"]}")
+            .build();
+        McpServer.sync(new StdioServerTransportProvider(jsonMapper, protocolIn, protocolOut))
+            .serverInfo("fake-playwright", "1.0.0")
+            .capabilities(McpSchema.ServerCapabilities.builder().tools(false).build())
+            .toolCall(navigate, (exchange, request) -> McpSchema.CallToolResult.builder()
+                .addTextContent("navigated to " + request.arguments().get("url"))
+                .build())
+            .build();
+        // Exit once the client goes away, even if the test JVM died without destroying this process
+        stdinClosed.await();
+        System.exit(0);
+    }
+}
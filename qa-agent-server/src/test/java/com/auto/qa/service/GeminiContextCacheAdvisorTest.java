@@ -0,0 +1,227 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.GeminiCacheProperties;
+import com.google.genai.Client;
+import com.google.genai.errors.ClientException;
+import com.google.genai.types.HttpOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.google.genai.GoogleGenAiChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 로컬 HTTP 서버를 Gemini cachedContents API 대신 사용해 GeminiContextCacheAdvisor를 검증합니다.
+ */
+class GeminiContextCacheAdvisorTest {
+
+    private static final String MODEL = "gemini-2.5-flash";
+
+    private HttpServer server;
+    private final AtomicInteger creates = new AtomicInteger();
+    private final AtomicInteger deletes = new AtomicInteger();
+    private volatile int createStatus = 200;
+    private volatile long createDelayMillis;
+
+    private final List<Prompt> prompts = new CopyOnWriteArrayList<>();
+    private volatile Function<Prompt, RuntimeException> modelFailure = prompt -> null;
+
+    private SimpleMeterRegistry meterRegistry;
+    private GeminiContextCacheAdvisor advisor;
+    private ChatClient chatClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        Client client = Client.builder()
+            .apiKey("test")
+            .vertexAI(false)
+            .httpOptions(HttpOptions.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .apiVersion("v1beta")
+                .build())
+            .build();
+        meterRegistry = new SimpleMeterRegistry();
+        advisor = new GeminiContextCacheAdvisor(client, ToolCallingManager.builder().build(), new GeminiCacheProperties(), meterRegistry);
+        advisor.registerMetrics();
+
+        ChatModel chatModel = prompt -> {
+            prompts.add(prompt);
+            RuntimeException failure = modelFailure.apply(prompt);
+            if (failure != null) {
+                throw failure;
+            }
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+        };
+        chatClient = ChatClient.builder(chatModel)
+            .defaultSystem("QA system prompt")
+            .defaultOptions(GoogleGenAiChatOptions.builder().model(MODEL).build())
+            .defaultAdvisors(advisor)
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void createsTheCacheOnceAndSendsCachedRequestsWithoutTheSystemPrompt() {
+        call();
+        call();
+
+        assertThat(creates).hasValue(1);
+        assertThat(prompts).hasSize(2).allSatisfy(prompt -> {
+            GoogleGenAiChatOptions options = (GoogleGenAiChatOptions) prompt.getOptions();
+            assertThat(options.getCachedContentName()).isEqualTo("cachedContents/c1");
+            assertThat(options.getUseCachedContent()).isTrue();
+            assertThat(prompt.getInstructions()).noneMatch(SystemMessage.class::isInstance);
+        });
+    }
+
+    @Test
+    void concurrentFirstRequestsKeepOneCacheAndDeleteTheRest() throws Exception {
+        createDelayMillis = 200;
+        int requests = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<String>> results = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return call();
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("ok");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(meterRegistry.get("qa.gemini.cache.entries").gauge().value()).isEqualTo(1.0);
+        assertThat(deletes.get()).isEqualTo(creates.get() - 1);
+        String installed = ((GoogleGenAiChatOptions) prompts.get(prompts.size() - 1).getOptions()).getCachedContentName();
+        assertThat(prompts).allSatisfy(prompt ->
+            assertThat(((GoogleGenAiChatOptions) prompt.getOptions()).getCachedContentName()).isEqualTo(installed));
+    }
+
+    @Test
+    void retriesWithoutTheCacheWhenTheCachedContentIsGone() {
+        modelFailure = prompt -> isCached(prompt) && prompts.size() == 1
+            ? new ClientException(404, "NOT_FOUND", "CachedContent not found (or permission denied)")
+            : null;
+
+        assertThat(call()).isEqualTo("ok");
+
+        assertThat(prompts).hasSize(2);
+        assertThat(isCached(prompts.get(1))).isFalse();
+        assertThat(prompts.get(1).getInstructions()).anyMatch(SystemMessage.class::isInstance);
+        assertThat(meterRegistry.get("qa.gemini.cache.fallbacks").counter().count()).isEqualTo(1.0);
+
+        // The dropped cache is recreated by the next request
+        call();
+        assertThat(creates).hasValue(2);
+    }
+
+    @Test
+    void otherNotFoundErrorsAreNotTreatedAsCacheErrors() {
+        modelFailure = prompt -> new ClientException(404, "NOT_FOUND", "models/" + MODEL + " is not found for API version v1beta");
+
+        assertThatThrownBy(this::call).isInstanceOf(ClientException.class);
+
+        assertThat(prompts).hasSize(1);
+        assertThat(meterRegistry.find("qa.gemini.cache.fallbacks").counter()).isNull();
+    }
+
+    @Test
+    void sendsTheFullPromptWhileCacheCreationIsUnsupported() {
+        createStatus = 400;
+
+        call();
+        call();
+
+        assertThat(creates).hasValue(1);
+        assertThat(prompts).hasSize(2).noneMatch(GeminiContextCacheAdvisorTest::isCached);
+        assertThat(prompts).allSatisfy(prompt -> assertThat(prompt.getInstructions()).anyMatch(SystemMessage.class::isInstance));
+    }
+
+    private String call() {
+        return chatClient.prompt().user("check https://example.com").call().content();
+    }
+
+    private static boolean isCached(Prompt prompt) {
+        return prompt.getOptions() instanceof GoogleGenAiChatOptions options && Boolean.TRUE.equals(options.getUseCachedContent());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        exchange.getRequestBody().readAllBytes();
+        if ("POST".equals(method) && path.endsWith("/cachedContents")) {
+            int id = creates.incrementAndGet();
+            sleep(createDelayMillis);
+            if (createStatus != 200) {
+                respond(exchange, createStatus, "{\"error\":{\"code\":" + createStatus
+                    + ",\"message\":\"Cached content is too small\",\"status\":\"INVALID_ARGUMENT\"}}");
+                return;
+            }
+            respond(exchange, 200, "{\"name\":\"cachedContents/c" + id + "\",\"model\":\"models/" + MODEL + "\","
+                + "\"expireTime\":\"" + Instant.now().plusSeconds(1800) + "\",\"usageMetadata\":{\"totalTokenCount\":4096}}");
+        } else if ("DELETE".equals(method) && path.contains("/cachedContents/")) {
+            deletes.incrementAndGet();
+            respond(exchange, 200, "{}");
+        } else {
+            respond(exchange, 404, "{\"error\":{\"code\":404,\"message\":\"not found\",\"status\":\"NOT_FOUND\"}}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.GeminiRateLimitProperties;
+import com.google.genai.errors.ClientException;
+import com.google.genai.errors.ServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.retry.support.RetryTemplate;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class GeminiRateLimiterTest {
+
+    private static final String MODEL = "gemini-2.5-flash";
+
+    private GeminiRateLimitProperties properties;
+    private ActiveRunRegistry activeRunRegistry;
+    private SimpleMeterRegistry meterRegistry;
+    private GeminiRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GeminiRateLimitProperties();
+        properties.setRequestsPerMinute(60);
+        properties.setTokensPerMinute(0);
+        properties.setInitialBackoff(Duration.ofMillis(10));
+        properties.setMaxBackoff(Duration.ofMillis(50));
+        activeRunRegistry = mock(ActiveRunRegistry.class);
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new GeminiRateLimiter(properties, activeRunRegistry, meterRegistry);
+    }
+
+    @Test
+    void allowsABurstOfTenSecondsWorthOfRequestsThenSpacesThemOut() {
+        // 60 requests per minute: a burst of 10, then one per second
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.reserve(MODEL, null)).isZero();
+        }
+        assertThat(limiter.reserve(MODEL, null)).isBetween(Duration.ofMillis(900), Duration.ofSeconds(1));
+        assertThat(limiter.reserve(MODEL, null)).isBetween(Duration.ofMillis(1900), Duration.ofSeconds(2));
+    }
+
+    @Test
+    void waitsForTheTokenBudgetAfterAResponseOverdrawsIt() {
+        properties.setRequestsPerMinute(0);
+        properties.setTokensPerMinute(60_000);
+
+        assertThat(limiter.reserve(MODEL, null)).isZero();
+        limiter.recordTokens(MODEL, 70_000);
+
+        // 10,000 tokens overdrawn at 1,000 tokens per second
+        assertThat(limiter.reserve(MODEL, null)).isBetween(Duration.ofMillis(9_900), Duration.ofSeconds(10));
+    }
+
+    @Test
+    void cutsTheLimitOncePerThrottleWindow() {
+        limiter.reserve(MODEL, null);
+        ClientException tooManyRequests = new ClientException(429, "RESOURCE_EXHAUSTED", "Quota exceeded");
+
+        // Requests that were in flight together all come back with 429
+        limiter.onThrottled(MODEL, tooManyRequests);
+        limiter.onThrottled(MODEL, tooManyRequests);
+        limiter.onThrottled(MODEL, tooManyRequests);
+
+        assertThat(meterRegistry.get("qa.gemini.ratelimit.fraction").tag("model", MODEL).gauge().value()).isEqualTo(0.5);
+        assertThat(meterRegistry.get("qa.gemini.ratelimit.throttled").tag("model", MODEL).counter().count()).isEqualTo(3.0);
+    }
+
+    @Test
+    void holdsRequestsUntilTheServerRetryDelayAndTellsTheRun() {
+        limiter.onThrottled(MODEL, new ClientException(429, "RESOURCE_EXHAUSTED", "Quota exceeded. Please retry in 5.5s."));
+
+        Duration wait = limiter.reserve(MODEL, "run-1");
+
+        assertThat(wait).isBetween(Duration.ofMillis(5_400), Duration.ofMillis(5_500));
+        verify(activeRunRegistry).rateLimited(eq("run-1"), eq(MODEL), argThat(notice -> notice.toMillis() >= 5_400));
+    }
+
+    @Test
+    void doesNotNotifyShortWaits() {
+        for (int i = 0; i < 11; i++) {
+            limiter.reserve(MODEL, "run-1");
+        }
+        verify(activeRunRegistry, never()).rateLimited(any(), any(), any());
+    }
+
+    @Test
+    void backoffIsDecorrelatedJitterCappedAtTheMaximum() {
+        properties.setInitialBackoff(Duration.ofMillis(100));
+        properties.setMaxBackoff(Duration.ofSeconds(2));
+        ServerException unavailable = new ServerException(503, "UNAVAILABLE", "overloaded");
+
+        Duration previous = properties.getInitialBackoff();
+        for (int i = 0; i < 200; i++) {
+            Duration next = limiter.backoff(previous, unavailable);
+            assertThat(next).isBetween(Duration.ofMillis(100), Duration.ofSeconds(2));
+            assertThat(next.toMillis()).isLessThan(Math.max(101, previous.toMillis() * 3));
+            previous = next;
+        }
+        assertThat(limiter.backoff(Duration.ofMillis(100), new ClientException(429, "RESOURCE_EXHAUSTED", "retry in 7s")))
+            .isEqualTo(Duration.ofSeconds(7));
+    }
+
+    @Test
+    void parsesTheRetryDelayFromTheMessageOrTheErrorDetails() {
+        assertThat(GeminiRateLimiter.retryAfter(new RuntimeException("Please retry in 37.2s."))).contains(Duration.ofMillis(37_200));
+        assertThat(GeminiRateLimiter.retryAfter(new RuntimeException("{\"retryDelay\": \"12s\"}"))).contains(Duration.ofSeconds(12));
+        assertThat(GeminiRateLimiter.retryAfter(new RuntimeException("quota exceeded"))).isEmpty();
+    }
+
+    @Test
+    void retryTemplateRetriesThrottlesAndServerErrorsButNotClientErrors() {
+        RetryTemplate template = limiter.retryTemplate(MODEL, () -> null);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = template.execute(context -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ClientException(429, "RESOURCE_EXHAUSTED", "Quota exceeded");
+            }
+            if (attempts.get() == 2) {
+                throw new ServerException(503, "UNAVAILABLE", "overloaded");
+            }
+            return "ok";
+        });
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.get("qa.gemini.ratelimit.retries").tag("model", MODEL).counter().count()).isEqualTo(2.0);
+
+        AtomicInteger rejected = new AtomicInteger();
+        assertThatThrownBy(() -> template.execute(context -> {
+            rejected.incrementAndGet();
+            throw new ClientException(400, "INVALID_ARGUMENT", "bad request");
+        })).isInstanceOf(ClientException.class);
+        assertThat(rejected).hasValue(1);
+    }
+
+    @Test
+    void retryTemplateGivesUpAfterMaxAttempts() {
+        RetryTemplate template = limiter.retryTemplate(MODEL, () -> null);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> template.execute(context -> {
+            attempts.incrementAndGet();
+            throw new ServerException(500, "INTERNAL", "internal error");
+        })).isInstanceOf(ServerException.class);
+        assertThat(attempts).hasValue(properties.getMaxAttempts());
+    }
+
+    @Test
+    void streamRetryRetriesOnlyBeforeAnyOutput() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Flux<String> flaky = Flux.defer(() -> subscriptions.incrementAndGet() < 3
+            ? Flux.error(new ClientException(429, "RESOURCE_EXHAUSTED", "Quota exceeded"))
+            : Flux.just("ok"));
+
+        assertThat(flaky.retryWhen(limiter.streamRetry(MODEL, null, () -> false)).collectList().block()).containsExactly("ok");
+        assertThat(subscriptions).hasValue(3);
+
+        AtomicBoolean emitted = new AtomicBoolean();
+        AtomicInteger partialSubscriptions = new AtomicInteger();
+        Flux<String> failsAfterOutput = Flux.defer(() -> {
+            partialSubscriptions.incrementAndGet();
+            return Flux.just("partial").doOnNext(chunk -> emitted.set(true))
+                .concatWith(Flux.error(new ServerException(503, "UNAVAILABLE", "overloaded")));
+        });
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        assertThatThrownBy(() -> failsAfterOutput.retryWhen(limiter.streamRetry(MODEL, null, emitted::get))
+            .doOnNext(received::add)
+            .blockLast())
+            .isInstanceOf(ServerException.class);
+        assertThat(received).containsExactly("partial");
+        assertThat(partialSubscriptions).hasValue(1);
+    }
+
+    @Test
+    void disabledLimiterNeverWaits() {
+        properties.setEnabled(false);
+        limiter.onThrottled(MODEL, new ClientException(429, "RESOURCE_EXHAUSTED", "Please retry in 30s."));
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.reserve(MODEL, "run-1")).isZero();
+        }
+    }
+}
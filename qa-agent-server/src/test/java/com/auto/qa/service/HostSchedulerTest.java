@@ -0,0 +1,108 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.HostPolitenessProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 호스트별 대기열이 유휴 상태가 되면 메트릭과 함께 정리되고, 동시 실행 한도 0은 제한 없음으로 동작하는지 검증합니다.
+ */
+class HostSchedulerTest {
+
+    private static final String URL = "https://example.com/login";
+
+    private HostPolitenessProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private HostScheduler hostScheduler;
+
+    @BeforeEach
+    void setUp() {
+        properties = new HostPolitenessProperties();
+        properties.setIdleTimeout(Duration.ZERO);
+        meterRegistry = new SimpleMeterRegistry();
+        hostScheduler = new HostScheduler(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hostScheduler.shutdown();
+    }
+
+    @Test
+    void idleHostsAreEvictedWithTheirMeters() throws Exception {
+        properties.setRunsPerMinute(0);
+
+        hostScheduler.submit(URL, () -> { }).get(5, TimeUnit.SECONDS);
+        assertThat(meterRegistry.find("qa.host.active").tag("host", "example.com").gauge()).isNotNull();
+        awaitReleased();
+
+        hostScheduler.tick();
+
+        assertThat(hostScheduler.queueDepths()).isEmpty();
+        assertThat(meterRegistry.getMeters()).isEmpty();
+
+        // A later run for the host starts a fresh queue
+        hostScheduler.submit(URL, () -> { }).get(5, TimeUnit.SECONDS);
+        assertThat(hostScheduler.queueDepths()).containsOnlyKeys("example.com");
+    }
+
+    @Test
+    void hostsWithoutAFullStartBucketAreKept() throws Exception {
+        // One start per minute: dropping the queue now would hand the next run a fresh token
+        properties.setRunsPerMinute(1);
+        properties.setMaxConcurrency(1);
+
+        hostScheduler.submit(URL, () -> { }).get(5, TimeUnit.SECONDS);
+        awaitReleased();
+        hostScheduler.tick();
+
+        assertThat(hostScheduler.queueDepths()).containsOnlyKeys("example.com");
+    }
+
+    @Test
+    void zeroMaxConcurrencyMeansUnlimited() throws Exception {
+        properties.setMaxConcurrency(0);
+        properties.setRunsPerMinute(0);
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<?>> runs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            runs.add(hostScheduler.submit(URL, () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        for (Future<?> run : runs) {
+            run.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Future는 작업이 끝나면 완료되지만, 호스트의 실행 수는 그 직후에 줄어듭니다.
+     */
+    private void awaitReleased() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("qa.host.active").tag("host", "example.com").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
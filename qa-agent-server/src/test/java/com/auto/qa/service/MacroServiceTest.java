@@ -0,0 +1,121 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.MacroProperties;
+import com.auto.qa.dto.ToolCallRecord;
+import com.auto.qa.dto.ToolTranscript;
+import com.auto.qa.tool.QaToolCallback;
+import com.auto.qa.tool.QaToolCallbackFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 같은 역할/이름을 가진 요소가 여럿인 페이지에서 매크로가 기록된 요소를 고르고, 특정할 수 없으면 실패하는지 검증합니다.
+ */
+class MacroServiceTest {
+
+    private static final String TEST_CASE_ID = "tc-1";
+    private static final String URL = "https://example.com";
+
+    @TempDir
+    Path directory;
+
+    private final List<String> clicks = new CopyOnWriteArrayList<>();
+    private volatile String page = page(2);
+
+    private MacroService macroService;
+
+    @BeforeEach
+    void setUp() {
+        MacroProperties properties = new MacroProperties();
+        properties.setDirectory(directory.toString());
+        macroService = new MacroService(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void clicksTheRecordedOneOfSeveralMatchingElements() {
+        assertThat(macroService.compile(transcript("e2"))).isPresent();
+        assertThat(directory.resolve(TEST_CASE_ID)).isDirectoryContaining(path -> path.toString().endsWith(".json"));
+
+        Optional<MacroService.MacroResult> result = macroService.execute("run-1", TEST_CASE_ID, URL, tools());
+
+        assertThat(result).hasValueSatisfying(r -> assertThat(r.failed()).isFalse());
+        assertThat(clicks).singleElement().asString().contains("\"ref\":\"e2\"");
+    }
+
+    @Test
+    void failsWhenTheMatchingElementsNoLongerLineUp() throws Exception {
+        macroService.compile(transcript("e2"));
+        // Same page structure, but a third row makes the recorded position meaningless
+        page = page(3);
+
+        Optional<MacroService.MacroResult> result = macroService.execute("run-1", TEST_CASE_ID, URL, tools());
+
+        assertThat(result).hasValueSatisfying(r -> assertThat(r.failure()).contains("ambiguous"));
+        assertThat(clicks).isEmpty();
+        assertThat(macroService.hasMacros(TEST_CASE_ID)).isFalse();
+        try (var files = Files.list(directory.resolve(TEST_CASE_ID))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private static String page(int rows) {
+        StringBuilder yaml = new StringBuilder("- heading \"Items\" [level=1] [ref=e0]\n- list [ref=l0]:\n");
+        for (int i = 1; i <= rows; i++) {
+            yaml.append("  - listitem [ref=i").append(i).append("]:\n")
+                .append("    - button \"Delete\" [ref=e").append(i).append("]\n");
+        }
+        return "- Page URL: " + URL + "\n- Page Snapshot:\n```yaml\n" + yaml + "```";
+    }
+
+    private static ToolTranscript transcript(String clickedRef) {
+        ToolTranscript transcript = ToolTranscript.builder().testCaseId(TEST_CASE_ID).url(URL).model("llama3.2").build();
+        transcript.getCalls().add(new ToolCallRecord("browser_navigate", "{\"url\":\"" + URL + "\"}", page(2), 10));
+        transcript.getCalls().add(new ToolCallRecord("browser_click", "{\"element\":\"Delete\",\"ref\":\"" + clickedRef + "\"}", "clicked", 10));
+        return transcript;
+    }
+
+    private List<QaToolCallback> tools() {
+        QaToolCallbackFactory factory = new QaToolCallbackFactory(mock(SnapshotDiffService.class), mock(ToolResultBudgetService.class),
+            mock(TranscriptService.class), mock(ActiveRunRegistry.class), mock(RunStatsService.class), mock(RunEventLog.class),
+            mock(ConversationMemoryService.class), mock(ArtifactStore.class));
+        return List.of(
+            factory.wrap(tool("browser_navigate", input -> page)),
+            factory.wrap(tool("browser_click", input -> {
+                clicks.add(input);
+                return "clicked";
+            })));
+    }
+
+    private static ToolCallback tool(String name, Function<String, String> call) {
+        ToolDefinition definition = ToolDefinition.builder()
+            .name(name)
+            .description(name)
+            .inputSchema("{\"type\":\"object\",\"properties\":{}}")
+            .build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return call.apply(toolInput);
+            }
+        };
+    }
+}
@@ -0,0 +1,173 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.RunProperties;
+import com.auto.qa.tool.QaToolCallback;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 로컬 HTTP 서버를 Ollama /api/chat 대신 사용해, 동기 호출의 지연에서 도구 실행 시간이 빠지고 취소는 실패로 세지 않는지 검증합니다.
+ */
+class ModelHealthAdvisorTest {
+
+    private static final String RUN_ID = "run-1";
+    private static final String MODEL = "llama3.2";
+
+    private HttpServer server;
+    private final AtomicInteger chatRequests = new AtomicInteger();
+    // Requests after this many answer with text instead of another tool call
+    private volatile int toolRounds = 2;
+    private volatile Supplier<String> tool = () -> "navigated";
+
+    private ModelRegistry modelRegistry;
+    private ActiveRunRegistry activeRunRegistry;
+    private ModelHealthAdvisor modelHealthAdvisor;
+    private ChatClient chatClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/chat", this::chat);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        modelRegistry = mock(ModelRegistry.class);
+        activeRunRegistry = new ActiveRunRegistry(new RunProperties(), () -> new ToolCallback[0], new SimpleMeterRegistry(),
+            mock(RunEventLog.class), mock(TokenUsageService.class));
+        modelHealthAdvisor = new ModelHealthAdvisor(modelRegistry, activeRunRegistry);
+
+        OllamaChatModel chatModel = OllamaChatModel.builder()
+            .ollamaApi(OllamaApi.builder().baseUrl("http://127.0.0.1:" + server.getAddress().getPort()).build())
+            .defaultOptions(OllamaChatOptions.builder().model(MODEL).build())
+            .toolCallingManager(activeRunRegistry.toolCallingManager(ToolCallingManager.builder().build()))
+            .build();
+        chatClient = ChatClient.builder(chatModel).build();
+
+        activeRunRegistry.register(RUN_ID, MODEL, "https://example.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void syncLatencyLeavesOutTheToolRounds() {
+        tool = () -> {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "navigated";
+        };
+
+        assertThat(call()).isEqualTo("done");
+
+        // Two slow tool rounds take 2s; three fast model calls average well under one tool round
+        assertThat(chatRequests).hasValue(3);
+        assertThat(activeRunRegistry.toolTime(RUN_ID).rounds()).isEqualTo(2);
+        verify(modelRegistry).recordOutcome(eq(MODEL), eq(true), longThat(latency -> latency < 500));
+    }
+
+    @Test
+    void cancelledRunsAreNotModelFailures() {
+        tool = () -> {
+            activeRunRegistry.cancel(RUN_ID, "client");
+            return "navigated";
+        };
+
+        assertThatThrownBy(this::call).isInstanceOf(CancellationException.class);
+
+        verify(modelRegistry, never()).recordOutcome(eq(MODEL), anyBoolean(), anyLong());
+    }
+
+    @Test
+    void modelErrorsAreRecordedAsFailures() {
+        toolRounds = 0;
+        server.removeContext("/api/chat");
+        server.createContext("/api/chat", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+        });
+
+        assertThatThrownBy(this::call).isInstanceOf(RuntimeException.class);
+
+        verify(modelRegistry).recordOutcome(eq(MODEL), eq(false), anyLong());
+    }
+
+    private String call() {
+        return chatClient.prompt()
+            .user("check https://example.com")
+            .advisors(a -> a.advisors(modelHealthAdvisor)
+                .param(QaToolCallback.RUN_ID_KEY, RUN_ID)
+                .param(ModelHealthAdvisor.MODEL_KEY, MODEL))
+            .toolCallbacks(tool())
+            .toolContext(Map.of(QaToolCallback.RUN_ID_KEY, RUN_ID))
+            .call()
+            .content();
+    }
+
+    private ToolCallback tool() {
+        ToolDefinition definition = ToolDefinition.builder()
+            .name("browser_navigate")
+            .description("Navigate to a URL")
+            .inputSchema("{\"type\":\"object\",\"properties\":{\"url\":{\"type\":\"string\"}}}")
+            .build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return tool.get();
+            }
+        };
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        String message = chatRequests.incrementAndGet() > toolRounds
+            ? "{\"role\":\"assistant\",\"content\":\"done\"}"
+            : "{\"role\":\"assistant\",\"content\":\"\",\"tool_calls\":[{\"function\":{\"name\":\"browser_navigate\",\"arguments\":{\"url\":\"https://example.com\"}}}]}";
+        byte[] body = ("{\"model\":\"llama3.2\",\"created_at\":\"2026-01-01T00:00:00Z\",\"message\":" + message
+            + ",\"done\":true,\"done_reason\":\"stop\",\"prompt_eval_count\":1000,\"eval_count\":100}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+}
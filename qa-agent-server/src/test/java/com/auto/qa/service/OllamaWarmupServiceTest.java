@@ -0,0 +1,248 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.AiConfig;
+import com.auto.qa.config.AiModelProperties;
+import com.auto.qa.config.ModelRegistryProperties;
+import com.auto.qa.config.OllamaWarmupProperties;
+import com.auto.qa.dto.ModelInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 로컬 HTTP 서버를 Ollama(/api/tags, /api/ps, /api/generate) 대신 사용해 OllamaWarmupService를 검증합니다.
+ */
+class OllamaWarmupServiceTest {
+
+    private static final String LLAMA = "llama3.2";
+    private static final String QWEN = "qwen2.5:3b";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpServer server;
+
+    // Stand-in state: pulled models, and resident models with their expiry
+    private final List<String> pulled = new CopyOnWriteArrayList<>(List.of(LLAMA + ":latest", QWEN));
+    private final Map<String, Instant> resident = new ConcurrentHashMap<>();
+    private final List<JsonNode> generateRequests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger concurrentLoads = new AtomicInteger();
+    private final AtomicInteger maxConcurrentLoads = new AtomicInteger();
+    private volatile long loadDelayMillis;
+    private volatile int generateStatus = 200;
+
+    private OllamaWarmupProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ModelRegistry modelRegistry;
+    private OllamaWarmupService warmupService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/tags", exchange -> respond(exchange, 200, models(pulled.stream().collect(Collectors.toMap(name -> name, name -> Instant.MAX)))));
+        server.createContext("/api/ps", exchange -> respond(exchange, 200, models(resident)));
+        server.createContext("/api/generate", this::generate);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        AiConfig aiConfig = mock(AiConfig.class);
+        when(aiConfig.getOllamaBaseUrl()).thenReturn("http://127.0.0.1:" + server.getAddress().getPort());
+        when(aiConfig.getOllamaModels()).thenReturn(List.of(LLAMA, QWEN, "mistral"));
+        meterRegistry = new SimpleMeterRegistry();
+        modelRegistry = new ModelRegistry(aiConfig, new AiModelProperties(), new ModelRegistryProperties(), meterRegistry);
+        modelRegistry.buildSnapshot();
+        properties = new OllamaWarmupProperties();
+        warmupService = new OllamaWarmupService(modelRegistry, aiConfig, properties, meterRegistry);
+        modelRegistry.probeOllama();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void loadsAColdModelAndReportsItWarm() throws Exception {
+        assertThat(modelRegistry.isWarm(LLAMA)).isFalse();
+
+        assertThat(warmupService.warm(LLAMA).get(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(generateRequests).singleElement().satisfies(request -> {
+            assertThat(request.path("model").asText()).isEqualTo(LLAMA);
+            assertThat(request.path("keep_alive").asText()).isEqualTo("600s");
+            assertThat(request.path("stream").asBoolean(true)).isFalse();
+        });
+        assertThat(modelRegistry.isWarm(LLAMA)).isTrue();
+        assertThat(modelRegistry.models()).filteredOn(model -> model.name().equals(LLAMA))
+            .singleElement().extracting(ModelInfo::warm).isEqualTo(true);
+        assertThat(meterRegistry.get("qa.ollama.warmups").tag("model", LLAMA).tag("cold", "true").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void skipsModelsThatAreNotPulledOrAlreadyResident() throws Exception {
+        resident.put(QWEN, Instant.now().plusSeconds(300));
+        modelRegistry.probeOllama();
+
+        assertThat(warmupService.warm("mistral").get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(warmupService.warm("gemini-2.5-flash").get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(warmupService.warm(QWEN).get(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(generateRequests).isEmpty();
+    }
+
+    @Test
+    void concurrentWarmupsOfOneModelShareASingleLoad() throws Exception {
+        loadDelayMillis = 300;
+
+        CompletableFuture<Boolean> first = warmupService.warm(LLAMA);
+        CompletableFuture<Boolean> second = warmupService.warm(LLAMA);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(generateRequests).hasSize(1);
+    }
+
+    @Test
+    void loadsDifferentModelsOneAtATime() throws Exception {
+        loadDelayMillis = 200;
+
+        CompletableFuture<Boolean> llama = warmupService.warm(LLAMA);
+        CompletableFuture<Boolean> qwen = warmupService.warm(QWEN);
+
+        assertThat(llama.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(qwen.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(generateRequests).hasSize(2);
+        assertThat(maxConcurrentLoads).hasValue(1);
+    }
+
+    @Test
+    void failedLoadsLeaveTheModelCold() throws Exception {
+        generateStatus = 500;
+
+        assertThat(warmupService.warm(LLAMA).get(5, TimeUnit.SECONDS)).isFalse();
+
+        assertThat(modelRegistry.isWarm(LLAMA)).isFalse();
+        assertThat(meterRegistry.find("qa.ollama.warmups").counter()).isNull();
+    }
+
+    @Test
+    void keepAliveGrowsWithDemandUpToTheMaximum() {
+        assertThat(warmupService.keepAlive(LLAMA)).isEqualTo(Duration.ofMinutes(10));
+
+        for (int i = 0; i < 5; i++) {
+            modelRegistry.recordOutcome(LLAMA, true, 100);
+        }
+        assertThat(warmupService.keepAlive(LLAMA)).isEqualTo(Duration.ofMinutes(20));
+
+        for (int i = 0; i < 50; i++) {
+            modelRegistry.recordOutcome(LLAMA, true, 100);
+        }
+        assertThat(warmupService.keepAlive(LLAMA)).isEqualTo(properties.getMaxKeepAlive());
+    }
+
+    @Test
+    void refreshExtendsOnlyModelsWithRecentDemand() throws Exception {
+        modelRegistry.recordOutcome(LLAMA, true, 100);
+        modelRegistry.recordOutcome(LLAMA, true, 100);
+
+        warmupService.refreshKeepAlive();
+        awaitRequests(1);
+        Thread.sleep(200);
+
+        assertThat(generateRequests).singleElement().satisfies(request -> {
+            assertThat(request.path("model").asText()).isEqualTo(LLAMA);
+            assertThat(request.path("keep_alive").asText()).isEqualTo(Duration.ofMinutes(14).toSeconds() + "s");
+        });
+
+        // Not used since the last extension and far from expiry: nothing to do
+        warmupService.refreshKeepAlive();
+        Thread.sleep(200);
+        assertThat(generateRequests).hasSize(1);
+    }
+
+    @Test
+    void preloadsConfiguredPulledModelsAtStartup() throws Exception {
+        warmupService.preload();
+
+        awaitRequests(2);
+        assertThat(generateRequests).extracting(request -> request.path("model").asText()).containsExactly(LLAMA, QWEN);
+    }
+
+    @Test
+    void disabledPreloadDoesNothing() throws Exception {
+        properties.setPreloadOnStartup(false);
+
+        warmupService.preload();
+        Thread.sleep(300);
+
+        assertThat(generateRequests).isEmpty();
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (generateRequests.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(generateRequests).hasSizeGreaterThanOrEqualTo(count);
+    }
+
+    private void generate(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        int loads = concurrentLoads.incrementAndGet();
+        maxConcurrentLoads.accumulateAndGet(loads, Math::max);
+        try {
+            Thread.sleep(loadDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrentLoads.decrementAndGet();
+        }
+        generateRequests.add(request);
+        if (generateStatus != 200) {
+            respond(exchange, generateStatus, "{\"error\":\"model failed to load\"}");
+            return;
+        }
+        String keepAlive = request.path("keep_alive").asText("300s");
+        resident.put(request.path("model").asText(), Instant.now().plusSeconds(Long.parseLong(keepAlive.replace("s", ""))));
+        respond(exchange, 200, "{\"model\":\"" + request.path("model").asText() + "\",\"response\":\"\",\"done\":true}");
+    }
+
+    private String models(Map<String, Instant> models) {
+        return models.entrySet().stream()
+            .map(model -> "{\"name\":\"" + model.getKey() + "\",\"expires_at\":\""
+                + (model.getValue().equals(Instant.MAX) ? "" : OffsetDateTime.ofInstant(model.getValue(), ZoneOffset.UTC)) + "\"}")
+            .collect(Collectors.joining(",", "{\"models\":[", "]}"));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,211 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.InfrastructureValidationProperties;
+import com.auto.qa.dto.PreflightCheckResult;
+import com.auto.qa.dto.PreflightReport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 임시 파일과 로컬 HTTP 서버를 점검 대상으로 사용해 PreflightService를 검증합니다.
+ */
+class PreflightServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private final AtomicInteger healthCalls = new AtomicInteger();
+    private InfrastructureValidationProperties properties;
+    private PreflightService preflightService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/health", exchange -> {
+            healthCalls.incrementAndGet();
+            respond(exchange, 200);
+        });
+        server.createContext("/down", exchange -> respond(exchange, 503));
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200);
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        properties = new InfrastructureValidationProperties();
+        properties.setEnabled(true);
+        properties.setCheckTimeout(Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (preflightService != null) {
+            preflightService.shutdown();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void reportsUpWhenEveryCheckPasses() throws IOException {
+        Path key = Files.writeString(tempDir.resolve("signed.der"), "key");
+        properties.setFiles(List.of(file(key.toString(), true)));
+        properties.setApis(List.of(api(url("/health"), true)));
+
+        PreflightReport report = service().check();
+
+        assertThat(report.status()).isEqualTo("UP");
+        assertThat(report.checks()).extracting(PreflightCheckResult::status).containsExactlyInAnyOrder("OK", "OK");
+        assertThatCode(preflightService::ensureReady).doesNotThrowAnyException();
+    }
+
+    @Test
+    void failsFastOnACriticalFailure() {
+        properties.setFiles(List.of(file(tempDir.resolve("missing.der").toString(), true)));
+        properties.setApis(List.of(api(url("/health"), false)));
+
+        assertThatThrownBy(() -> service().ensureReady())
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("missing.der")
+            .hasMessageContaining("file not found");
+    }
+
+    @Test
+    void onlyWarnsWhenFailFastIsOff() {
+        properties.setFailFast(false);
+        properties.setApis(List.of(api(url("/down"), true)));
+
+        assertThatCode(() -> service().ensureReady()).doesNotThrowAnyException();
+        assertThat(preflightService.check().status()).isEqualTo("DOWN");
+    }
+
+    @Test
+    void nonCriticalFailuresOnlyDegradeTheReport() {
+        properties.setApis(List.of(api(url("/health"), true), api(url("/down"), false)));
+
+        PreflightReport report = service().check();
+
+        assertThat(report.status()).isEqualTo("DEGRADED");
+        assertThat(report.healthy()).isTrue();
+        assertThatCode(preflightService::ensureReady).doesNotThrowAnyException();
+    }
+
+    @Test
+    void slowChecksTimeOutTogetherWithinTheCheckTimeout() {
+        properties.setApis(List.of(api(url("/slow"), true), api(url("/slow") + "?second", true), api(url("/health"), true)));
+
+        long start = System.nanoTime();
+        PreflightReport report = service().check();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(report.criticalFailures()).hasSize(2).allSatisfy(check -> assertThat(check.status()).isEqualTo("TIMED_OUT"));
+        assertThat(report.status()).isEqualTo("DOWN");
+    }
+
+    @Test
+    void skipsExcludedHosts() {
+        properties.setExcludePatterns(List.of("*.local"));
+        properties.setApis(List.of(api("http://qa.local/health", true)));
+
+        PreflightReport report = service().check();
+
+        assertThat(report.checks()).singleElement().satisfies(check -> assertThat(check.status()).isEqualTo("SKIPPED"));
+        assertThat(report.healthy()).isTrue();
+    }
+
+    @Test
+    void reusesTheReportWithinTheCacheTtl() {
+        properties.setApis(List.of(api(url("/health"), true)));
+        service();
+
+        PreflightReport first = preflightService.check();
+        assertThat(preflightService.check()).isSameAs(first);
+        assertThat(healthCalls).hasValue(1);
+
+        assertThat(preflightService.refresh()).isNotSameAs(first);
+        assertThat(healthCalls).hasValue(2);
+    }
+
+    @Test
+    void concurrentCallersOnVirtualThreadsShareOneRefresh() throws Exception {
+        properties.setCheckTimeout(Duration.ofSeconds(2));
+        properties.setApis(List.of(api(url("/health"), true)));
+        service();
+
+        // Waiters must park without pinning a carrier, or the check and the stand-in server cannot run on one CPU
+        List<Future<PreflightReport>> reports = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 16; i++) {
+                reports.add(callers.submit(preflightService::check));
+            }
+        }
+
+        for (Future<PreflightReport> report : reports) {
+            assertThat(report.get().status()).isEqualTo("UP");
+        }
+        assertThat(healthCalls).hasValue(1);
+    }
+
+    @Test
+    void disabledPreflightNeverRejectsRuns() {
+        properties.setEnabled(false);
+        properties.setFiles(List.of(file(tempDir.resolve("missing.der").toString(), true)));
+
+        assertThatCode(() -> service().ensureReady()).doesNotThrowAnyException();
+    }
+
+    private PreflightService service() {
+        preflightService = new PreflightService(properties, new SimpleMeterRegistry());
+        return preflightService;
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static InfrastructureValidationProperties.FileCheck file(String path, boolean critical) {
+        InfrastructureValidationProperties.FileCheck check = new InfrastructureValidationProperties.FileCheck();
+        check.setPath(path);
+        check.setCritical(critical);
+        return check;
+    }
+
+    private static InfrastructureValidationProperties.ApiCheck api(String url, boolean critical) {
+        InfrastructureValidationProperties.ApiCheck check = new InfrastructureValidationProperties.ApiCheck();
+        check.setUrl(url);
+        check.setCritical(critical);
+        return check;
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+}
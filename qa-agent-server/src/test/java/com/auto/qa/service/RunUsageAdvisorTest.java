@@ -0,0 +1,151 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.RunProperties;
+import com.auto.qa.config.TokenBudgetProperties;
+import com.auto.qa.tool.QaToolCallback;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 로컬 HTTP 서버를 Ollama /api/chat 대신 사용해, 동기 실행의 도구 호출 루프에서 실행당 토큰 예산이 적용되는지 검증합니다.
+ */
+class RunUsageAdvisorTest {
+
+    private static final String RUN_ID = "run-1";
+
+    private HttpServer server;
+    private final AtomicInteger chatRequests = new AtomicInteger();
+    private final AtomicInteger toolCalls = new AtomicInteger();
+    // Requests after this many answer with text instead of another tool call
+    private volatile int toolRounds = Integer.MAX_VALUE;
+
+    private TokenBudgetProperties budget;
+    private RunStatsService runStatsService;
+    private TokenUsageService tokenUsageService;
+    private ActiveRunRegistry activeRunRegistry;
+    private RunUsageAdvisor runUsageAdvisor;
+    private ChatClient chatClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/chat", this::chat);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        budget = new TokenBudgetProperties();
+        runStatsService = new RunStatsService();
+        tokenUsageService = new TokenUsageService(budget, new SimpleMeterRegistry(), mock(RunEventLog.class), runStatsService);
+        activeRunRegistry = new ActiveRunRegistry(new RunProperties(), () -> new ToolCallback[0], new SimpleMeterRegistry(),
+            mock(RunEventLog.class), tokenUsageService);
+        runUsageAdvisor = new RunUsageAdvisor(runStatsService, tokenUsageService, activeRunRegistry);
+
+        OllamaChatModel chatModel = OllamaChatModel.builder()
+            .ollamaApi(OllamaApi.builder().baseUrl("http://127.0.0.1:" + server.getAddress().getPort()).build())
+            .defaultOptions(OllamaChatOptions.builder().model("llama3.2").build())
+            .toolCallingManager(runUsageAdvisor.toolCallingManager(ToolCallingManager.builder().build()))
+            .build();
+        chatClient = ChatClient.builder(chatModel).build();
+
+        activeRunRegistry.register(RUN_ID, "llama3.2", "https://example.com");
+        tokenUsageService.open(RUN_ID, "llama3.2");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void syncRunStopsOnceItsUsageExceedsTheRunBudget() {
+        // Every round adds 1100 tokens, so the second round crosses the budget
+        budget.setPerRun(2_000);
+
+        assertThatThrownBy(this::call)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("2000");
+
+        assertThat(chatRequests).hasValue(2);
+        assertThat(toolCalls).hasValue(1);
+        assertThat(runStatsService.get(RUN_ID)).hasValueSatisfying(stats -> assertThat(stats.totalTokens()).isEqualTo(2_200));
+        assertThat(activeRunRegistry.isCancelled(RUN_ID)).isTrue();
+    }
+
+    @Test
+    void syncRunWithinTheBudgetRecordsItsUsage() {
+        budget.setPerRun(10_000);
+        toolRounds = 2;
+
+        assertThat(call()).isEqualTo("done");
+
+        assertThat(chatRequests).hasValue(3);
+        assertThat(toolCalls).hasValue(2);
+        assertThat(runStatsService.get(RUN_ID)).hasValueSatisfying(stats -> assertThat(stats.totalTokens()).isEqualTo(3_300));
+        assertThat(activeRunRegistry.isCancelled(RUN_ID)).isFalse();
+    }
+
+    private String call() {
+        return chatClient.prompt()
+            .user("check https://example.com")
+            .advisors(a -> a.advisors(runUsageAdvisor).param(QaToolCallback.RUN_ID_KEY, RUN_ID))
+            .toolCallbacks(tool())
+            .toolContext(Map.of(QaToolCallback.RUN_ID_KEY, RUN_ID))
+            .call()
+            .content();
+    }
+
+    private ToolCallback tool() {
+        ToolDefinition definition = ToolDefinition.builder()
+            .name("browser_navigate")
+            .description("Navigate to a URL")
+            .inputSchema("{\"type\":\"object\",\"properties\":{\"url\":{\"type\":\"string\"}}}")
+            .build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                toolCalls.incrementAndGet();
+                return "navigated";
+            }
+        };
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        String message = chatRequests.incrementAndGet() > toolRounds
+            ? "{\"role\":\"assistant\",\"content\":\"done\"}"
+            : "{\"role\":\"assistant\",\"content\":\"\",\"tool_calls\":[{\"function\":{\"name\":\"browser_navigate\",\"arguments\":{\"url\":\"https://example.com\"}}}]}";
+        byte[] body = ("{\"model\":\"llama3.2\",\"created_at\":\"2026-01-01T00:00:00Z\",\"message\":" + message
+            + ",\"done\":true,\"done_reason\":\"stop\",\"prompt_eval_count\":1000,\"eval_count\":100}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+}
@@ -0,0 +1,126 @@
+package com.auto.qa.service;
+
+import com.auto.qa.config.RunProperties;
+import com.auto.qa.dto.RunEvent;
+import com.auto.qa.dto.ToolCallRecord;
+import com.auto.qa.dto.ToolTranscript;
+import com.auto.qa.tool.QaToolCallback;
+import com.auto.qa.tool.QaToolCallbackFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 트랜스크립트 재생이 모델의 도구 호출과 같은 계측(취소, 실행 이벤트, 아티팩트, 기록)을 거치는지 검증합니다.
+ */
+class TranscriptReplayServiceTest {
+
+    private static final String RUN_ID = "run-1";
+
+    private final AtomicInteger toolCalls = new AtomicInteger();
+    private volatile Function<String, String> tool = input -> "navigated";
+
+    private ActiveRunRegistry activeRunRegistry;
+    private TranscriptService transcriptService;
+    private RunEventLog runEventLog;
+    private ArtifactStore artifactStore;
+    private TranscriptReplayService transcriptReplayService;
+
+    @BeforeEach
+    void setUp() {
+        activeRunRegistry = new ActiveRunRegistry(new RunProperties(), () -> new ToolCallback[0], new SimpleMeterRegistry(),
+            mock(RunEventLog.class), mock(TokenUsageService.class));
+        transcriptService = mock(TranscriptService.class);
+        runEventLog = mock(RunEventLog.class);
+        artifactStore = mock(ArtifactStore.class);
+        transcriptReplayService = new TranscriptReplayService(new SimpleMeterRegistry());
+        activeRunRegistry.register(RUN_ID, "llama3.2", "https://example.com");
+    }
+
+    @Test
+    void replayedCallsAreInstrumentedLikeModelCalls() {
+        TranscriptReplayService.ReplayResult result = transcriptReplayService.replay(RUN_ID, transcript(2), List.of(wrappedTool()));
+
+        assertThat(result.diverged()).isFalse();
+        assertThat(result.replayed()).isEqualTo(2);
+        verify(transcriptService, times(2)).record(eq(RUN_ID), eq("browser_navigate"), eq("{}"), eq("navigated"), anyLong());
+        verify(artifactStore, times(2)).capture(RUN_ID, "browser_navigate", "navigated");
+        ArgumentCaptor<RunEvent> events = ArgumentCaptor.forClass(RunEvent.class);
+        verify(runEventLog, times(4)).append(events.capture());
+        assertThat(events.getAllValues()).extracting(RunEvent::type).containsExactly(
+            RunEvent.Type.TOOL_CALL_BEGIN, RunEvent.Type.TOOL_CALL_END, RunEvent.Type.TOOL_CALL_BEGIN, RunEvent.Type.TOOL_CALL_END);
+    }
+
+    @Test
+    void cancellingTheRunStopsTheReplay() {
+        tool = input -> {
+            activeRunRegistry.cancel(RUN_ID, "client");
+            return "navigated";
+        };
+
+        assertThatThrownBy(() -> transcriptReplayService.replay(RUN_ID, transcript(3), List.of(wrappedTool())))
+            .isInstanceOf(CancellationException.class);
+
+        assertThat(toolCalls).hasValue(1);
+    }
+
+    @Test
+    void toolErrorsAreDivergences() {
+        tool = input -> {
+            throw new IllegalStateException("element not found");
+        };
+
+        TranscriptReplayService.ReplayResult result = transcriptReplayService.replay(RUN_ID, transcript(2), List.of(wrappedTool()));
+
+        assertThat(result.diverged()).isTrue();
+        assertThat(result.replayed()).isZero();
+        assertThat(result.divergence()).contains("element not found");
+    }
+
+    private static ToolTranscript transcript(int calls) {
+        ToolTranscript transcript = ToolTranscript.builder().testCaseId("tc-1").url("https://example.com").build();
+        for (int i = 0; i < calls; i++) {
+            transcript.getCalls().add(new ToolCallRecord("browser_navigate", "{}", "navigated", 10));
+        }
+        return transcript;
+    }
+
+    private QaToolCallback wrappedTool() {
+        QaToolCallbackFactory factory = new QaToolCallbackFactory(mock(SnapshotDiffService.class), mock(ToolResultBudgetService.class),
+            transcriptService, activeRunRegistry, mock(RunStatsService.class), runEventLog,
+            mock(ConversationMemoryService.class), artifactStore);
+        ToolDefinition definition = ToolDefinition.builder()
+            .name("browser_navigate")
+            .description("Navigate to a URL")
+            .inputSchema("{\"type\":\"object\",\"properties\":{\"url\":{\"type\":\"string\"}}}")
+            .build();
+        return factory.wrap(new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                toolCalls.incrementAndGet();
+                return tool.apply(toolInput);
+            }
+        });
+    }
+}